@@ -28,6 +28,7 @@ import org.slf4j.LoggerFactory;
 import com.helger.annotation.Nonempty;
 import com.helger.annotation.concurrent.Immutable;
 import com.helger.annotation.style.PresentForCodeCoverage;
+import com.helger.peppol.security.RevocationCheckPrefetcher;
 import com.helger.security.certificate.TrustedCAChecker;
 import com.helger.security.keystore.EKeyStoreType;
 import com.helger.security.keystore.ITrustStoreDescriptor;
@@ -125,4 +126,18 @@ public final class DBNAllianceTrustStores
 
   private DBNAllianceTrustStores ()
   {}
+
+  /**
+   * Remove all entries from the revocation cache of the DBNAlliance CA checkers, including the
+   * shared revocation check results in {@link RevocationCheckPrefetcher#getDefaultInstance()}.
+   *
+   * @since 12.8.2
+   */
+  public static void clearRevocationCheckCache ()
+  {
+    Config2023.PILOT_CA.getRevocationCache ().clearCache ();
+    RevocationCheckPrefetcher.getDefaultInstance ().clearCache (Config2023.PILOT_CA);
+
+    LOGGER.info ("The DBNAllianceTrustStores revocation cache was cleared");
+  }
 }
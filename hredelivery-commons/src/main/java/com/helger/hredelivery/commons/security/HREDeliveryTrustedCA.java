@@ -16,15 +16,23 @@
  */
 package com.helger.hredelivery.commons.security;
 
+import java.nio.file.Path;
+import java.util.List;
+
 import org.jspecify.annotations.NonNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.peppol.security.OfflineCRLSource;
+import com.helger.peppol.security.RevocationCheckPrefetcher;
 import com.helger.security.certificate.TrustedCAChecker;
 
 /**
- * This class contains all the trusted CAs in HR eDelivery.
+ * This class contains all the trusted CAs in HR eDelivery. The revocation check results of the
+ * checkers can be shared and kept current in the background via
+ * {@link RevocationCheckPrefetcher#getDefaultInstance()} or taken from local CRLs via
+ * {@link #createOfflineCRLSource(Path)}.
  *
  * @author Philip Helger
  * @since 12.1.1
@@ -78,7 +86,30 @@ public final class HREDeliveryTrustedCA
   }
 
   /**
-   * Remove all entries from the revocation cache.
+   * Create a new revocation source that serves the CRLs of the Fina Demo and Production CAs from a
+   * local directory. Use it via
+   * {@link OfflineCRLSource#checkCertificate(TrustedCAChecker, java.security.cert.X509Certificate)}
+   * with one of the checkers of this class.
+   *
+   * @param aDirectory
+   *        The directory containing the CRL files. May not be <code>null</code>.
+   * @return A new {@link OfflineCRLSource} using
+   *         {@link OfflineCRLSource#DEFAULT_CHECK_INTERVAL}. Never <code>null</code>.
+   * @since 12.8.2
+   */
+  @NonNull
+  public static OfflineCRLSource createOfflineCRLSource (@NonNull final Path aDirectory)
+  {
+    return new OfflineCRLSource (aDirectory,
+                                 OfflineCRLSource.DEFAULT_CHECK_INTERVAL,
+                                 List.of (HREDeliveryTrustStores.Fina2015.CERTIFICATE_DEMO_CA_2020,
+                                          HREDeliveryTrustStores.Fina2015.CERTIFICATE_PRODUCTION_RDC_2020,
+                                          HREDeliveryTrustStores.Fina2015.CERTIFICATE_PRODUCTION_RDC_2025));
+  }
+
+  /**
+   * Remove all entries from the revocation cache, including the shared revocation check results of
+   * these checkers in {@link RevocationCheckPrefetcher#getDefaultInstance()}.
    */
   public static void clearRevocationCheckCache ()
   {
@@ -86,6 +117,11 @@ public final class HREDeliveryTrustedCA
     FINA_PROD.getRevocationCache ().clearCache ();
     FINA_ALL.getRevocationCache ().clearCache ();
 
+    final RevocationCheckPrefetcher aPrefetcher = RevocationCheckPrefetcher.getDefaultInstance ();
+    aPrefetcher.clearCache (FINA_DEMO);
+    aPrefetcher.clearCache (FINA_PROD);
+    aPrefetcher.clearCache (FINA_ALL);
+
     LOGGER.info ("The HREDeliveryTrustedCA revocation cache was cleared");
   }
 }
@@ -0,0 +1,451 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.security;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.GeneralSecurityException;
+import java.security.cert.CRL;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509CRL;
+import java.security.cert.X509CRLEntry;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import javax.security.auth.x500.X500Principal;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.state.ETriState;
+import com.helger.base.tostring.ToStringGenerator;
+import com.helger.security.certificate.ECertificateCheckResult;
+import com.helger.security.certificate.TrustedCAChecker;
+import com.helger.security.revocation.ERevocationCheckMode;
+
+/**
+ * A revocation source that serves CRLs from a local directory instead of downloading them from the
+ * CRL distribution points. This is meant for network zones where outbound HTTP to the CRL
+ * distribution points is slow or blocked. The CRLs need to be placed into the directory by other
+ * means (DER or PEM encoded, one or more CRLs per file, any file name).
+ * <p>
+ * Each file is read and parsed once into an index of the revoked serial numbers per issuer. Only
+ * CRLs that are signed by one of the configured CA certificates are used. The directory is checked
+ * for new, modified and deleted files at most once per {@link #getCheckInterval()} - changes are
+ * applied without interrupting the running checks. If a CRL is outdated (after its "nextUpdate"
+ * date), the revocation status is unknown.
+ * </p>
+ *
+ * @author Philip Helger
+ * @since 12.8.2
+ */
+@ThreadSafe
+public class OfflineCRLSource
+{
+  /** The default interval in which the directory is checked for changes */
+  public static final Duration DEFAULT_CHECK_INTERVAL = Duration.ofMinutes (1);
+
+  private static final Logger LOGGER = LoggerFactory.getLogger (OfflineCRLSource.class);
+
+  /**
+   * The parsed content of a single CRL.
+   */
+  private static final class CRLIndex
+  {
+    private final Path m_aPath;
+    private final Instant m_aThisUpdate;
+    private final Instant m_aNextUpdate;
+    private final Map <BigInteger, Instant> m_aRevoked;
+
+    CRLIndex (@NonNull final Path aPath, @NonNull final X509CRL aCRL)
+    {
+      m_aPath = aPath;
+      m_aThisUpdate = aCRL.getThisUpdate ().toInstant ();
+      m_aNextUpdate = aCRL.getNextUpdate () == null ? null : aCRL.getNextUpdate ().toInstant ();
+      final Set <? extends X509CRLEntry> aEntries = aCRL.getRevokedCertificates ();
+      if (aEntries == null)
+        m_aRevoked = Collections.emptyMap ();
+      else
+      {
+        m_aRevoked = new HashMap <> (aEntries.size () * 2);
+        for (final X509CRLEntry aEntry : aEntries)
+          m_aRevoked.put (aEntry.getSerialNumber (), aEntry.getRevocationDate ().toInstant ());
+      }
+    }
+  }
+
+  /**
+   * The state of a single file in the directory.
+   */
+  private static final class FileState
+  {
+    private final FileTime m_aLastModified;
+    private final long m_nSize;
+    private final Map <X500Principal, CRLIndex> m_aCRLs;
+
+    FileState (@NonNull final FileTime aLastModified,
+               final long nSize,
+               @NonNull final Map <X500Principal, CRLIndex> aCRLs)
+    {
+      m_aLastModified = aLastModified;
+      m_nSize = nSize;
+      m_aCRLs = aCRLs;
+    }
+  }
+
+  /**
+   * An immutable snapshot of the directory.
+   */
+  private static final class Snapshot
+  {
+    private final Map <Path, FileState> m_aFiles;
+    private final Map <X500Principal, CRLIndex> m_aByIssuer;
+
+    Snapshot (@NonNull final Map <Path, FileState> aFiles, @NonNull final Map <X500Principal, CRLIndex> aByIssuer)
+    {
+      m_aFiles = aFiles;
+      m_aByIssuer = aByIssuer;
+    }
+  }
+
+  private final Path m_aDirectory;
+  private final Duration m_aCheckInterval;
+  private final Map <X500Principal, X509Certificate> m_aCACerts = new HashMap <> ();
+  private final ReentrantLock m_aReloadLock = new ReentrantLock ();
+  private volatile Snapshot m_aSnapshot = new Snapshot (Collections.emptyMap (), Collections.emptyMap ());
+  private volatile long m_nLastCheckNanos;
+
+  /**
+   * Constructor. The directory is read immediately.
+   *
+   * @param aDirectory
+   *        The directory containing the CRL files. May not be <code>null</code>. The directory
+   *        does not need to exist yet.
+   * @param aCheckInterval
+   *        The interval in which the directory is checked for changes. May not be
+   *        <code>null</code> and must not be negative.
+   * @param aCACerts
+   *        The CA certificates that may sign the CRLs. Usually the issuing CA certificates of the
+   *        checked certificates. May neither be <code>null</code> nor empty.
+   */
+  public OfflineCRLSource (@NonNull final Path aDirectory,
+                           @NonNull final Duration aCheckInterval,
+                           @NonNull final Collection <? extends X509Certificate> aCACerts)
+  {
+    ValueEnforcer.notNull (aDirectory, "Directory");
+    ValueEnforcer.notNull (aCheckInterval, "CheckInterval");
+    ValueEnforcer.isTrue ( () -> !aCheckInterval.isNegative (), "CheckInterval may not be negative");
+    ValueEnforcer.notEmptyNoNullValue (aCACerts, "CACerts");
+    m_aDirectory = aDirectory;
+    m_aCheckInterval = aCheckInterval;
+    for (final X509Certificate aCACert : aCACerts)
+      m_aCACerts.put (aCACert.getSubjectX500Principal (), aCACert);
+    reload ();
+  }
+
+  /**
+   * @return The directory containing the CRL files. Never <code>null</code>.
+   */
+  @NonNull
+  public final Path getDirectory ()
+  {
+    return m_aDirectory;
+  }
+
+  /**
+   * @return The interval in which the directory is checked for changes. Never <code>null</code>.
+   */
+  @NonNull
+  public final Duration getCheckInterval ()
+  {
+    return m_aCheckInterval;
+  }
+
+  /**
+   * @return The number of issuers for which a CRL is present.
+   */
+  @Nonnegative
+  public int getIssuerCount ()
+  {
+    return m_aSnapshot.m_aByIssuer.size ();
+  }
+
+  @NonNull
+  private Map <X500Principal, CRLIndex> _readFile (@NonNull final Path aPath) throws IOException,
+                                                                              GeneralSecurityException
+  {
+    final Collection <? extends CRL> aCRLs;
+    // Only the index is kept - the file is not kept open
+    try (final InputStream aIS = new BufferedInputStream (Files.newInputStream (aPath)))
+    {
+      aCRLs = CertificateFactory.getInstance ("X.509").generateCRLs (aIS);
+    }
+
+    final Map <X500Principal, CRLIndex> ret = new HashMap <> ();
+    for (final CRL aCRL : aCRLs)
+      if (aCRL instanceof final X509CRL aX509CRL)
+      {
+        final X500Principal aIssuer = aX509CRL.getIssuerX500Principal ();
+        final X509Certificate aCACert = m_aCACerts.get (aIssuer);
+        if (aCACert == null)
+        {
+          LOGGER.warn ("Ignoring CRL of unknown issuer '" + aIssuer.getName () + "' in file '" + aPath + "'");
+          continue;
+        }
+        try
+        {
+          aX509CRL.verify (aCACert.getPublicKey ());
+        }
+        catch (final GeneralSecurityException ex)
+        {
+          LOGGER.warn ("Ignoring CRL of issuer '" +
+                       aIssuer.getName () +
+                       "' in file '" +
+                       aPath +
+                       "' because the signature is invalid: " +
+                       ex.getMessage ());
+          continue;
+        }
+        final CRLIndex aIndex = new CRLIndex (aPath, aX509CRL);
+        final CRLIndex aOther = ret.get (aIssuer);
+        if (aOther == null || aIndex.m_aThisUpdate.isAfter (aOther.m_aThisUpdate))
+          ret.put (aIssuer, aIndex);
+      }
+    return ret;
+  }
+
+  /**
+   * Read all new and modified files of the directory and forget about deleted files. Unmodified
+   * files are not read again. This is called automatically, if the check interval elapsed.
+   */
+  public void reload ()
+  {
+    m_aReloadLock.lock ();
+    try
+    {
+      final Snapshot aOld = m_aSnapshot;
+      final Map <Path, FileState> aFiles = new HashMap <> ();
+      if (Files.isDirectory (m_aDirectory))
+      {
+        final List <Path> aPaths = new ArrayList <> ();
+        try (final Stream <Path> aStream = Files.list (m_aDirectory))
+        {
+          aStream.filter (Files::isRegularFile).forEach (aPaths::add);
+        }
+        catch (final IOException ex)
+        {
+          LOGGER.warn ("Failed to list the CRL directory '" + m_aDirectory + "' - keeping the previous CRLs", ex);
+          return;
+        }
+
+        for (final Path aPath : aPaths)
+        {
+          final BasicFileAttributes aAttrs;
+          try
+          {
+            aAttrs = Files.readAttributes (aPath, BasicFileAttributes.class);
+          }
+          catch (final IOException ex)
+          {
+            // E.g. deleted in the meantime
+            continue;
+          }
+
+          final FileState aOldState = aOld.m_aFiles.get (aPath);
+          if (aOldState != null &&
+              aOldState.m_aLastModified.equals (aAttrs.lastModifiedTime ()) &&
+              aOldState.m_nSize == aAttrs.size ())
+          {
+            // Unchanged - this includes files that could not be read
+            aFiles.put (aPath, aOldState);
+          }
+          else
+          {
+            Map <X500Principal, CRLIndex> aCRLs;
+            try
+            {
+              aCRLs = _readFile (aPath);
+              LOGGER.info ("Read " + aCRLs.size () + " CRL(s) from file '" + aPath + "'");
+            }
+            catch (final IOException | GeneralSecurityException ex)
+            {
+              // Tried again when the file changes
+              LOGGER.warn ("Failed to read CRL file '" + aPath + "': " + ex.getMessage ());
+              aCRLs = Collections.emptyMap ();
+            }
+            aFiles.put (aPath, new FileState (aAttrs.lastModifiedTime (), aAttrs.size (), aCRLs));
+          }
+        }
+      }
+      else
+        LOGGER.warn ("The CRL directory '" + m_aDirectory + "' does not exist");
+
+      // Use the most recent CRL per issuer
+      final Map <X500Principal, CRLIndex> aByIssuer = new HashMap <> ();
+      for (final FileState aState : aFiles.values ())
+        for (final Map.Entry <X500Principal, CRLIndex> aEntry : aState.m_aCRLs.entrySet ())
+          aByIssuer.merge (aEntry.getKey (),
+                           aEntry.getValue (),
+                           (a, b) -> b.m_aThisUpdate.isAfter (a.m_aThisUpdate) ? b : a);
+
+      m_aSnapshot = new Snapshot (aFiles, aByIssuer);
+      m_nLastCheckNanos = System.nanoTime ();
+    }
+    finally
+    {
+      m_aReloadLock.unlock ();
+    }
+  }
+
+  private void _reloadIfNeeded ()
+  {
+    if (System.nanoTime () - m_nLastCheckNanos >= m_aCheckInterval.toNanos ())
+    {
+      // Only one thread reloads - all others continue with the current snapshot
+      if (m_aReloadLock.tryLock ())
+        try
+        {
+          if (System.nanoTime () - m_nLastCheckNanos >= m_aCheckInterval.toNanos ())
+            reload ();
+        }
+        finally
+        {
+          m_aReloadLock.unlock ();
+        }
+    }
+  }
+
+  /**
+   * Get the revocation status of a certificate from the local CRLs.
+   *
+   * @param aIssuer
+   *        The issuer of the certificate. May not be <code>null</code>.
+   * @param aSerialNumber
+   *        The serial number of the certificate. May not be <code>null</code>.
+   * @return {@link ECertificateCheckResult#VALID} if the certificate is not revoked,
+   *         {@link ECertificateCheckResult#REVOKED} if it is revoked or
+   *         {@link ECertificateCheckResult#REVOCATION_STATUS_UNKNOWN} if no CRL for the issuer is
+   *         present or if the CRL is outdated.
+   */
+  @NonNull
+  public ECertificateCheckResult getRevocationStatus (@NonNull final X500Principal aIssuer,
+                                                      @NonNull final BigInteger aSerialNumber)
+  {
+    ValueEnforcer.notNull (aIssuer, "Issuer");
+    ValueEnforcer.notNull (aSerialNumber, "SerialNumber");
+
+    _reloadIfNeeded ();
+
+    final CRLIndex aIndex = m_aSnapshot.m_aByIssuer.get (aIssuer);
+    if (aIndex == null)
+    {
+      LOGGER.warn ("No local CRL for issuer '" + aIssuer.getName () + "' is present");
+      return ECertificateCheckResult.REVOCATION_STATUS_UNKNOWN;
+    }
+
+    final Instant aNow = Instant.now ();
+    if (aIndex.m_aNextUpdate != null && aNow.isAfter (aIndex.m_aNextUpdate))
+    {
+      LOGGER.warn ("The local CRL '" +
+                   aIndex.m_aPath +
+                   "' for issuer '" +
+                   aIssuer.getName () +
+                   "' is outdated since " +
+                   aIndex.m_aNextUpdate);
+      return ECertificateCheckResult.REVOCATION_STATUS_UNKNOWN;
+    }
+
+    final Instant aRevocationDate = aIndex.m_aRevoked.get (aSerialNumber);
+    if (aRevocationDate != null && !aNow.isBefore (aRevocationDate))
+      return ECertificateCheckResult.REVOKED;
+    return ECertificateCheckResult.VALID;
+  }
+
+  /**
+   * Get the revocation status of a certificate from the local CRLs.
+   *
+   * @param aCert
+   *        The certificate to check. May not be <code>null</code>.
+   * @return {@link ECertificateCheckResult#VALID}, {@link ECertificateCheckResult#REVOKED} or
+   *         {@link ECertificateCheckResult#REVOCATION_STATUS_UNKNOWN}.
+   * @see #getRevocationStatus(X500Principal, BigInteger)
+   */
+  @NonNull
+  public ECertificateCheckResult getRevocationStatus (@NonNull final X509Certificate aCert)
+  {
+    ValueEnforcer.notNull (aCert, "Cert");
+    return getRevocationStatus (aCert.getIssuerX500Principal (), aCert.getSerialNumber ());
+  }
+
+  /**
+   * Check a certificate with the provided trusted CA checker, but use the local CRLs instead of
+   * the online revocation check.
+   *
+   * @param aChecker
+   *        The trusted CA checker to use, e.g. {@link PeppolTrustedCA#peppolAllAP()}. May not be
+   *        <code>null</code>.
+   * @param aCert
+   *        The certificate to check. May be <code>null</code>.
+   * @return The check result. Never <code>null</code>.
+   */
+  @NonNull
+  public ECertificateCheckResult checkCertificate (@NonNull final TrustedCAChecker aChecker,
+                                                   @Nullable final X509Certificate aCert)
+  {
+    ValueEnforcer.notNull (aChecker, "Checker");
+
+    // Issuer and validity checks only
+    final ECertificateCheckResult eResult = aChecker.checkCertificate (aCert,
+                                                                       null,
+                                                                       ETriState.FALSE,
+                                                                       ERevocationCheckMode.NONE);
+    if (eResult.isInvalid ())
+      return eResult;
+    return getRevocationStatus (aCert);
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Directory", m_aDirectory)
+                                       .append ("CheckInterval", m_aCheckInterval)
+                                       .append ("CACertCount", m_aCACerts.size ())
+                                       .append ("IssuerCount", m_aSnapshot.m_aByIssuer.size ())
+                                       .getToString ();
+  }
+}
@@ -16,17 +16,27 @@
  */
 package com.helger.peppol.security;
 
+import java.nio.file.Path;
+import java.security.cert.X509Certificate;
+import java.util.List;
+
 import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.security.certificate.ECertificateCheckResult;
 import com.helger.security.certificate.TrustedCAChecker;
+import com.helger.security.revocation.ERevocationCheckMode;
 
 /**
  * This class contains all the trusted CAs in Peppol.<br>
  * Note: the G2 CAs (from PeppolTrustStores.Config2018) are deprecated. Since 12.4.2 the 2025
- * truststores no longer contain G2 CAs.
+ * truststores no longer contain G2 CAs.<br>
+ * Since 12.8.2 the revocation check results of all checkers can be kept current in the background
+ * via the shared {@link RevocationCheckPrefetcher#getDefaultInstance()}. Alternatively the revocation
+ * status can be taken from CRLs in a local directory via {@link #createOfflineCRLSource(Path)}.
  *
  * @author Philip Helger
  * @since 10.2.0
@@ -116,7 +126,54 @@ public final class PeppolTrustedCA
   }
 
   /**
-   * Remove all entries from the revocation cache.
+   * Check the provided certificate with the provided checker, using the shared revocation check
+   * results of {@link RevocationCheckPrefetcher#getDefaultInstance()}. The result is re-checked in
+   * the background, so that subsequent checks don't need to wait for CRL downloads or OCSP
+   * requests.
+   *
+   * @param aChecker
+   *        The checker to use, e.g. {@link #peppolAllAP()}. May not be <code>null</code>.
+   * @param aCert
+   *        The certificate to check. May be <code>null</code>.
+   * @param eCheckMode
+   *        The revocation check mode to use. May not be <code>null</code>.
+   * @return The check result. Never <code>null</code>.
+   * @since 12.8.2
+   */
+  @NonNull
+  public static ECertificateCheckResult checkCertificatePrefetched (@NonNull final TrustedCAChecker aChecker,
+                                                                    @Nullable final X509Certificate aCert,
+                                                                    @NonNull final ERevocationCheckMode eCheckMode)
+  {
+    return RevocationCheckPrefetcher.getDefaultInstance ().checkCertificate (aChecker, aCert, eCheckMode);
+  }
+
+  /**
+   * Create a new revocation source that serves the CRLs of the Peppol AP and SMP CAs (Pilot and
+   * Production) from a local directory. Use it via
+   * {@link OfflineCRLSource#checkCertificate(TrustedCAChecker, X509Certificate)} with one of the
+   * checkers of this class.
+   *
+   * @param aDirectory
+   *        The directory containing the CRL files. May not be <code>null</code>.
+   * @return A new {@link OfflineCRLSource} using
+   *         {@link OfflineCRLSource#DEFAULT_CHECK_INTERVAL}. Never <code>null</code>.
+   * @since 12.8.2
+   */
+  @NonNull
+  public static OfflineCRLSource createOfflineCRLSource (@NonNull final Path aDirectory)
+  {
+    return new OfflineCRLSource (aDirectory,
+                                 OfflineCRLSource.DEFAULT_CHECK_INTERVAL,
+                                 List.of (PeppolTrustStores.Config2025.CERTIFICATE_TEST_AP,
+                                          PeppolTrustStores.Config2025.CERTIFICATE_PRODUCTION_AP,
+                                          PeppolTrustStores.Config2025.CERTIFICATE_TEST_SMP,
+                                          PeppolTrustStores.Config2025.CERTIFICATE_PRODUCTION_SMP));
+  }
+
+  /**
+   * Remove all entries from the revocation cache, including the shared revocation check results of
+   * the Peppol checkers.
    */
   public static void clearRevocationCheckCache ()
   {
@@ -128,6 +185,15 @@ public final class PeppolTrustedCA
     PROD_SMP.getRevocationCache ().clearCache ();
     ALL_SMP.getRevocationCache ().clearCache ();
 
+    final RevocationCheckPrefetcher aPrefetcher = RevocationCheckPrefetcher.getDefaultInstance ();
+    aPrefetcher.clearCache (TEST_AP);
+    aPrefetcher.clearCache (PROD_AP);
+    aPrefetcher.clearCache (ALL_AP);
+
+    aPrefetcher.clearCache (TEST_SMP);
+    aPrefetcher.clearCache (PROD_SMP);
+    aPrefetcher.clearCache (ALL_SMP);
+
     LOGGER.info ("The PeppolTrustedCA revocation cache was cleared");
   }
 }
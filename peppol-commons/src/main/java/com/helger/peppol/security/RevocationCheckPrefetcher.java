@@ -0,0 +1,557 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.security;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.GuardedBy;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.state.ETriState;
+import com.helger.base.tostring.ToStringGenerator;
+import com.helger.security.certificate.ECertificateCheckResult;
+import com.helger.security.certificate.TrustedCAChecker;
+import com.helger.security.revocation.ERevocationCheckMode;
+
+/**
+ * A shared cache of certificate revocation check results, that keeps the cached results current in
+ * the background. Every certificate checked through this class is re-checked in the background
+ * every {@link #getRefreshInterval()}, so that the CRL downloads and OCSP requests happen outside of
+ * the message processing. Certificates that were not requested for {@link #getIdleTimeout()} and
+ * expired certificates are dropped.
+ * <p>
+ * Only {@link ECertificateCheckResult#VALID} and {@link ECertificateCheckResult#REVOKED} results
+ * are cached. If a background check fails (e.g. because the CRL or OCSP server is not reachable),
+ * the previous result is kept, but never for longer than twice the refresh interval. Afterwards the
+ * check is performed again on the next request.
+ * </p>
+ * <p>
+ * A single instance ({@link #getDefaultInstance()}) is shared by {@link PeppolTrustedCA}, the SMP
+ * client and the trusted CAs of the other networks, so that each certificate is only checked once.
+ * The background thread is only started when the first result is cached.
+ * </p>
+ *
+ * @author Philip Helger
+ * @since 12.8.2
+ */
+@ThreadSafe
+public class RevocationCheckPrefetcher implements AutoCloseable
+{
+  /** The default interval in which all cached results are re-checked */
+  public static final Duration DEFAULT_REFRESH_INTERVAL = Duration.ofHours (1);
+  /** The default duration after which results that were not requested are dropped */
+  public static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofDays (1);
+  /** The default maximum number of cached results */
+  public static final int DEFAULT_MAX_SIZE = 10_000;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger (RevocationCheckPrefetcher.class);
+  private static final HexFormat HEX = HexFormat.of ();
+  private static final AtomicInteger THREAD_INDEX = new AtomicInteger (0);
+  private static final RevocationCheckPrefetcher DEFAULT_INSTANCE = new RevocationCheckPrefetcher ();
+
+  /**
+   * The cache key for checks with a {@link TrustedCAChecker}. The checker is compared by identity.
+   */
+  private static final class CheckerKey
+  {
+    private final TrustedCAChecker m_aChecker;
+    private final ERevocationCheckMode m_eCheckMode;
+    private final String m_sFingerprint;
+
+    CheckerKey (@NonNull final TrustedCAChecker aChecker,
+                @NonNull final ERevocationCheckMode eCheckMode,
+                @NonNull final String sFingerprint)
+    {
+      m_aChecker = aChecker;
+      m_eCheckMode = eCheckMode;
+      m_sFingerprint = sFingerprint;
+    }
+
+    @Override
+    public boolean equals (final Object o)
+    {
+      if (o == this)
+        return true;
+      if (!(o instanceof final CheckerKey rhs))
+        return false;
+      return m_aChecker == rhs.m_aChecker &&
+             m_eCheckMode == rhs.m_eCheckMode &&
+             m_sFingerprint.equals (rhs.m_sFingerprint);
+    }
+
+    @Override
+    public int hashCode ()
+    {
+      return (System.identityHashCode (m_aChecker) * 31 + m_eCheckMode.hashCode ()) * 31 + m_sFingerprint.hashCode ();
+    }
+  }
+
+  private static final class CachedResult
+  {
+    private final Supplier <ECertificateCheckResult> m_aCheck;
+    private final Instant m_aNotAfter;
+    private volatile ECertificateCheckResult m_eResult;
+    private volatile long m_nCheckedNanos;
+    private volatile long m_nLastAccessNanos;
+
+    CachedResult (@NonNull final Supplier <ECertificateCheckResult> aCheck,
+                  @NonNull final Instant aNotAfter,
+                  @NonNull final ECertificateCheckResult eResult,
+                  final long nNowNanos)
+    {
+      m_aCheck = aCheck;
+      m_aNotAfter = aNotAfter;
+      m_eResult = eResult;
+      m_nCheckedNanos = nNowNanos;
+      m_nLastAccessNanos = nNowNanos;
+    }
+  }
+
+  private final Duration m_aRefreshInterval;
+  private final Duration m_aIdleTimeout;
+  private final int m_nMaxSize;
+  private final Map <Object, CachedResult> m_aEntries = new ConcurrentHashMap <> ();
+  private final AtomicLong m_aHitCount = new AtomicLong ();
+  private final AtomicLong m_aMissCount = new AtomicLong ();
+  private final AtomicLong m_aRefreshCount = new AtomicLong ();
+  private final AtomicLong m_aRefreshFailureCount = new AtomicLong ();
+
+  @GuardedBy ("this")
+  private ScheduledExecutorService m_aScheduler;
+  private final boolean m_bOwnScheduler;
+  @GuardedBy ("this")
+  private ScheduledFuture <?> m_aRefreshFuture;
+  @GuardedBy ("this")
+  private boolean m_bClosed;
+
+  /**
+   * Constructor using all the default values and an own background thread.
+   */
+  public RevocationCheckPrefetcher ()
+  {
+    this (DEFAULT_REFRESH_INTERVAL, DEFAULT_IDLE_TIMEOUT, DEFAULT_MAX_SIZE, null);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param aRefreshInterval
+   *        The interval in which all cached results are re-checked. May not be <code>null</code>
+   *        and must be positive.
+   * @param aIdleTimeout
+   *        The duration after which results that were not requested are dropped. May not be
+   *        <code>null</code> and must be positive.
+   * @param nMaxSize
+   *        The maximum number of cached results. Must be &gt; 0.
+   * @param aScheduler
+   *        The scheduler to run the background checks. May be <code>null</code> in which case an
+   *        own daemon thread is created when the first result is cached. A provided scheduler is
+   *        not shut down by {@link #close()}.
+   */
+  public RevocationCheckPrefetcher (@NonNull final Duration aRefreshInterval,
+                                    @NonNull final Duration aIdleTimeout,
+                                    @Nonnegative final int nMaxSize,
+                                    @Nullable final ScheduledExecutorService aScheduler)
+  {
+    ValueEnforcer.notNull (aRefreshInterval, "RefreshInterval");
+    ValueEnforcer.isTrue ( () -> !aRefreshInterval.isZero () && !aRefreshInterval.isNegative (),
+                          "RefreshInterval must be a positive Duration");
+    ValueEnforcer.notNull (aIdleTimeout, "IdleTimeout");
+    ValueEnforcer.isTrue ( () -> !aIdleTimeout.isZero () && !aIdleTimeout.isNegative (),
+                          "IdleTimeout must be a positive Duration");
+    ValueEnforcer.isGT0 (nMaxSize, "MaxSize");
+    m_aRefreshInterval = aRefreshInterval;
+    m_aIdleTimeout = aIdleTimeout;
+    m_nMaxSize = nMaxSize;
+    m_aScheduler = aScheduler;
+    m_bOwnScheduler = aScheduler == null;
+  }
+
+  /**
+   * @return The instance shared by all trusted CA classes and the SMP client. Never
+   *         <code>null</code>.
+   */
+  @NonNull
+  public static RevocationCheckPrefetcher getDefaultInstance ()
+  {
+    return DEFAULT_INSTANCE;
+  }
+
+  /**
+   * @return The interval in which all cached results are re-checked. Never <code>null</code>.
+   */
+  @NonNull
+  public final Duration getRefreshInterval ()
+  {
+    return m_aRefreshInterval;
+  }
+
+  /**
+   * @return The duration after which results that were not requested are dropped. Never
+   *         <code>null</code>.
+   */
+  @NonNull
+  public final Duration getIdleTimeout ()
+  {
+    return m_aIdleTimeout;
+  }
+
+  /**
+   * @return The maximum number of cached results.
+   */
+  @Nonnegative
+  public final int getMaxSize ()
+  {
+    return m_nMaxSize;
+  }
+
+  /**
+   * Check if the provided check result can be cached.
+   *
+   * @param eResult
+   *        The check result. May be <code>null</code>.
+   * @return <code>true</code> if the result is {@link ECertificateCheckResult#VALID} or
+   *         {@link ECertificateCheckResult#REVOKED}.
+   */
+  public static boolean isCacheable (@Nullable final ECertificateCheckResult eResult)
+  {
+    return eResult == ECertificateCheckResult.VALID || eResult == ECertificateCheckResult.REVOKED;
+  }
+
+  @NonNull
+  private synchronized ScheduledExecutorService _getScheduler ()
+  {
+    if (m_bClosed)
+      throw new RejectedExecutionException ("The revocation check prefetcher is already closed");
+    if (m_aScheduler == null)
+      m_aScheduler = Executors.newSingleThreadScheduledExecutor (r -> {
+        final Thread t = new Thread (r, "peppol-revocation-prefetch-" + THREAD_INDEX.incrementAndGet ());
+        t.setDaemon (true);
+        return t;
+      });
+    return m_aScheduler;
+  }
+
+  private synchronized void _ensureRefreshScheduled ()
+  {
+    if (m_aRefreshFuture == null && !m_bClosed)
+    {
+      final long nIntervalMillis = m_aRefreshInterval.toMillis ();
+      m_aRefreshFuture = _getScheduler ().scheduleWithFixedDelay (this::refreshAll,
+                                                                  nIntervalMillis,
+                                                                  nIntervalMillis,
+                                                                  TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private boolean _isUsable (@NonNull final CachedResult aCached, final long nNowNanos)
+  {
+    // Background refreshes may fail - so don't use a result that is too old
+    return nNowNanos - aCached.m_nCheckedNanos < m_aRefreshInterval.toNanos () * 2 &&
+           Instant.now ().isBefore (aCached.m_aNotAfter);
+  }
+
+  /**
+   * Get the check result of the provided certificate from the cache or perform the check. If the
+   * result can be cached, the check is repeated in the background until the result was not
+   * requested for the idle timeout.
+   *
+   * @param aKey
+   *        The cache key. Must contain everything that influences the check result and implement
+   *        {@link Object#equals(Object)} and {@link Object#hashCode()}. May not be
+   *        <code>null</code>.
+   * @param aCert
+   *        The certificate to check. Only needed for the expiration date. May not be
+   *        <code>null</code>.
+   * @param aCheck
+   *        The check to perform. Is called from the background thread as well, so it must be
+   *        thread safe. May not be <code>null</code>.
+   * @return The check result. Never <code>null</code>.
+   */
+  @NonNull
+  public ECertificateCheckResult getCheckResult (@NonNull final Object aKey,
+                                                 @NonNull final X509Certificate aCert,
+                                                 @NonNull final Supplier <ECertificateCheckResult> aCheck)
+  {
+    ValueEnforcer.notNull (aKey, "Key");
+    ValueEnforcer.notNull (aCert, "Cert");
+    ValueEnforcer.notNull (aCheck, "Check");
+
+    final long nNowNanos = System.nanoTime ();
+    final CachedResult aCached = m_aEntries.get (aKey);
+    if (aCached != null && _isUsable (aCached, nNowNanos))
+    {
+      aCached.m_nLastAccessNanos = nNowNanos;
+      m_aHitCount.incrementAndGet ();
+      return aCached.m_eResult;
+    }
+
+    m_aMissCount.incrementAndGet ();
+    final ECertificateCheckResult eResult = aCheck.get ();
+    final Instant aNotAfter = aCert.getNotAfter ().toInstant ();
+    if (isCacheable (eResult) &&
+        Instant.now ().isBefore (aNotAfter) &&
+        (aCached != null || m_aEntries.size () < m_nMaxSize))
+    {
+      m_aEntries.put (aKey, new CachedResult (aCheck, aNotAfter, eResult, System.nanoTime ()));
+      _ensureRefreshScheduled ();
+    }
+    return eResult;
+  }
+
+  @Nullable
+  private static String _getFingerprint (@NonNull final X509Certificate aCert)
+  {
+    try
+    {
+      return HEX.formatHex (MessageDigest.getInstance ("SHA-256").digest (aCert.getEncoded ()));
+    }
+    catch (final NoSuchAlgorithmException ex)
+    {
+      throw new IllegalStateException ("SHA-256 is not supported", ex);
+    }
+    catch (final CertificateEncodingException ex)
+    {
+      return null;
+    }
+  }
+
+  /**
+   * Check the provided certificate with the provided trusted CA checker, using the cached result if
+   * available.
+   *
+   * @param aChecker
+   *        The trusted CA checker to use. May not be <code>null</code>.
+   * @param aCert
+   *        The certificate to check. May be <code>null</code>.
+   * @param eCheckMode
+   *        The revocation check mode to use. May not be <code>null</code>.
+   * @return The check result. Never <code>null</code>.
+   */
+  @NonNull
+  public ECertificateCheckResult checkCertificate (@NonNull final TrustedCAChecker aChecker,
+                                                   @Nullable final X509Certificate aCert,
+                                                   @NonNull final ERevocationCheckMode eCheckMode)
+  {
+    ValueEnforcer.notNull (aChecker, "Checker");
+    ValueEnforcer.notNull (eCheckMode, "CheckMode");
+
+    // The per checker cache is bypassed, because this class is the cache
+    final Supplier <ECertificateCheckResult> aCheck = () -> aChecker.checkCertificate (aCert,
+                                                                                      null,
+                                                                                      ETriState.FALSE,
+                                                                                      eCheckMode);
+    final String sFingerprint = aCert == null ? null : _getFingerprint (aCert);
+    if (sFingerprint == null)
+      return aCheck.get ();
+    return getCheckResult (new CheckerKey (aChecker, eCheckMode, sFingerprint), aCert, aCheck);
+  }
+
+  /**
+   * Check the provided certificate asynchronously, so that the result is already cached when it is
+   * needed - e.g. for the own certificate at application startup.
+   *
+   * @param aChecker
+   *        The trusted CA checker to use. May not be <code>null</code>.
+   * @param aCert
+   *        The certificate to check. May not be <code>null</code>.
+   * @param eCheckMode
+   *        The revocation check mode to use. May not be <code>null</code>.
+   */
+  public void prefetch (@NonNull final TrustedCAChecker aChecker,
+                        @NonNull final X509Certificate aCert,
+                        @NonNull final ERevocationCheckMode eCheckMode)
+  {
+    ValueEnforcer.notNull (aChecker, "Checker");
+    ValueEnforcer.notNull (aCert, "Cert");
+    ValueEnforcer.notNull (eCheckMode, "CheckMode");
+
+    try
+    {
+      _getScheduler ().execute ( () -> checkCertificate (aChecker, aCert, eCheckMode));
+    }
+    catch (final RejectedExecutionException ex)
+    {
+      LOGGER.warn ("Failed to schedule the revocation prefetch: " + ex.getMessage ());
+    }
+  }
+
+  /**
+   * Re-check all cached results and drop the ones that were not requested for the idle timeout or
+   * that belong to expired certificates. This is called regularly in the background, but can also
+   * be called manually.
+   */
+  public void refreshAll ()
+  {
+    final long nIdleNanos = m_aIdleTimeout.toNanos ();
+    for (final Map.Entry <Object, CachedResult> aEntry : m_aEntries.entrySet ())
+    {
+      final CachedResult aCached = aEntry.getValue ();
+      if (System.nanoTime () - aCached.m_nLastAccessNanos > nIdleNanos ||
+          !Instant.now ().isBefore (aCached.m_aNotAfter))
+      {
+        m_aEntries.remove (aEntry.getKey (), aCached);
+        continue;
+      }
+
+      try
+      {
+        final ECertificateCheckResult eResult = aCached.m_aCheck.get ();
+        if (isCacheable (eResult))
+        {
+          if (eResult != aCached.m_eResult)
+            LOGGER.info ("The revocation check result changed from " + aCached.m_eResult + " to " + eResult);
+          aCached.m_eResult = eResult;
+          aCached.m_nCheckedNanos = System.nanoTime ();
+          m_aRefreshCount.incrementAndGet ();
+        }
+        else
+        {
+          // Keep the previous result until it becomes too old
+          m_aRefreshFailureCount.incrementAndGet ();
+          LOGGER.warn ("Background revocation check returned " + eResult + " - keeping the previous result");
+        }
+      }
+      catch (final RuntimeException ex)
+      {
+        m_aRefreshFailureCount.incrementAndGet ();
+        LOGGER.warn ("Background revocation check failed", ex);
+      }
+    }
+  }
+
+  /**
+   * Remove all cached results of the provided trusted CA checker.
+   *
+   * @param aChecker
+   *        The trusted CA checker. May be <code>null</code>.
+   */
+  public void clearCache (@Nullable final TrustedCAChecker aChecker)
+  {
+    if (aChecker != null)
+      m_aEntries.keySet ().removeIf (x -> x instanceof final CheckerKey aKey && aKey.m_aChecker == aChecker);
+  }
+
+  /**
+   * Remove all cached results.
+   */
+  public void clearCache ()
+  {
+    m_aEntries.clear ();
+  }
+
+  /**
+   * @return The number of cached results.
+   */
+  @Nonnegative
+  public int size ()
+  {
+    return m_aEntries.size ();
+  }
+
+  /**
+   * @return The number of requests answered from the cache.
+   */
+  @Nonnegative
+  public long getHitCount ()
+  {
+    return m_aHitCount.get ();
+  }
+
+  /**
+   * @return The number of requests that required a check.
+   */
+  @Nonnegative
+  public long getMissCount ()
+  {
+    return m_aMissCount.get ();
+  }
+
+  /**
+   * @return The number of successful background checks.
+   */
+  @Nonnegative
+  public long getRefreshCount ()
+  {
+    return m_aRefreshCount.get ();
+  }
+
+  /**
+   * @return The number of failed background checks.
+   */
+  @Nonnegative
+  public long getRefreshFailureCount ()
+  {
+    return m_aRefreshFailureCount.get ();
+  }
+
+  /**
+   * Stop the background checks and remove all cached results. An own background thread is shut
+   * down.
+   */
+  public synchronized void close ()
+  {
+    m_bClosed = true;
+    if (m_aRefreshFuture != null)
+    {
+      m_aRefreshFuture.cancel (false);
+      m_aRefreshFuture = null;
+    }
+    if (m_bOwnScheduler && m_aScheduler != null)
+    {
+      m_aScheduler.shutdownNow ();
+      m_aScheduler = null;
+    }
+    m_aEntries.clear ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("RefreshInterval", m_aRefreshInterval)
+                                       .append ("IdleTimeout", m_aIdleTimeout)
+                                       .append ("MaxSize", m_nMaxSize)
+                                       .append ("Size", m_aEntries.size ())
+                                       .append ("HitCount", m_aHitCount.get ())
+                                       .append ("MissCount", m_aMissCount.get ())
+                                       .append ("RefreshCount", m_aRefreshCount.get ())
+                                       .append ("RefreshFailureCount", m_aRefreshFailureCount.get ())
+                                       .getToString ();
+  }
+}
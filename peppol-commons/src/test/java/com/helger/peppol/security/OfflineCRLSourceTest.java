@@ -0,0 +1,229 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.security;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.security.auth.x500.X500Principal;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.helger.security.certificate.ECertificateCheckResult;
+import com.helger.security.keystore.EKeyStoreType;
+import com.helger.security.keystore.KeyStoreHelper;
+
+/**
+ * Test class for class {@link OfflineCRLSource}.
+ *
+ * @author Philip Helger
+ */
+public final class OfflineCRLSourceTest
+{
+  // AlgorithmIdentifier of sha256WithRSAEncryption
+  private static final byte [] SHA256_WITH_RSA = _tlv (0x30,
+                                                       _tlv (0x06,
+                                                             new byte [] { 0x2a,
+                                                                           (byte) 0x86,
+                                                                           0x48,
+                                                                           (byte) 0x86,
+                                                                           (byte) 0xf7,
+                                                                           0x0d,
+                                                                           0x01,
+                                                                           0x01,
+                                                                           0x0b }),
+                                                       new byte [] { 0x05, 0x00 });
+  private static final DateTimeFormatter UTC_TIME = DateTimeFormatter.ofPattern ("yyMMddHHmmss'Z'")
+                                                                     .withZone (ZoneOffset.UTC);
+
+  private Path m_aDir;
+  private PrivateKey m_aKey;
+  private X509Certificate m_aCert;
+
+  @Before
+  public void before () throws Exception
+  {
+    m_aDir = Files.createTempDirectory ("offline-crl");
+    final KeyStore aKS = KeyStoreHelper.loadKeyStore (EKeyStoreType.JKS,
+                                                      "keystores/keystore-pw-peppol.jks",
+                                                      "peppol".toCharArray ()).getKeyStore ();
+    assertNotNull (aKS);
+    m_aKey = (PrivateKey) aKS.getKey ("1", "peppol".toCharArray ());
+    m_aCert = (X509Certificate) aKS.getCertificate ("1");
+  }
+
+  @After
+  public void after () throws Exception
+  {
+    try (final Stream <Path> aStream = Files.walk (m_aDir))
+    {
+      aStream.sorted (Comparator.reverseOrder ()).forEach (x -> x.toFile ().delete ());
+    }
+  }
+
+  private static byte [] _tlv (final int nTag, final byte []... aContents)
+  {
+    final ByteArrayOutputStream aContent = new ByteArrayOutputStream ();
+    for (final byte [] a : aContents)
+      aContent.writeBytes (a);
+    final int nLen = aContent.size ();
+    final ByteArrayOutputStream ret = new ByteArrayOutputStream ();
+    ret.write (nTag);
+    if (nLen < 0x80)
+      ret.write (nLen);
+    else
+      if (nLen < 0x100)
+      {
+        ret.write (0x81);
+        ret.write (nLen);
+      }
+      else
+      {
+        ret.write (0x82);
+        ret.write (nLen >> 8);
+        ret.write (nLen & 0xff);
+      }
+    ret.writeBytes (aContent.toByteArray ());
+    return ret.toByteArray ();
+  }
+
+  private static byte [] _time (final Instant aInstant)
+  {
+    return _tlv (0x17, UTC_TIME.format (aInstant).getBytes (StandardCharsets.US_ASCII));
+  }
+
+  /**
+   * Create a minimal DER encoded CRL, signed with the key of the test keystore.
+   */
+  private byte [] _createCRL (final Instant aThisUpdate,
+                              final Instant aNextUpdate,
+                              final BigInteger... aRevokedSerials) throws Exception
+  {
+    final ByteArrayOutputStream aRevoked = new ByteArrayOutputStream ();
+    for (final BigInteger aSerial : aRevokedSerials)
+      aRevoked.writeBytes (_tlv (0x30, _tlv (0x02, aSerial.toByteArray ()), _time (aThisUpdate)));
+
+    final byte [] aTBS = _tlv (0x30,
+                               SHA256_WITH_RSA,
+                               m_aCert.getSubjectX500Principal ().getEncoded (),
+                               _time (aThisUpdate),
+                               _time (aNextUpdate),
+                               aRevokedSerials.length == 0 ? new byte [0] : _tlv (0x30, aRevoked.toByteArray ()));
+    final Signature aSig = Signature.getInstance ("SHA256withRSA");
+    aSig.initSign (m_aKey);
+    aSig.update (aTBS);
+    final byte [] aSigBytes = aSig.sign ();
+    final byte [] aBitString = new byte [aSigBytes.length + 1];
+    System.arraycopy (aSigBytes, 0, aBitString, 1, aSigBytes.length);
+    return _tlv (0x30, aTBS, SHA256_WITH_RSA, _tlv (0x03, aBitString));
+  }
+
+  @Test
+  public void testRevocationStatus () throws Exception
+  {
+    final Instant aNow = Instant.now ();
+    final X500Principal aIssuer = m_aCert.getSubjectX500Principal ();
+    final Path aFile = m_aDir.resolve ("ca.crl");
+    Files.write (aFile,
+                 _createCRL (aNow.minus (Duration.ofHours (1)),
+                             aNow.plus (Duration.ofDays (1)),
+                             BigInteger.valueOf (17),
+                             BigInteger.valueOf (4711)));
+
+    final OfflineCRLSource aSource = new OfflineCRLSource (m_aDir, Duration.ZERO, List.of (m_aCert));
+    assertEquals (1, aSource.getIssuerCount ());
+    assertEquals (ECertificateCheckResult.REVOKED, aSource.getRevocationStatus (aIssuer, BigInteger.valueOf (17)));
+    assertEquals (ECertificateCheckResult.REVOKED, aSource.getRevocationStatus (aIssuer, BigInteger.valueOf (4711)));
+    assertEquals (ECertificateCheckResult.VALID, aSource.getRevocationStatus (aIssuer, BigInteger.valueOf (18)));
+
+    // Unknown issuer
+    assertEquals (ECertificateCheckResult.REVOCATION_STATUS_UNKNOWN,
+                  aSource.getRevocationStatus (new X500Principal ("CN=Other"), BigInteger.valueOf (17)));
+
+    // Hot reload of the modified file
+    Files.write (aFile,
+                 _createCRL (aNow.minus (Duration.ofMinutes (30)),
+                             aNow.plus (Duration.ofDays (1)),
+                             BigInteger.valueOf (18)));
+    Files.setLastModifiedTime (aFile, FileTime.from (aNow.plus (Duration.ofMinutes (1))));
+    assertEquals (ECertificateCheckResult.VALID, aSource.getRevocationStatus (aIssuer, BigInteger.valueOf (17)));
+    assertEquals (ECertificateCheckResult.REVOKED, aSource.getRevocationStatus (aIssuer, BigInteger.valueOf (18)));
+
+    // Deleted file
+    Files.delete (aFile);
+    assertEquals (ECertificateCheckResult.REVOCATION_STATUS_UNKNOWN,
+                  aSource.getRevocationStatus (aIssuer, BigInteger.valueOf (18)));
+    assertEquals (0, aSource.getIssuerCount ());
+  }
+
+  @Test
+  public void testOutdatedCRL () throws Exception
+  {
+    final Instant aNow = Instant.now ();
+    Files.write (m_aDir.resolve ("old.crl"),
+                 _createCRL (aNow.minus (Duration.ofDays (2)),
+                             aNow.minus (Duration.ofDays (1)),
+                             BigInteger.valueOf (17)));
+
+    final OfflineCRLSource aSource = new OfflineCRLSource (m_aDir, Duration.ofHours (1), List.of (m_aCert));
+    assertEquals (1, aSource.getIssuerCount ());
+    assertEquals (ECertificateCheckResult.REVOCATION_STATUS_UNKNOWN,
+                  aSource.getRevocationStatus (m_aCert.getSubjectX500Principal (), BigInteger.valueOf (18)));
+  }
+
+  @Test
+  public void testInvalidFiles () throws Exception
+  {
+    final Instant aNow = Instant.now ();
+    final byte [] aCRL = _createCRL (aNow, aNow.plus (Duration.ofDays (1)), BigInteger.valueOf (17));
+    // Broken signature
+    final byte [] aTampered = aCRL.clone ();
+    aTampered[aTampered.length - 1] ^= 0x01;
+    Files.write (m_aDir.resolve ("tampered.crl"), aTampered);
+    Files.write (m_aDir.resolve ("garbage.crl"), "no CRL".getBytes (StandardCharsets.US_ASCII));
+
+    final OfflineCRLSource aSource = new OfflineCRLSource (m_aDir, Duration.ofHours (1), List.of (m_aCert));
+    assertEquals (0, aSource.getIssuerCount ());
+
+    // Valid file is picked up on explicit reload
+    Files.write (m_aDir.resolve ("valid.crl"), aCRL);
+    aSource.reload ();
+    assertEquals (1, aSource.getIssuerCount ());
+    assertEquals (ECertificateCheckResult.REVOKED,
+                  aSource.getRevocationStatus (m_aCert.getSubjectX500Principal (), BigInteger.valueOf (17)));
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.security;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import com.helger.base.concurrent.ThreadHelper;
+import com.helger.security.certificate.ECertificateCheckResult;
+import com.helger.security.revocation.ERevocationCheckMode;
+
+/**
+ * Test class for class {@link RevocationCheckPrefetcher}.
+ *
+ * @author Philip Helger
+ */
+public final class RevocationCheckPrefetcherTest
+{
+  private static final X509Certificate CERT = PeppolTrustStores.Config2025.CERTIFICATE_TEST_AP;
+
+  @Test
+  public void testCacheAndRefresh ()
+  {
+    try (final RevocationCheckPrefetcher aPrefetcher = new RevocationCheckPrefetcher (Duration.ofHours (1),
+                                                                                      Duration.ofHours (1),
+                                                                                      10,
+                                                                                      null))
+    {
+      final AtomicInteger aCount = new AtomicInteger ();
+      final AtomicReference <ECertificateCheckResult> aResult = new AtomicReference <> (ECertificateCheckResult.VALID);
+      final String sKey = "key";
+
+      assertSame (ECertificateCheckResult.VALID, aPrefetcher.getCheckResult (sKey, CERT, () -> {
+        aCount.incrementAndGet ();
+        return aResult.get ();
+      }));
+      assertEquals (1, aCount.get ());
+      assertEquals (1, aPrefetcher.size ());
+      assertEquals (1, aPrefetcher.getMissCount ());
+
+      // From cache
+      assertSame (ECertificateCheckResult.VALID, aPrefetcher.getCheckResult (sKey, CERT, () -> {
+        throw new IllegalStateException ("Should not be called");
+      }));
+      assertEquals (1, aPrefetcher.getHitCount ());
+
+      // Refresh with a changed result
+      aResult.set (ECertificateCheckResult.REVOKED);
+      aPrefetcher.refreshAll ();
+      assertEquals (2, aCount.get ());
+      assertEquals (1, aPrefetcher.getRefreshCount ());
+      assertSame (ECertificateCheckResult.REVOKED, aPrefetcher.getCheckResult (sKey, CERT, aResult::get));
+
+      // A failed refresh keeps the previous result
+      aResult.set (ECertificateCheckResult.REVOCATION_STATUS_UNKNOWN);
+      aPrefetcher.refreshAll ();
+      assertEquals (3, aCount.get ());
+      assertEquals (1, aPrefetcher.getRefreshFailureCount ());
+      assertSame (ECertificateCheckResult.REVOKED, aPrefetcher.getCheckResult (sKey, CERT, aResult::get));
+
+      // Results that are not cacheable
+      assertSame (ECertificateCheckResult.REVOCATION_STATUS_UNKNOWN,
+                  aPrefetcher.getCheckResult ("other", CERT, () -> ECertificateCheckResult.REVOCATION_STATUS_UNKNOWN));
+      assertEquals (1, aPrefetcher.size ());
+
+      aPrefetcher.clearCache ();
+      assertEquals (0, aPrefetcher.size ());
+    }
+  }
+
+  @Test
+  public void testMaxSize ()
+  {
+    try (final RevocationCheckPrefetcher aPrefetcher = new RevocationCheckPrefetcher (Duration.ofHours (1),
+                                                                                      Duration.ofHours (1),
+                                                                                      2,
+                                                                                      null))
+    {
+      for (int i = 0; i < 5; ++i)
+        assertSame (ECertificateCheckResult.VALID,
+                    aPrefetcher.getCheckResult ("key" + i, CERT, () -> ECertificateCheckResult.VALID));
+      assertEquals (2, aPrefetcher.size ());
+    }
+  }
+
+  @Test
+  public void testBackgroundRefresh ()
+  {
+    try (final RevocationCheckPrefetcher aPrefetcher = new RevocationCheckPrefetcher (Duration.ofMillis (20),
+                                                                                      Duration.ofHours (1),
+                                                                                      10,
+                                                                                      null))
+    {
+      final AtomicInteger aCount = new AtomicInteger ();
+      aPrefetcher.getCheckResult ("key", CERT, () -> {
+        aCount.incrementAndGet ();
+        return ECertificateCheckResult.VALID;
+      });
+
+      // Wait for the background refreshes
+      for (int i = 0; i < 100 && aCount.get () < 3; ++i)
+        ThreadHelper.sleep (20);
+      assertTrue (aCount.get () >= 3);
+      assertTrue (aPrefetcher.getRefreshCount () >= 2);
+    }
+  }
+
+  @Test
+  public void testIdleTimeout ()
+  {
+    try (final RevocationCheckPrefetcher aPrefetcher = new RevocationCheckPrefetcher (Duration.ofHours (1),
+                                                                                      Duration.ofMillis (1),
+                                                                                      10,
+                                                                                      null))
+    {
+      aPrefetcher.getCheckResult ("key", CERT, () -> ECertificateCheckResult.VALID);
+      assertEquals (1, aPrefetcher.size ());
+      ThreadHelper.sleep (10);
+      aPrefetcher.refreshAll ();
+      assertEquals (0, aPrefetcher.size ());
+    }
+  }
+
+  @Test
+  public void testCheckerKey ()
+  {
+    final RevocationCheckPrefetcher aPrefetcher = RevocationCheckPrefetcher.getDefaultInstance ();
+    final int nSize = aPrefetcher.size ();
+    // No certificate - never cached
+    assertSame (ECertificateCheckResult.NO_CERTIFICATE_PROVIDED,
+                PeppolTrustedCA.checkCertificatePrefetched (PeppolTrustedCA.peppolTestAP (),
+                                                            null,
+                                                            ERevocationCheckMode.NONE));
+    assertEquals (nSize, aPrefetcher.size ());
+  }
+}
@@ -108,6 +108,29 @@ public interface IParticipantIdentifierFactory extends IIdentifierFactoryBase
   @Nullable
   IParticipantIdentifier createParticipantIdentifier (@Nullable String sScheme, @Nullable String sValue);
 
+  /**
+   * Get a shared participant identifier for the provided scheme and value. Factories that support this
+   * return the same immutable instance for repeated calls with the same scheme and value, which
+   * saves memory and speeds up comparisons if the same identifiers are used over and over again. The
+   * returned object must never be modified. This default implementation creates a new identifier
+   * via {@link #createParticipantIdentifier(String, String)}.
+   *
+   * @param sScheme
+   *        The scheme to be used.
+   * @param sValue
+   *        The value to be used.
+   * @return <code>null</code> if the provided scheme and/or value are/is invalid according to the
+   *         rules of the implementation.
+   * @see #createParticipantIdentifier(String, String)
+   * @since 12.8.2
+   */
+  @Nullable
+  default IParticipantIdentifier createInternedParticipantIdentifier (@Nullable final String sScheme,
+                                                                      @Nullable final String sValue)
+  {
+    return createParticipantIdentifier (sScheme, sValue);
+  }
+
   /**
    * Create a new participant identifier. This method may be used to convert an identifier created
    * from a different Identifier Factory.
@@ -108,6 +108,29 @@ public interface IProcessIdentifierFactory extends IIdentifierFactoryBase
   @Nullable
   IProcessIdentifier createProcessIdentifier (@Nullable String sScheme, @Nullable String sValue);
 
+  /**
+   * Get a shared process identifier for the provided scheme and value. Factories that support this
+   * return the same immutable instance for repeated calls with the same scheme and value, which
+   * saves memory and speeds up comparisons if the same identifiers are used over and over again. The
+   * returned object must never be modified. This default implementation creates a new identifier
+   * via {@link #createProcessIdentifier(String, String)}.
+   *
+   * @param sScheme
+   *        The scheme to be used.
+   * @param sValue
+   *        The value to be used.
+   * @return <code>null</code> if the provided scheme and/or value are/is invalid according to the
+   *         rules of the implementation.
+   * @see #createProcessIdentifier(String, String)
+   * @since 12.8.2
+   */
+  @Nullable
+  default IProcessIdentifier createInternedProcessIdentifier (@Nullable final String sScheme,
+                                                              @Nullable final String sValue)
+  {
+    return createProcessIdentifier (sScheme, sValue);
+  }
+
   /**
    * Create a new process identifier. This method may be used to convert an identifier created from
    * a different Identifier Factory.
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppolid.factory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.tostring.ToStringGenerator;
+import com.helger.peppolid.IIdentifier;
+
+/**
+ * A bounded pool of canonical identifier instances per (scheme, value) pair. The lookup does not
+ * allocate, because the pool is organized by scheme first and by value second. Once the maximum
+ * size is reached, no further identifiers are added and the passed ones are returned as they are -
+ * nothing is ever evicted.
+ *
+ * @author Philip Helger
+ * @param <T>
+ *        The identifier type to pool. The contained objects must not be modified.
+ * @since 12.8.2
+ */
+@ThreadSafe
+final class IdentifierInterningPool <T extends IIdentifier>
+{
+  private final int m_nMaxSize;
+  private final Map <String, Map <String, T>> m_aMap = new ConcurrentHashMap <> ();
+  private final AtomicInteger m_aSize = new AtomicInteger (0);
+
+  IdentifierInterningPool (@Nonnegative final int nMaxSize)
+  {
+    ValueEnforcer.isGE0 (nMaxSize, "MaxSize");
+    m_nMaxSize = nMaxSize;
+  }
+
+  @Nonnegative
+  int getMaxSize ()
+  {
+    return m_nMaxSize;
+  }
+
+  @Nonnegative
+  int size ()
+  {
+    return m_aSize.get ();
+  }
+
+  /**
+   * Get the pooled identifier.
+   *
+   * @param sScheme
+   *        The identifier scheme. May be <code>null</code>.
+   * @param sValue
+   *        The identifier value. May be <code>null</code>.
+   * @return <code>null</code> if no such identifier is contained.
+   */
+  @Nullable
+  T get (@Nullable final String sScheme, @Nullable final String sValue)
+  {
+    if (sScheme == null || sValue == null)
+      return null;
+    final Map <String, T> aValues = m_aMap.get (sScheme);
+    return aValues == null ? null : aValues.get (sValue);
+  }
+
+  /**
+   * Get the canonical instance of the passed identifier.
+   *
+   * @param aID
+   *        The identifier to be interned. May not be <code>null</code> and must have a scheme and a
+   *        value.
+   * @return The already pooled identifier with the same scheme and value, or the passed identifier.
+   *         Never <code>null</code>.
+   */
+  @NonNull
+  T intern (@NonNull final T aID)
+  {
+    final String sScheme = aID.getScheme ();
+    final String sValue = aID.getValue ();
+    final T aExisting = get (sScheme, sValue);
+    if (aExisting != null)
+      return aExisting;
+
+    // Reserve a slot first, so that the maximum size is never exceeded
+    if (m_aSize.incrementAndGet () > m_nMaxSize)
+    {
+      m_aSize.decrementAndGet ();
+      return aID;
+    }
+
+    final T aOld = m_aMap.computeIfAbsent (sScheme, k -> new ConcurrentHashMap <> ()).putIfAbsent (sValue, aID);
+    if (aOld != null)
+    {
+      // Another thread was faster
+      m_aSize.decrementAndGet ();
+      return aOld;
+    }
+    return aID;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("MaxSize", m_nMaxSize).append ("Size", m_aSize.get ()).getToString ();
+  }
+}
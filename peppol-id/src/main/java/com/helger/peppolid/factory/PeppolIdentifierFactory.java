@@ -22,14 +22,17 @@ import java.util.Locale;
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
 
+import com.helger.annotation.Nonnegative;
 import com.helger.base.string.StringHelper;
 import com.helger.base.tostring.ToStringGenerator;
 import com.helger.cache.regex.RegExHelper;
 import com.helger.peppolid.peppol.PeppolIdentifierHelper;
+import com.helger.peppolid.peppol.doctype.EPredefinedDocumentTypeIdentifier;
 import com.helger.peppolid.peppol.doctype.IPeppolGenericDocumentTypeIdentifierParts;
 import com.helger.peppolid.peppol.doctype.PeppolDocumentTypeIdentifier;
 import com.helger.peppolid.peppol.doctype.PeppolGenericDocumentTypeIdentifierParts;
 import com.helger.peppolid.peppol.participant.PeppolParticipantIdentifier;
+import com.helger.peppolid.peppol.process.EPredefinedProcessIdentifier;
 import com.helger.peppolid.peppol.process.PeppolProcessIdentifier;
 
 /**
@@ -44,7 +47,19 @@ public class PeppolIdentifierFactory implements IIdentifierFactory
 
   public static final boolean DEFAULT_STRICT = true;
 
+  /**
+   * The default maximum number of shared identifiers per identifier type.
+   *
+   * @since 12.8.2
+   */
+  public static final int DEFAULT_INTERNING_POOL_SIZE = 10_000;
+
   private final boolean m_bStrictMode;
+  private final IdentifierInterningPool <PeppolDocumentTypeIdentifier> m_aDocTypeIDPool;
+  private final IdentifierInterningPool <PeppolParticipantIdentifier> m_aParticipantIDPool;
+  private final IdentifierInterningPool <PeppolProcessIdentifier> m_aProcessIDPool;
+  // Seeded lazily, because the predefined enums use this class themselves
+  private volatile boolean m_bInterningPoolsSeeded = false;
 
   public PeppolIdentifierFactory ()
   {
@@ -53,8 +68,26 @@ public class PeppolIdentifierFactory implements IIdentifierFactory
   }
 
   protected PeppolIdentifierFactory (final boolean bStrict)
+  {
+    this (bStrict, DEFAULT_INTERNING_POOL_SIZE);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param bStrict
+   *        <code>true</code> for strict mode, <code>false</code> for lax mode.
+   * @param nInterningPoolSize
+   *        The maximum number of shared identifiers per identifier type, that are returned by the
+   *        <code>createInterned...Identifier</code> methods. Must be &ge; 0.
+   * @since 12.8.2
+   */
+  protected PeppolIdentifierFactory (final boolean bStrict, @Nonnegative final int nInterningPoolSize)
   {
     m_bStrictMode = bStrict;
+    m_aDocTypeIDPool = new IdentifierInterningPool <> (nInterningPoolSize);
+    m_aParticipantIDPool = new IdentifierInterningPool <> (nInterningPoolSize);
+    m_aProcessIDPool = new IdentifierInterningPool <> (nInterningPoolSize);
   }
 
   /**
@@ -65,6 +98,34 @@ public class PeppolIdentifierFactory implements IIdentifierFactory
     return m_bStrictMode;
   }
 
+  /**
+   * @return The maximum number of shared identifiers per identifier type.
+   * @since 12.8.2
+   */
+  @Nonnegative
+  public final int getInterningPoolSize ()
+  {
+    return m_aDocTypeIDPool.getMaxSize ();
+  }
+
+  private void _ensureInterningPoolsSeeded ()
+  {
+    if (!m_bInterningPoolsSeeded)
+      synchronized (m_aDocTypeIDPool)
+      {
+        if (!m_bInterningPoolsSeeded)
+        {
+          for (final EPredefinedDocumentTypeIdentifier e : EPredefinedDocumentTypeIdentifier.values ())
+            m_aDocTypeIDPool.intern (PeppolDocumentTypeIdentifier.internalCreateImmutablePreVerified (e.getScheme (),
+                                                                                                      e.getValue ()));
+          for (final EPredefinedProcessIdentifier e : EPredefinedProcessIdentifier.values ())
+            m_aProcessIDPool.intern (PeppolProcessIdentifier.internalCreateImmutablePreVerified (e.getScheme (),
+                                                                                                 e.getValue ()));
+          m_bInterningPoolsSeeded = true;
+        }
+      }
+  }
+
   @Override
   public boolean isDocumentTypeIdentifierSchemeMandatory ()
   {
@@ -210,6 +271,32 @@ public class PeppolIdentifierFactory implements IIdentifierFactory
     return null;
   }
 
+  /**
+   * {@inheritDoc} The shared instances are pre-seeded with all
+   * {@link EPredefinedDocumentTypeIdentifier} values. If the interning pool is full, a new
+   * immutable identifier is returned.
+   */
+  @Nullable
+  @Override
+  public PeppolDocumentTypeIdentifier createInternedDocumentTypeIdentifier (@Nullable final String sScheme,
+                                                                            @Nullable final String sValue)
+  {
+    final String sRealScheme = nullNotEmpty (sScheme);
+    final String sRealValue = nullNotEmpty (isDocumentTypeIdentifierCaseInsensitive (sRealScheme) ? getUnifiedValue (sValue)
+                                                                                                  : sValue);
+    _ensureInterningPoolsSeeded ();
+    // Only valid identifiers are contained
+    final PeppolDocumentTypeIdentifier ret = m_aDocTypeIDPool.get (sRealScheme, sRealValue);
+    if (ret != null)
+      return ret;
+
+    if (isDocumentTypeIdentifierSchemeValid (sRealScheme) &&
+      isDocumentTypeIdentifierValueValid (sRealScheme, sRealValue))
+      return m_aDocTypeIDPool.intern (PeppolDocumentTypeIdentifier.internalCreateImmutablePreVerified (sRealScheme,
+                                                                                                       sRealValue));
+    return null;
+  }
+
   @Override
   public boolean isParticipantIdentifierSchemeMandatory ()
   {
@@ -344,6 +431,28 @@ public class PeppolIdentifierFactory implements IIdentifierFactory
     return null;
   }
 
+  /**
+   * {@inheritDoc} If the interning pool is full, a new immutable identifier is returned.
+   */
+  @Nullable
+  @Override
+  public PeppolParticipantIdentifier createInternedParticipantIdentifier (@Nullable final String sScheme,
+                                                                          @Nullable final String sValue)
+  {
+    final String sRealScheme = nullNotEmpty (sScheme);
+    final String sRealValue = nullNotEmpty (isParticipantIdentifierCaseInsensitive (sRealScheme) ? getUnifiedValue (sValue)
+                                                                                                 : sValue);
+    // Only valid identifiers are contained
+    final PeppolParticipantIdentifier ret = m_aParticipantIDPool.get (sRealScheme, sRealValue);
+    if (ret != null)
+      return ret;
+
+    if (isParticipantIdentifierSchemeValid (sScheme) && isParticipantIdentifierValueValid (sScheme, sValue))
+      return m_aParticipantIDPool.intern (PeppolParticipantIdentifier.internalCreateImmutablePreVerified (sRealScheme,
+                                                                                                          sRealValue));
+    return null;
+  }
+
   @NonNull
   @Override
   public String getDefaultProcessIdentifierScheme ()
@@ -396,9 +505,35 @@ public class PeppolIdentifierFactory implements IIdentifierFactory
     return null;
   }
 
+  /**
+   * {@inheritDoc} The shared instances are pre-seeded with all {@link EPredefinedProcessIdentifier}
+   * values. If the interning pool is full, a new immutable identifier is returned.
+   */
+  @Nullable
+  @Override
+  public PeppolProcessIdentifier createInternedProcessIdentifier (@Nullable final String sScheme,
+                                                                  @Nullable final String sValue)
+  {
+    final String sRealScheme = nullNotEmpty (sScheme);
+    final String sRealValue = nullNotEmpty (isProcessIdentifierCaseInsensitive (sRealScheme) ? getUnifiedValue (sValue)
+                                                                                             : sValue);
+    _ensureInterningPoolsSeeded ();
+    // Only valid identifiers are contained
+    final PeppolProcessIdentifier ret = m_aProcessIDPool.get (sRealScheme, sRealValue);
+    if (ret != null)
+      return ret;
+
+    if (isProcessIdentifierSchemeValid (sScheme) && isProcessIdentifierValueValid (sScheme, sValue))
+      return m_aProcessIDPool.intern (PeppolProcessIdentifier.internalCreateImmutablePreVerified (sRealScheme,
+                                                                                                 sRealValue));
+    return null;
+  }
+
   @Override
   public String toString ()
   {
-    return new ToStringGenerator (this).append ("StrictMode", m_bStrictMode).getToString ();
+    return new ToStringGenerator (this).append ("StrictMode", m_bStrictMode)
+                                       .append ("InterningPoolSize", m_aDocTypeIDPool.getMaxSize ())
+                                       .getToString ();
   }
 }
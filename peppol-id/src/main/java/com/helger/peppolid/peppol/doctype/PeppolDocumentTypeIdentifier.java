@@ -45,6 +45,10 @@ public class PeppolDocumentTypeIdentifier extends DocumentIdentifierType impleme
                                           Comparable <PeppolDocumentTypeIdentifier>,
                                           ICloneable <PeppolDocumentTypeIdentifier>
 {
+  // Only set for the shared instances of the identifier factory
+  private final boolean m_bImmutable;
+  private final int m_nHashCode;
+
   @NonNull
   private static String _verifyScheme (@NonNull final IIdentifierFactory aIF, @Nullable final String sScheme)
   {
@@ -96,9 +100,33 @@ public class PeppolDocumentTypeIdentifier extends DocumentIdentifierType impleme
   protected PeppolDocumentTypeIdentifier (final boolean bVerified,
                                           @NonNull final String sScheme,
                                           @NonNull final String sValue)
+  {
+    this (bVerified, sScheme, sValue, false);
+  }
+
+  /**
+   * Constructor that passes the pre-checked values directly to the super class and optionally
+   * makes the object immutable.
+   *
+   * @param bVerified
+   *        dummy
+   * @param sScheme
+   *        Identifier scheme. May not be <code>null</code>.
+   * @param sValue
+   *        Identifier value. May not be <code>null</code>.
+   * @param bImmutable
+   *        <code>true</code> if the scheme and the value may not be changed afterwards.
+   * @since 12.8.2
+   */
+  protected PeppolDocumentTypeIdentifier (final boolean bVerified,
+                                          @NonNull final String sScheme,
+                                          @NonNull final String sValue,
+                                          final boolean bImmutable)
   {
     setScheme (sScheme);
     setValue (sValue);
+    m_bImmutable = bImmutable;
+    m_nHashCode = bImmutable ? super.hashCode () : 0;
   }
 
   public boolean hasDefaultScheme ()
@@ -107,6 +135,33 @@ public class PeppolDocumentTypeIdentifier extends DocumentIdentifierType impleme
     return hasScheme (PeppolIdentifierHelper.DOCUMENT_TYPE_SCHEME_BUSDOX_DOCID_QNS);
   }
 
+  /**
+   * @return <code>true</code> if this is a shared immutable instance, as created by
+   *         {@link com.helger.peppolid.factory.PeppolIdentifierFactory#createInternedDocumentTypeIdentifier(String, String)}.
+   *         Use {@link #getClone()} to get a modifiable copy.
+   * @since 12.8.2
+   */
+  public final boolean isImmutable ()
+  {
+    return m_bImmutable;
+  }
+
+  @Override
+  public void setScheme (@Nullable final String sScheme)
+  {
+    if (m_bImmutable)
+      throw new UnsupportedOperationException ("This identifier is immutable");
+    super.setScheme (sScheme);
+  }
+
+  @Override
+  public void setValue (@Nullable final String sValue)
+  {
+    if (m_bImmutable)
+      throw new UnsupportedOperationException ("This identifier is immutable");
+    super.setValue (sValue);
+  }
+
   public int compareTo (@NonNull final PeppolDocumentTypeIdentifier aOther)
   {
     int ret = CompareHelper.compare (getScheme (), aOther.getScheme ());
@@ -139,6 +194,9 @@ public class PeppolDocumentTypeIdentifier extends DocumentIdentifierType impleme
   @Override
   public boolean equals (final Object o)
   {
+    // Shortcut for the shared instances
+    if (o == this)
+      return true;
     // for compareTo
     return super.equals (o);
   }
@@ -146,6 +204,8 @@ public class PeppolDocumentTypeIdentifier extends DocumentIdentifierType impleme
   @Override
   public int hashCode ()
   {
+    if (m_bImmutable)
+      return m_nHashCode;
     // for compareTo
     return super.hashCode ();
   }
@@ -169,4 +229,22 @@ public class PeppolDocumentTypeIdentifier extends DocumentIdentifierType impleme
   {
     return new PeppolDocumentTypeIdentifier (true, sScheme, sValue);
   }
+
+  /**
+   * Take the passed pre-checked identifier scheme and value and create a new immutable
+   * {@link PeppolDocumentTypeIdentifier}. Internal method.
+   *
+   * @param sScheme
+   *        The identifier scheme. May not be <code>null</code>.
+   * @param sValue
+   *        The identifier value. May not be <code>null</code>.
+   * @return The immutable identifier. Never <code>null</code>.
+   * @since 12.8.2
+   */
+  @NonNull
+  public static PeppolDocumentTypeIdentifier internalCreateImmutablePreVerified (@NonNull final String sScheme,
+                                                                                 @NonNull final String sValue)
+  {
+    return new PeppolDocumentTypeIdentifier (true, sScheme, sValue, true);
+  }
 }
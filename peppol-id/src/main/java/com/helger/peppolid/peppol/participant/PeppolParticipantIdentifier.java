@@ -49,6 +49,10 @@ public class PeppolParticipantIdentifier extends ParticipantIdentifierType imple
                                          Comparable <PeppolParticipantIdentifier>,
                                          ICloneable <PeppolParticipantIdentifier>
 {
+  // Only set for the shared instances of the identifier factory
+  private final boolean m_bImmutable;
+  private final int m_nHashCode;
+
   @NonNull
   private static String _verifyScheme (@NonNull final IIdentifierFactory aIF, @Nullable final String sScheme)
   {
@@ -112,9 +116,33 @@ public class PeppolParticipantIdentifier extends ParticipantIdentifierType imple
   protected PeppolParticipantIdentifier (final boolean bVerified,
                                          @NonNull final String sScheme,
                                          @NonNull final String sValue)
+  {
+    this (bVerified, sScheme, sValue, false);
+  }
+
+  /**
+   * Constructor that passes the pre-checked values directly to the super class and optionally
+   * makes the object immutable.
+   *
+   * @param bVerified
+   *        dummy
+   * @param sScheme
+   *        Identifier scheme. May not be <code>null</code>.
+   * @param sValue
+   *        Identifier value. May not be <code>null</code>.
+   * @param bImmutable
+   *        <code>true</code> if the scheme and the value may not be changed afterwards.
+   * @since 12.8.2
+   */
+  protected PeppolParticipantIdentifier (final boolean bVerified,
+                                         @NonNull final String sScheme,
+                                         @NonNull final String sValue,
+                                         final boolean bImmutable)
   {
     setScheme (sScheme);
     setValue (sValue);
+    m_bImmutable = bImmutable;
+    m_nHashCode = bImmutable ? super.hashCode () : 0;
   }
 
   public boolean hasDefaultScheme ()
@@ -172,6 +200,33 @@ public class PeppolParticipantIdentifier extends ParticipantIdentifierType imple
     return null;
   }
 
+  /**
+   * @return <code>true</code> if this is a shared immutable instance, as created by
+   *         {@link com.helger.peppolid.factory.PeppolIdentifierFactory#createInternedParticipantIdentifier(String, String)}.
+   *         Use {@link #getClone()} to get a modifiable copy.
+   * @since 12.8.2
+   */
+  public final boolean isImmutable ()
+  {
+    return m_bImmutable;
+  }
+
+  @Override
+  public void setScheme (@Nullable final String sScheme)
+  {
+    if (m_bImmutable)
+      throw new UnsupportedOperationException ("This identifier is immutable");
+    super.setScheme (sScheme);
+  }
+
+  @Override
+  public void setValue (@Nullable final String sValue)
+  {
+    if (m_bImmutable)
+      throw new UnsupportedOperationException ("This identifier is immutable");
+    super.setValue (sValue);
+  }
+
   public int compareTo (@NonNull final PeppolParticipantIdentifier aOther)
   {
     int ret = CompareHelper.compare (getScheme (), aOther.getScheme ());
@@ -191,6 +246,9 @@ public class PeppolParticipantIdentifier extends ParticipantIdentifierType imple
   @Override
   public boolean equals (final Object o)
   {
+    // Shortcut for the shared instances
+    if (o == this)
+      return true;
     // for compareTo
     return super.equals (o);
   }
@@ -198,6 +256,8 @@ public class PeppolParticipantIdentifier extends ParticipantIdentifierType imple
   @Override
   public int hashCode ()
   {
+    if (m_bImmutable)
+      return m_nHashCode;
     // for compareTo
     return super.hashCode ();
   }
@@ -221,6 +281,24 @@ public class PeppolParticipantIdentifier extends ParticipantIdentifierType imple
     return new PeppolParticipantIdentifier (true, sScheme, sValue);
   }
 
+  /**
+   * Take the passed pre-checked identifier scheme and value and create a new immutable
+   * {@link PeppolParticipantIdentifier}. Internal method.
+   *
+   * @param sScheme
+   *        The identifier scheme. May not be <code>null</code>.
+   * @param sValue
+   *        The identifier value. May not be <code>null</code>.
+   * @return The immutable identifier. Never <code>null</code>.
+   * @since 12.8.2
+   */
+  @NonNull
+  public static PeppolParticipantIdentifier internalCreateImmutablePreVerified (@NonNull final String sScheme,
+                                                                                @NonNull final String sValue)
+  {
+    return new PeppolParticipantIdentifier (true, sScheme, sValue, true);
+  }
+
   /**
    * Check if the passed identifier value is valid in the PEPPOL default participant identifier
    * scheme (iso6523-actorid-upis).
@@ -46,6 +46,10 @@ public class PeppolProcessIdentifier extends ProcessIdentifierType implements
                                      Comparable <PeppolProcessIdentifier>,
                                      ICloneable <PeppolProcessIdentifier>
 {
+  // Only set for the shared instances of the identifier factory
+  private final boolean m_bImmutable;
+  private final int m_nHashCode;
+
   @NonNull
   private static String _verifyScheme (@NonNull final IIdentifierFactory aIF, @Nullable final String sScheme)
   {
@@ -96,9 +100,33 @@ public class PeppolProcessIdentifier extends ProcessIdentifierType implements
   protected PeppolProcessIdentifier (final boolean bVerified,
                                      @NonNull final String sScheme,
                                      @NonNull final String sValue)
+  {
+    this (bVerified, sScheme, sValue, false);
+  }
+
+  /**
+   * Constructor that passes the pre-checked values directly to the super class and optionally
+   * makes the object immutable.
+   *
+   * @param bVerified
+   *        dummy
+   * @param sScheme
+   *        Identifier scheme. May not be <code>null</code>.
+   * @param sValue
+   *        Identifier value. May not be <code>null</code>.
+   * @param bImmutable
+   *        <code>true</code> if the scheme and the value may not be changed afterwards.
+   * @since 12.8.2
+   */
+  protected PeppolProcessIdentifier (final boolean bVerified,
+                                     @NonNull final String sScheme,
+                                     @NonNull final String sValue,
+                                     final boolean bImmutable)
   {
     setScheme (sScheme);
     setValue (sValue);
+    m_bImmutable = bImmutable;
+    m_nHashCode = bImmutable ? super.hashCode () : 0;
   }
 
   public boolean hasDefaultScheme ()
@@ -106,6 +134,33 @@ public class PeppolProcessIdentifier extends ProcessIdentifierType implements
     return hasScheme (PeppolIdentifierHelper.DEFAULT_PROCESS_SCHEME);
   }
 
+  /**
+   * @return <code>true</code> if this is a shared immutable instance, as created by
+   *         {@link com.helger.peppolid.factory.PeppolIdentifierFactory#createInternedProcessIdentifier(String, String)}.
+   *         Use {@link #getClone()} to get a modifiable copy.
+   * @since 12.8.2
+   */
+  public final boolean isImmutable ()
+  {
+    return m_bImmutable;
+  }
+
+  @Override
+  public void setScheme (@Nullable final String sScheme)
+  {
+    if (m_bImmutable)
+      throw new UnsupportedOperationException ("This identifier is immutable");
+    super.setScheme (sScheme);
+  }
+
+  @Override
+  public void setValue (@Nullable final String sValue)
+  {
+    if (m_bImmutable)
+      throw new UnsupportedOperationException ("This identifier is immutable");
+    super.setValue (sValue);
+  }
+
   public int compareTo (@NonNull final PeppolProcessIdentifier aOther)
   {
     int ret = CompareHelper.compare (getScheme (), aOther.getScheme ());
@@ -125,6 +180,9 @@ public class PeppolProcessIdentifier extends ProcessIdentifierType implements
   @Override
   public boolean equals (final Object o)
   {
+    // Shortcut for the shared instances
+    if (o == this)
+      return true;
     // for compareTo
     return super.equals (o);
   }
@@ -132,6 +190,8 @@ public class PeppolProcessIdentifier extends ProcessIdentifierType implements
   @Override
   public int hashCode ()
   {
+    if (m_bImmutable)
+      return m_nHashCode;
     // for compareTo
     return super.hashCode ();
   }
@@ -155,4 +215,22 @@ public class PeppolProcessIdentifier extends ProcessIdentifierType implements
   {
     return new PeppolProcessIdentifier (true, sScheme, sValue);
   }
+
+  /**
+   * Take the passed pre-checked identifier scheme and value and create a new immutable
+   * {@link PeppolProcessIdentifier}. Internal method.
+   *
+   * @param sScheme
+   *        The identifier scheme. May not be <code>null</code>.
+   * @param sValue
+   *        The identifier value. May not be <code>null</code>.
+   * @return The immutable identifier. Never <code>null</code>.
+   * @since 12.8.2
+   */
+  @NonNull
+  public static PeppolProcessIdentifier internalCreateImmutablePreVerified (@NonNull final String sScheme,
+                                                                            @NonNull final String sValue)
+  {
+    return new PeppolProcessIdentifier (true, sScheme, sValue, true);
+  }
 }
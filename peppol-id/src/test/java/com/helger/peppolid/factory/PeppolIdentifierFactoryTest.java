@@ -16,13 +16,23 @@
  */
 package com.helger.peppolid.factory;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import org.junit.Test;
 
 import com.helger.base.string.StringHelper;
 import com.helger.peppolid.peppol.PeppolIdentifierHelper;
+import com.helger.peppolid.peppol.doctype.EPredefinedDocumentTypeIdentifier;
+import com.helger.peppolid.peppol.doctype.PeppolDocumentTypeIdentifier;
+import com.helger.peppolid.peppol.participant.PeppolParticipantIdentifier;
+import com.helger.peppolid.peppol.process.EPredefinedProcessIdentifier;
+import com.helger.peppolid.peppol.process.PeppolProcessIdentifier;
 
 /**
  * Test class for class {@link PeppolIdentifierFactory}
@@ -152,4 +162,83 @@ public final class PeppolIdentifierFactoryTest
     assertTrue (PeppolIdentifierFactory.INSTANCE.isDocumentTypeIdentifierValueValid (PeppolIdentifierHelper.DOCUMENT_TYPE_SCHEME_PEPPOL_DOCTYPE_WILDCARD,
                                                                                      "urn:rootnamespace::localelement##customizationid*::version"));
   }
+
+  @Test
+  public void testInternedIdentifiers ()
+  {
+    final PeppolIdentifierFactory aIF = PeppolIdentifierFactory.INSTANCE;
+
+    // Pre-seeded
+    final EPredefinedDocumentTypeIdentifier eDocType = EPredefinedDocumentTypeIdentifier.INVOICE_EN16931_PEPPOL_V30;
+    final PeppolDocumentTypeIdentifier aDocTypeID = aIF.createInternedDocumentTypeIdentifier (eDocType.getScheme (),
+                                                                                             eDocType.getValue ());
+    assertTrue (aDocTypeID.isImmutable ());
+    assertSame (aDocTypeID, aIF.createInternedDocumentTypeIdentifier (eDocType.getScheme (), eDocType.getValue ()));
+    assertEquals (eDocType.getAsDocumentTypeIdentifier (), aDocTypeID);
+    assertEquals (aDocTypeID, eDocType.getAsDocumentTypeIdentifier ());
+    assertEquals (eDocType.getAsDocumentTypeIdentifier ().hashCode (), aDocTypeID.hashCode ());
+
+    final EPredefinedProcessIdentifier eProcess = EPredefinedProcessIdentifier.BIS3_BILLING;
+    final PeppolProcessIdentifier aProcessID = aIF.createInternedProcessIdentifier (eProcess.getScheme (),
+                                                                                   eProcess.getValue ());
+    assertSame (aProcessID, aIF.createInternedProcessIdentifier (eProcess.getScheme (), eProcess.getValue ()));
+    assertEquals (eProcess.getAsProcessIdentifier (), aProcessID);
+    assertEquals (eProcess.getAsProcessIdentifier ().hashCode (), aProcessID.hashCode ());
+
+    // Participants are case insensitive
+    final PeppolParticipantIdentifier aPID = aIF.createInternedParticipantIdentifier (PeppolIdentifierHelper.DEFAULT_PARTICIPANT_SCHEME,
+                                                                                     "9915:Interned");
+    assertEquals ("9915:interned", aPID.getValue ());
+    assertSame (aPID,
+                aIF.createInternedParticipantIdentifier (PeppolIdentifierHelper.DEFAULT_PARTICIPANT_SCHEME,
+                                                         "9915:INTERNED"));
+    assertEquals (aIF.createParticipantIdentifier (PeppolIdentifierHelper.DEFAULT_PARTICIPANT_SCHEME, "9915:interned"),
+                  aPID);
+
+    // Invalid values are not interned
+    assertNull (aIF.createInternedParticipantIdentifier (PeppolIdentifierHelper.DEFAULT_PARTICIPANT_SCHEME, "9915:a b"));
+    assertNull (aIF.createInternedProcessIdentifier (null, "proc1"));
+    assertNull (aIF.createInternedDocumentTypeIdentifier (PeppolIdentifierHelper.DOCUMENT_TYPE_SCHEME_BUSDOX_DOCID_QNS,
+                                                          "invoice"));
+
+    // Interned objects cannot be modified, but their clones can
+    try
+    {
+      aPID.setValue ("9915:other");
+      fail ();
+    }
+    catch (final UnsupportedOperationException ex)
+    {
+      // expected
+    }
+    final PeppolParticipantIdentifier aClone = aPID.getClone ();
+    assertFalse (aClone.isImmutable ());
+    aClone.setValue ("9915:other");
+    assertEquals ("9915:interned", aPID.getValue ());
+
+    // Regular creation is not affected
+    assertFalse (aIF.createProcessIdentifier (eProcess.getScheme (), eProcess.getValue ()).isImmutable ());
+  }
+
+  @Test
+  public void testInterningPoolFull ()
+  {
+    final PeppolIdentifierFactory aIF = new PeppolIdentifierFactory (true, 1);
+    assertEquals (1, aIF.getInterningPoolSize ());
+
+    final PeppolParticipantIdentifier aPID1 = aIF.createInternedParticipantIdentifier (PeppolIdentifierHelper.DEFAULT_PARTICIPANT_SCHEME,
+                                                                                      "9915:test1");
+    assertSame (aPID1,
+                aIF.createInternedParticipantIdentifier (PeppolIdentifierHelper.DEFAULT_PARTICIPANT_SCHEME, "9915:test1"));
+
+    // Not pooled, but still immutable
+    final PeppolParticipantIdentifier aPID2 = aIF.createInternedParticipantIdentifier (PeppolIdentifierHelper.DEFAULT_PARTICIPANT_SCHEME,
+                                                                                      "9915:test2");
+    assertTrue (aPID2.isImmutable ());
+    assertNotSame (aPID2,
+                   aIF.createInternedParticipantIdentifier (PeppolIdentifierHelper.DEFAULT_PARTICIPANT_SCHEME,
+                                                            "9915:test2"));
+    assertEquals (aPID2,
+                  aIF.createInternedParticipantIdentifier (PeppolIdentifierHelper.DEFAULT_PARTICIPANT_SCHEME, "9915:test2"));
+  }
 }
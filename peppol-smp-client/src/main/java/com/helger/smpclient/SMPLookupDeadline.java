@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient;
+
+import java.time.Duration;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.tostring.ToStringGenerator;
+
+/**
+ * An end-to-end time budget for a complete SMP lookup, consisting of the DNS NAPTR resolution (see
+ * {@link com.helger.smpclient.url.AbstractBDXLURLProvider}), the HTTP request(s) to the SMP
+ * including redirects and the response processing (see
+ * {@link com.helger.smpclient.httpclient.AbstractGenericSMPClient}). Each stage gets only the
+ * remaining budget as its timeout, and a stage that starts after the budget is used up fails
+ * immediately.
+ * <p>
+ * The deadline is bound to the current thread, because the DNS resolution already happens in the
+ * constructor of the SMP clients. Usage:
+ * </p>
+ *
+ * <pre>
+ * try (SMPLookupDeadline aDeadline = SMPLookupDeadline.start (Duration.ofSeconds (5)))
+ * {
+ *   SMPClientReadOnly aClient = new SMPClientReadOnly (aURLProvider, aParticipantID, aSML);
+ *   aClient.getServiceMetadata (aParticipantID, aDocTypeID);
+ * }
+ * </pre>
+ * <p>
+ * Nested deadlines are supported - the inner one is effective until it is closed, but it never
+ * extends an outer deadline.
+ * </p>
+ *
+ * @author Philip Helger
+ * @since 12.8.2
+ */
+@ThreadSafe
+public final class SMPLookupDeadline implements AutoCloseable
+{
+  private static final ThreadLocal <SMPLookupDeadline> CURRENT = new ThreadLocal <> ();
+
+  private static final class SchedulerHolder
+  {
+    // Lazily created, only if deadlines are used at all
+    private static final ScheduledThreadPoolExecutor SCHEDULER;
+    static
+    {
+      SCHEDULER = new ScheduledThreadPoolExecutor (1, r -> {
+        final Thread t = new Thread (r, "smp-client-deadline");
+        t.setDaemon (true);
+        return t;
+      });
+      SCHEDULER.setRemoveOnCancelPolicy (true);
+    }
+  }
+
+  private final Duration m_aBudget;
+  private final long m_nDeadlineNanos;
+  private final SMPLookupDeadline m_aPrevious;
+  private volatile boolean m_bClosed;
+
+  private SMPLookupDeadline (@NonNull final Duration aBudget, @Nullable final SMPLookupDeadline aPrevious)
+  {
+    m_aBudget = aBudget;
+    final long nDeadlineNanos = System.nanoTime () + aBudget.toNanos ();
+    // Never extend an outer deadline
+    m_nDeadlineNanos = aPrevious == null ? nDeadlineNanos : Math.min (nDeadlineNanos, aPrevious.m_nDeadlineNanos);
+    m_aPrevious = aPrevious;
+  }
+
+  /**
+   * Start a new deadline and bind it to the current thread. The returned object must be closed in
+   * the same thread.
+   *
+   * @param aBudget
+   *        The total time budget. May not be <code>null</code> and may not be negative.
+   * @return The new deadline. Never <code>null</code>.
+   */
+  @NonNull
+  public static SMPLookupDeadline start (@NonNull final Duration aBudget)
+  {
+    ValueEnforcer.notNull (aBudget, "Budget");
+    ValueEnforcer.isTrue ( () -> !aBudget.isNegative (), "Budget may not be negative");
+
+    final SMPLookupDeadline ret = new SMPLookupDeadline (aBudget, CURRENT.get ());
+    CURRENT.set (ret);
+    return ret;
+  }
+
+  /**
+   * @return The deadline bound to the current thread, or <code>null</code> if there is none.
+   */
+  @Nullable
+  public static SMPLookupDeadline getCurrent ()
+  {
+    return CURRENT.get ();
+  }
+
+  /**
+   * @return The total time budget as provided to {@link #start(Duration)}. Never
+   *         <code>null</code>.
+   */
+  @NonNull
+  public Duration getBudget ()
+  {
+    return m_aBudget;
+  }
+
+  /**
+   * @return The remaining time budget. Never <code>null</code> and never negative.
+   */
+  @NonNull
+  public Duration getRemaining ()
+  {
+    final long nRemaining = m_nDeadlineNanos - System.nanoTime ();
+    return nRemaining <= 0 ? Duration.ZERO : Duration.ofNanos (nRemaining);
+  }
+
+  /**
+   * @return <code>true</code> if the time budget is used up.
+   */
+  public boolean isExpired ()
+  {
+    return m_nDeadlineNanos - System.nanoTime () <= 0;
+  }
+
+  /**
+   * Get the smaller of the provided timeout and the remaining budget.
+   *
+   * @param aTimeout
+   *        The timeout of a single stage. May be <code>null</code>.
+   * @return The remaining budget if no timeout is provided or if the timeout is larger than the
+   *         remaining budget. Never <code>null</code>.
+   */
+  @NonNull
+  public Duration getStageTimeout (@Nullable final Duration aTimeout)
+  {
+    final Duration aRemaining = getRemaining ();
+    if (aTimeout == null || aTimeout.compareTo (aRemaining) > 0)
+      return aRemaining;
+    return aTimeout;
+  }
+
+  /**
+   * Get the timeout of a single attempt of a stage that is tried up to <code>nAttempts</code> times.
+   * The remaining budget is split evenly between the attempts, so that all attempts together don't
+   * exceed the deadline.
+   *
+   * @param aTimeout
+   *        The timeout of a single attempt. May be <code>null</code>.
+   * @param nAttempts
+   *        The maximum number of attempts. Must be &gt; 0.
+   * @return The smaller of the provided timeout and the share of the remaining budget. Never
+   *         <code>null</code>.
+   */
+  @NonNull
+  public Duration getStageTimeout (@Nullable final Duration aTimeout, @Nonnegative final int nAttempts)
+  {
+    ValueEnforcer.isGT0 (nAttempts, "Attempts");
+    final Duration aShare = getRemaining ().dividedBy (nAttempts);
+    if (aTimeout == null || aTimeout.compareTo (aShare) > 0)
+      return aShare;
+    return aTimeout;
+  }
+
+  /**
+   * Schedule an action to be run when the budget is used up. This is used to abort running HTTP
+   * requests.
+   *
+   * @param aAction
+   *        The action to run. May not be <code>null</code>. It is run in a separate thread.
+   * @return The scheduled action, that must be cancelled, if the guarded operation finished in
+   *         time. Never <code>null</code>.
+   */
+  @NonNull
+  public ScheduledFuture <?> scheduleOnExpiry (@NonNull final Runnable aAction)
+  {
+    ValueEnforcer.notNull (aAction, "Action");
+    return SchedulerHolder.SCHEDULER.schedule (aAction, m_nDeadlineNanos - System.nanoTime (), TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Unbind this deadline from the current thread and restore the previous deadline. Calling this
+   * method more than once has no effect.
+   */
+  public void close ()
+  {
+    if (!m_bClosed)
+    {
+      m_bClosed = true;
+      if (CURRENT.get () == this)
+      {
+        if (m_aPrevious == null)
+          CURRENT.remove ();
+        else
+          CURRENT.set (m_aPrevious);
+      }
+    }
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Budget", m_aBudget)
+                                       .append ("Remaining", getRemaining ())
+                                       .append ("Closed", m_bClosed)
+                                       .getToString ();
+  }
+}
@@ -36,6 +36,8 @@ import com.helger.peppolid.IParticipantIdentifier;
 import com.helger.peppolid.bdxr.smp1.participant.BDXR1ParticipantIdentifier;
 import com.helger.smpclient.bdxr1.marshal.BDXR1MarshallerServiceGroupType;
 import com.helger.smpclient.bdxr1.marshal.BDXR1MarshallerServiceMetadataType;
+import com.helger.smpclient.bulk.SMPBulkExecutor;
+import com.helger.smpclient.bulk.SMPBulkOperation;
 import com.helger.smpclient.exception.SMPClientBadRequestException;
 import com.helger.smpclient.exception.SMPClientException;
 import com.helger.smpclient.exception.SMPClientNotFoundException;
@@ -385,4 +387,166 @@ public class BDXRClient extends BDXRClientReadOnly
     aRequest.addHeader (CHttpHeader.AUTHORIZATION, aCredentials.getRequestValue ());
     executeGenericRequest (aRequest, new SMPHttpResponseHandlerWriteOperations ());
   }
+
+  /**
+   * Create a bulk operation that saves the provided service group. See
+   * {@link #saveServiceGroup(ServiceGroupType, BasicAuthClientCredentials)}
+   * for details.
+   *
+   * @param aServiceGroup
+   *        The service group to save. May not be <code>null</code>.
+   * @param aCredentials
+   *        The user name and password to use as credentials. May not be
+   *        <code>null</code>.
+   * @return The new operation to be used with {@link SMPBulkExecutor}. Never
+   *         <code>null</code>.
+   * @since 12.8.2
+   */
+  @NonNull
+  public SMPBulkOperation createSaveServiceGroupOperation (@NonNull final ServiceGroupType aServiceGroup,
+                                                           @NonNull final BasicAuthClientCredentials aCredentials)
+  {
+    ValueEnforcer.notNull (aServiceGroup, "ServiceGroup");
+    ValueEnforcer.notNull (aCredentials, "Credentials");
+
+    final String sURI = getSMPHostURI () + CIdentifier.getURIPercentEncoded (aServiceGroup.getParticipantIdentifier ());
+    return new SMPBulkOperation ("PUT " + sURI, true, () -> saveServiceGroup (aServiceGroup, aCredentials));
+  }
+
+  /**
+   * Create a bulk operation that deletes the provided service group. See
+   * {@link #deleteServiceGroup(IParticipantIdentifier, BasicAuthClientCredentials)}
+   * for details.
+   *
+   * @param aServiceGroupID
+   *        The service group id of the service group to delete. May not be
+   *        <code>null</code>.
+   * @param aCredentials
+   *        The user name and password to use as credentials. May not be
+   *        <code>null</code>.
+   * @return The new operation to be used with {@link SMPBulkExecutor}. Never
+   *         <code>null</code>.
+   * @since 12.8.2
+   */
+  @NonNull
+  public SMPBulkOperation createDeleteServiceGroupOperation (@NonNull final IParticipantIdentifier aServiceGroupID,
+                                                             @NonNull final BasicAuthClientCredentials aCredentials)
+  {
+    ValueEnforcer.notNull (aServiceGroupID, "ServiceGroupID");
+    ValueEnforcer.notNull (aCredentials, "Credentials");
+
+    final String sURI = getSMPHostURI () + aServiceGroupID.getURIPercentEncoded ();
+    return new SMPBulkOperation ("DELETE " + sURI, true, () -> deleteServiceGroup (aServiceGroupID, aCredentials));
+  }
+
+  /**
+   * Create a bulk operation that saves the provided service information. See
+   * {@link #saveServiceInformation(ServiceInformationType, BasicAuthClientCredentials)}
+   * for details.
+   *
+   * @param aServiceInformation
+   *        The service information object to save. May not be
+   *        <code>null</code>.
+   * @param aCredentials
+   *        The user name and password to use as credentials. May not be
+   *        <code>null</code>.
+   * @return The new operation to be used with {@link SMPBulkExecutor}. Never
+   *         <code>null</code>.
+   * @since 12.8.2
+   */
+  @NonNull
+  public SMPBulkOperation createSaveServiceInformationOperation (@NonNull final ServiceInformationType aServiceInformation,
+                                                                 @NonNull final BasicAuthClientCredentials aCredentials)
+  {
+    ValueEnforcer.notNull (aServiceInformation, "ServiceMetadata.ServiceInformation");
+    ValueEnforcer.notNull (aCredentials, "Credentials");
+
+    final String sURI = getSMPHostURI () +
+                        CIdentifier.getURIPercentEncoded (aServiceInformation.getParticipantIdentifier ()) +
+                        "/" +
+                        URL_PART_SERVICES +
+                        "/" +
+                        CIdentifier.getURIPercentEncoded (aServiceInformation.getDocumentIdentifier ());
+    return new SMPBulkOperation ("PUT " + sURI,
+                                 true,
+                                 () -> saveServiceInformation (aServiceInformation, aCredentials));
+  }
+
+  /**
+   * Create a bulk operation that saves the provided redirect. See
+   * {@link #saveServiceRedirect(ParticipantIdentifierType, DocumentIdentifierType, RedirectType, BasicAuthClientCredentials)}
+   * for details.
+   *
+   * @param aServiceGroupID
+   *        The service group ID to use. May not be <code>null</code>.
+   * @param aDocumentTypeID
+   *        The document type ID to use. May not be <code>null</code>.
+   * @param aRedirect
+   *        The redirect to be saved. May not be <code>null</code>.
+   * @param aCredentials
+   *        The user name and password to use as credentials. May not be
+   *        <code>null</code>.
+   * @return The new operation to be used with {@link SMPBulkExecutor}. Never
+   *         <code>null</code>.
+   * @since 12.8.2
+   */
+  @NonNull
+  public SMPBulkOperation createSaveServiceRedirectOperation (@NonNull final ParticipantIdentifierType aServiceGroupID,
+                                                              @NonNull final DocumentIdentifierType aDocumentTypeID,
+                                                              @NonNull final RedirectType aRedirect,
+                                                              @NonNull final BasicAuthClientCredentials aCredentials)
+  {
+    ValueEnforcer.notNull (aServiceGroupID, "ServiceGroupID");
+    ValueEnforcer.notNull (aDocumentTypeID, "DocumentTypeID");
+    ValueEnforcer.notNull (aRedirect, "Redirect");
+    ValueEnforcer.notNull (aCredentials, "Credentials");
+
+    final String sURI = getSMPHostURI () +
+                        CIdentifier.getURIPercentEncoded (aServiceGroupID) +
+                        "/" +
+                        URL_PART_SERVICES +
+                        "/" +
+                        CIdentifier.getURIPercentEncoded (aDocumentTypeID);
+    return new SMPBulkOperation ("PUT " + sURI,
+                                 true,
+                                 () -> saveServiceRedirect (aServiceGroupID, aDocumentTypeID, aRedirect, aCredentials));
+  }
+
+  /**
+   * Create a bulk operation that deletes a service meta data object. See
+   * {@link #deleteServiceRegistration(IParticipantIdentifier, IDocumentTypeIdentifier, BasicAuthClientCredentials)}
+   * for details.
+   *
+   * @param aServiceGroupID
+   *        The service group id of the service meta data to delete. May not be
+   *        <code>null</code>.
+   * @param aDocumentTypeID
+   *        The document type of the service meta data to delete. May not be
+   *        <code>null</code>.
+   * @param aCredentials
+   *        The user name and password to use as credentials. May not be
+   *        <code>null</code>.
+   * @return The new operation to be used with {@link SMPBulkExecutor}. Never
+   *         <code>null</code>.
+   * @since 12.8.2
+   */
+  @NonNull
+  public SMPBulkOperation createDeleteServiceRegistrationOperation (@NonNull final IParticipantIdentifier aServiceGroupID,
+                                                                    @NonNull final IDocumentTypeIdentifier aDocumentTypeID,
+                                                                    @NonNull final BasicAuthClientCredentials aCredentials)
+  {
+    ValueEnforcer.notNull (aServiceGroupID, "ServiceGroupID");
+    ValueEnforcer.notNull (aDocumentTypeID, "DocumentTypeID");
+    ValueEnforcer.notNull (aCredentials, "Credentials");
+
+    final String sURI = getSMPHostURI () +
+                        aServiceGroupID.getURIPercentEncoded () +
+                        "/" +
+                        URL_PART_SERVICES +
+                        "/" +
+                        aDocumentTypeID.getURIPercentEncoded ();
+    return new SMPBulkOperation ("DELETE " + sURI,
+                                 true,
+                                 () -> deleteServiceRegistration (aServiceGroupID, aDocumentTypeID, aCredentials));
+  }
 }
@@ -177,7 +177,8 @@ public class BDXRClientReadOnly extends AbstractGenericSMPClient <BDXRClientRead
     aMarshaller.setUseSchema (isXMLSchemaValidation ());
     customizeMarshaller (aMarshaller);
 
-    final ServiceGroupType ret = executeGenericRequest (aRequest, new SMPHttpResponseHandlerUnsigned <> (aMarshaller));
+    final ServiceGroupType ret = executeGenericRequest (aRequest,
+                                                        configureResponseHandler (new SMPHttpResponseHandlerUnsigned <> (aMarshaller)));
 
     if (LOGGER.isDebugEnabled ())
       LOGGER.debug ("Received response: " + ret);
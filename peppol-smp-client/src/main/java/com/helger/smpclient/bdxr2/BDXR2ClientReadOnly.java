@@ -176,7 +176,8 @@ public class BDXR2ClientReadOnly extends AbstractGenericSMPClient <BDXR2ClientRe
     final BDXR2MarshallerServiceGroup aMarshaller = new BDXR2MarshallerServiceGroup ();
     aMarshaller.setUseSchema (isXMLSchemaValidation ());
     customizeMarshaller (aMarshaller);
-    final ServiceGroupType ret = executeGenericRequest (aRequest, new SMPHttpResponseHandlerUnsigned <> (aMarshaller));
+    final ServiceGroupType ret = executeGenericRequest (aRequest,
+                                                        configureResponseHandler (new SMPHttpResponseHandlerUnsigned <> (aMarshaller)));
 
     if (LOGGER.isDebugEnabled ())
       LOGGER.debug ("Received response: " + ret);
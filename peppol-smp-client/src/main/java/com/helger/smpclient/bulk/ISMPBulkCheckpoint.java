@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.bulk;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.Nonempty;
+
+/**
+ * A checkpoint for {@link SMPBulkExecutor}, that remembers the IDs of all successfully executed
+ * operations, so that an interrupted batch can be resumed without executing the same operations
+ * again. Implementations must be thread-safe.
+ *
+ * @author Philip Helger
+ * @since 12.8.2
+ * @see SMPBulkFileCheckpoint
+ */
+public interface ISMPBulkCheckpoint
+{
+  /**
+   * @param sID
+   *        The operation ID to check. May neither be <code>null</code> nor empty.
+   * @return <code>true</code> if the operation was already executed successfully.
+   */
+  boolean isCompleted (@NonNull @Nonempty String sID);
+
+  /**
+   * Remember that an operation was executed successfully.
+   *
+   * @param sID
+   *        The operation ID. May neither be <code>null</code> nor empty.
+   */
+  void onCompleted (@NonNull @Nonempty String sID);
+}
@@ -0,0 +1,410 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.bulk;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.NotThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.tostring.ToStringGenerator;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+import com.helger.httpclient.HttpClientManager;
+import com.helger.smpclient.bulk.SMPBulkItemResult.EOutcome;
+import com.helger.smpclient.exception.SMPClientException;
+import com.helger.smpclient.exception.SMPClientHttpException;
+import com.helger.smpclient.exception.SMPClientSMPUnavailableException;
+import com.helger.smpclient.exception.SMPClientThrottledException;
+import com.helger.smpclient.httpclient.AbstractGenericSMPClient;
+
+/**
+ * Executes a large number of SMP write operations (PUT and DELETE) with bounded concurrency. All
+ * operations of a batch share the pooled keep-alive connections of a single
+ * {@link HttpClientManager}, so that the TLS handshake is not repeated for every operation.
+ * Idempotent operations are retried with an exponential backoff, if the error indicates a
+ * temporary problem (SMP not reachable, throttled or an HTTP 5xx response). Optionally an
+ * {@link ISMPBulkCheckpoint} can be provided, that is used to skip operations already executed in
+ * a previous (interrupted) run.
+ * <p>
+ * The operations are taken lazily from the provided {@link Iterable}, so very large batches don't
+ * need to be held in memory.
+ * </p>
+ *
+ * @author Philip Helger
+ * @since 12.8.2
+ */
+@NotThreadSafe
+public class SMPBulkExecutor
+{
+  /** The default number of operations executed in parallel */
+  public static final int DEFAULT_MAX_CONCURRENCY = 4;
+  /** The default number of retries for idempotent operations */
+  public static final int DEFAULT_MAX_RETRIES = 2;
+  /** The default backoff before the first retry. It is doubled for every further retry. */
+  public static final Duration DEFAULT_RETRY_BACKOFF = Duration.ofMillis (500);
+
+  private static final Logger LOGGER = LoggerFactory.getLogger (SMPBulkExecutor.class);
+  private static final AtomicInteger THREAD_INDEX = new AtomicInteger (0);
+
+  private int m_nMaxConcurrency = DEFAULT_MAX_CONCURRENCY;
+  private int m_nMaxRetries = DEFAULT_MAX_RETRIES;
+  private Duration m_aRetryBackoff = DEFAULT_RETRY_BACKOFF;
+  private ISMPBulkCheckpoint m_aCheckpoint;
+
+  public SMPBulkExecutor ()
+  {}
+
+  /**
+   * @return The maximum number of operations executed in parallel. Always &gt; 0.
+   */
+  @Nonnegative
+  public final int getMaxConcurrency ()
+  {
+    return m_nMaxConcurrency;
+  }
+
+  /**
+   * Set the maximum number of operations executed in parallel.
+   *
+   * @param nMaxConcurrency
+   *        The maximum concurrency. Must be &gt; 0.
+   * @return this for chaining
+   */
+  @NonNull
+  public final SMPBulkExecutor setMaxConcurrency (@Nonnegative final int nMaxConcurrency)
+  {
+    ValueEnforcer.isGT0 (nMaxConcurrency, "MaxConcurrency");
+    m_nMaxConcurrency = nMaxConcurrency;
+    return this;
+  }
+
+  /**
+   * @return The maximum number of retries of idempotent operations. Always &ge; 0.
+   */
+  @Nonnegative
+  public final int getMaxRetries ()
+  {
+    return m_nMaxRetries;
+  }
+
+  /**
+   * Set the maximum number of retries of idempotent operations.
+   *
+   * @param nMaxRetries
+   *        The maximum number of retries. Must be &ge; 0. Use 0 to disable retries.
+   * @return this for chaining
+   */
+  @NonNull
+  public final SMPBulkExecutor setMaxRetries (@Nonnegative final int nMaxRetries)
+  {
+    ValueEnforcer.isGE0 (nMaxRetries, "MaxRetries");
+    m_nMaxRetries = nMaxRetries;
+    return this;
+  }
+
+  /**
+   * @return The backoff before the first retry. Never <code>null</code>.
+   */
+  @NonNull
+  public final Duration getRetryBackoff ()
+  {
+    return m_aRetryBackoff;
+  }
+
+  /**
+   * Set the backoff before the first retry. It is doubled for every further retry.
+   *
+   * @param aRetryBackoff
+   *        The backoff. May not be <code>null</code> and may not be negative.
+   * @return this for chaining
+   */
+  @NonNull
+  public final SMPBulkExecutor setRetryBackoff (@NonNull final Duration aRetryBackoff)
+  {
+    ValueEnforcer.notNull (aRetryBackoff, "RetryBackoff");
+    ValueEnforcer.isTrue ( () -> !aRetryBackoff.isNegative (), "RetryBackoff may not be negative");
+    m_aRetryBackoff = aRetryBackoff;
+    return this;
+  }
+
+  /**
+   * @return The checkpoint to be used. May be <code>null</code>.
+   */
+  @Nullable
+  public final ISMPBulkCheckpoint getCheckpoint ()
+  {
+    return m_aCheckpoint;
+  }
+
+  /**
+   * Set the checkpoint to be used to skip already executed operations and to remember successfully
+   * executed operations.
+   *
+   * @param aCheckpoint
+   *        The checkpoint. May be <code>null</code> to execute all operations.
+   * @return this for chaining
+   */
+  @NonNull
+  public final SMPBulkExecutor setCheckpoint (@Nullable final ISMPBulkCheckpoint aCheckpoint)
+  {
+    m_aCheckpoint = aCheckpoint;
+    return this;
+  }
+
+  /**
+   * Check if the provided exception indicates a temporary problem, so that an idempotent operation
+   * may be retried.
+   *
+   * @param ex
+   *        The exception to check. May not be <code>null</code>.
+   * @return <code>true</code> if the operation may be retried.
+   */
+  protected boolean isRetryable (@NonNull final SMPClientException ex)
+  {
+    if (ex instanceof SMPClientSMPUnavailableException || ex instanceof SMPClientThrottledException)
+      return true;
+    if (ex instanceof final SMPClientHttpException aHttpEx)
+      return aHttpEx.getResponseStatusCode () >= 500;
+    return false;
+  }
+
+  @NonNull
+  private SMPBulkItemResult _executeSingle (final long nIndex, @NonNull final SMPBulkOperation aOp)
+  {
+    final String sID = aOp.getID ();
+    final long nStartNanos = System.nanoTime ();
+    int nAttempts = 0;
+    while (true)
+    {
+      nAttempts++;
+      try
+      {
+        aOp.getAction ().execute ();
+
+        if (m_aCheckpoint != null)
+          m_aCheckpoint.onCompleted (sID);
+        return new SMPBulkItemResult (nIndex,
+                                      sID,
+                                      EOutcome.SUCCESS,
+                                      nAttempts,
+                                      Duration.ofNanos (System.nanoTime () - nStartNanos),
+                                      null);
+      }
+      catch (final RuntimeException ex)
+      {
+        // E.g. a failing checkpoint - the result must not get lost
+        LOGGER.error ("SMP bulk operation '" + sID + "' failed after " + nAttempts + " attempt(s)", ex);
+        return new SMPBulkItemResult (nIndex,
+                                      sID,
+                                      EOutcome.FAILURE,
+                                      nAttempts,
+                                      Duration.ofNanos (System.nanoTime () - nStartNanos),
+                                      new SMPClientException ("Unexpected error executing SMP bulk operation '" +
+                                                              sID +
+                                                              "'",
+                                                              ex));
+      }
+      catch (final SMPClientException ex)
+      {
+        if (!aOp.isIdempotent () || nAttempts > m_nMaxRetries || !isRetryable (ex))
+        {
+          LOGGER.warn ("SMP bulk operation '" + sID + "' failed after " + nAttempts + " attempt(s): " + ex.getMessage ());
+          return new SMPBulkItemResult (nIndex,
+                                        sID,
+                                        EOutcome.FAILURE,
+                                        nAttempts,
+                                        Duration.ofNanos (System.nanoTime () - nStartNanos),
+                                        ex);
+        }
+
+        // Exponential backoff
+        final long nBackoffMillis = m_aRetryBackoff.toMillis () << Math.min (nAttempts - 1, 20);
+        if (LOGGER.isDebugEnabled ())
+          LOGGER.debug ("Retrying SMP bulk operation '" + sID + "' in " + nBackoffMillis + " ms: " + ex.getMessage ());
+        try
+        {
+          Thread.sleep (nBackoffMillis);
+        }
+        catch (final InterruptedException ex2)
+        {
+          Thread.currentThread ().interrupt ();
+          return new SMPBulkItemResult (nIndex,
+                                        sID,
+                                        EOutcome.FAILURE,
+                                        nAttempts,
+                                        Duration.ofNanos (System.nanoTime () - nStartNanos),
+                                        ex);
+        }
+      }
+    }
+  }
+
+  /**
+   * Execute all provided operations. The operations must already be bound to their SMP client(s).
+   * To share the connection pool between all operations, use
+   * {@link #execute(AbstractGenericSMPClient, Iterable)} or set a shared {@link HttpClientManager}
+   * on the client manually.
+   *
+   * @param aOperations
+   *        The operations to execute. May not be <code>null</code>.
+   * @return The report with one result per operation. Never <code>null</code>.
+   * @throws InterruptedException
+   *         If the current thread was interrupted while waiting
+   */
+  @NonNull
+  public SMPBulkReport execute (@NonNull final Iterable <SMPBulkOperation> aOperations) throws InterruptedException
+  {
+    return _execute (aOperations, null, null);
+  }
+
+  @NonNull
+  private SMPBulkReport _execute (@NonNull final Iterable <SMPBulkOperation> aOperations,
+                                  @Nullable final AbstractGenericSMPClient <?> aClient,
+                                  @Nullable final HttpClientManager aHttpClientMgr) throws InterruptedException
+  {
+    ValueEnforcer.notNull (aOperations, "Operations");
+
+    final long nStartNanos = System.nanoTime ();
+    final ICommonsList <SMPBulkItemResult> aResults = new CommonsArrayList <> ();
+    final Semaphore aInFlight = new Semaphore (m_nMaxConcurrency);
+    final ExecutorService aExecutor = Executors.newFixedThreadPool (m_nMaxConcurrency, r -> {
+      final Thread t = new Thread (r, "smp-client-bulk-" + THREAD_INDEX.incrementAndGet ());
+      t.setDaemon (true);
+      return t;
+    });
+    try
+    {
+      long nIndex = 0;
+      for (final SMPBulkOperation aOp : aOperations)
+      {
+        ValueEnforcer.notNull (aOp, "Operation");
+        final long nCurIndex = nIndex++;
+
+        if (m_aCheckpoint != null && m_aCheckpoint.isCompleted (aOp.getID ()))
+        {
+          synchronized (aResults)
+          {
+            aResults.add (new SMPBulkItemResult (nCurIndex, aOp.getID (), EOutcome.SKIPPED, 0, Duration.ZERO, null));
+          }
+          continue;
+        }
+
+        // Don't queue more operations than can be executed
+        aInFlight.acquire ();
+        aExecutor.execute ( () -> {
+          // Only the worker threads use the batch connection pool
+          if (aClient != null)
+            aClient.setCurrentThreadHttpClientManager (aHttpClientMgr);
+          try
+          {
+            final SMPBulkItemResult aResult = _executeSingle (nCurIndex, aOp);
+            synchronized (aResults)
+            {
+              aResults.add (aResult);
+            }
+          }
+          finally
+          {
+            if (aClient != null)
+              aClient.setCurrentThreadHttpClientManager (null);
+            aInFlight.release ();
+          }
+        });
+      }
+
+      // Wait for all running operations
+      aInFlight.acquire (m_nMaxConcurrency);
+      aInFlight.release (m_nMaxConcurrency);
+    }
+    finally
+    {
+      aExecutor.shutdownNow ();
+      aExecutor.awaitTermination (1, TimeUnit.MINUTES);
+    }
+
+    final SMPBulkReport ret;
+    synchronized (aResults)
+    {
+      ret = new SMPBulkReport (aResults, Duration.ofNanos (System.nanoTime () - nStartNanos));
+    }
+    LOGGER.info ("Finished SMP bulk execution: " + ret);
+    return ret;
+  }
+
+  /**
+   * Execute all provided operations of the provided SMP client. If the client has no shared
+   * {@link HttpClientManager}, a new one based on the HTTP client settings of the client is used
+   * by the worker threads for the duration of the batch, so that all operations share the same
+   * pooled keep-alive connections. The client itself is not modified.
+   *
+   * @param aClient
+   *        The SMP client the operations were created from. May not be <code>null</code>.
+   * @param aOperations
+   *        The operations to execute. May not be <code>null</code>.
+   * @return The report with one result per operation. Never <code>null</code>.
+   * @throws InterruptedException
+   *         If the current thread was interrupted while waiting
+   */
+  @NonNull
+  public SMPBulkReport execute (@NonNull final AbstractGenericSMPClient <?> aClient,
+                                @NonNull final Iterable <SMPBulkOperation> aOperations) throws InterruptedException
+  {
+    ValueEnforcer.notNull (aClient, "Client");
+
+    if (aClient.getSharedHttpClientManager () != null)
+      return execute (aOperations);
+
+    // The client itself is not modified, so that it can be used concurrently
+    final HttpClientManager aHttpClientMgr = aClient.createHttpClientManager ();
+    try
+    {
+      return _execute (aOperations, aClient, aHttpClientMgr);
+    }
+    finally
+    {
+      try
+      {
+        aHttpClientMgr.close ();
+      }
+      catch (final Exception ex)
+      {
+        LOGGER.warn ("Failed to close bulk HttpClientManager", ex);
+      }
+    }
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("MaxConcurrency", m_nMaxConcurrency)
+                                       .append ("MaxRetries", m_nMaxRetries)
+                                       .append ("RetryBackoff", m_aRetryBackoff)
+                                       .appendIfNotNull ("Checkpoint", m_aCheckpoint)
+                                       .getToString ();
+  }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.bulk;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.Nonempty;
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.GuardedBy;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.string.StringHelper;
+import com.helger.base.tostring.ToStringGenerator;
+
+/**
+ * A file based implementation of {@link ISMPBulkCheckpoint}. Each completed operation ID is
+ * appended as a single line to the file and flushed immediately, so that the file survives a crash
+ * of the process. When the object is created, all IDs of an existing file are read.
+ *
+ * @author Philip Helger
+ * @since 12.8.2
+ */
+@ThreadSafe
+public class SMPBulkFileCheckpoint implements ISMPBulkCheckpoint, AutoCloseable
+{
+  private final Path m_aPath;
+  private final Set <String> m_aCompleted = ConcurrentHashMap.newKeySet ();
+  @GuardedBy ("this")
+  private final BufferedWriter m_aWriter;
+
+  /**
+   * Constructor
+   *
+   * @param aPath
+   *        The checkpoint file. May not be <code>null</code>. If it exists, it is read, otherwise it
+   *        is created.
+   * @throws IOException
+   *         If reading or opening the file failed
+   */
+  public SMPBulkFileCheckpoint (@NonNull final Path aPath) throws IOException
+  {
+    ValueEnforcer.notNull (aPath, "Path");
+    m_aPath = aPath;
+    if (Files.exists (aPath))
+      for (final String sLine : Files.readAllLines (aPath, StandardCharsets.UTF_8))
+        if (StringHelper.isNotEmpty (sLine))
+          m_aCompleted.add (sLine);
+    m_aWriter = Files.newBufferedWriter (aPath,
+                                         StandardCharsets.UTF_8,
+                                         StandardOpenOption.CREATE,
+                                         StandardOpenOption.APPEND,
+                                         StandardOpenOption.WRITE);
+  }
+
+  /**
+   * @return The checkpoint file as provided in the constructor. Never <code>null</code>.
+   */
+  @NonNull
+  public final Path getPath ()
+  {
+    return m_aPath;
+  }
+
+  /**
+   * @return The number of completed operations. Always &ge; 0.
+   */
+  @Nonnegative
+  public int getCompletedCount ()
+  {
+    return m_aCompleted.size ();
+  }
+
+  public boolean isCompleted (@NonNull @Nonempty final String sID)
+  {
+    return m_aCompleted.contains (sID);
+  }
+
+  public void onCompleted (@NonNull @Nonempty final String sID)
+  {
+    if (m_aCompleted.add (sID))
+    {
+      synchronized (this)
+      {
+        try
+        {
+          m_aWriter.write (sID);
+          m_aWriter.newLine ();
+          m_aWriter.flush ();
+        }
+        catch (final IOException ex)
+        {
+          throw new UncheckedIOException ("Failed to write SMP bulk checkpoint file " + m_aPath, ex);
+        }
+      }
+    }
+  }
+
+  public synchronized void close () throws IOException
+  {
+    m_aWriter.close ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Path", m_aPath)
+                                       .append ("CompletedCount", m_aCompleted.size ())
+                                       .getToString ();
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.bulk;
+
+import java.time.Duration;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.Nonempty;
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.base.tostring.ToStringGenerator;
+import com.helger.smpclient.exception.SMPClientException;
+
+/**
+ * The result of a single {@link SMPBulkOperation}.
+ *
+ * @author Philip Helger
+ * @since 12.8.2
+ */
+@Immutable
+public final class SMPBulkItemResult
+{
+  /**
+   * The outcome of a single operation.
+   *
+   * @author Philip Helger
+   */
+  public enum EOutcome
+  {
+    /** The operation was executed successfully */
+    SUCCESS,
+    /** The operation failed, even after all retries */
+    FAILURE,
+    /** The operation was already executed according to the checkpoint */
+    SKIPPED;
+  }
+
+  private final long m_nIndex;
+  private final String m_sID;
+  private final EOutcome m_eOutcome;
+  private final int m_nAttempts;
+  private final Duration m_aDuration;
+  private final SMPClientException m_aException;
+
+  SMPBulkItemResult (@Nonnegative final long nIndex,
+                     @NonNull @Nonempty final String sID,
+                     @NonNull final EOutcome eOutcome,
+                     @Nonnegative final int nAttempts,
+                     @NonNull final Duration aDuration,
+                     @Nullable final SMPClientException aException)
+  {
+    m_nIndex = nIndex;
+    m_sID = sID;
+    m_eOutcome = eOutcome;
+    m_nAttempts = nAttempts;
+    m_aDuration = aDuration;
+    m_aException = aException;
+  }
+
+  /**
+   * @return The 0-based index of the operation in the batch.
+   */
+  @Nonnegative
+  public long getIndex ()
+  {
+    return m_nIndex;
+  }
+
+  /**
+   * @return The ID of the operation. Neither <code>null</code> nor empty.
+   */
+  @NonNull
+  @Nonempty
+  public String getID ()
+  {
+    return m_sID;
+  }
+
+  /**
+   * @return The outcome of the operation. Never <code>null</code>.
+   */
+  @NonNull
+  public EOutcome getOutcome ()
+  {
+    return m_eOutcome;
+  }
+
+  /**
+   * @return <code>true</code> if the outcome is {@link EOutcome#SUCCESS}.
+   */
+  public boolean isSuccess ()
+  {
+    return m_eOutcome == EOutcome.SUCCESS;
+  }
+
+  /**
+   * @return <code>true</code> if the outcome is {@link EOutcome#FAILURE}.
+   */
+  public boolean isFailure ()
+  {
+    return m_eOutcome == EOutcome.FAILURE;
+  }
+
+  /**
+   * @return The number of execution attempts. 0 for skipped operations.
+   */
+  @Nonnegative
+  public int getAttempts ()
+  {
+    return m_nAttempts;
+  }
+
+  /**
+   * @return The total duration of all attempts including the retry delays. Never
+   *         <code>null</code>.
+   */
+  @NonNull
+  public Duration getDuration ()
+  {
+    return m_aDuration;
+  }
+
+  /**
+   * @return The exception of the last attempt. Only present for {@link EOutcome#FAILURE}.
+   */
+  @Nullable
+  public SMPClientException getException ()
+  {
+    return m_aException;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Index", m_nIndex)
+                                       .append ("ID", m_sID)
+                                       .append ("Outcome", m_eOutcome)
+                                       .append ("Attempts", m_nAttempts)
+                                       .append ("Duration", m_aDuration)
+                                       .appendIfNotNull ("Exception", m_aException)
+                                       .getToString ();
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.bulk;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.Nonempty;
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.tostring.ToStringGenerator;
+import com.helger.smpclient.exception.SMPClientException;
+
+/**
+ * A single write operation to be executed by {@link SMPBulkExecutor}. Instances are usually created
+ * by the factory methods of the SMP clients, e.g.
+ * {@link com.helger.smpclient.peppol.SMPClient#createSaveServiceInformationOperation(com.helger.xsds.peppol.smp1.ServiceInformationType, com.helger.http.basicauth.BasicAuthClientCredentials)}.
+ *
+ * @author Philip Helger
+ * @since 12.8.2
+ */
+@Immutable
+public final class SMPBulkOperation
+{
+  /**
+   * The action that performs the operation.
+   *
+   * @author Philip Helger
+   */
+  @FunctionalInterface
+  public interface IAction
+  {
+    /**
+     * Perform the operation.
+     *
+     * @throws SMPClientException
+     *         In case of an error
+     */
+    void execute () throws SMPClientException;
+  }
+
+  private final String m_sID;
+  private final boolean m_bIdempotent;
+  private final IAction m_aAction;
+
+  /**
+   * Constructor
+   *
+   * @param sID
+   *        The unique and stable ID of the operation (e.g. the HTTP method and the URL). It is used
+   *        to identify already executed operations when resuming a batch. May neither be
+   *        <code>null</code> nor empty and must not contain line breaks.
+   * @param bIdempotent
+   *        <code>true</code> if the operation may be retried safely.
+   * @param aAction
+   *        The action to be executed. May not be <code>null</code>.
+   */
+  public SMPBulkOperation (@NonNull @Nonempty final String sID,
+                           final boolean bIdempotent,
+                           @NonNull final IAction aAction)
+  {
+    ValueEnforcer.notEmpty (sID, "ID");
+    ValueEnforcer.isTrue ( () -> sID.indexOf ('\n') < 0 && sID.indexOf ('\r') < 0, "ID may not contain line breaks");
+    ValueEnforcer.notNull (aAction, "Action");
+    m_sID = sID;
+    m_bIdempotent = bIdempotent;
+    m_aAction = aAction;
+  }
+
+  /**
+   * @return The unique and stable ID of the operation. Neither <code>null</code> nor empty.
+   */
+  @NonNull
+  @Nonempty
+  public String getID ()
+  {
+    return m_sID;
+  }
+
+  /**
+   * @return <code>true</code> if the operation may be retried safely.
+   */
+  public boolean isIdempotent ()
+  {
+    return m_bIdempotent;
+  }
+
+  /**
+   * @return The action to be executed. Never <code>null</code>.
+   */
+  @NonNull
+  public IAction getAction ()
+  {
+    return m_aAction;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("ID", m_sID).append ("Idempotent", m_bIdempotent).getToString ();
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.bulk;
+
+import java.time.Duration;
+import java.util.Comparator;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.annotation.style.ReturnsMutableCopy;
+import com.helger.base.tostring.ToStringGenerator;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+import com.helger.smpclient.bulk.SMPBulkItemResult.EOutcome;
+
+/**
+ * The report of a complete batch executed by {@link SMPBulkExecutor}. It contains one
+ * {@link SMPBulkItemResult} per operation, in the order of the operations.
+ *
+ * @author Philip Helger
+ * @since 12.8.2
+ */
+@Immutable
+public final class SMPBulkReport
+{
+  private final ICommonsList <SMPBulkItemResult> m_aResults;
+  private final Duration m_aDuration;
+
+  SMPBulkReport (@NonNull final ICommonsList <SMPBulkItemResult> aResults, @NonNull final Duration aDuration)
+  {
+    m_aResults = new CommonsArrayList <> (aResults);
+    m_aResults.sort (Comparator.comparingLong (SMPBulkItemResult::getIndex));
+    m_aDuration = aDuration;
+  }
+
+  /**
+   * @return All item results in the order of the operations. Never <code>null</code>.
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  public ICommonsList <SMPBulkItemResult> getAllResults ()
+  {
+    return m_aResults.getClone ();
+  }
+
+  /**
+   * @return All failed item results in the order of the operations. Never <code>null</code>.
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  public ICommonsList <SMPBulkItemResult> getAllFailures ()
+  {
+    return m_aResults.getAll (SMPBulkItemResult::isFailure);
+  }
+
+  @Nonnegative
+  private int _count (@NonNull final EOutcome eOutcome)
+  {
+    return m_aResults.getCount (x -> x.getOutcome () == eOutcome);
+  }
+
+  /**
+   * @return The total number of operations. Always &ge; 0.
+   */
+  @Nonnegative
+  public int getTotalCount ()
+  {
+    return m_aResults.size ();
+  }
+
+  /**
+   * @return The number of successful operations. Always &ge; 0.
+   */
+  @Nonnegative
+  public int getSuccessCount ()
+  {
+    return _count (EOutcome.SUCCESS);
+  }
+
+  /**
+   * @return The number of failed operations. Always &ge; 0.
+   */
+  @Nonnegative
+  public int getFailureCount ()
+  {
+    return _count (EOutcome.FAILURE);
+  }
+
+  /**
+   * @return The number of operations skipped, because they were already executed according to the
+   *         checkpoint. Always &ge; 0.
+   */
+  @Nonnegative
+  public int getSkippedCount ()
+  {
+    return _count (EOutcome.SKIPPED);
+  }
+
+  /**
+   * @return <code>true</code> if no operation failed.
+   */
+  public boolean isAllSuccessful ()
+  {
+    return getFailureCount () == 0;
+  }
+
+  /**
+   * @return The duration of the complete batch. Never <code>null</code>.
+   */
+  @NonNull
+  public Duration getDuration ()
+  {
+    return m_aDuration;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("TotalCount", getTotalCount ())
+                                       .append ("SuccessCount", getSuccessCount ())
+                                       .append ("FailureCount", getFailureCount ())
+                                       .append ("SkippedCount", getSkippedCount ())
+                                       .append ("Duration", m_aDuration)
+                                       .getToString ();
+  }
+}
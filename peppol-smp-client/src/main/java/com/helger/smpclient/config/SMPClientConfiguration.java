@@ -26,6 +26,7 @@ import org.jspecify.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.helger.annotation.CheckForSigned;
 import com.helger.annotation.concurrent.GuardedBy;
 import com.helger.annotation.concurrent.Immutable;
 import com.helger.base.concurrent.SimpleReadWriteLock;
@@ -40,6 +41,7 @@ import com.helger.httpclient.HttpClientSettings;
 import com.helger.peppol.security.PeppolTrustStores;
 import com.helger.security.keystore.EKeyStoreType;
 import com.helger.security.keystore.KeyStoreHelper;
+import com.helger.smpclient.httpclient.AbstractSMPResponseHandler;
 
 /**
  * This class manages the configuration properties of the SMP client. The order of the properties
@@ -191,6 +193,33 @@ public final class SMPClientConfiguration
     }
   }
 
+  /**
+   * Get the content of the property "smpclient.response.maxsize" or the default value.
+   *
+   * @return The maximum number of bytes an SMP response may have. Values &le; 0 indicate an
+   *         unlimited size. Defaults to
+   *         {@link com.helger.smpclient.httpclient.AbstractSMPResponseHandler#DEFAULT_MAX_RESPONSE_SIZE}.
+   * @since 12.8.2
+   */
+  @CheckForSigned
+  public static long getMaxResponseSize ()
+  {
+    return getConfig ().getAsLong ("smpclient.response.maxsize", AbstractSMPResponseHandler.DEFAULT_MAX_RESPONSE_SIZE);
+  }
+
+  /**
+   * Get the content of the property "smpclient.response.compression" or the default value.
+   *
+   * @return <code>true</code> if the SMP client should request compressed responses via the
+   *         <code>Accept-Encoding</code> HTTP header, <code>false</code> if not. Defaults to
+   *         <code>false</code>.
+   * @since 12.8.2
+   */
+  public static boolean isUseResponseCompression ()
+  {
+    return getConfig ().getAsBoolean ("smpclient.response.compression", false);
+  }
+
   /**
    * @return The HttpProxy object to be used by SMP clients based on the Java System properties
    *         "http.proxyHost" and "http.proxyPort". Note: https is not needed, because SMPs must run
@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.exception;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * This exception is thrown if the time budget of an SMP lookup (see
+ * {@link com.helger.smpclient.SMPLookupDeadline}) was used up, before or while the SMP was queried.
+ *
+ * @author Philip Helger
+ * @since 12.8.2
+ */
+public class SMPClientDeadlineExceededException extends SMPClientException
+{
+  public SMPClientDeadlineExceededException (@NonNull final String sMsg)
+  {
+    super (sMsg);
+  }
+
+  public SMPClientDeadlineExceededException (@NonNull final String sMsg, @Nullable final Throwable aCause)
+  {
+    super (sMsg, aCause);
+  }
+}
@@ -61,4 +61,16 @@ public class SMPClientParticipantNotFoundException extends SMPClientException
   {
     super (sMsg, ex);
   }
+
+  /**
+   * Constructor for derived classes only.
+   *
+   * @param sMsg
+   *        The error message. May not be <code>null</code>.
+   * @since 12.8.2
+   */
+  protected SMPClientParticipantNotFoundException (@NonNull final String sMsg)
+  {
+    super (sMsg);
+  }
 }
@@ -46,4 +46,16 @@ public class SMPClientSMPUnavailableException extends SMPClientParticipantNotFou
   {
     super ("Failed to contact the SMP server: " + ex.getClass ().getName () + " - " + ex.getMessage (), ex);
   }
+
+  /**
+   * Constructor for derived classes only, if the SMP server was not contacted at all.
+   *
+   * @param sMsg
+   *        The error message. May not be <code>null</code>.
+   * @since 12.8.2
+   */
+  protected SMPClientSMPUnavailableException (@NonNull final String sMsg)
+  {
+    super (sMsg);
+  }
 }
@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.exception;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.Nonempty;
+
+/**
+ * This exception is thrown if an SMP query was not executed, because the local concurrency or rate
+ * limit for the SMP host could not be obtained in time. The SMP itself was not contacted.
+ *
+ * @author Philip Helger
+ * @since 12.8.2
+ */
+public class SMPClientThrottledException extends SMPClientException
+{
+  private final String m_sHostKey;
+
+  public SMPClientThrottledException (@NonNull @Nonempty final String sHostKey, @NonNull final String sMsg)
+  {
+    super (sMsg);
+    m_sHostKey = sHostKey;
+  }
+
+  /**
+   * @return The key of the SMP host that was throttled. Neither <code>null</code> nor empty.
+   */
+  @NonNull
+  @Nonempty
+  public final String getHostKey ()
+  {
+    return m_sHostKey;
+  }
+}
@@ -17,13 +17,23 @@
 package com.helger.smpclient.httpclient;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.ConnectException;
 import java.net.SocketTimeoutException;
 import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.UnknownHostException;
 import java.nio.charset.StandardCharsets;
 import java.security.KeyStore;
 import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 
 import javax.naming.InvalidNameException;
@@ -32,16 +42,21 @@ import javax.naming.ldap.Rdn;
 
 import org.apache.hc.client5.http.ClientProtocolException;
 import org.apache.hc.client5.http.HttpResponseException;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
 import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
+import org.apache.hc.client5.http.config.RequestConfig;
 import org.apache.hc.client5.http.protocol.HttpClientContext;
 import org.apache.hc.core5.http.ContentType;
 import org.apache.hc.core5.http.HttpStatus;
 import org.apache.hc.core5.http.io.HttpClientResponseHandler;
+import org.apache.hc.core5.util.Timeout;
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.helger.annotation.CheckForSigned;
+import com.helger.annotation.Nonempty;
 import com.helger.annotation.WillNotClose;
 import com.helger.annotation.style.OverrideOnDemand;
 import com.helger.annotation.style.ReturnsImmutableObject;
@@ -54,10 +69,14 @@ import com.helger.base.tostring.ToStringGenerator;
 import com.helger.base.trait.IGenericImplTrait;
 import com.helger.collection.commons.CommonsHashSet;
 import com.helger.collection.commons.ICommonsSet;
+import com.helger.http.CHttpHeader;
+import com.helger.httpclient.HttpClientFactory;
 import com.helger.httpclient.HttpClientManager;
 import com.helger.httpclient.IHttpClientSettings;
 import com.helger.jaxb.GenericJAXBMarshaller;
 import com.helger.mime.CMimeType;
+import com.helger.peppol.security.OfflineCRLSource;
+import com.helger.peppol.security.RevocationCheckPrefetcher;
 import com.helger.peppolid.IDocumentTypeIdentifier;
 import com.helger.peppolid.IParticipantIdentifier;
 import com.helger.peppolid.factory.IIdentifierFactory;
@@ -66,13 +85,19 @@ import com.helger.security.certificate.CertificateDecodeHelper;
 import com.helger.security.keystore.EKeyStoreType;
 import com.helger.security.revocation.CertificateRevocationCheckerDefaults;
 import com.helger.security.revocation.ERevocationCheckMode;
+import com.helger.smpclient.SMPLookupDeadline;
 import com.helger.smpclient.config.SMPClientConfiguration;
 import com.helger.smpclient.exception.SMPClientBadRequestException;
+import com.helger.smpclient.exception.SMPClientCircuitOpenException;
+import com.helger.smpclient.exception.SMPClientDeadlineExceededException;
 import com.helger.smpclient.exception.SMPClientException;
 import com.helger.smpclient.exception.SMPClientHttpException;
 import com.helger.smpclient.exception.SMPClientNotFoundException;
 import com.helger.smpclient.exception.SMPClientSMPUnavailableException;
+import com.helger.smpclient.exception.SMPClientThrottledException;
 import com.helger.smpclient.exception.SMPClientUnauthorizedException;
+import com.helger.smpclient.security.SMPCertificateCheckResultCache;
+import com.helger.smpclient.security.TrustStoreBasedX509KeySelector;
 import com.helger.xsds.xmldsig.X509DataType;
 
 import jakarta.xml.bind.JAXBElement;
@@ -105,6 +130,15 @@ public abstract class AbstractGenericSMPClient <IMPLTYPE extends AbstractGeneric
   public static final ContentType CONTENT_TYPE_TEXT_XML = ContentType.create (CMimeType.TEXT_XML.getAsString (),
                                                                               StandardCharsets.UTF_8);
 
+  /**
+   * The value of the <code>Accept-Encoding</code> HTTP header if response compression is enabled.
+   *
+   * @since 12.8.2
+   */
+  public static final String ACCEPT_ENCODING_COMPRESSED = AbstractSMPResponseHandler.CONTENT_ENCODING_GZIP +
+                                                          ", " +
+                                                          AbstractSMPResponseHandler.CONTENT_ENCODING_DEFLATE;
+
   private static final Logger LOGGER = LoggerFactory.getLogger (AbstractGenericSMPClient.class);
   private static final KeyStore DEFAULT_TRUST_STORE;
 
@@ -143,11 +177,27 @@ public abstract class AbstractGenericSMPClient <IMPLTYPE extends AbstractGeneric
   private boolean m_bXMLSchemaValidation = DEFAULT_XML_SCHEMA_VALIDATION;
   private final SMPHttpClientSettings m_aHttpClientSettings = SMPHttpClientSettings.fromConfiguration ();
   private HttpClientManager m_aSharedHttpClientManager;
+  // Only used by the threads that set it, without changing the client for other threads
+  private final ThreadLocal <HttpClientManager> m_aThreadHttpClientManager = new ThreadLocal <> ();
   private Consumer <? super GenericJAXBMarshaller <?>> m_aMarshallerConsumer;
   // A neutral default that never folds case; concrete clients set a more specific default (Peppol,
   // BDXR1, BDXR2) in their constructor
   private IIdentifierFactory m_aIdentifierFactory = SimpleIdentifierFactory.INSTANCE;
   private boolean m_bCheckServiceMetadataIDs = DEFAULT_CHECK_SERVICE_METADATA_IDENTIFIERS;
+  private long m_nMaxResponseSize = SMPClientConfiguration.getMaxResponseSize ();
+  private boolean m_bUseResponseCompression = SMPClientConfiguration.isUseResponseCompression ();
+  private SMPTransferStatistics m_aTransferStatistics = SMPTransferStatistics.getDefaultInstance ();
+  private SMPVerifiedResponseCache m_aVerifiedResponseCache;
+  private SMPCertificateCheckResultCache m_aCertificateCheckResultCache;
+  private RevocationCheckPrefetcher m_aRevocationPrefetcher;
+  private OfflineCRLSource m_aOfflineCRLSource;
+  private ISMPSignatureVerifier m_aSignatureVerifier = SMPHttpResponseHandlerSigned.DEFAULT_SIGNATURE_VERIFIER;
+  // Created on demand and reused for all responses; reset if a setting it depends on changes
+  private volatile TrustStoreBasedX509KeySelector m_aKeySelector;
+  private SMPCircuitBreaker m_aCircuitBreaker;
+  private SMPRequestHedging m_aRequestHedging;
+  private SMPTrafficLimiter m_aTrafficLimiter;
+  private ESMPRequestPriority m_eRequestPriority = ESMPRequestPriority.INTERACTIVE;
 
   /**
    * Constructor with a direct SMP URL.<br>
@@ -261,6 +311,48 @@ public abstract class AbstractGenericSMPClient <IMPLTYPE extends AbstractGeneric
     return thisAsT ();
   }
 
+  /**
+   * Set an HTTP client manager that is only used for the requests of this client that are executed
+   * in the current thread. It takes precedence over {@link #getSharedHttpClientManager()}. Other
+   * threads using this client are not affected. This is e.g. used by
+   * {@link com.helger.smpclient.bulk.SMPBulkExecutor} for its worker threads. The caller owns the
+   * manager and must reset it with <code>null</code> after usage.
+   *
+   * @param aHttpClientManager
+   *        The HTTP client manager to use in the current thread. May be <code>null</code> to remove
+   *        it.
+   * @since 12.8.2
+   */
+  public final void setCurrentThreadHttpClientManager (@Nullable @WillNotClose final HttpClientManager aHttpClientManager)
+  {
+    if (aHttpClientManager == null)
+      m_aThreadHttpClientManager.remove ();
+    else
+      m_aThreadHttpClientManager.set (aHttpClientManager);
+  }
+
+  /**
+   * Create a new HTTP client manager based on {@link #httpClientSettings()}. If
+   * {@link #isUseResponseCompression() response compression} is enabled, the transparent response
+   * decompression of the HTTP client is disabled, so that the SMP response handlers receive the
+   * compressed bytes and can count them in the {@link #getTransferStatistics() transfer statistics}
+   * before decoding. This should also be used to create a
+   * {@link #setSharedHttpClientManager(HttpClientManager) shared HTTP client manager}.
+   *
+   * @return A new HTTP client manager that must be closed by the caller. Never <code>null</code>.
+   * @since 12.8.2
+   */
+  @NonNull
+  public final HttpClientManager createHttpClientManager ()
+  {
+    if (!m_bUseResponseCompression)
+      return HttpClientManager.create (m_aHttpClientSettings);
+
+    // The response handlers decode the responses themselves
+    final HttpClientFactory aFactory = new HttpClientFactory (m_aHttpClientSettings);
+    return new HttpClientManager ( () -> aFactory.createHttpClientBuilder ().disableContentCompression ().build ());
+  }
+
   /**
    * @return <code>true</code> if SMP client response certificate checking is enabled,
    *         <code>false</code> if it is disabled. By default this check is enabled (see
@@ -346,6 +438,7 @@ public abstract class AbstractGenericSMPClient <IMPLTYPE extends AbstractGeneric
   public final IMPLTYPE setRevocationCheckMode (@Nullable final ERevocationCheckMode e)
   {
     m_eRevocationCheckMode = e;
+    m_aKeySelector = null;
     return thisAsT ();
   }
 
@@ -375,6 +468,7 @@ public abstract class AbstractGenericSMPClient <IMPLTYPE extends AbstractGeneric
   public final IMPLTYPE setAllowRevocationSoftFail (final boolean b)
   {
     m_bAllowRevocationSoftFail = b;
+    m_aKeySelector = null;
     return thisAsT ();
   }
 
@@ -402,6 +496,7 @@ public abstract class AbstractGenericSMPClient <IMPLTYPE extends AbstractGeneric
   public final IMPLTYPE setSynchronizedRevocationCheck (final boolean b)
   {
     m_bSynchronizedRevocationCheck = b;
+    m_aKeySelector = null;
     return thisAsT ();
   }
 
@@ -429,6 +524,7 @@ public abstract class AbstractGenericSMPClient <IMPLTYPE extends AbstractGeneric
   public final IMPLTYPE setTrustStore (@Nullable final KeyStore aTrustStore)
   {
     m_aTrustStore = aTrustStore;
+    m_aKeySelector = null;
     return thisAsT ();
   }
 
@@ -551,6 +647,385 @@ public abstract class AbstractGenericSMPClient <IMPLTYPE extends AbstractGeneric
     return thisAsT ();
   }
 
+  /**
+   * @return The maximum number of bytes an SMP response may have. Values &le; 0 indicate an
+   *         unlimited size. The default is taken from
+   *         {@link SMPClientConfiguration#getMaxResponseSize()}.
+   * @since 12.8.2
+   */
+  @CheckForSigned
+  public final long getMaxResponseSize ()
+  {
+    return m_nMaxResponseSize;
+  }
+
+  /**
+   * Set the maximum number of bytes an SMP response may have. Reading of larger responses is aborted
+   * early, so that a misbehaving SMP cannot exhaust the available memory.
+   *
+   * @param nMaxResponseSize
+   *        The maximum response size in bytes. Values &le; 0 indicate an unlimited size.
+   * @return this for chaining
+   * @since 12.8.2
+   */
+  @NonNull
+  public final IMPLTYPE setMaxResponseSize (@CheckForSigned final long nMaxResponseSize)
+  {
+    m_nMaxResponseSize = nMaxResponseSize;
+    return thisAsT ();
+  }
+
+  /**
+   * @return <code>true</code> if compressed SMP responses are requested via the
+   *         <code>Accept-Encoding</code> HTTP header, <code>false</code> if not. The default is
+   *         taken from {@link SMPClientConfiguration#isUseResponseCompression()}.
+   * @since 12.8.2
+   */
+  public final boolean isUseResponseCompression ()
+  {
+    return m_bUseResponseCompression;
+  }
+
+  /**
+   * Enable or disable the request for compressed SMP responses. If enabled, an
+   * <code>Accept-Encoding: gzip, deflate</code> header is sent with every request that uses an
+   * {@link AbstractSMPResponseHandler}, the transparent decompression of the HTTP client is disabled
+   * (see {@link #createHttpClientManager()}) and compressed responses are decoded while they are
+   * read, so that the transfer statistics contain the compressed sizes. Large Service Metadata
+   * documents usually compress very well, but it is up to the SMP to honour the request.
+   *
+   * @param bUseResponseCompression
+   *        <code>true</code> to request compressed responses, <code>false</code> to not do it.
+   * @return this for chaining
+   * @since 12.8.2
+   */
+  @NonNull
+  public final IMPLTYPE setUseResponseCompression (final boolean bUseResponseCompression)
+  {
+    m_bUseResponseCompression = bUseResponseCompression;
+    return thisAsT ();
+  }
+
+  /**
+   * @return The statistics object that receives the number of wire and decoded bytes of each SMP
+   *         response. May be <code>null</code>. Defaults to
+   *         {@link SMPTransferStatistics#getDefaultInstance()}.
+   * @since 12.8.2
+   */
+  @Nullable
+  public final SMPTransferStatistics getTransferStatistics ()
+  {
+    return m_aTransferStatistics;
+  }
+
+  /**
+   * Set the statistics object that receives the number of wire and decoded bytes of each SMP
+   * response.
+   *
+   * @param aTransferStatistics
+   *        The statistics object to use. May be <code>null</code> to disable the counting.
+   * @return this for chaining
+   * @since 12.8.2
+   */
+  @NonNull
+  public final IMPLTYPE setTransferStatistics (@Nullable final SMPTransferStatistics aTransferStatistics)
+  {
+    m_aTransferStatistics = aTransferStatistics;
+    return thisAsT ();
+  }
+
+  /**
+   * @return The cache of successfully verified signed responses. May be <code>null</code> which is
+   *         the default.
+   * @since 12.8.2
+   */
+  @Nullable
+  public final SMPVerifiedResponseCache getVerifiedResponseCache ()
+  {
+    return m_aVerifiedResponseCache;
+  }
+
+  /**
+   * Set the cache of successfully verified signed responses. If set, the XMLDSig verification of
+   * byte identical responses is skipped for the TTL of the cache. As SMP clients are usually short
+   * living objects, the same cache should be shared between all clients.
+   *
+   * @param aVerifiedResponseCache
+   *        The cache to use. May be <code>null</code> to always verify the signature.
+   * @return this for chaining
+   * @since 12.8.2
+   */
+  @NonNull
+  public final IMPLTYPE setVerifiedResponseCache (@Nullable final SMPVerifiedResponseCache aVerifiedResponseCache)
+  {
+    m_aVerifiedResponseCache = aVerifiedResponseCache;
+    return thisAsT ();
+  }
+
+  /**
+   * @return The cache for SMP certificate check results. May be <code>null</code> which is the
+   *         default.
+   * @since 12.8.2
+   */
+  @Nullable
+  public final SMPCertificateCheckResultCache getCertificateCheckResultCache ()
+  {
+    return m_aCertificateCheckResultCache;
+  }
+
+  /**
+   * Set the cache for SMP certificate check results. If set, the certificate and revocation check
+   * of an SMP certificate is only performed once per TTL of the cache, avoiding OCSP and CRL
+   * requests for each SMP response. The same cache should be shared between all clients.
+   *
+   * @param aCertificateCheckResultCache
+   *        The cache to use. May be <code>null</code> to always check the certificate.
+   * @return this for chaining
+   * @since 12.8.2
+   */
+  @NonNull
+  public final IMPLTYPE setCertificateCheckResultCache (@Nullable final SMPCertificateCheckResultCache aCertificateCheckResultCache)
+  {
+    m_aCertificateCheckResultCache = aCertificateCheckResultCache;
+    m_aKeySelector = null;
+    return thisAsT ();
+  }
+
+  /**
+   * @return The shared revocation check results that are kept current in the background. May be
+   *         <code>null</code> which is the default.
+   * @since 12.8.2
+   */
+  @Nullable
+  public final RevocationCheckPrefetcher getRevocationPrefetcher ()
+  {
+    return m_aRevocationPrefetcher;
+  }
+
+  /**
+   * Set the shared revocation check results that are kept current in the background. If set, the
+   * certificate and revocation check of an SMP certificate is repeated in the background, so that
+   * SMP responses never need to wait for CRL downloads or OCSP requests after the first one. Use
+   * {@link RevocationCheckPrefetcher#getDefaultInstance()} to share the results with the other
+   * certificate checks of the application.
+   *
+   * @param aRevocationPrefetcher
+   *        The prefetcher to use. May be <code>null</code>.
+   * @return this for chaining
+   * @since 12.8.2
+   */
+  @NonNull
+  public final IMPLTYPE setRevocationPrefetcher (@Nullable final RevocationCheckPrefetcher aRevocationPrefetcher)
+  {
+    m_aRevocationPrefetcher = aRevocationPrefetcher;
+    m_aKeySelector = null;
+    return thisAsT ();
+  }
+
+  /**
+   * @return The local CRLs to be used for the revocation check of the SMP certificate. May be
+   *         <code>null</code> which is the default.
+   * @since 12.8.2
+   */
+  @Nullable
+  public final OfflineCRLSource getOfflineCRLSource ()
+  {
+    return m_aOfflineCRLSource;
+  }
+
+  /**
+   * Set the local CRLs to be used for the revocation check of the SMP certificate, e.g. created via
+   * {@link com.helger.peppol.security.PeppolTrustedCA#createOfflineCRLSource(java.nio.file.Path)}. If
+   * set, the {@link #setRevocationCheckMode(ERevocationCheckMode) revocation check mode} is ignored
+   * and no CRL downloads or OCSP requests are performed. This is meant for environments without
+   * access to the CRL distribution points.
+   *
+   * @param aOfflineCRLSource
+   *        The local CRLs to use. May be <code>null</code>.
+   * @return this for chaining
+   * @since 12.8.2
+   */
+  @NonNull
+  public final IMPLTYPE setOfflineCRLSource (@Nullable final OfflineCRLSource aOfflineCRLSource)
+  {
+    m_aOfflineCRLSource = aOfflineCRLSource;
+    m_aKeySelector = null;
+    return thisAsT ();
+  }
+
+  /**
+   * @return The verifier for the signatures of signed SMP responses. Never <code>null</code>.
+   *         Defaults to {@link SMPHttpResponseHandlerSigned#DEFAULT_SIGNATURE_VERIFIER}.
+   * @since 12.8.2
+   */
+  @NonNull
+  public final ISMPSignatureVerifier getSignatureVerifier ()
+  {
+    return m_aSignatureVerifier;
+  }
+
+  /**
+   * Set the verifier for the signatures of signed SMP responses. Use
+   * {@link SMPSignatureVerifierStAX} to verify the signatures without creating a DOM.
+   *
+   * @param aSignatureVerifier
+   *        The signature verifier to use. May not be <code>null</code>.
+   * @return this for chaining
+   * @since 12.8.2
+   */
+  @NonNull
+  public final IMPLTYPE setSignatureVerifier (@NonNull final ISMPSignatureVerifier aSignatureVerifier)
+  {
+    ValueEnforcer.notNull (aSignatureVerifier, "SignatureVerifier");
+    m_aSignatureVerifier = aSignatureVerifier;
+    return thisAsT ();
+  }
+
+  /**
+   * @return The circuit breaker that is used for all requests. May be <code>null</code> which is
+   *         the default.
+   * @since 12.8.2
+   */
+  @Nullable
+  public final SMPCircuitBreaker getCircuitBreaker ()
+  {
+    return m_aCircuitBreaker;
+  }
+
+  /**
+   * Set the circuit breaker to be used. If a circuit breaker is set, requests to an SMP host that
+   * was unavailable for a number of consecutive requests fail fast with an
+   * {@link SMPClientCircuitOpenException} instead of waiting for the timeouts. As SMP clients are
+   * usually short living objects, the same circuit breaker should be shared between all clients.
+   *
+   * @param aCircuitBreaker
+   *        The circuit breaker to use. May be <code>null</code> to disable it.
+   * @return this for chaining
+   * @since 12.8.2
+   */
+  @NonNull
+  public final IMPLTYPE setCircuitBreaker (@Nullable final SMPCircuitBreaker aCircuitBreaker)
+  {
+    m_aCircuitBreaker = aCircuitBreaker;
+    return thisAsT ();
+  }
+
+  /**
+   * @return The hedging settings for GET requests. May be <code>null</code> which is the default.
+   * @since 12.8.2
+   */
+  @Nullable
+  public final SMPRequestHedging getRequestHedging ()
+  {
+    return m_aRequestHedging;
+  }
+
+  /**
+   * Set the hedging settings for GET requests. If set, a second identical GET request is sent to
+   * the SMP if the first one takes longer than the latency percentile of the previous requests to
+   * the same host. The response that arrives first is used. As SMP clients are usually short living
+   * objects, the same hedging object should be shared between all clients so that the latency
+   * statistics are meaningful.
+   *
+   * @param aRequestHedging
+   *        The hedging settings to use. May be <code>null</code> to disable hedging.
+   * @return this for chaining
+   * @since 12.8.2
+   */
+  @NonNull
+  public final IMPLTYPE setRequestHedging (@Nullable final SMPRequestHedging aRequestHedging)
+  {
+    m_aRequestHedging = aRequestHedging;
+    return thisAsT ();
+  }
+
+  /**
+   * @return The per SMP host concurrency and rate limiter. May be <code>null</code> which is the
+   *         default.
+   * @since 12.8.2
+   */
+  @Nullable
+  public final SMPTrafficLimiter getTrafficLimiter ()
+  {
+    return m_aTrafficLimiter;
+  }
+
+  /**
+   * Set the per SMP host concurrency and rate limiter. If set, every request waits for a permit of
+   * the limiter, using the priority of {@link #getRequestPriority()}. If no permit can be obtained
+   * in time, an {@link SMPClientThrottledException} is thrown. As SMP clients are usually short
+   * living objects, the same limiter must be shared between all clients.
+   *
+   * @param aTrafficLimiter
+   *        The limiter to use. May be <code>null</code> to disable limiting.
+   * @return this for chaining
+   * @since 12.8.2
+   */
+  @NonNull
+  public final IMPLTYPE setTrafficLimiter (@Nullable final SMPTrafficLimiter aTrafficLimiter)
+  {
+    m_aTrafficLimiter = aTrafficLimiter;
+    return thisAsT ();
+  }
+
+  /**
+   * @return The priority of the requests of this client, as used by the traffic limiter. Never
+   *         <code>null</code>. Defaults to {@link ESMPRequestPriority#INTERACTIVE}.
+   * @since 12.8.2
+   */
+  @NonNull
+  public final ESMPRequestPriority getRequestPriority ()
+  {
+    return m_eRequestPriority;
+  }
+
+  /**
+   * Set the priority of the requests of this client. Bulk jobs (e.g. directory refreshes) should
+   * use {@link ESMPRequestPriority#BATCH} so that they don't starve the message sending. This only
+   * has an effect if a traffic limiter is set.
+   *
+   * @param eRequestPriority
+   *        The priority to use. May not be <code>null</code>.
+   * @return this for chaining
+   * @since 12.8.2
+   * @see #setTrafficLimiter(SMPTrafficLimiter)
+   */
+  @NonNull
+  public final IMPLTYPE setRequestPriority (@NonNull final ESMPRequestPriority eRequestPriority)
+  {
+    ValueEnforcer.notNull (eRequestPriority, "RequestPriority");
+    m_eRequestPriority = eRequestPriority;
+    return thisAsT ();
+  }
+
+  /**
+   * Get the key of the SMP host the provided request is sent to. This is used for the circuit
+   * breaker, the hedging statistics and the traffic limiter.
+   *
+   * @param aRequest
+   *        The request to be executed. May not be <code>null</code>.
+   * @return The scheme and authority of the request URI (e.g. <code>http://smp.example.org</code>)
+   *         or the SMP host URI of this client, if the request URI cannot be determined. Never
+   *         <code>null</code>.
+   * @since 12.8.2
+   */
+  @NonNull
+  @Nonempty
+  protected String getRequestHostKey (@NonNull final HttpUriRequestBase aRequest)
+  {
+    try
+    {
+      final URI aURI = aRequest.getUri ();
+      if (aURI.getScheme () != null && aURI.getRawAuthority () != null)
+        return aURI.getScheme () + "://" + aURI.getRawAuthority ();
+    }
+    catch (final URISyntaxException ex)
+    {
+      // Fall through
+    }
+    return m_sSMPHost;
+  }
+
   private static boolean _hasSameValue (@NonNull final IIdentifierFactory aIdentifierFactory,
                                         @Nullable final String sRequestedValue,
                                         @Nullable final String sReturnedValue,
@@ -671,10 +1146,29 @@ public abstract class AbstractGenericSMPClient <IMPLTYPE extends AbstractGeneric
     return HttpClientContext.create ();
   }
 
+  @NonNull
+  private TrustStoreBasedX509KeySelector _getKeySelector ()
+  {
+    TrustStoreBasedX509KeySelector ret = m_aKeySelector;
+    if (ret == null)
+    {
+      // Concurrent creation is harmless, as equally configured key selectors are interchangeable
+      ret = new TrustStoreBasedX509KeySelector (m_aTrustStore).setRevocationCheckMode (m_eRevocationCheckMode)
+                                                              .setAllowRevocationSoftFail (m_bAllowRevocationSoftFail)
+                                                              .setSynchronizedRevocationCheck (m_bSynchronizedRevocationCheck)
+                                                              .setCheckResultCache (m_aCertificateCheckResultCache)
+                                                              .setRevocationPrefetcher (m_aRevocationPrefetcher)
+                                                              .setOfflineCRLSource (m_aOfflineCRLSource);
+      m_aKeySelector = ret;
+    }
+    return ret;
+  }
+
   /**
    * Configure the provided {@link SMPHttpResponseHandlerSigned} with all the signature-related
    * settings of this SMP client (verify signature, secure validation, revocation check mode, allow
-   * revocation soft fail, synchronized revocation check). Subclasses may override to add additional
+   * revocation soft fail, synchronized revocation check, the reused key selector) as well as the maximum response size and
+   * the transfer statistics. Subclasses may override to add additional
    * configuration but should call <code>super.configureResponseHandler(aHandler)</code> to keep the
    * defaults applied.
    *
@@ -696,6 +1190,39 @@ public abstract class AbstractGenericSMPClient <IMPLTYPE extends AbstractGeneric
     aHandler.setRevocationCheckMode (m_eRevocationCheckMode);
     aHandler.setAllowRevocationSoftFail (m_bAllowRevocationSoftFail);
     aHandler.setSynchronizedRevocationCheck (m_bSynchronizedRevocationCheck);
+    aHandler.setVerifiedResponseCache (m_aVerifiedResponseCache);
+    aHandler.setCertificateCheckResultCache (m_aCertificateCheckResultCache);
+    aHandler.setRevocationPrefetcher (m_aRevocationPrefetcher);
+    aHandler.setOfflineCRLSource (m_aOfflineCRLSource);
+    aHandler.setSignatureVerifier (m_aSignatureVerifier);
+    if (m_aTrustStore != null)
+      aHandler.setKeySelector (_getKeySelector ());
+    aHandler.setMaxResponseSize (m_nMaxResponseSize);
+    aHandler.setTransferStatistics (m_aTransferStatistics);
+    return aHandler;
+  }
+
+  /**
+   * Configure the provided {@link SMPHttpResponseHandlerUnsigned} with all the generic settings of
+   * this SMP client (maximum response size, transfer statistics). Subclasses may override to add additional
+   * configuration but should call <code>super.configureResponseHandler(aHandler)</code> to keep the
+   * defaults applied.
+   *
+   * @param aHandler
+   *        The response handler to be configured. May not be <code>null</code>.
+   * @return The same response handler for chaining. Never <code>null</code>.
+   * @since 12.8.2
+   * @param <T>
+   *        Expected response handler content type
+   */
+  @NonNull
+  @OverrideOnDemand
+  protected <T> SMPHttpResponseHandlerUnsigned <T> configureResponseHandler (@NonNull final SMPHttpResponseHandlerUnsigned <T> aHandler)
+  {
+    ValueEnforcer.notNull (aHandler, "Handler");
+
+    aHandler.setMaxResponseSize (m_nMaxResponseSize);
+    aHandler.setTransferStatistics (m_aTransferStatistics);
     return aHandler;
   }
 
@@ -721,16 +1248,22 @@ public abstract class AbstractGenericSMPClient <IMPLTYPE extends AbstractGeneric
   public <T> T executeRequest (@NonNull final HttpUriRequestBase aRequest,
                                @NonNull final HttpClientResponseHandler <T> aResponseHandler) throws IOException
   {
-    final HttpClientContext aHttpContext = createHttpContext ();
+    // Capture the deadline of the calling thread, as the request might be executed in another thread
+    final SMPLookupDeadline aDeadline = SMPLookupDeadline.getCurrent ();
     try
     {
-      final HttpClientManager aSharedHttpClientManager = m_aSharedHttpClientManager;
+      if (aDeadline != null && aDeadline.isExpired ())
+        throw new SocketTimeoutException ("The SMP lookup deadline of " + aDeadline.getBudget () + " was exceeded");
+
+      HttpClientManager aSharedHttpClientManager = m_aThreadHttpClientManager.get ();
+      if (aSharedHttpClientManager == null)
+        aSharedHttpClientManager = m_aSharedHttpClientManager;
       if (aSharedHttpClientManager != null)
-        return _executeRequest (aRequest, aHttpContext, aResponseHandler, aSharedHttpClientManager);
+        return _executeRequestMaybeHedged (aRequest, aResponseHandler, aSharedHttpClientManager, aDeadline);
 
-      try (final HttpClientManager aHttpClientMgr = HttpClientManager.create (m_aHttpClientSettings))
+      try (final HttpClientManager aHttpClientMgr = createHttpClientManager ())
       {
-        return _executeRequest (aRequest, aHttpContext, aResponseHandler, aHttpClientMgr);
+        return _executeRequestMaybeHedged (aRequest, aResponseHandler, aHttpClientMgr, aDeadline);
       }
     }
     catch (final RuntimeException | IOException ex)
@@ -743,15 +1276,242 @@ public abstract class AbstractGenericSMPClient <IMPLTYPE extends AbstractGeneric
     }
   }
 
+  @NonNull
+  private <T> T _executeRequestMaybeHedged (@NonNull final HttpUriRequestBase aRequest,
+                                            @NonNull final HttpClientResponseHandler <T> aResponseHandler,
+                                            @NonNull final HttpClientManager aHttpClientMgr,
+                                            @Nullable final SMPLookupDeadline aDeadline) throws IOException
+  {
+    final SMPRequestHedging aHedging = m_aRequestHedging;
+    if (aHedging == null || !HttpGet.METHOD_NAME.equals (aRequest.getMethod ()))
+      return _executeRequest (aRequest, createHttpContext (), aResponseHandler, aHttpClientMgr, aDeadline);
+
+    final String sHostKey = getRequestHostKey (aRequest);
+    final Duration aHedgeDelay = aHedging.getHedgeDelay (sHostKey);
+    if (aHedgeDelay != null)
+      return _executeHedgedRequest (aRequest, aResponseHandler, aHttpClientMgr, aDeadline, aHedging, sHostKey, aHedgeDelay);
+
+    // Not enough latency samples yet
+    final long nStartNanos = System.nanoTime ();
+    final T ret = _executeRequest (aRequest, createHttpContext (), aResponseHandler, aHttpClientMgr, aDeadline);
+    aHedging.recordLatency (sHostKey, System.nanoTime () - nStartNanos);
+    return ret;
+  }
+
+  private boolean _isHedgingAllowed (@NonNull final String sHostKey)
+  {
+    // Don't put additional load on an SMP host that is known to have problems
+    final SMPCircuitBreaker aCircuitBreaker = m_aCircuitBreaker;
+    return aCircuitBreaker == null || aCircuitBreaker.getState (sHostKey) == SMPCircuitBreaker.EState.CLOSED;
+  }
+
+  @NonNull
+  private <T> T _executeHedgedRequest (@NonNull final HttpUriRequestBase aRequest,
+                                       @NonNull final HttpClientResponseHandler <T> aResponseHandler,
+                                       @NonNull final HttpClientManager aHttpClientMgr,
+                                       @Nullable final SMPLookupDeadline aDeadline,
+                                       @NonNull final SMPRequestHedging aHedging,
+                                       @NonNull final String sHostKey,
+                                       @NonNull final Duration aHedgeDelay) throws IOException
+  {
+    final HttpGet aHedgeRequest;
+    try
+    {
+      aHedgeRequest = new HttpGet (aRequest.getUri ());
+    }
+    catch (final URISyntaxException ex)
+    {
+      throw new IOException ("Failed to create hedged SMP request", ex);
+    }
+    aHedgeRequest.setHeaders (aRequest.getHeaders ());
+    aHedgeRequest.setConfig (aRequest.getConfig ());
+
+    // Completed with the result of the hedged request, or cancelled if it is not sent
+    final CompletableFuture <T> aHedgeResult = new CompletableFuture <> ();
+    // Whoever sets this first decides if the hedged request may still be started
+    final AtomicBoolean aHedgeStarted = new AtomicBoolean (false);
+    final AtomicBoolean aHedgeSent = new AtomicBoolean (false);
+    final SMPTrafficLimiter aTrafficLimiter = m_aTrafficLimiter;
+    final ESMPRequestPriority ePriority = m_eRequestPriority;
+    final Runnable aHedgeRunnable = () -> {
+      boolean bPermit = false;
+      try
+      {
+        if (!aHedgeStarted.compareAndSet (false, true))
+        {
+          // The original request is already done
+          return;
+        }
+        // The hedged request needs its own permit, but never waits for it
+        if (!_isHedgingAllowed (sHostKey) ||
+            (aTrafficLimiter != null && !aTrafficLimiter.tryAcquire (sHostKey, ePriority, Duration.ZERO)))
+          return;
+        bPermit = aTrafficLimiter != null;
+
+        if (LOGGER.isDebugEnabled ())
+          LOGGER.debug ("SMP request did not finish within " + aHedgeDelay + " - sending hedged request");
+        aHedgeSent.set (true);
+        final long nStartNanos = System.nanoTime ();
+        final T ret = _executeRequest (aHedgeRequest, createHttpContext (), aResponseHandler, aHttpClientMgr, aDeadline);
+        aHedging.recordLatency (sHostKey, System.nanoTime () - nStartNanos);
+        // Abort the original request
+        if (aHedgeResult.complete (ret))
+          aRequest.cancel ();
+      }
+      catch (final InterruptedException ex)
+      {
+        Thread.currentThread ().interrupt ();
+      }
+      catch (final Exception ex)
+      {
+        aHedgeResult.completeExceptionally (ex);
+      }
+      finally
+      {
+        if (bPermit)
+          aTrafficLimiter.release (sHostKey);
+        // If the hedged request was not sent - no-op otherwise
+        aHedgeResult.cancel (false);
+      }
+    };
+
+    ScheduledFuture <?> aHedgeTask;
+    try
+    {
+      aHedgeTask = aHedging.getExecutor ().schedule (aHedgeRunnable, aHedgeDelay.toNanos (), TimeUnit.NANOSECONDS);
+    }
+    catch (final RejectedExecutionException ex)
+    {
+      aHedgeTask = null;
+    }
+    if (aHedgeTask == null)
+      return _executeRequest (aRequest, createHttpContext (), aResponseHandler, aHttpClientMgr, aDeadline);
+
+    // The original request is executed in the calling thread
+    final long nStartNanos = System.nanoTime ();
+    try
+    {
+      final T ret = _executeRequest (aRequest, createHttpContext (), aResponseHandler, aHttpClientMgr, aDeadline);
+      aHedging.recordLatency (sHostKey, System.nanoTime () - nStartNanos);
+      aHedgeTask.cancel (false);
+      if (!aHedgeStarted.compareAndSet (false, true))
+      {
+        // Cancel the loser
+        aHedgeRequest.cancel ();
+        if (aHedgeSent.get ())
+          aHedging.onHedgedRequest (false);
+      }
+      return ret;
+    }
+    catch (final IOException | RuntimeException ex)
+    {
+      final long nEndNanos = System.nanoTime ();
+      final boolean bCancelledByHedge = aHedgeResult.isDone () && !aHedgeResult.isCompletedExceptionally ();
+      aHedgeTask.cancel (false);
+      // An HTTP error is a real answer of the SMP, that the hedged request will not improve
+      if (aHedgeStarted.compareAndSet (false, true) || (ex instanceof HttpResponseException && !bCancelledByHedge))
+      {
+        aHedgeRequest.cancel ();
+        throw ex;
+      }
+
+      // The hedged request was started - use its result
+      try
+      {
+        final T ret = aHedgeResult.get ();
+        if (bCancelledByHedge)
+        {
+          // The duration is at least the time until the cancellation
+          aHedging.recordLatency (sHostKey, nEndNanos - nStartNanos);
+        }
+        aHedging.onHedgedRequest (true);
+        return ret;
+      }
+      catch (final CancellationException ex2)
+      {
+        // No hedged request was sent
+        throw ex;
+      }
+      catch (final ExecutionException ex2)
+      {
+        aHedging.onHedgedRequest (false);
+        throw ex;
+      }
+      catch (final InterruptedException ex2)
+      {
+        Thread.currentThread ().interrupt ();
+        aHedgeRequest.cancel ();
+        throw new InterruptedIOException ("Interrupted while waiting for the hedged SMP response");
+      }
+    }
+  }
+
   @NonNull
   private <T> T _executeRequest (@NonNull final HttpUriRequestBase aRequest,
                                  @NonNull final HttpClientContext aHttpContext,
                                  @NonNull final HttpClientResponseHandler <T> aResponseHandler,
-                                 @NonNull final HttpClientManager aHttpClientMgr) throws IOException
+                                 @NonNull final HttpClientManager aHttpClientMgr,
+                                 @Nullable final SMPLookupDeadline aDeadline) throws IOException
   {
     aRequest.setAbsoluteRequestUri (true);
+    // Only the SMP response handlers can decode compressed responses
+    if (m_bUseResponseCompression &&
+        aResponseHandler instanceof AbstractSMPResponseHandler <?> &&
+        !aRequest.containsHeader (CHttpHeader.ACCEPT_ENCODING))
+      aRequest.setHeader (CHttpHeader.ACCEPT_ENCODING, ACCEPT_ENCODING_COMPRESSED);
     LOGGER.info ("Performing SMP query at '" + aRequest.toString () + "'");
-    return aHttpClientMgr.execute (aRequest, aHttpContext, aResponseHandler);
+
+    // Limit the HTTP timeouts to the lookup deadline and additionally abort the request when the
+    // deadline is reached
+    final RequestConfig aOldConfig = aRequest.getConfig ();
+    ScheduledFuture <?> aAbort = null;
+    if (aDeadline != null)
+    {
+      aRequest.setConfig (_getDeadlineRequestConfig (aOldConfig, aDeadline));
+      aAbort = aDeadline.scheduleOnExpiry (aRequest::cancel);
+    }
+    try
+    {
+      return aHttpClientMgr.execute (aRequest, aHttpContext, aResponseHandler);
+    }
+    finally
+    {
+      if (aAbort != null)
+        aAbort.cancel (false);
+      if (aDeadline != null)
+        aRequest.setConfig (aOldConfig);
+    }
+  }
+
+  @NonNull
+  private static Timeout _getStageTimeout (@Nullable final Timeout aTimeout, @NonNull final SMPLookupDeadline aDeadline)
+  {
+    // A timeout of 0 means "infinite"
+    final long nMillis = aTimeout == null ? 0 : aTimeout.toMilliseconds ();
+    final Duration aStageTimeout = aDeadline.getStageTimeout (nMillis > 0 ? Duration.ofMillis (nMillis) : null);
+    // At least 1 millisecond, as 0 would again be infinite
+    return Timeout.ofMilliseconds (Math.max (1, aStageTimeout.toMillis ()));
+  }
+
+  /**
+   * Create a request configuration, where the connection request, connect and response timeouts
+   * are capped at the remaining budget of the lookup deadline.
+   */
+  @NonNull
+  @SuppressWarnings ("deprecation")
+  private RequestConfig _getDeadlineRequestConfig (@Nullable final RequestConfig aBaseConfig,
+                                                   @NonNull final SMPLookupDeadline aDeadline)
+  {
+    // Without a request specific configuration, the one of the HTTP client is used
+    final RequestConfig aConfig = aBaseConfig != null ? aBaseConfig
+                                                      : new HttpClientFactory (m_aHttpClientSettings).createRequestConfigBuilder ()
+                                                                                                     .build ();
+    return RequestConfig.copy (aConfig)
+                        .setConnectionRequestTimeout (_getStageTimeout (aConfig.getConnectionRequestTimeout (),
+                                                                        aDeadline))
+                        .setConnectTimeout (_getStageTimeout (aConfig.getConnectTimeout (), aDeadline))
+                        .setResponseTimeout (_getStageTimeout (aConfig.getResponseTimeout (), aDeadline))
+                        .build ();
   }
 
   /**
@@ -777,15 +1537,102 @@ public abstract class AbstractGenericSMPClient <IMPLTYPE extends AbstractGeneric
   public <T> T executeGenericRequest (@NonNull final HttpUriRequestBase aRequest,
                                       @NonNull final HttpClientResponseHandler <T> aResponseHandler) throws SMPClientException
   {
+    final SMPLookupDeadline aDeadline = SMPLookupDeadline.getCurrent ();
+    if (aDeadline != null && aDeadline.isExpired ())
+      throw new SMPClientDeadlineExceededException ("The SMP lookup deadline of " +
+                                                    aDeadline.getBudget () +
+                                                    " was exceeded before querying '" +
+                                                    aRequest.getRequestUri () +
+                                                    "'");
+
+    final SMPTrafficLimiter aTrafficLimiter = m_aTrafficLimiter;
+    if (aTrafficLimiter == null)
+      return _executeGenericRequest (aRequest, aResponseHandler);
+
+    final String sHostKey = getRequestHostKey (aRequest);
     try
     {
-      return executeRequest (aRequest, aResponseHandler);
+      // Don't wait longer than the lookup deadline allows
+      final Duration aMaxWait = aDeadline == null ? aTrafficLimiter.getMaxWait ()
+                                                  : aDeadline.getStageTimeout (aTrafficLimiter.getMaxWait ());
+      if (!aTrafficLimiter.tryAcquire (sHostKey, m_eRequestPriority, aMaxWait))
+      {
+        if (aDeadline != null && aDeadline.isExpired ())
+          throw new SMPClientDeadlineExceededException ("The SMP lookup deadline of " +
+                                                        aDeadline.getBudget () +
+                                                        " was exceeded while waiting for a permit for SMP host '" +
+                                                        sHostKey +
+                                                        "'");
+        throw new SMPClientThrottledException (sHostKey,
+                                               "Failed to get a " +
+                                                 m_eRequestPriority +
+                                                 " permit for SMP host '" +
+                                                 sHostKey +
+                                                 "' within " +
+                                                 aMaxWait);
+      }
+    }
+    catch (final InterruptedException ex)
+    {
+      Thread.currentThread ().interrupt ();
+      throw new SMPClientException ("Interrupted while waiting for a permit for SMP host '" + sHostKey + "'", ex);
+    }
+
+    try
+    {
+      return _executeGenericRequest (aRequest, aResponseHandler);
+    }
+    finally
+    {
+      aTrafficLimiter.release (sHostKey);
+    }
+  }
+
+  @NonNull
+  private <T> T _executeGenericRequest (@NonNull final HttpUriRequestBase aRequest,
+                                        @NonNull final HttpClientResponseHandler <T> aResponseHandler) throws SMPClientException
+  {
+    final SMPCircuitBreaker aCircuitBreaker = m_aCircuitBreaker;
+    final String sHostKey = aCircuitBreaker == null ? null : getRequestHostKey (aRequest);
+    if (aCircuitBreaker != null && !aCircuitBreaker.tryAcquirePermission (sHostKey))
+      throw new SMPClientCircuitOpenException (sHostKey);
+
+    try
+    {
+      final T ret = executeRequest (aRequest, aResponseHandler);
+      if (aCircuitBreaker != null)
+        aCircuitBreaker.onSuccess (sHostKey);
+      return ret;
     }
     catch (final Exception ex)
     {
       if (LOGGER.isDebugEnabled ())
         LOGGER.debug ("Exception executing HTTP request " + aRequest, ex);
-      throw getConvertedException (ex);
+      final SMPLookupDeadline aDeadline = SMPLookupDeadline.getCurrent ();
+      // HTTP error responses are real answers of the SMP, even if the deadline is reached now
+      final boolean bDeadlineExceeded = aDeadline != null &&
+                                        aDeadline.isExpired () &&
+                                        !(ex instanceof HttpResponseException);
+      final SMPClientException aConverted;
+      if (bDeadlineExceeded)
+        aConverted = new SMPClientDeadlineExceededException ("The SMP lookup deadline of " +
+                                                             aDeadline.getBudget () +
+                                                             " was exceeded while querying '" +
+                                                             aRequest.getRequestUri () +
+                                                             "'",
+                                                             ex);
+      else
+        aConverted = getConvertedException (ex);
+      if (aCircuitBreaker != null)
+      {
+        // Every answer of the SMP (including HTTP errors) shows that the SMP is reachable. Running
+        // out of the lookup deadline is considered a timeout.
+        if (bDeadlineExceeded || aConverted instanceof SMPClientSMPUnavailableException)
+          aCircuitBreaker.onFailure (sHostKey);
+        else
+          aCircuitBreaker.onSuccess (sHostKey);
+      }
+      throw aConverted;
     }
   }
 
@@ -889,6 +1736,17 @@ public abstract class AbstractGenericSMPClient <IMPLTYPE extends AbstractGeneric
                                        .appendIfNotNull ("MarshallerConsumer", m_aMarshallerConsumer)
                                        .append ("IdentifierFactory", m_aIdentifierFactory)
                                        .append ("CheckServiceMetadataIDs", m_bCheckServiceMetadataIDs)
+                                       .append ("MaxResponseSize", m_nMaxResponseSize)
+                                       .append ("UseResponseCompression", m_bUseResponseCompression)
+                                       .appendIfNotNull ("VerifiedResponseCache", m_aVerifiedResponseCache)
+                                       .appendIfNotNull ("CertificateCheckResultCache", m_aCertificateCheckResultCache)
+                                       .appendIfNotNull ("RevocationPrefetcher", m_aRevocationPrefetcher)
+                                       .appendIfNotNull ("OfflineCRLSource", m_aOfflineCRLSource)
+                                       .append ("SignatureVerifier", m_aSignatureVerifier)
+                                       .appendIfNotNull ("CircuitBreaker", m_aCircuitBreaker)
+                                       .appendIfNotNull ("RequestHedging", m_aRequestHedging)
+                                       .appendIfNotNull ("TrafficLimiter", m_aTrafficLimiter)
+                                       .append ("RequestPriority", m_eRequestPriority)
                                        .getToString ();
   }
 
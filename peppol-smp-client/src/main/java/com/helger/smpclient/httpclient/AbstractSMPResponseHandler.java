@@ -16,7 +16,13 @@
  */
 package com.helger.smpclient.httpclient;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 import org.apache.hc.client5.http.ClientProtocolException;
 import org.apache.hc.core5.http.ClassicHttpResponse;
@@ -24,7 +30,12 @@ import org.apache.hc.core5.http.HttpEntity;
 import org.apache.hc.core5.http.io.HttpClientResponseHandler;
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import com.helger.annotation.CheckForSigned;
+import com.helger.annotation.WillNotClose;
+import com.helger.base.string.StringHelper;
 import com.helger.httpclient.response.ExtendedHttpResponseException;
 import com.helger.smpclient.exception.SMPClientBadResponseException;
 
@@ -42,6 +53,239 @@ import com.helger.smpclient.exception.SMPClientBadResponseException;
  */
 public abstract class AbstractSMPResponseHandler <T> implements HttpClientResponseHandler <T>
 {
+  /**
+   * The default maximum size of an SMP response in bytes: 10 MB
+   *
+   * @since 12.8.2
+   */
+  public static final long DEFAULT_MAX_RESPONSE_SIZE = 10L * 1024 * 1024;
+
+  /** Content-Encoding values that can be decoded */
+  public static final String CONTENT_ENCODING_GZIP = "gzip";
+  public static final String CONTENT_ENCODING_X_GZIP = "x-gzip";
+  public static final String CONTENT_ENCODING_DEFLATE = "deflate";
+  public static final String CONTENT_ENCODING_IDENTITY = "identity";
+
+  private static final Logger LOGGER = LoggerFactory.getLogger (AbstractSMPResponseHandler.class);
+
+  /**
+   * An input stream that counts the number of bytes read.
+   *
+   * @author Philip Helger
+   */
+  private static final class CountingInputStream extends FilterInputStream
+  {
+    private long m_nCount;
+
+    CountingInputStream (@NonNull final InputStream aIS)
+    {
+      super (aIS);
+    }
+
+    @Override
+    public int read () throws IOException
+    {
+      final int ret = super.read ();
+      if (ret >= 0)
+        m_nCount++;
+      return ret;
+    }
+
+    @Override
+    public int read (final byte [] aBuf, final int nOfs, final int nLen) throws IOException
+    {
+      final int ret = super.read (aBuf, nOfs, nLen);
+      if (ret > 0)
+        m_nCount += ret;
+      return ret;
+    }
+
+    @Override
+    public long skip (final long n) throws IOException
+    {
+      final long ret = super.skip (n);
+      m_nCount += ret;
+      return ret;
+    }
+
+    long getCount ()
+    {
+      return m_nCount;
+    }
+  }
+
+  /**
+   * An {@link InflaterInputStream} that ends its own {@link Inflater} when closed.
+   *
+   * @author Philip Helger
+   */
+  private static final class OwnInflaterInputStream extends InflaterInputStream
+  {
+    OwnInflaterInputStream (@NonNull final InputStream aIS, @NonNull final Inflater aInflater)
+    {
+      super (aIS, aInflater);
+    }
+
+    @Override
+    public void close () throws IOException
+    {
+      try
+      {
+        super.close ();
+      }
+      finally
+      {
+        // Not done by InflaterInputStream for a provided Inflater
+        inf.end ();
+      }
+    }
+  }
+
+  private long m_nMaxResponseSize = DEFAULT_MAX_RESPONSE_SIZE;
+  private SMPTransferStatistics m_aTransferStatistics;
+
+  /**
+   * @return The maximum number of bytes an SMP response may have. Values &le; 0 indicate an
+   *         unlimited size. Defaults to {@link #DEFAULT_MAX_RESPONSE_SIZE}.
+   * @since 12.8.2
+   */
+  @CheckForSigned
+  public final long getMaxResponseSize ()
+  {
+    return m_nMaxResponseSize;
+  }
+
+  /**
+   * Set the maximum number of bytes an SMP response may have. Reading of larger responses is aborted
+   * with an {@link SMPClientBadResponseException}.
+   *
+   * @param nMaxResponseSize
+   *        The maximum response size in bytes. Values &le; 0 indicate an unlimited size.
+   * @return this for chaining
+   * @since 12.8.2
+   */
+  @NonNull
+  public AbstractSMPResponseHandler <T> setMaxResponseSize (@CheckForSigned final long nMaxResponseSize)
+  {
+    m_nMaxResponseSize = nMaxResponseSize;
+    return this;
+  }
+
+  /**
+   * @return The statistics object that receives the number of wire and decoded bytes of each read
+   *         response. May be <code>null</code>.
+   * @since 12.8.2
+   */
+  @Nullable
+  public final SMPTransferStatistics getTransferStatistics ()
+  {
+    return m_aTransferStatistics;
+  }
+
+  /**
+   * Set the statistics object that receives the number of wire and decoded bytes of each read
+   * response.
+   *
+   * @param aTransferStatistics
+   *        The statistics object to use. May be <code>null</code>.
+   * @return this for chaining
+   * @since 12.8.2
+   */
+  @NonNull
+  public AbstractSMPResponseHandler <T> setTransferStatistics (@Nullable final SMPTransferStatistics aTransferStatistics)
+  {
+    m_aTransferStatistics = aTransferStatistics;
+    return this;
+  }
+
+  /**
+   * Create the decoder for <code>deflate</code> encoded content. According to RFC 9110 this is zlib
+   * wrapped data, but many servers send raw deflate data. Therefore the zlib header is checked.
+   */
+  @NonNull
+  private static InputStream _createDeflateInputStream (@NonNull final InputStream aIS) throws IOException
+  {
+    final PushbackInputStream aPushbackIS = new PushbackInputStream (aIS, 2);
+    final byte [] aHeader = new byte [2];
+    final int nRead = aPushbackIS.readNBytes (aHeader, 0, aHeader.length);
+    if (nRead > 0)
+      aPushbackIS.unread (aHeader, 0, nRead);
+
+    // A zlib header uses compression method 8 and a header checksum that is a multiple of 31
+    final int nHeader = ((aHeader[0] & 0xff) << 8) | (aHeader[1] & 0xff);
+    final boolean bZlib = nRead == 2 && (aHeader[0] & 0x0f) == 8 && nHeader % 31 == 0;
+    return new OwnInflaterInputStream (aPushbackIS, new Inflater (!bZlib));
+  }
+
+  @NonNull
+  private static InputStream _createDecodingInputStream (@NonNull final InputStream aIS,
+                                                         @NonNull final String sContentEncoding) throws IOException,
+                                                                                                 SMPClientBadResponseException
+  {
+    if (CONTENT_ENCODING_GZIP.equalsIgnoreCase (sContentEncoding) ||
+        CONTENT_ENCODING_X_GZIP.equalsIgnoreCase (sContentEncoding))
+      return new GZIPInputStream (aIS);
+    if (CONTENT_ENCODING_DEFLATE.equalsIgnoreCase (sContentEncoding))
+      return _createDeflateInputStream (aIS);
+    throw new SMPClientBadResponseException ("The SMP response uses the unsupported Content-Encoding '" +
+                                             sContentEncoding +
+                                             "'");
+  }
+
+  /**
+   * Read the complete entity into a pooled buffer, honouring the maximum response size. If the
+   * entity has a <code>gzip</code> or <code>deflate</code> content encoding (because the HTTP client
+   * did not decode it transparently), it is decoded while reading. The size limit is applied to the
+   * decoded bytes.
+   *
+   * @param aEntity
+   *        The entity to read. May not be <code>null</code>.
+   * @return The read buffer that must be closed by the caller. Never <code>null</code>.
+   * @throws IOException
+   *         on IO error
+   * @throws SMPClientBadResponseException
+   *         if the response is too large or uses an unsupported content encoding
+   * @since 12.8.2
+   */
+  @NonNull
+  protected final SMPResponseBuffer readEntity (@NonNull @WillNotClose final HttpEntity aEntity) throws IOException,
+                                                                                                    SMPClientBadResponseException
+  {
+    final SMPResponseBufferPool aPool = SMPResponseBufferPool.getDefaultInstance ();
+    final String sContentEncoding = StringHelper.trim (aEntity.getContentEncoding ());
+    final SMPResponseBuffer ret;
+    final long nWireBytes;
+    final boolean bCompressed;
+    if (StringHelper.isEmpty (sContentEncoding) || CONTENT_ENCODING_IDENTITY.equalsIgnoreCase (sContentEncoding))
+    {
+      // Plain response
+      ret = aPool.read (aEntity.getContent (), aEntity.getContentLength (), m_nMaxResponseSize);
+      nWireBytes = ret.getLength ();
+      bCompressed = false;
+    }
+    else
+    {
+      // Closing releases the native resources of the Inflater - the wire stream is also closed if
+      // the decoder cannot be created
+      try (final CountingInputStream aWireIS = new CountingInputStream (aEntity.getContent ());
+           final InputStream aIS = _createDecodingInputStream (aWireIS, sContentEncoding))
+      {
+        // The Content-Length refers to the encoded bytes and is therefore useless
+        ret = aPool.read (aIS, -1, m_nMaxResponseSize);
+        nWireBytes = aWireIS.getCount ();
+      }
+      bCompressed = true;
+    }
+
+    if (LOGGER.isDebugEnabled () && bCompressed)
+      LOGGER.debug ("Decoded " + nWireBytes + " '" + sContentEncoding + "' bytes to " + ret.getLength () + " bytes");
+
+    final SMPTransferStatistics aTransferStatistics = m_aTransferStatistics;
+    if (aTransferStatistics != null)
+      aTransferStatistics.onResponse (bCompressed, nWireBytes, ret.getLength ());
+    return ret;
+  }
+
   /**
    * Handle the response entity and transform it into the actual response object.
    *
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.httpclient;
+
+import java.util.concurrent.Executor;
+
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.base.tostring.ToStringGenerator;
+
+/**
+ * Abstract base class for {@link ISMPSignatureVerifier} implementations, containing the settings
+ * for the verification of responses with multiple signatures (as used by OASIS BDXR SMP v2).
+ * Multiple signatures of a single response are independent of each other and may therefore be
+ * verified concurrently on a provided {@link Executor}. In that case the {@link
+ * javax.xml.crypto.KeySelector} used must be thread safe - the default
+ * {@link com.helger.smpclient.security.TrustStoreBasedX509KeySelector} is.
+ *
+ * @author Philip Helger
+ * @since 12.8.2
+ */
+@Immutable
+public abstract class AbstractSMPSignatureVerifier implements ISMPSignatureVerifier
+{
+  private final Executor m_aExecutor;
+  private final boolean m_bStopAtFirstFailure;
+
+  /**
+   * Constructor
+   *
+   * @param aExecutor
+   *        The executor to verify multiple signatures of a single response concurrently. May be
+   *        <code>null</code> to verify all signatures sequentially in the calling thread.
+   * @param bStopAtFirstFailure
+   *        <code>true</code> to stop the verification at the first invalid signature,
+   *        <code>false</code> to verify all signatures.
+   */
+  protected AbstractSMPSignatureVerifier (@Nullable final Executor aExecutor, final boolean bStopAtFirstFailure)
+  {
+    m_aExecutor = aExecutor;
+    m_bStopAtFirstFailure = bStopAtFirstFailure;
+  }
+
+  /**
+   * @return The executor to verify multiple signatures of a single response concurrently. May be
+   *         <code>null</code> if all signatures are verified sequentially.
+   */
+  @Nullable
+  public final Executor getExecutor ()
+  {
+    return m_aExecutor;
+  }
+
+  /**
+   * @return <code>true</code> if the verification stops at the first invalid signature,
+   *         <code>false</code> if all signatures are verified.
+   */
+  public final boolean isStopAtFirstFailure ()
+  {
+    return m_bStopAtFirstFailure;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Executor", m_aExecutor)
+                                       .append ("StopAtFirstFailure", m_bStopAtFirstFailure)
+                                       .getToString ();
+  }
+}
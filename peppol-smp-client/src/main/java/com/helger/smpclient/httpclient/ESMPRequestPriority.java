@@ -0,0 +1,33 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.httpclient;
+
+/**
+ * The priority class of SMP requests, as used by {@link SMPTrafficLimiter}. Interactive requests
+ * (e.g. the lookup for a message that is about to be sent) always get capacity before batch
+ * requests (e.g. directory refreshes or onboarding checks).
+ *
+ * @author Philip Helger
+ * @since 12.8.2
+ */
+public enum ESMPRequestPriority
+{
+  /** Latency sensitive requests */
+  INTERACTIVE,
+  /** Background requests that may wait */
+  BATCH;
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.httpclient;
+
+import javax.xml.crypto.KeySelector;
+import javax.xml.crypto.MarshalException;
+import javax.xml.crypto.dsig.XMLSignatureException;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.w3c.dom.Document;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.base.state.ESuccess;
+
+/**
+ * Service provider interface for the verification of the XML digital signatures contained in signed
+ * SMP responses. The default implementation is {@link SMPSignatureVerifierDOM} that uses the JSR
+ * 105 DOM API. {@link SMPSignatureVerifierStAX} is an alternative, that verifies the signatures
+ * while streaming over the response and therefore doesn't need a DOM.
+ * <p>
+ * Implementations must be thread-safe.
+ * </p>
+ *
+ * @author Philip Helger
+ * @since 12.8.2
+ */
+public interface ISMPSignatureVerifier
+{
+  /**
+   * @return <code>true</code> if this verifier requires the DOM of the response. If so, the caller
+   *         must pass the parsed DOM to
+   *         {@link #verifySignatures(byte[], int, int, Document, KeySelector, boolean)}, and the DOM
+   *         can also be used for unmarshalling the response afterwards.
+   */
+  boolean isDOMRequired ();
+
+  /**
+   * Verify all XML digital signatures of the provided SMP response.
+   *
+   * @param aBytes
+   *        The response bytes. May not be <code>null</code>.
+   * @param nOfs
+   *        The offset into the response bytes. Must be &ge; 0.
+   * @param nLen
+   *        The number of response bytes. Must be &ge; 0.
+   * @param aDocument
+   *        The already parsed DOM of the response. May be <code>null</code>.
+   * @param aKeySelector
+   *        The key selector that provides and checks the verification key. May not be
+   *        <code>null</code>.
+   * @param bSecureValidation
+   *        <code>true</code> to enable the secure validation (which disallows weak algorithms and
+   *        keys), <code>false</code> to disable it.
+   * @return {@link ESuccess#SUCCESS} if all signatures are valid, {@link ESuccess#FAILURE} if at
+   *         least one signature is not valid. Never <code>null</code>.
+   * @throws MarshalException
+   *         If a signature could not be read
+   * @throws XMLSignatureException
+   *         If a signature could not be verified, e.g. because the key selector did not accept the
+   *         key
+   * @throws IllegalArgumentException
+   *         If the response does not contain a signature
+   */
+  @NonNull
+  ESuccess verifySignatures (@NonNull byte [] aBytes,
+                             @Nonnegative int nOfs,
+                             @Nonnegative int nLen,
+                             @Nullable Document aDocument,
+                             @NonNull KeySelector aKeySelector,
+                             boolean bSecureValidation) throws MarshalException, XMLSignatureException;
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.httpclient;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.annotation.Nonempty;
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.GuardedBy;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.tostring.ToStringGenerator;
+
+/**
+ * A per SMP host circuit breaker. After {@link #getFailureThreshold()} consecutive failures of an
+ * SMP host (the SMP could not be contacted or ran into a timeout), the circuit of that host is
+ * opened and all further requests fail fast for {@link #getOpenDuration()}. Afterwards a single
+ * probe request is let through ("half open"): if it succeeds, the circuit is closed again,
+ * otherwise it is re-opened.
+ * <p>
+ * Because SMP clients are usually created per message, a circuit breaker instance should be shared
+ * between all SMP clients - the host key is part of every call.
+ * </p>
+ *
+ * @author Philip Helger
+ * @since 12.8.2
+ */
+@ThreadSafe
+public class SMPCircuitBreaker
+{
+  /** The default number of consecutive failures that open the circuit */
+  public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+  /** The default duration a circuit stays open before a probe request is allowed */
+  public static final Duration DEFAULT_OPEN_DURATION = Duration.ofSeconds (30);
+
+  private static final Logger LOGGER = LoggerFactory.getLogger (SMPCircuitBreaker.class);
+
+  /**
+   * The state of a single circuit.
+   *
+   * @author Philip Helger
+   */
+  public enum EState
+  {
+    /** Requests are executed normally */
+    CLOSED,
+    /** Requests fail fast */
+    OPEN,
+    /** A single probe request is currently executed */
+    HALF_OPEN;
+  }
+
+  private static final class HostState
+  {
+    @GuardedBy ("this")
+    private EState m_eState = EState.CLOSED;
+    @GuardedBy ("this")
+    private int m_nConsecutiveFailures;
+    @GuardedBy ("this")
+    private long m_nOpenedAtNanos;
+  }
+
+  private final int m_nFailureThreshold;
+  private final Duration m_aOpenDuration;
+  private final Map <String, HostState> m_aHosts = new ConcurrentHashMap <> ();
+
+  /**
+   * Constructor using {@link #DEFAULT_FAILURE_THRESHOLD} and {@link #DEFAULT_OPEN_DURATION}.
+   */
+  public SMPCircuitBreaker ()
+  {
+    this (DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_DURATION);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param nFailureThreshold
+   *        The number of consecutive failures after which the circuit of a host is opened. Must be
+   *        &gt; 0.
+   * @param aOpenDuration
+   *        The duration a circuit stays open, before a probe request is allowed. May not be
+   *        <code>null</code> and must be positive.
+   */
+  public SMPCircuitBreaker (@Nonnegative final int nFailureThreshold, @NonNull final Duration aOpenDuration)
+  {
+    ValueEnforcer.isGT0 (nFailureThreshold, "FailureThreshold");
+    ValueEnforcer.notNull (aOpenDuration, "OpenDuration");
+    ValueEnforcer.isTrue ( () -> !aOpenDuration.isZero () && !aOpenDuration.isNegative (),
+                          "OpenDuration must be a positive Duration");
+    m_nFailureThreshold = nFailureThreshold;
+    m_aOpenDuration = aOpenDuration;
+  }
+
+  /**
+   * @return The number of consecutive failures after which the circuit of a host is opened.
+   */
+  @Nonnegative
+  public final int getFailureThreshold ()
+  {
+    return m_nFailureThreshold;
+  }
+
+  /**
+   * @return The duration a circuit stays open, before a probe request is allowed. Never
+   *         <code>null</code>.
+   */
+  @NonNull
+  public final Duration getOpenDuration ()
+  {
+    return m_aOpenDuration;
+  }
+
+  @NonNull
+  private HostState _getHostState (@NonNull @Nonempty final String sHostKey)
+  {
+    ValueEnforcer.notEmpty (sHostKey, "HostKey");
+    return m_aHosts.computeIfAbsent (sHostKey, k -> new HostState ());
+  }
+
+  /**
+   * Check if a request to the provided host may be executed. If this method returns
+   * <code>true</code>, the caller must call either {@link #onSuccess(String)} or
+   * {@link #onFailure(String)} after the request.
+   *
+   * @param sHostKey
+   *        The SMP host key. May neither be <code>null</code> nor empty.
+   * @return <code>true</code> if the request may be executed, <code>false</code> if it should fail
+   *         fast.
+   */
+  public boolean tryAcquirePermission (@NonNull @Nonempty final String sHostKey)
+  {
+    final HostState aState = _getHostState (sHostKey);
+    synchronized (aState)
+    {
+      switch (aState.m_eState)
+      {
+        case CLOSED:
+          return true;
+        case OPEN:
+          if (System.nanoTime () - aState.m_nOpenedAtNanos >= m_aOpenDuration.toNanos ())
+          {
+            // Let exactly one probe request through
+            aState.m_eState = EState.HALF_OPEN;
+            LOGGER.info ("Circuit breaker for SMP host '" + sHostKey + "' is half open - sending a probe request");
+            return true;
+          }
+          return false;
+        case HALF_OPEN:
+        default:
+          // A probe is already running
+          return false;
+      }
+    }
+  }
+
+  /**
+   * Remember a successful request to the provided host. This closes the circuit.
+   *
+   * @param sHostKey
+   *        The SMP host key. May neither be <code>null</code> nor empty.
+   */
+  public void onSuccess (@NonNull @Nonempty final String sHostKey)
+  {
+    final HostState aState = _getHostState (sHostKey);
+    synchronized (aState)
+    {
+      if (aState.m_eState != EState.CLOSED)
+        LOGGER.info ("Circuit breaker for SMP host '" + sHostKey + "' is closed again");
+      aState.m_eState = EState.CLOSED;
+      aState.m_nConsecutiveFailures = 0;
+    }
+  }
+
+  /**
+   * Remember a failed request to the provided host. Only failures that indicate an unavailable SMP
+   * should be reported.
+   *
+   * @param sHostKey
+   *        The SMP host key. May neither be <code>null</code> nor empty.
+   */
+  public void onFailure (@NonNull @Nonempty final String sHostKey)
+  {
+    final HostState aState = _getHostState (sHostKey);
+    synchronized (aState)
+    {
+      aState.m_nConsecutiveFailures++;
+      if (aState.m_eState == EState.HALF_OPEN ||
+          (aState.m_eState == EState.CLOSED && aState.m_nConsecutiveFailures >= m_nFailureThreshold))
+      {
+        aState.m_eState = EState.OPEN;
+        aState.m_nOpenedAtNanos = System.nanoTime ();
+        LOGGER.warn ("Circuit breaker for SMP host '" +
+                     sHostKey +
+                     "' is open after " +
+                     aState.m_nConsecutiveFailures +
+                     " consecutive failures");
+      }
+    }
+  }
+
+  /**
+   * Get the current state of the provided host.
+   *
+   * @param sHostKey
+   *        The SMP host key. May be <code>null</code>.
+   * @return {@link EState#CLOSED} if the host is unknown. Never <code>null</code>.
+   */
+  @NonNull
+  public EState getState (@Nullable final String sHostKey)
+  {
+    final HostState aState = sHostKey == null ? null : m_aHosts.get (sHostKey);
+    if (aState == null)
+      return EState.CLOSED;
+    synchronized (aState)
+    {
+      return aState.m_eState;
+    }
+  }
+
+  /**
+   * Reset the state of a single host to {@link EState#CLOSED}.
+   *
+   * @param sHostKey
+   *        The SMP host key. May be <code>null</code>.
+   */
+  public void reset (@Nullable final String sHostKey)
+  {
+    if (sHostKey != null)
+      m_aHosts.remove (sHostKey);
+  }
+
+  /**
+   * Reset the state of all hosts.
+   */
+  public void resetAll ()
+  {
+    m_aHosts.clear ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("FailureThreshold", m_nFailureThreshold)
+                                       .append ("OpenDuration", m_aOpenDuration)
+                                       .append ("HostCount", m_aHosts.size ())
+                                       .getToString ();
+  }
+}
@@ -19,8 +19,10 @@ package com.helger.smpclient.httpclient;
 import java.io.IOException;
 import java.io.InputStream;
 import java.security.KeyStore;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import javax.xml.crypto.KeySelector;
 import javax.xml.crypto.MarshalException;
@@ -36,18 +38,18 @@ import org.jspecify.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
+import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
 
-import com.helger.annotation.WillNotClose;
-import com.helger.base.array.ArrayHelper;
 import com.helger.base.enforce.ValueEnforcer;
-import com.helger.base.io.nonblocking.NonBlockingByteArrayInputStream;
-import com.helger.base.io.stream.StreamHelper;
 import com.helger.base.state.ESuccess;
 import com.helger.jaxb.GenericJAXBMarshaller;
+import com.helger.peppol.security.OfflineCRLSource;
+import com.helger.peppol.security.RevocationCheckPrefetcher;
 import com.helger.security.revocation.CertificateRevocationCheckerDefaults;
 import com.helger.security.revocation.ERevocationCheckMode;
 import com.helger.smpclient.exception.SMPClientBadResponseException;
+import com.helger.smpclient.security.SMPCertificateCheckResultCache;
 import com.helger.smpclient.security.TrustStoreBasedX509KeySelector;
 import com.helger.xml.serialize.read.DOMReader;
 
@@ -66,16 +68,27 @@ public class SMPHttpResponseHandlerSigned <T> extends AbstractSMPResponseHandler
 {
   public static final boolean DEFAULT_VERIFY_SIGNATURE = true;
   public static final boolean DEFAULT_SECURE_VALIDATION = true;
+  /** @since 12.8.2 */
+  public static final boolean DEFAULT_SINGLE_PARSE = true;
+  /** @since 12.8.2 */
+  public static final ISMPSignatureVerifier DEFAULT_SIGNATURE_VERIFIER = new SMPSignatureVerifierDOM ();
   private static final Logger LOGGER = LoggerFactory.getLogger (SMPHttpResponseHandlerSigned.class);
 
   private final GenericJAXBMarshaller <T> m_aMarshaller;
   private boolean m_bVerifySignature = DEFAULT_VERIFY_SIGNATURE;
   private boolean m_bSecureValidation = DEFAULT_SECURE_VALIDATION;
+  private boolean m_bSingleParse = DEFAULT_SINGLE_PARSE;
+  private ISMPSignatureVerifier m_aSignatureVerifier = DEFAULT_SIGNATURE_VERIFIER;
+  private SMPVerifiedResponseCache m_aVerifiedResponseCache;
+  private SMPCertificateCheckResultCache m_aCertificateCheckResultCache;
+  private RevocationCheckPrefetcher m_aRevocationPrefetcher;
+  private OfflineCRLSource m_aOfflineCRLSource;
   private KeyStore m_aTrustStore;
   // null means "use default from CertificateRevocationCheckerDefaults"
   private ERevocationCheckMode m_eRevocationCheckMode;
   private boolean m_bAllowRevocationSoftFail = CertificateRevocationCheckerDefaults.isAllowSoftFail ();
   private boolean m_bSynchronizedRevocationCheck = CertificateRevocationCheckerDefaults.isExecuteInSynchronizedBlock ();
+  private TrustStoreBasedX509KeySelector m_aKeySelector;
 
   /**
    * Constructor
@@ -152,6 +165,176 @@ public class SMPHttpResponseHandlerSigned <T> extends AbstractSMPResponseHandler
     return this;
   }
 
+  /**
+   * @return <code>true</code> if the response is parsed only once into a DOM, that is used for both
+   *         signature verification and unmarshalling, <code>false</code> if the response is parsed
+   *         separately for each step. By default a single parse is used (see
+   *         {@link #DEFAULT_SINGLE_PARSE}).
+   * @since 12.8.2
+   */
+  public final boolean isSingleParse ()
+  {
+    return m_bSingleParse;
+  }
+
+  /**
+   * Enable or disable the single parse mode. If enabled, the DOM created for the signature
+   * verification is also used for the XML Schema validation and the unmarshalling, so that the
+   * response is parsed only once. If disabled, the response bytes are parsed again for the
+   * unmarshalling, which was the only behaviour before v12.8.2.
+   *
+   * @param bSingleParse
+   *        <code>true</code> to enable single parse mode (enabled by default) or
+   *        <code>false</code> to disable it.
+   * @return this for chaining
+   * @since 12.8.2
+   */
+  @NonNull
+  public final SMPHttpResponseHandlerSigned <T> setSingleParse (final boolean bSingleParse)
+  {
+    m_bSingleParse = bSingleParse;
+    return this;
+  }
+
+  /**
+   * @return The signature verifier to be used. Never <code>null</code>. Defaults to
+   *         {@link #DEFAULT_SIGNATURE_VERIFIER}.
+   * @since 12.8.2
+   */
+  @NonNull
+  public final ISMPSignatureVerifier getSignatureVerifier ()
+  {
+    return m_aSignatureVerifier;
+  }
+
+  /**
+   * Set the signature verifier to be used. If the verifier does not require a DOM (like
+   * {@link SMPSignatureVerifierStAX}), the response is unmarshalled directly from the response
+   * bytes.
+   *
+   * @param aSignatureVerifier
+   *        The signature verifier to use. May not be <code>null</code>.
+   * @return this for chaining
+   * @since 12.8.2
+   */
+  @NonNull
+  public final SMPHttpResponseHandlerSigned <T> setSignatureVerifier (@NonNull final ISMPSignatureVerifier aSignatureVerifier)
+  {
+    ValueEnforcer.notNull (aSignatureVerifier, "SignatureVerifier");
+    m_aSignatureVerifier = aSignatureVerifier;
+    return this;
+  }
+
+  /**
+   * @return The cache of successfully verified responses. May be <code>null</code> which is the
+   *         default.
+   * @since 12.8.2
+   */
+  @Nullable
+  public final SMPVerifiedResponseCache getVerifiedResponseCache ()
+  {
+    return m_aVerifiedResponseCache;
+  }
+
+  /**
+   * Set the cache of successfully verified responses. If a cache is set and byte identical response
+   * was already verified successfully with the same trust store and settings, the signature
+   * verification is skipped and the response is only unmarshalled.
+   *
+   * @param aVerifiedResponseCache
+   *        The cache to use. May be <code>null</code> to always verify the signature.
+   * @return this for chaining
+   * @since 12.8.2
+   */
+  @NonNull
+  public final SMPHttpResponseHandlerSigned <T> setVerifiedResponseCache (@Nullable final SMPVerifiedResponseCache aVerifiedResponseCache)
+  {
+    m_aVerifiedResponseCache = aVerifiedResponseCache;
+    return this;
+  }
+
+  /**
+   * @return The cache for SMP certificate check results. May be <code>null</code> which is the
+   *         default.
+   * @since 12.8.2
+   */
+  @Nullable
+  public final SMPCertificateCheckResultCache getCertificateCheckResultCache ()
+  {
+    return m_aCertificateCheckResultCache;
+  }
+
+  /**
+   * Set the cache for SMP certificate check results. If set, the certificate and revocation check
+   * of the SMP certificate is skipped, if a cached result is present.
+   *
+   * @param aCertificateCheckResultCache
+   *        The cache to use. May be <code>null</code> to always check the certificate.
+   * @return this for chaining
+   * @since 12.8.2
+   */
+  @NonNull
+  public final SMPHttpResponseHandlerSigned <T> setCertificateCheckResultCache (@Nullable final SMPCertificateCheckResultCache aCertificateCheckResultCache)
+  {
+    m_aCertificateCheckResultCache = aCertificateCheckResultCache;
+    return this;
+  }
+
+  /**
+   * @return The shared revocation check results that are kept current in the background. May be
+   *         <code>null</code> which is the default.
+   * @since 12.8.2
+   */
+  @Nullable
+  public final RevocationCheckPrefetcher getRevocationPrefetcher ()
+  {
+    return m_aRevocationPrefetcher;
+  }
+
+  /**
+   * Set the shared revocation check results that are kept current in the background. If set, the
+   * revocation check of the SMP certificate is performed in the background once the certificate is
+   * known.
+   *
+   * @param aRevocationPrefetcher
+   *        The prefetcher to use. May be <code>null</code>.
+   * @return this for chaining
+   * @since 12.8.2
+   */
+  @NonNull
+  public final SMPHttpResponseHandlerSigned <T> setRevocationPrefetcher (@Nullable final RevocationCheckPrefetcher aRevocationPrefetcher)
+  {
+    m_aRevocationPrefetcher = aRevocationPrefetcher;
+    return this;
+  }
+
+  /**
+   * @return The local CRLs to be used for the revocation check of the SMP certificate. May be
+   *         <code>null</code> which is the default.
+   * @since 12.8.2
+   */
+  @Nullable
+  public final OfflineCRLSource getOfflineCRLSource ()
+  {
+    return m_aOfflineCRLSource;
+  }
+
+  /**
+   * Set the local CRLs to be used for the revocation check of the SMP certificate. If set, the
+   * revocation check mode is ignored and no online revocation check is performed.
+   *
+   * @param aOfflineCRLSource
+   *        The local CRLs to use. May be <code>null</code>.
+   * @return this for chaining
+   * @since 12.8.2
+   */
+  @NonNull
+  public final SMPHttpResponseHandlerSigned <T> setOfflineCRLSource (@Nullable final OfflineCRLSource aOfflineCRLSource)
+  {
+    m_aOfflineCRLSource = aOfflineCRLSource;
+    return this;
+  }
+
   /**
    * @return The trust store to be used for verifying the signature. May be <code>null</code> if an
    *         invalid trust store is configured.
@@ -263,10 +446,93 @@ public class SMPHttpResponseHandlerSigned <T> extends AbstractSMPResponseHandler
     return this;
   }
 
+  /**
+   * @return The preconfigured key selector to be reused for the signature verification. May be
+   *         <code>null</code> which is the default.
+   * @since 12.8.2
+   */
+  @Nullable
+  public final TrustStoreBasedX509KeySelector getKeySelector ()
+  {
+    return m_aKeySelector;
+  }
+
+  /**
+   * Set a preconfigured key selector to be reused for the signature verification, instead of
+   * creating a new key selector for each response. It is only used, if it uses the same trust store
+   * and the same revocation settings as this response handler, so that later changes of this
+   * handler are not ignored.
+   *
+   * @param aKeySelector
+   *        The key selector to reuse. May be <code>null</code>.
+   * @return this for chaining
+   * @since 12.8.2
+   */
+  @NonNull
+  public final SMPHttpResponseHandlerSigned <T> setKeySelector (@Nullable final TrustStoreBasedX509KeySelector aKeySelector)
+  {
+    m_aKeySelector = aKeySelector;
+    return this;
+  }
+
+  /**
+   * Verify all signatures contained in the provided document sequentially.
+   *
+   * @param aDocument
+   *        The document to verify. May not be <code>null</code>.
+   * @param aKeySelector
+   *        The key selector to use. May not be <code>null</code>.
+   * @param bSecureValidation
+   *        <code>true</code> to use secure validation, <code>false</code> otherwise.
+   * @return {@link ESuccess#SUCCESS} if all signatures are valid.
+   * @throws MarshalException
+   *         If a signature cannot be unmarshalled
+   * @throws XMLSignatureException
+   *         If a signature cannot be validated
+   */
   @NonNull
   public static ESuccess checkSignature (@NonNull final Document aDocument,
                                          @NonNull final KeySelector aKeySelector,
                                          final boolean bSecureValidation) throws MarshalException, XMLSignatureException
+  {
+    return checkSignature (aDocument, aKeySelector, bSecureValidation, null, false);
+  }
+
+  /**
+   * Verify all signatures contained in the provided document. OASIS BDXR SMP v2 responses may
+   * contain more than one signature, that can be verified independently of each other. If an
+   * executor is provided and more than one signature is present, each signature is verified in a
+   * separate task on a private copy of the document, because DOM implementations are not thread
+   * safe (not even for reading). The copies are created inside the tasks, one at a time, so that the
+   * provided document is never accessed concurrently. In that case the key selector must be thread
+   * safe as well.
+   *
+   * @param aDocument
+   *        The document to verify. May not be <code>null</code>.
+   * @param aKeySelector
+   *        The key selector to use. May not be <code>null</code>.
+   * @param bSecureValidation
+   *        <code>true</code> to use secure validation, <code>false</code> otherwise.
+   * @param aExecutor
+   *        The executor to verify multiple signatures concurrently. May be <code>null</code> to
+   *        verify all signatures sequentially in the calling thread.
+   * @param bStopAtFirstFailure
+   *        <code>true</code> to stop the verification at the first invalid signature,
+   *        <code>false</code> to verify all signatures (e.g. for complete logging).
+   * @return {@link ESuccess#SUCCESS} if all signatures are valid.
+   * @throws MarshalException
+   *         If a signature cannot be unmarshalled
+   * @throws XMLSignatureException
+   *         If a signature cannot be validated
+   * @since 12.8.2
+   */
+  @NonNull
+  public static ESuccess checkSignature (@NonNull final Document aDocument,
+                                         @NonNull final KeySelector aKeySelector,
+                                         final boolean bSecureValidation,
+                                         @Nullable final Executor aExecutor,
+                                         final boolean bStopAtFirstFailure) throws MarshalException,
+                                                                            XMLSignatureException
   {
     // We make sure that the XML is a Signed. If not, we don't have to check
     // any certificates.
@@ -286,139 +552,234 @@ public class SMPHttpResponseHandlerSigned <T> extends AbstractSMPResponseHandler
                     (bSecureValidation ? "secure" : "regular") +
                     " validation");
 
-    final XMLSignatureFactory aSignatureFactory = XMLSignatureFactory.getInstance ("DOM");
-    ESuccess eSuccess = ESuccess.SUCCESS;
-
-    // OASIS BDXR SMP v2 can have more than one signature
+    final boolean bParallel = aExecutor != null && nSignatureCount > 1;
+    final List <SMPSignatureVerificationHelper.ISingleSignatureCheck> aChecks = new ArrayList <> (nSignatureCount);
+    // Serializes the copying of the source document in the concurrent tasks
+    final Object aCloneLock = new Object ();
     for (int nSignatureIndex = 0; nSignatureIndex < nSignatureCount; ++nSignatureIndex)
     {
-      // Create a DOMValidateContext and specify a KeySelector
-      final DOMValidateContext aValidateContext = new DOMValidateContext (aKeySelector,
-                                                                          aNodeList.item (nSignatureIndex));
-      aValidateContext.setProperty ("org.jcp.xml.dsig.secureValidation", Boolean.valueOf (bSecureValidation));
-
       final String sSignatureDebug = (nSignatureIndex + 1) + "/" + nSignatureCount;
-
-      // Unmarshal the XMLSignature.
-      final XMLSignature aSignature = aSignatureFactory.unmarshalXMLSignature (aValidateContext);
-
-      // Validate the XMLSignature.
-      final boolean bCoreValid = aSignature.validate (aValidateContext);
-      if (bCoreValid)
+      if (bParallel)
       {
-        if (LOGGER.isDebugEnabled ())
-          LOGGER.debug ("Signature[" + sSignatureDebug + "] validation was successful");
+        // Each concurrent task needs its own DOM - the copy is created in the task
+        final int nIndex = nSignatureIndex;
+        aChecks.add ( () -> {
+          final Document aCopy;
+          synchronized (aCloneLock)
+          {
+            aCopy = (Document) aDocument.cloneNode (true);
+          }
+          final Element aSignatureElement = (Element) aCopy.getElementsByTagNameNS (XMLSignature.XMLNS, "Signature")
+                                                           .item (nIndex);
+          return _checkSingleSignature (aSignatureElement, aKeySelector, bSecureValidation, sSignatureDebug);
+        });
       }
       else
       {
-        eSuccess = ESuccess.FAILURE;
+        final Element aSignatureElement = (Element) aNodeList.item (nSignatureIndex);
+        aChecks.add ( () -> _checkSingleSignature (aSignatureElement,
+                                                   aKeySelector,
+                                                   bSecureValidation,
+                                                   sSignatureDebug));
+      }
+    }
+    return SMPSignatureVerificationHelper.checkAll (aChecks, aExecutor, bStopAtFirstFailure);
+  }
 
-        // This code block is for debugging purposes only - it has no semantical
-        // influence
-        LOGGER.warn ("Signature[" + sSignatureDebug + "] failed core validation");
+  @NonNull
+  private static ESuccess _checkSingleSignature (@NonNull final Element aSignatureElement,
+                                                 @NonNull final KeySelector aKeySelector,
+                                                 final boolean bSecureValidation,
+                                                 @NonNull final String sSignatureDebug) throws MarshalException,
+                                                                                        XMLSignatureException
+  {
+    // XMLSignatureFactory instances are not thread safe
+    final XMLSignatureFactory aSignatureFactory = XMLSignatureFactory.getInstance ("DOM");
 
-        final boolean bSignatureValueValid = aSignature.getSignatureValue ().validate (aValidateContext);
-        if (bSignatureValueValid)
-        {
-          LOGGER.info ("  Signature[" + sSignatureDebug + "] SignatureValue validity status: valid");
-        }
-        else
-        {
-          LOGGER.warn ("  Signature[" + sSignatureDebug + "] SignatureValue validity status: NOT valid!");
-        }
+    // Create a DOMValidateContext and specify a KeySelector
+    final DOMValidateContext aValidateContext = new DOMValidateContext (aKeySelector, aSignatureElement);
+    aValidateContext.setProperty ("org.jcp.xml.dsig.secureValidation", Boolean.valueOf (bSecureValidation));
+
+    // Unmarshal the XMLSignature.
+    final XMLSignature aSignature = aSignatureFactory.unmarshalXMLSignature (aValidateContext);
 
+    // Validate the XMLSignature.
+    final boolean bCoreValid = aSignature.validate (aValidateContext);
+    if (bCoreValid)
+    {
+      if (LOGGER.isDebugEnabled ())
+        LOGGER.debug ("Signature[" + sSignatureDebug + "] validation was successful");
+    }
+    else
+    {
+      // This code block is for debugging purposes only - it has no semantical
+      // influence
+      LOGGER.warn ("Signature[" + sSignatureDebug + "] failed core validation");
+
+      final boolean bSignatureValueValid = aSignature.getSignatureValue ().validate (aValidateContext);
+      if (bSignatureValueValid)
+      {
+        LOGGER.info ("  Signature[" + sSignatureDebug + "] SignatureValue validity status: valid");
+      }
+      else
+      {
+        LOGGER.warn ("  Signature[" + sSignatureDebug + "] SignatureValue validity status: NOT valid!");
+      }
+
+      {
+        // Check the validation status of each Reference.
+        final List <?> aRefs = aSignature.getSignedInfo ().getReferences ();
+        final int nRefCount = aRefs.size ();
+        int nRefIndex = 0;
+        final Iterator <?> i = aRefs.iterator ();
+        while (i.hasNext ())
         {
-          // Check the validation status of each Reference.
-          final List <?> aRefs = aSignature.getSignedInfo ().getReferences ();
-          final int nRefCount = aRefs.size ();
-          int nRefIndex = 0;
-          final Iterator <?> i = aRefs.iterator ();
-          while (i.hasNext ())
+          final String sRefDebug = (nRefIndex + 1) + "/" + nRefCount;
+
+          final Reference aRef = (Reference) i.next ();
+          if (aRef.getTransforms ().size () != 1)
+            LOGGER.warn ("  Signature[" +
+                         sSignatureDebug +
+                         "] Reference[" +
+                         sRefDebug +
+                         "] has an invalid number of Transforms. Expected 1 but having " +
+                         aRef.getTransforms ().size ());
+
+          final boolean bRefValid = aRef.validate (aValidateContext);
+          if (bRefValid)
           {
-            final String sRefDebug = (nRefIndex + 1) + "/" + nRefCount;
-
-            final Reference aRef = (Reference) i.next ();
-            if (aRef.getTransforms ().size () != 1)
-              LOGGER.warn ("  Signature[" +
-                           sSignatureDebug +
-                           "] Reference[" +
-                           sRefDebug +
-                           "] has an invalid number of Transforms. Expected 1 but having " +
-                           aRef.getTransforms ().size ());
-
-            final boolean bRefValid = aRef.validate (aValidateContext);
-            if (bRefValid)
-            {
-              LOGGER.info ("  Signature[" + sSignatureDebug + "] Reference[" + sRefDebug + "] validity status: valid");
-            }
-            else
-            {
-              LOGGER.warn ("  Signature[" +
-                           sSignatureDebug +
-                           "] Reference[" +
-                           sRefDebug +
-                           "] validity status: NOT valid!");
-            }
-            ++nRefIndex;
+            LOGGER.info ("  Signature[" + sSignatureDebug + "] Reference[" + sRefDebug + "] validity status: valid");
+          }
+          else
+          {
+            LOGGER.warn ("  Signature[" +
+                         sSignatureDebug +
+                         "] Reference[" +
+                         sRefDebug +
+                         "] validity status: NOT valid!");
           }
+          ++nRefIndex;
         }
       }
     }
-    return eSuccess;
+    return bCoreValid ? ESuccess.SUCCESS : ESuccess.FAILURE;
   }
 
-  @NonNull
-  private ESuccess _checkSignature (@NonNull @WillNotClose final InputStream aEntityInputStream) throws MarshalException,
-                                                                                                 XMLSignatureException
+  private boolean _isMatchingKeySelector (@Nullable final TrustStoreBasedX509KeySelector aKeySelector)
   {
-    // Get response from servlet
-    final Document aDocument = DOMReader.readXMLDOM (aEntityInputStream);
-    if (aDocument == null)
-      throw new IllegalArgumentException ("The SMP response is not XML");
-
-    final TrustStoreBasedX509KeySelector aKeySelector = new TrustStoreBasedX509KeySelector (m_aTrustStore).setRevocationCheckMode (m_eRevocationCheckMode)
-                                                                                                          .setAllowRevocationSoftFail (m_bAllowRevocationSoftFail)
-                                                                                                          .setSynchronizedRevocationCheck (m_bSynchronizedRevocationCheck);
+    return aKeySelector != null &&
+           aKeySelector.getTrustStore () == m_aTrustStore &&
+           aKeySelector.getValidationDateTime () == null &&
+           aKeySelector.getRevocationCheckMode () == m_eRevocationCheckMode &&
+           aKeySelector.isAllowRevocationSoftFail () == m_bAllowRevocationSoftFail &&
+           aKeySelector.isSynchronizedRevocationCheck () == m_bSynchronizedRevocationCheck &&
+           aKeySelector.getCheckResultCache () == m_aCertificateCheckResultCache &&
+           aKeySelector.getRevocationPrefetcher () == m_aRevocationPrefetcher &&
+           aKeySelector.getOfflineCRLSource () == m_aOfflineCRLSource;
+  }
 
-    return checkSignature (aDocument, aKeySelector, m_bSecureValidation);
+  @NonNull
+  private ESuccess _checkSignature (@NonNull final SMPResponseBuffer aResponse,
+                                    @Nullable final Document aDocument) throws MarshalException,
+                                                                        XMLSignatureException
+  {
+    TrustStoreBasedX509KeySelector aKeySelector = m_aKeySelector;
+    if (!_isMatchingKeySelector (aKeySelector))
+      aKeySelector = new TrustStoreBasedX509KeySelector (m_aTrustStore).setRevocationCheckMode (m_eRevocationCheckMode)
+                                                                       .setAllowRevocationSoftFail (m_bAllowRevocationSoftFail)
+                                                                       .setSynchronizedRevocationCheck (m_bSynchronizedRevocationCheck)
+                                                                       .setCheckResultCache (m_aCertificateCheckResultCache)
+                                                                       .setRevocationPrefetcher (m_aRevocationPrefetcher)
+                                                                       .setOfflineCRLSource (m_aOfflineCRLSource);
+
+    return m_aSignatureVerifier.verifySignatures (aResponse.getBuffer (),
+                                                  0,
+                                                  aResponse.getLength (),
+                                                  aDocument,
+                                                  aKeySelector,
+                                                  m_bSecureValidation);
   }
 
   @Override
   @NonNull
   public T handleEntity (@NonNull final HttpEntity aEntity) throws SMPClientBadResponseException, IOException
   {
-    // Get complete response as one big byte buffer
-    final byte [] aResponseBytes = StreamHelper.getAllBytes (aEntity.getContent ());
-    if (ArrayHelper.isEmpty (aResponseBytes))
+    // Get complete response as one pooled byte buffer
+    try (final SMPResponseBuffer aResponse = readEntity (aEntity))
+    {
+      return _handleResponse (aResponse);
+    }
+  }
+
+  @NonNull
+  private T _handleResponse (@NonNull final SMPResponseBuffer aResponse) throws SMPClientBadResponseException
+  {
+    if (aResponse.isEmpty ())
       throw new SMPClientBadResponseException ("SMP server response content is empty/could not be read");
 
     if (LOGGER.isDebugEnabled ())
-      LOGGER.debug ("Signed SMP response has " + aResponseBytes.length + " bytes");
+      LOGGER.debug ("Signed SMP response has " + aResponse.getLength () + " bytes");
 
+    // The DOM of the response - only present if the signature was verified with a DOM based verifier
+    Document aDocument = null;
     if (m_bVerifySignature)
     {
       if (m_aTrustStore == null)
         throw new SMPClientBadResponseException ("No trust store was configured - cannot verify signatures");
 
-      try (final InputStream aIS = new NonBlockingByteArrayInputStream (aResponseBytes))
+      final SMPVerifiedResponseCache aCache = m_aVerifiedResponseCache;
+      final String sCacheKey = aCache == null ? null : SMPVerifiedResponseCache.createCacheKey (aResponse.getBuffer (),
+                                                                                               0,
+                                                                                               aResponse.getLength (),
+                                                                                               m_aTrustStore,
+                                                                                               m_bSecureValidation,
+                                                                                               m_eRevocationCheckMode,
+                                                                                               m_bAllowRevocationSoftFail,
+                                                                                               m_aSignatureVerifier,
+                                                                                               m_aCertificateCheckResultCache,
+                                                                                               m_aRevocationPrefetcher,
+                                                                                               m_aOfflineCRLSource);
+      if (sCacheKey != null && aCache.isVerified (sCacheKey))
       {
-        // Check the signature
-        if (_checkSignature (aIS).isFailure ())
-          throw new SMPClientBadResponseException ("Signature returned from SMP server was not valid with " +
-                                                   (m_bSecureValidation ? "secure" : "regular") +
-                                                   " validation");
-
         if (LOGGER.isDebugEnabled ())
-          LOGGER.debug ("Successfully verified signature of signed SMP response");
-      }
-      catch (final SMPClientBadResponseException ex)
-      {
-        // Avoid double wrapping
-        throw ex;
+          LOGGER.debug ("Byte identical SMP response was already verified - skipping signature verification");
       }
-      catch (final Exception ex)
+      else
       {
-        throw new SMPClientBadResponseException ("Error in validating signature returned from SMP server", ex);
+        try
+        {
+          if (m_aSignatureVerifier.isDOMRequired ())
+          {
+            // Get response from servlet
+            try (final InputStream aIS = aResponse.getInputStream ())
+            {
+              aDocument = DOMReader.readXMLDOM (aIS);
+            }
+            if (aDocument == null)
+              throw new SMPClientBadResponseException ("The SMP response is not XML");
+          }
+
+          // Check the signature
+          if (_checkSignature (aResponse, aDocument).isFailure ())
+            throw new SMPClientBadResponseException ("Signature returned from SMP server was not valid with " +
+                                                     (m_bSecureValidation ? "secure" : "regular") +
+                                                     " validation");
+
+          if (LOGGER.isDebugEnabled ())
+            LOGGER.debug ("Successfully verified signature of signed SMP response");
+
+          if (sCacheKey != null)
+            aCache.putVerified (sCacheKey);
+        }
+        catch (final SMPClientBadResponseException ex)
+        {
+          // Avoid double wrapping
+          throw ex;
+        }
+        catch (final Exception ex)
+        {
+          throw new SMPClientBadResponseException ("Error in validating signature returned from SMP server", ex);
+        }
       }
     }
     else
@@ -427,7 +788,15 @@ public class SMPHttpResponseHandlerSigned <T> extends AbstractSMPResponseHandler
     }
 
     // Finally convert to domain object
-    final T ret = m_aMarshaller.read (aResponseBytes);
+    final T ret;
+    if (aDocument != null && m_bSingleParse)
+    {
+      // Unmarshal from the already parsed DOM. If XML Schema validation is enabled, the schema of the
+      // unmarshaller validates the DOMSource, so no second parsing is needed
+      ret = m_aMarshaller.read (aDocument);
+    }
+    else
+      ret = m_aMarshaller.read (aResponse.getInputStream ());
     if (ret == null)
       throw new SMPClientBadResponseException ("Malformed XML document returned from SMP server");
 
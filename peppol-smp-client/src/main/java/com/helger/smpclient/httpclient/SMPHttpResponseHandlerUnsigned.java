@@ -54,9 +54,17 @@ public class SMPHttpResponseHandlerUnsigned <T> extends AbstractSMPResponseHandl
   @NonNull
   public T handleEntity (@NonNull final HttpEntity aEntity) throws SMPClientBadResponseException, IOException
   {
-    // Read without charset, because XML has self-determination
-    // Additionally the BOM handling is enabled when using InputStream
-    final T ret = m_aMarshaller.read (aEntity.getContent ());
+    final T ret;
+    // Read into a pooled buffer to limit the response size
+    try (final SMPResponseBuffer aResponse = readEntity (aEntity))
+    {
+      if (aResponse.isEmpty ())
+        throw new SMPClientBadResponseException ("SMP server response content is empty/could not be read");
+
+      // Read without charset, because XML has self-determination
+      // Additionally the BOM handling is enabled when using InputStream
+      ret = m_aMarshaller.read (aResponse.getInputStream ());
+    }
     if (ret == null)
       throw new SMPClientBadResponseException ("Malformed XML document returned from SMP server");
 
@@ -0,0 +1,319 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.httpclient;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.Nonempty;
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.GuardedBy;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.tostring.ToStringGenerator;
+
+/**
+ * Settings and per SMP host latency statistics for hedged SMP requests. If a GET request to an SMP
+ * host takes longer than the configured latency percentile of the previous requests to the same
+ * host, a second identical request is sent and the response that arrives first is used. The other
+ * request is cancelled. This cuts the tail latency caused by single slow connections at the cost of
+ * a few additional requests. The original request is always executed in the calling thread, only
+ * the hedged requests are executed by {@link #getExecutor() the executor}. No hedged request is sent
+ * if the circuit breaker of the SMP host is not closed, or if the traffic limiter has no free permit
+ * for the SMP host.
+ * <p>
+ * The hedge delay is the configured percentile of the last {@link #getWindowSize()} successful
+ * request durations, clamped to the range [{@link #getMinDelay()}, {@link #getMaxDelay()}]. As long
+ * as less than {@link #getMinSamples()} durations are known for a host, no hedging takes place. The
+ * duration of each successful request is recorded, including the hedged requests. If an original
+ * request is cancelled because the hedged request was faster, the time until the cancellation is
+ * recorded as a lower bound of its duration.
+ * </p>
+ *
+ * @author Philip Helger
+ * @since 12.8.2
+ */
+@ThreadSafe
+public class SMPRequestHedging
+{
+  /** The default latency percentile after which a hedged request is sent */
+  public static final double DEFAULT_PERCENTILE = 0.95;
+  /** The default minimum hedge delay */
+  public static final Duration DEFAULT_MIN_DELAY = Duration.ofMillis (50);
+  /** The default maximum hedge delay */
+  public static final Duration DEFAULT_MAX_DELAY = Duration.ofSeconds (5);
+  /** The default number of latency samples kept per host */
+  public static final int DEFAULT_WINDOW_SIZE = 100;
+  /** The default number of latency samples required before hedging starts */
+  public static final int DEFAULT_MIN_SAMPLES = 10;
+  /** The default maximum number of threads executing hedged requests */
+  public static final int DEFAULT_MAX_HEDGE_THREADS = 8;
+
+  private static final AtomicInteger THREAD_INDEX = new AtomicInteger (0);
+
+  private static final class LatencyWindow
+  {
+    @GuardedBy ("this")
+    private final long [] m_aSamples;
+    @GuardedBy ("this")
+    private int m_nCount;
+    @GuardedBy ("this")
+    private int m_nNext;
+
+    LatencyWindow (final int nWindowSize)
+    {
+      m_aSamples = new long [nWindowSize];
+    }
+
+    synchronized void add (final long nNanos)
+    {
+      m_aSamples[m_nNext] = nNanos;
+      m_nNext = (m_nNext + 1) % m_aSamples.length;
+      if (m_nCount < m_aSamples.length)
+        m_nCount++;
+    }
+
+    synchronized int getCount ()
+    {
+      return m_nCount;
+    }
+
+    synchronized long getPercentile (final double dPercentile)
+    {
+      final long [] aSorted = Arrays.copyOf (m_aSamples, m_nCount);
+      Arrays.sort (aSorted);
+      final int nIndex = (int) Math.ceil (dPercentile * aSorted.length) - 1;
+      return aSorted[Math.max (0, Math.min (nIndex, aSorted.length - 1))];
+    }
+  }
+
+  private final double m_dPercentile;
+  private final Duration m_aMinDelay;
+  private final Duration m_aMaxDelay;
+  private final int m_nWindowSize;
+  private final int m_nMinSamples;
+  private final ScheduledExecutorService m_aExecutor;
+  private final Map <String, LatencyWindow> m_aHosts = new ConcurrentHashMap <> ();
+  private final AtomicLong m_aHedgedRequestCount = new AtomicLong ();
+  private final AtomicLong m_aHedgeWinCount = new AtomicLong ();
+
+  /**
+   * Constructor using all the default values and a default executor with at most
+   * {@link #DEFAULT_MAX_HEDGE_THREADS} daemon threads.
+   */
+  public SMPRequestHedging ()
+  {
+    this (DEFAULT_PERCENTILE, DEFAULT_MIN_DELAY, DEFAULT_MAX_DELAY, DEFAULT_WINDOW_SIZE, DEFAULT_MIN_SAMPLES, null);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param dPercentile
+   *        The latency percentile after which the hedged request is sent. Must be &gt; 0 and &le;
+   *        1.
+   * @param aMinDelay
+   *        The minimum hedge delay. May not be <code>null</code>.
+   * @param aMaxDelay
+   *        The maximum hedge delay. May not be <code>null</code> and must be &ge; the minimum
+   *        delay.
+   * @param nWindowSize
+   *        The number of latency samples kept per host. Must be &gt; 0.
+   * @param nMinSamples
+   *        The number of latency samples required before hedging starts. Must be &gt; 0 and &le;
+   *        the window size.
+   * @param aExecutor
+   *        The executor that schedules and runs the hedged requests. May be <code>null</code> in
+   *        which case a scheduled thread pool with {@link #DEFAULT_MAX_HEDGE_THREADS} daemon threads
+   *        is used.
+   */
+  public SMPRequestHedging (final double dPercentile,
+                            @NonNull final Duration aMinDelay,
+                            @NonNull final Duration aMaxDelay,
+                            @Nonnegative final int nWindowSize,
+                            @Nonnegative final int nMinSamples,
+                            @Nullable final ScheduledExecutorService aExecutor)
+  {
+    ValueEnforcer.isTrue ( () -> dPercentile > 0 && dPercentile <= 1, "Percentile must be in the range (0, 1]");
+    ValueEnforcer.notNull (aMinDelay, "MinDelay");
+    ValueEnforcer.notNull (aMaxDelay, "MaxDelay");
+    ValueEnforcer.isTrue ( () -> !aMinDelay.isNegative (), "MinDelay may not be negative");
+    ValueEnforcer.isTrue ( () -> aMaxDelay.compareTo (aMinDelay) >= 0, "MaxDelay must be >= MinDelay");
+    ValueEnforcer.isGT0 (nWindowSize, "WindowSize");
+    ValueEnforcer.isBetweenInclusive (nMinSamples, "MinSamples", 1, nWindowSize);
+    m_dPercentile = dPercentile;
+    m_aMinDelay = aMinDelay;
+    m_aMaxDelay = aMaxDelay;
+    m_nWindowSize = nWindowSize;
+    m_nMinSamples = nMinSamples;
+    if (aExecutor != null)
+      m_aExecutor = aExecutor;
+    else
+    {
+      final ScheduledThreadPoolExecutor aSTPE = new ScheduledThreadPoolExecutor (DEFAULT_MAX_HEDGE_THREADS, r -> {
+        final Thread t = new Thread (r, "smp-client-hedging-" + THREAD_INDEX.incrementAndGet ());
+        t.setDaemon (true);
+        return t;
+      });
+      // Most hedged requests are cancelled before they are due
+      aSTPE.setRemoveOnCancelPolicy (true);
+      m_aExecutor = aSTPE;
+    }
+  }
+
+  /**
+   * @return The latency percentile after which the hedged request is sent.
+   */
+  public final double getPercentile ()
+  {
+    return m_dPercentile;
+  }
+
+  /**
+   * @return The minimum hedge delay. Never <code>null</code>.
+   */
+  @NonNull
+  public final Duration getMinDelay ()
+  {
+    return m_aMinDelay;
+  }
+
+  /**
+   * @return The maximum hedge delay. Never <code>null</code>.
+   */
+  @NonNull
+  public final Duration getMaxDelay ()
+  {
+    return m_aMaxDelay;
+  }
+
+  /**
+   * @return The number of latency samples kept per host.
+   */
+  @Nonnegative
+  public final int getWindowSize ()
+  {
+    return m_nWindowSize;
+  }
+
+  /**
+   * @return The number of latency samples required before hedging starts.
+   */
+  @Nonnegative
+  public final int getMinSamples ()
+  {
+    return m_nMinSamples;
+  }
+
+  /**
+   * @return The executor that schedules and runs the hedged requests. Never <code>null</code>.
+   */
+  @NonNull
+  public final ScheduledExecutorService getExecutor ()
+  {
+    return m_aExecutor;
+  }
+
+  /**
+   * Remember the duration of a successful request.
+   *
+   * @param sHostKey
+   *        The SMP host key. May neither be <code>null</code> nor empty.
+   * @param nDurationNanos
+   *        The duration of the request in nano seconds.
+   */
+  public void recordLatency (@NonNull @Nonempty final String sHostKey, @Nonnegative final long nDurationNanos)
+  {
+    ValueEnforcer.notEmpty (sHostKey, "HostKey");
+    m_aHosts.computeIfAbsent (sHostKey, k -> new LatencyWindow (m_nWindowSize)).add (nDurationNanos);
+  }
+
+  /**
+   * Get the delay after which a hedged request to the provided host should be sent.
+   *
+   * @param sHostKey
+   *        The SMP host key. May be <code>null</code>.
+   * @return <code>null</code> if not enough samples are present and no hedging should take place.
+   */
+  @Nullable
+  public Duration getHedgeDelay (@Nullable final String sHostKey)
+  {
+    final LatencyWindow aWindow = sHostKey == null ? null : m_aHosts.get (sHostKey);
+    if (aWindow == null || aWindow.getCount () < m_nMinSamples)
+      return null;
+
+    final Duration aDelay = Duration.ofNanos (aWindow.getPercentile (m_dPercentile));
+    if (aDelay.compareTo (m_aMinDelay) < 0)
+      return m_aMinDelay;
+    if (aDelay.compareTo (m_aMaxDelay) > 0)
+      return m_aMaxDelay;
+    return aDelay;
+  }
+
+  /**
+   * Remember that a hedged request was sent.
+   *
+   * @param bHedgeWon
+   *        <code>true</code> if the hedged request returned first.
+   */
+  public void onHedgedRequest (final boolean bHedgeWon)
+  {
+    m_aHedgedRequestCount.incrementAndGet ();
+    if (bHedgeWon)
+      m_aHedgeWinCount.incrementAndGet ();
+  }
+
+  /**
+   * @return The number of hedged requests that were sent.
+   */
+  @Nonnegative
+  public long getHedgedRequestCount ()
+  {
+    return m_aHedgedRequestCount.get ();
+  }
+
+  /**
+   * @return The number of hedged requests that returned before the original request.
+   */
+  @Nonnegative
+  public long getHedgeWinCount ()
+  {
+    return m_aHedgeWinCount.get ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Percentile", m_dPercentile)
+                                       .append ("MinDelay", m_aMinDelay)
+                                       .append ("MaxDelay", m_aMaxDelay)
+                                       .append ("WindowSize", m_nWindowSize)
+                                       .append ("MinSamples", m_nMinSamples)
+                                       .append ("HedgedRequestCount", m_aHedgedRequestCount.get ())
+                                       .append ("HedgeWinCount", m_aHedgeWinCount.get ())
+                                       .getToString ();
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.httpclient;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.NotThreadSafe;
+import com.helger.annotation.style.ReturnsMutableObject;
+import com.helger.base.io.nonblocking.NonBlockingByteArrayInputStream;
+
+/**
+ * A single SMP response that was read into a buffer of an {@link SMPResponseBufferPool}. The buffer
+ * is usually larger than the response, so always use {@link #getLength()}. Close this object to
+ * return the buffer to the pool - the buffer content may not be used afterwards.
+ *
+ * @author Philip Helger
+ * @since 12.8.2
+ */
+@NotThreadSafe
+public final class SMPResponseBuffer implements AutoCloseable
+{
+  private final SMPResponseBufferPool m_aPool;
+  private byte [] m_aBuffer;
+  private final int m_nLength;
+
+  SMPResponseBuffer (@NonNull final SMPResponseBufferPool aPool, @NonNull final byte [] aBuffer, @Nonnegative final int nLength)
+  {
+    m_aPool = aPool;
+    m_aBuffer = aBuffer;
+    m_nLength = nLength;
+  }
+
+  private void _checkOpen ()
+  {
+    if (m_aBuffer == null)
+      throw new IllegalStateException ("The SMP response buffer was already released");
+  }
+
+  /**
+   * @return The underlying buffer. Only the first {@link #getLength()} bytes are valid. Never
+   *         <code>null</code>.
+   */
+  @NonNull
+  @ReturnsMutableObject
+  public byte [] getBuffer ()
+  {
+    _checkOpen ();
+    return m_aBuffer;
+  }
+
+  /**
+   * @return The number of valid bytes in the buffer. Always &ge; 0.
+   */
+  @Nonnegative
+  public int getLength ()
+  {
+    return m_nLength;
+  }
+
+  /**
+   * @return <code>true</code> if the response was empty.
+   */
+  public boolean isEmpty ()
+  {
+    return m_nLength == 0;
+  }
+
+  /**
+   * @return A new input stream on the valid part of the buffer, without copying it. Never
+   *         <code>null</code>.
+   */
+  @NonNull
+  public NonBlockingByteArrayInputStream getInputStream ()
+  {
+    _checkOpen ();
+    return new NonBlockingByteArrayInputStream (m_aBuffer, 0, m_nLength);
+  }
+
+  /**
+   * Return the buffer to the pool. Calling this method more than once has no effect.
+   */
+  public void close ()
+  {
+    final byte [] aBuffer = m_aBuffer;
+    if (aBuffer != null)
+    {
+      m_aBuffer = null;
+      m_aPool.release (aBuffer);
+    }
+  }
+}
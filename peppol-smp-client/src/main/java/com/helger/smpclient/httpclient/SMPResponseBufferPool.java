@@ -0,0 +1,255 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.httpclient;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.CheckForSigned;
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.WillNotClose;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.tostring.ToStringGenerator;
+import com.helger.smpclient.exception.SMPClientBadResponseException;
+
+/**
+ * A bounded pool of reusable byte arrays that is used to read SMP responses. Each SMP response is
+ * read completely into a single buffer, that is sized from the <code>Content-Length</code> header if
+ * present. Reading is aborted as soon as the configured maximum response size is exceeded, so that
+ * a misbehaving SMP cannot exhaust the heap.
+ * <p>
+ * Only buffers up to {@link #getMaxPooledBufferSize()} bytes are returned to the pool - larger
+ * buffers are left to the garbage collector, so that a single large response does not pin a lot of
+ * memory.
+ * </p>
+ *
+ * @author Philip Helger
+ * @since 12.8.2
+ */
+@ThreadSafe
+public class SMPResponseBufferPool
+{
+  /** The size of a new buffer if the response has no Content-Length: 16 KB */
+  public static final int DEFAULT_INITIAL_BUFFER_SIZE = 16 * 1024;
+  /** The maximum size of a buffer that is returned to the pool: 1 MB */
+  public static final int DEFAULT_MAX_POOLED_BUFFER_SIZE = 1024 * 1024;
+  /** The maximum number of buffers kept in the pool */
+  public static final int DEFAULT_MAX_POOLED_BUFFERS = 32;
+
+  // Some VMs reserve header words in an array
+  private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+  private static final SMPResponseBufferPool DEFAULT_INSTANCE = new SMPResponseBufferPool ();
+
+  private final int m_nMaxPooledBufferSize;
+  private final int m_nMaxPooledBuffers;
+  private final Queue <byte []> m_aPool = new ConcurrentLinkedQueue <> ();
+  private final AtomicInteger m_aPoolSize = new AtomicInteger (0);
+
+  /**
+   * Constructor using {@link #DEFAULT_MAX_POOLED_BUFFER_SIZE} and
+   * {@link #DEFAULT_MAX_POOLED_BUFFERS}.
+   */
+  public SMPResponseBufferPool ()
+  {
+    this (DEFAULT_MAX_POOLED_BUFFER_SIZE, DEFAULT_MAX_POOLED_BUFFERS);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param nMaxPooledBufferSize
+   *        The maximum size of a single buffer to be kept in the pool. Must be &gt; 0.
+   * @param nMaxPooledBuffers
+   *        The maximum number of buffers to be kept in the pool. Must be &ge; 0.
+   */
+  public SMPResponseBufferPool (@Nonnegative final int nMaxPooledBufferSize, @Nonnegative final int nMaxPooledBuffers)
+  {
+    ValueEnforcer.isGT0 (nMaxPooledBufferSize, "MaxPooledBufferSize");
+    ValueEnforcer.isGE0 (nMaxPooledBuffers, "MaxPooledBuffers");
+    m_nMaxPooledBufferSize = nMaxPooledBufferSize;
+    m_nMaxPooledBuffers = nMaxPooledBuffers;
+  }
+
+  /**
+   * @return The maximum size of a single buffer to be kept in the pool. Always &gt; 0.
+   */
+  @Nonnegative
+  public final int getMaxPooledBufferSize ()
+  {
+    return m_nMaxPooledBufferSize;
+  }
+
+  /**
+   * @return The maximum number of buffers to be kept in the pool. Always &ge; 0.
+   */
+  @Nonnegative
+  public final int getMaxPooledBuffers ()
+  {
+    return m_nMaxPooledBuffers;
+  }
+
+  /**
+   * @return The number of buffers currently available in the pool. Always &ge; 0.
+   */
+  @Nonnegative
+  public final int getPooledBufferCount ()
+  {
+    return m_aPoolSize.get ();
+  }
+
+  @NonNull
+  private byte [] _borrow (@Nonnegative final int nMinSize)
+  {
+    final byte [] aPooled = m_aPool.poll ();
+    if (aPooled != null)
+    {
+      m_aPoolSize.decrementAndGet ();
+      if (aPooled.length >= nMinSize)
+        return aPooled;
+
+      // Too small for this response - give it back for the next one
+      release (aPooled);
+    }
+    return new byte [nMinSize];
+  }
+
+  /**
+   * Return a buffer to the pool. Buffers that are too large or that exceed the pool capacity are
+   * silently discarded.
+   *
+   * @param aBuffer
+   *        The buffer to be returned. May be <code>null</code>. The buffer may not be used by the
+   *        caller afterwards.
+   */
+  public void release (@Nullable final byte [] aBuffer)
+  {
+    if (aBuffer != null && aBuffer.length <= m_nMaxPooledBufferSize)
+    {
+      if (m_aPoolSize.incrementAndGet () <= m_nMaxPooledBuffers)
+        m_aPool.offer (aBuffer);
+      else
+        m_aPoolSize.decrementAndGet ();
+    }
+  }
+
+  @NonNull
+  private static SMPClientBadResponseException _createTooLarge (final long nMaxResponseSize)
+  {
+    return new SMPClientBadResponseException ("The SMP response exceeds the maximum allowed size of " +
+                                              nMaxResponseSize +
+                                              " bytes - aborting");
+  }
+
+  /**
+   * Read the whole input stream into a pooled buffer.
+   *
+   * @param aIS
+   *        The input stream to read from. May not be <code>null</code>. Is not closed by this
+   *        method.
+   * @param nContentLength
+   *        The announced content length of the response. Values &lt; 0 indicate that the length is
+   *        unknown.
+   * @param nMaxResponseSize
+   *        The maximum number of bytes to read. Values &le; 0 indicate an unlimited size.
+   * @return The read buffer, that must be closed after usage to return it to the pool. Never
+   *         <code>null</code>.
+   * @throws IOException
+   *         In case of a read error
+   * @throws SMPClientBadResponseException
+   *         If the response is larger than the maximum allowed size
+   */
+  @NonNull
+  public SMPResponseBuffer read (@NonNull @WillNotClose final InputStream aIS,
+                                 final long nContentLength,
+                                 @CheckForSigned final long nMaxResponseSize) throws IOException,
+                                                                              SMPClientBadResponseException
+  {
+    ValueEnforcer.notNull (aIS, "InputStream");
+
+    final boolean bLimited = nMaxResponseSize > 0;
+    // Fail fast if the server already tells us it is too large
+    if (bLimited && nContentLength > nMaxResponseSize)
+      throw _createTooLarge (nMaxResponseSize);
+
+    // One additional byte, so that the end of stream can be detected without growing
+    final int nInitialSize = nContentLength >= 0 && nContentLength < MAX_ARRAY_SIZE ? (int) nContentLength + 1
+                                                                                    : DEFAULT_INITIAL_BUFFER_SIZE;
+    byte [] aBuffer = _borrow (nInitialSize);
+    int nLength = 0;
+    try
+    {
+      while (true)
+      {
+        if (nLength == aBuffer.length)
+        {
+          // Grow - but never beyond the limit plus one byte for overflow detection
+          long nNewSize = Math.min (aBuffer.length * 2L, MAX_ARRAY_SIZE);
+          if (bLimited)
+            nNewSize = Math.min (nNewSize, nMaxResponseSize + 1);
+          if (nNewSize <= aBuffer.length)
+            throw _createTooLarge (bLimited ? nMaxResponseSize : MAX_ARRAY_SIZE);
+
+          final byte [] aOldBuffer = aBuffer;
+          aBuffer = Arrays.copyOf (aOldBuffer, (int) nNewSize);
+          release (aOldBuffer);
+        }
+
+        final int nRead = aIS.read (aBuffer, nLength, aBuffer.length - nLength);
+        if (nRead < 0)
+          break;
+        nLength += nRead;
+
+        if (bLimited && nLength > nMaxResponseSize)
+          throw _createTooLarge (nMaxResponseSize);
+      }
+    }
+    catch (final IOException | SMPClientBadResponseException | RuntimeException ex)
+    {
+      release (aBuffer);
+      throw ex;
+    }
+    return new SMPResponseBuffer (this, aBuffer, nLength);
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("MaxPooledBufferSize", m_nMaxPooledBufferSize)
+                                       .append ("MaxPooledBuffers", m_nMaxPooledBuffers)
+                                       .append ("PooledBufferCount", m_aPoolSize.get ())
+                                       .getToString ();
+  }
+
+  /**
+   * @return The default instance that is shared by all SMP response handlers. Never
+   *         <code>null</code>.
+   */
+  @NonNull
+  public static SMPResponseBufferPool getDefaultInstance ()
+  {
+    return DEFAULT_INSTANCE;
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.httpclient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+
+import javax.xml.crypto.MarshalException;
+import javax.xml.crypto.dsig.XMLSignatureException;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.base.state.ESuccess;
+
+/**
+ * Internal helper class to run the verification of multiple independent signatures of a single
+ * document, either sequentially or concurrently on an {@link Executor}.
+ *
+ * @author Philip Helger
+ * @since 12.8.2
+ */
+@Immutable
+final class SMPSignatureVerificationHelper
+{
+  /**
+   * The verification of a single signature.
+   *
+   * @author Philip Helger
+   */
+  @FunctionalInterface
+  interface ISingleSignatureCheck
+  {
+    @NonNull
+    ESuccess check () throws MarshalException, XMLSignatureException;
+  }
+
+  private SMPSignatureVerificationHelper ()
+  {}
+
+  /**
+   * Run all signature checks and combine the results.
+   *
+   * @param aChecks
+   *        The checks to run. May not be <code>null</code>.
+   * @param aExecutor
+   *        The executor to run the checks concurrently. May be <code>null</code> to run them
+   *        sequentially in the calling thread.
+   * @param bStopAtFirstFailure
+   *        <code>true</code> to stop at the first invalid signature (and cancel the checks that are
+   *        still running), <code>false</code> to check all signatures.
+   * @return {@link ESuccess#SUCCESS} if all checks succeeded.
+   * @throws MarshalException
+   *         If a check failed with this exception
+   * @throws XMLSignatureException
+   *         If a check failed with this exception or if the calling thread was interrupted
+   */
+  @NonNull
+  static ESuccess checkAll (@NonNull final List <? extends ISingleSignatureCheck> aChecks,
+                            @Nullable final Executor aExecutor,
+                            final boolean bStopAtFirstFailure) throws MarshalException, XMLSignatureException
+  {
+    ESuccess ret = ESuccess.SUCCESS;
+    if (aExecutor == null || aChecks.size () < 2)
+    {
+      for (final ISingleSignatureCheck aCheck : aChecks)
+        if (aCheck.check ().isFailure ())
+        {
+          ret = ESuccess.FAILURE;
+          if (bStopAtFirstFailure)
+            break;
+        }
+      return ret;
+    }
+
+    final ExecutorCompletionService <ESuccess> aECS = new ExecutorCompletionService <> (aExecutor);
+    final List <Future <ESuccess>> aFutures = new ArrayList <> (aChecks.size ());
+    try
+    {
+      for (final ISingleSignatureCheck aCheck : aChecks)
+        aFutures.add (aECS.submit (aCheck::check));
+
+      // Take the results in the order of completion
+      for (int i = 0; i < aFutures.size (); ++i)
+        if (aECS.take ().get ().isFailure ())
+        {
+          ret = ESuccess.FAILURE;
+          if (bStopAtFirstFailure)
+            break;
+        }
+    }
+    catch (final InterruptedException ex)
+    {
+      Thread.currentThread ().interrupt ();
+      throw new XMLSignatureException ("Interrupted while verifying signatures", ex);
+    }
+    catch (final ExecutionException ex)
+    {
+      final Throwable aCause = ex.getCause ();
+      if (aCause instanceof final MarshalException aME)
+        throw aME;
+      if (aCause instanceof final XMLSignatureException aXSE)
+        throw aXSE;
+      if (aCause instanceof final RuntimeException aRE)
+        throw aRE;
+      if (aCause instanceof final Error aError)
+        throw aError;
+      throw new XMLSignatureException (aCause);
+    }
+    finally
+    {
+      // No effect on completed checks
+      for (final Future <ESuccess> aFuture : aFutures)
+        aFuture.cancel (true);
+    }
+    return ret;
+  }
+}
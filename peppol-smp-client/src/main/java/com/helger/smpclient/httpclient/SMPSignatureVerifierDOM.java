@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.httpclient;
+
+import java.util.concurrent.Executor;
+
+import javax.xml.crypto.KeySelector;
+import javax.xml.crypto.MarshalException;
+import javax.xml.crypto.dsig.XMLSignatureException;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.w3c.dom.Document;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.io.nonblocking.NonBlockingByteArrayInputStream;
+import com.helger.base.state.ESuccess;
+import com.helger.xml.serialize.read.DOMReader;
+
+/**
+ * The default {@link ISMPSignatureVerifier} that uses the JSR 105 DOM API via
+ * {@link SMPHttpResponseHandlerSigned#checkSignature(Document, KeySelector, boolean, Executor, boolean)}.
+ *
+ * @author Philip Helger
+ * @since 12.8.2
+ */
+@Immutable
+public class SMPSignatureVerifierDOM extends AbstractSMPSignatureVerifier
+{
+  /**
+   * Constructor verifying all signatures sequentially.
+   */
+  public SMPSignatureVerifierDOM ()
+  {
+    this (null, false);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param aExecutor
+   *        The executor to verify multiple signatures of a single response concurrently. May be
+   *        <code>null</code> to verify all signatures sequentially in the calling thread.
+   * @param bStopAtFirstFailure
+   *        <code>true</code> to stop the verification at the first invalid signature,
+   *        <code>false</code> to verify all signatures.
+   */
+  public SMPSignatureVerifierDOM (@Nullable final Executor aExecutor, final boolean bStopAtFirstFailure)
+  {
+    super (aExecutor, bStopAtFirstFailure);
+  }
+
+  public boolean isDOMRequired ()
+  {
+    return true;
+  }
+
+  @NonNull
+  public ESuccess verifySignatures (@NonNull final byte [] aBytes,
+                                    @Nonnegative final int nOfs,
+                                    @Nonnegative final int nLen,
+                                    @Nullable final Document aDocument,
+                                    @NonNull final KeySelector aKeySelector,
+                                    final boolean bSecureValidation) throws MarshalException, XMLSignatureException
+  {
+    ValueEnforcer.isArrayOfsLen (aBytes, nOfs, nLen);
+    ValueEnforcer.notNull (aKeySelector, "KeySelector");
+
+    Document aRealDocument = aDocument;
+    if (aRealDocument == null)
+    {
+      aRealDocument = DOMReader.readXMLDOM (new NonBlockingByteArrayInputStream (aBytes, nOfs, nLen));
+      if (aRealDocument == null)
+        throw new MarshalException ("The SMP response is not XML");
+    }
+    return SMPHttpResponseHandlerSigned.checkSignature (aRealDocument,
+                                                        aKeySelector,
+                                                        bSecureValidation,
+                                                        getExecutor (),
+                                                        isStopAtFirstFailure ());
+  }
+}
@@ -0,0 +1,793 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.httpclient;
+
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.interfaces.ECKey;
+import java.security.interfaces.RSAKey;
+import java.security.spec.AlgorithmParameterSpec;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+import javax.xml.crypto.AlgorithmMethod;
+import javax.xml.crypto.KeySelector;
+import javax.xml.crypto.KeySelectorException;
+import javax.xml.crypto.KeySelectorResult;
+import javax.xml.crypto.MarshalException;
+import javax.xml.crypto.XMLCryptoContext;
+import javax.xml.crypto.XMLStructure;
+import javax.xml.crypto.dom.DOMCryptoContext;
+import javax.xml.crypto.dsig.CanonicalizationMethod;
+import javax.xml.crypto.dsig.DigestMethod;
+import javax.xml.crypto.dsig.SignatureMethod;
+import javax.xml.crypto.dsig.Transform;
+import javax.xml.crypto.dsig.XMLSignature;
+import javax.xml.crypto.dsig.XMLSignatureException;
+import javax.xml.crypto.dsig.keyinfo.KeyInfo;
+import javax.xml.crypto.dsig.keyinfo.KeyInfoFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.io.nonblocking.NonBlockingByteArrayInputStream;
+import com.helger.base.state.ESuccess;
+import com.helger.smpclient.httpclient.XMLCanonicalStreamWriter.Attr;
+
+/**
+ * An {@link ISMPSignatureVerifier} that verifies the signatures of an SMP response in a single
+ * forward pass with a StAX parser, without creating a DOM. While parsing, the document is
+ * canonicalized with Canonical XML 1.0 and the content of all <code>Signature</code> elements is
+ * collected. Afterwards the <code>SignedInfo</code> and the enveloped document content of each
+ * signature is verified.
+ * <p>
+ * Only the signature profile used by SMPs is supported: enveloped signatures with same document
+ * references (<code>URI=""</code>) and the inclusive or exclusive canonicalization without comments.
+ * Documents that use other features (e.g. other transforms, ID references, DTDs or other
+ * <code>KeyInfo</code> content than <code>X509Data</code>) as well as algorithms and keys that are
+ * not supported with the selected secure validation mode, are verified with
+ * {@link SMPSignatureVerifierDOM} instead, so that the results are always identical.
+ * </p>
+ *
+ * @author Philip Helger
+ * @since 12.8.2
+ */
+@Immutable
+public class SMPSignatureVerifierStAX extends AbstractSMPSignatureVerifier
+{
+  private static final Logger LOGGER = LoggerFactory.getLogger (SMPSignatureVerifierStAX.class);
+  private static final String NS_DSIG = XMLSignature.XMLNS;
+  /** Maximum number of references with secure validation - same as in the JDK */
+  private static final int SECURE_VALIDATION_MAX_REFERENCES = 30;
+
+  private static final Map <String, String> DIGEST_ALGORITHMS = new HashMap <> ();
+  private static final Map <String, String> SIGNATURE_ALGORITHMS = new HashMap <> ();
+  static
+  {
+    DIGEST_ALGORITHMS.put (DigestMethod.SHA1, "SHA-1");
+    DIGEST_ALGORITHMS.put (DigestMethod.SHA224, "SHA-224");
+    DIGEST_ALGORITHMS.put (DigestMethod.SHA256, "SHA-256");
+    DIGEST_ALGORITHMS.put (DigestMethod.SHA384, "SHA-384");
+    DIGEST_ALGORITHMS.put (DigestMethod.SHA512, "SHA-512");
+
+    SIGNATURE_ALGORITHMS.put (SignatureMethod.RSA_SHA1, "SHA1withRSA");
+    SIGNATURE_ALGORITHMS.put (SignatureMethod.RSA_SHA224, "SHA224withRSA");
+    SIGNATURE_ALGORITHMS.put (SignatureMethod.RSA_SHA256, "SHA256withRSA");
+    SIGNATURE_ALGORITHMS.put (SignatureMethod.RSA_SHA384, "SHA384withRSA");
+    SIGNATURE_ALGORITHMS.put (SignatureMethod.RSA_SHA512, "SHA512withRSA");
+    SIGNATURE_ALGORITHMS.put (SignatureMethod.ECDSA_SHA1, "SHA1withECDSAinP1363Format");
+    SIGNATURE_ALGORITHMS.put (SignatureMethod.ECDSA_SHA224, "SHA224withECDSAinP1363Format");
+    SIGNATURE_ALGORITHMS.put (SignatureMethod.ECDSA_SHA256, "SHA256withECDSAinP1363Format");
+    SIGNATURE_ALGORITHMS.put (SignatureMethod.ECDSA_SHA384, "SHA384withECDSAinP1363Format");
+    SIGNATURE_ALGORITHMS.put (SignatureMethod.ECDSA_SHA512, "SHA512withECDSAinP1363Format");
+  }
+
+  private static final XMLInputFactory XML_INPUT_FACTORY;
+  static
+  {
+    XML_INPUT_FACTORY = XMLInputFactory.newDefaultFactory ();
+    XML_INPUT_FACTORY.setProperty (XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+    XML_INPUT_FACTORY.setProperty (XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+    XML_INPUT_FACTORY.setProperty (XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, Boolean.TRUE);
+    XML_INPUT_FACTORY.setProperty (XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+    XML_INPUT_FACTORY.setProperty (XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+  }
+
+  /**
+   * Internal exception to indicate, that a feature is used that is not supported by this class.
+   *
+   * @author Philip Helger
+   */
+  private static final class UnsupportedFeatureException extends Exception
+  {
+    UnsupportedFeatureException (@NonNull final String sMsg)
+    {
+      super (sMsg, null, false, false);
+    }
+  }
+
+  /**
+   * The parsed data of a single reference.
+   *
+   * @author Philip Helger
+   */
+  private static final class ReferenceData
+  {
+    private String m_sURI;
+    private final List <String> m_aTransforms = new ArrayList <> (2);
+    private String m_sDigestAlgorithm;
+    private String m_sDigestValue;
+  }
+
+  /**
+   * The parsed data of a single signature.
+   *
+   * @author Philip Helger
+   */
+  private static final class SignatureData
+  {
+    // The range of the Signature element within the canonicalized document
+    private int m_nStart;
+    private int m_nEnd;
+    private Map <String, String> m_aSignedInfoContextNamespaces;
+    private List <Attr> m_aSignedInfoContextXMLAttrs;
+    private List <Consumer <XMLCanonicalStreamWriter>> m_aSignedInfoEvents;
+    private String m_sC14NAlgorithm;
+    private String m_sSignatureAlgorithm;
+    private final List <ReferenceData> m_aReferences = new ArrayList <> (1);
+    private String m_sSignatureValue;
+    private List <List <Object>> m_aX509Datas;
+    private String m_sIssuerName;
+    private String m_sSerialNumber;
+  }
+
+  /**
+   * The state while parsing a document.
+   *
+   * @author Philip Helger
+   */
+  private static final class ParseResult
+  {
+    private final XMLCanonicalStreamWriter m_aCanonicalDoc = new XMLCanonicalStreamWriter (false);
+    private final List <SignatureData> m_aSignatures = new ArrayList <> (1);
+  }
+
+  /**
+   * The {@link SignatureMethod} passed to the {@link KeySelector}.
+   *
+   * @author Philip Helger
+   */
+  private static final class SimpleSignatureMethod implements SignatureMethod
+  {
+    private final String m_sAlgorithm;
+
+    SimpleSignatureMethod (@NonNull final String sAlgorithm)
+    {
+      m_sAlgorithm = sAlgorithm;
+    }
+
+    public String getAlgorithm ()
+    {
+      return m_sAlgorithm;
+    }
+
+    public AlgorithmParameterSpec getParameterSpec ()
+    {
+      return null;
+    }
+
+    public boolean isFeatureSupported (final String sFeature)
+    {
+      ValueEnforcer.notNull (sFeature, "Feature");
+      return false;
+    }
+  }
+
+  private final ISMPSignatureVerifier m_aFallbackVerifier;
+
+  /**
+   * Constructor verifying all signatures sequentially.
+   */
+  public SMPSignatureVerifierStAX ()
+  {
+    this (null, false);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param aExecutor
+   *        The executor to verify multiple signatures of a single response concurrently. May be
+   *        <code>null</code> to verify all signatures sequentially in the calling thread. The
+   *        same settings are used for the DOM based fallback.
+   * @param bStopAtFirstFailure
+   *        <code>true</code> to stop the verification at the first invalid signature,
+   *        <code>false</code> to verify all signatures.
+   */
+  public SMPSignatureVerifierStAX (@Nullable final Executor aExecutor, final boolean bStopAtFirstFailure)
+  {
+    super (aExecutor, bStopAtFirstFailure);
+    m_aFallbackVerifier = new SMPSignatureVerifierDOM (aExecutor, bStopAtFirstFailure);
+  }
+
+  public boolean isDOMRequired ()
+  {
+    return false;
+  }
+
+  @NonNull
+  private static String _nonNull (@Nullable final String s)
+  {
+    return s == null ? "" : s;
+  }
+
+  private static void _handleSignatureElementStart (@NonNull final SignatureData aSig,
+                                                    @NonNull final String sPath,
+                                                    @NonNull final XMLStreamReader aReader) throws UnsupportedFeatureException
+  {
+    switch (sPath)
+    {
+      case "SignedInfo":
+      case "SignedInfo/Reference/Transforms":
+      case "SignatureValue":
+      case "KeyInfo/X509Data/X509Certificate":
+      case "KeyInfo/X509Data/X509SubjectName":
+      case "KeyInfo/X509Data/X509SKI":
+      case "KeyInfo/X509Data/X509IssuerSerial/X509IssuerName":
+      case "KeyInfo/X509Data/X509IssuerSerial/X509SerialNumber":
+      case "SignedInfo/Reference/DigestValue":
+        break;
+      case "SignedInfo/CanonicalizationMethod":
+        aSig.m_sC14NAlgorithm = aReader.getAttributeValue (null, "Algorithm");
+        break;
+      case "SignedInfo/SignatureMethod":
+        aSig.m_sSignatureAlgorithm = aReader.getAttributeValue (null, "Algorithm");
+        break;
+      case "SignedInfo/Reference":
+      {
+        final ReferenceData aRef = new ReferenceData ();
+        aRef.m_sURI = aReader.getAttributeValue (null, "URI");
+        aSig.m_aReferences.add (aRef);
+        break;
+      }
+      case "SignedInfo/Reference/Transforms/Transform":
+        aSig.m_aReferences.get (aSig.m_aReferences.size () - 1).m_aTransforms.add (aReader.getAttributeValue (null,
+                                                                                                              "Algorithm"));
+        break;
+      case "SignedInfo/Reference/DigestMethod":
+        aSig.m_aReferences.get (aSig.m_aReferences.size () - 1).m_sDigestAlgorithm = aReader.getAttributeValue (null,
+                                                                                                                "Algorithm");
+        break;
+      case "KeyInfo":
+        aSig.m_aX509Datas = new ArrayList <> (1);
+        break;
+      case "KeyInfo/X509Data":
+        aSig.m_aX509Datas.add (new ArrayList <> (2));
+        break;
+      case "KeyInfo/X509Data/X509IssuerSerial":
+        aSig.m_sIssuerName = null;
+        aSig.m_sSerialNumber = null;
+        break;
+      default:
+        throw new UnsupportedFeatureException ("Unsupported signature element '" + sPath + "'");
+    }
+  }
+
+  private static void _handleSignatureElementEnd (@NonNull final SignatureData aSig,
+                                                  @NonNull final String sPath,
+                                                  @NonNull final String sText) throws MarshalException
+  {
+    switch (sPath)
+    {
+      case "SignedInfo/Reference/DigestValue":
+        aSig.m_aReferences.get (aSig.m_aReferences.size () - 1).m_sDigestValue = sText;
+        break;
+      case "SignatureValue":
+        aSig.m_sSignatureValue = sText;
+        break;
+      case "KeyInfo/X509Data/X509Certificate":
+        try
+        {
+          aSig.m_aX509Datas.get (aSig.m_aX509Datas.size () - 1)
+                           .add (CertificateFactory.getInstance ("X.509")
+                                                   .generateCertificate (new NonBlockingByteArrayInputStream (_decodeBase64 (sText))));
+        }
+        catch (final CertificateException ex)
+        {
+          throw new MarshalException ("Cannot create X509Certificate", ex);
+        }
+        break;
+      case "KeyInfo/X509Data/X509SubjectName":
+        aSig.m_aX509Datas.get (aSig.m_aX509Datas.size () - 1).add (sText);
+        break;
+      case "KeyInfo/X509Data/X509SKI":
+        aSig.m_aX509Datas.get (aSig.m_aX509Datas.size () - 1).add (_decodeBase64 (sText));
+        break;
+      case "KeyInfo/X509Data/X509IssuerSerial/X509IssuerName":
+        aSig.m_sIssuerName = sText;
+        break;
+      case "KeyInfo/X509Data/X509IssuerSerial/X509SerialNumber":
+        aSig.m_sSerialNumber = sText;
+        break;
+      case "KeyInfo/X509Data/X509IssuerSerial":
+        if (aSig.m_sIssuerName == null || aSig.m_sSerialNumber == null)
+          throw new MarshalException ("Invalid X509IssuerSerial element");
+        try
+        {
+          aSig.m_aX509Datas.get (aSig.m_aX509Datas.size () - 1)
+                           .add (KeyInfoFactory.getInstance ("DOM")
+                                               .newX509IssuerSerial (aSig.m_sIssuerName,
+                                                                     new BigInteger (aSig.m_sSerialNumber.trim ())));
+        }
+        catch (final IllegalArgumentException ex)
+        {
+          throw new MarshalException ("Invalid X509IssuerSerial element", ex);
+        }
+        break;
+      default:
+        break;
+    }
+  }
+
+  @NonNull
+  private static byte [] _decodeBase64 (@NonNull final String s) throws MarshalException
+  {
+    try
+    {
+      return Base64.getMimeDecoder ().decode (s.trim ());
+    }
+    catch (final IllegalArgumentException ex)
+    {
+      throw new MarshalException ("Invalid Base64 encoded content", ex);
+    }
+  }
+
+  @NonNull
+  private static ParseResult _parse (@NonNull final byte [] aBytes,
+                                     @Nonnegative final int nOfs,
+                                     @Nonnegative final int nLen) throws XMLStreamException,
+                                                                  MarshalException,
+                                                                  UnsupportedFeatureException
+  {
+    final ParseResult ret = new ParseResult ();
+    final XMLCanonicalStreamWriter aDoc = ret.m_aCanonicalDoc;
+
+    // State of the current signature
+    SignatureData aSig = null;
+    int nSigDepth = -1;
+    final List <String> aSigPath = new ArrayList <> ();
+    final StringBuilder aText = new StringBuilder ();
+    boolean bInSignedInfo = false;
+
+    int nDepth = 0;
+    final XMLStreamReader aReader = XML_INPUT_FACTORY.createXMLStreamReader (new NonBlockingByteArrayInputStream (aBytes,
+                                                                                                                   nOfs,
+                                                                                                                   nLen));
+    try
+    {
+      while (aReader.hasNext ())
+      {
+        switch (aReader.next ())
+        {
+          case XMLStreamConstants.START_ELEMENT:
+          {
+            final String sPrefix = _nonNull (aReader.getPrefix ());
+            final String sLocalName = aReader.getLocalName ();
+            final String sNamespaceURI = _nonNull (aReader.getNamespaceURI ());
+
+            final int nNSCount = aReader.getNamespaceCount ();
+            final Map <String, String> aDeclared;
+            if (nNSCount == 0)
+              aDeclared = Collections.emptyMap ();
+            else
+            {
+              aDeclared = new HashMap <> (nNSCount * 2);
+              for (int i = 0; i < nNSCount; ++i)
+                aDeclared.put (_nonNull (aReader.getNamespacePrefix (i)), _nonNull (aReader.getNamespaceURI (i)));
+            }
+
+            final int nAttrCount = aReader.getAttributeCount ();
+            final List <Attr> aAttrs;
+            if (nAttrCount == 0)
+              aAttrs = Collections.emptyList ();
+            else
+            {
+              aAttrs = new ArrayList <> (nAttrCount);
+              for (int i = 0; i < nAttrCount; ++i)
+                aAttrs.add (new Attr (_nonNull (aReader.getAttributePrefix (i)),
+                                      aReader.getAttributeLocalName (i),
+                                      _nonNull (aReader.getAttributeNamespace (i)),
+                                      aReader.getAttributeValue (i)));
+            }
+
+            final boolean bIsSignature = NS_DSIG.equals (sNamespaceURI) && "Signature".equals (sLocalName);
+            if (aSig == null)
+            {
+              if (bIsSignature)
+              {
+                aSig = new SignatureData ();
+                aSig.m_nStart = aDoc.getLength ();
+                nSigDepth = nDepth;
+                aSigPath.clear ();
+                ret.m_aSignatures.add (aSig);
+              }
+            }
+            else
+            {
+              if (bIsSignature)
+                throw new UnsupportedFeatureException ("Nested signatures are not supported");
+              if (!NS_DSIG.equals (sNamespaceURI))
+                throw new UnsupportedFeatureException ("Foreign element '" + sLocalName + "' in signature");
+
+              aSigPath.add (sLocalName);
+              final String sPath = String.join ("/", aSigPath);
+              if (sPath.equals ("SignedInfo"))
+              {
+                if (aSig.m_aSignedInfoEvents != null)
+                  throw new UnsupportedFeatureException ("Multiple SignedInfo elements");
+                aSig.m_aSignedInfoEvents = new ArrayList <> ();
+                aSig.m_aSignedInfoContextNamespaces = aDoc.getInScopeNamespaces ();
+                aSig.m_aSignedInfoContextXMLAttrs = aDoc.getInScopeXMLAttributes ();
+                bInSignedInfo = true;
+              }
+              _handleSignatureElementStart (aSig, sPath, aReader);
+              aText.setLength (0);
+
+              if (bInSignedInfo)
+                aSig.m_aSignedInfoEvents.add (w -> w.startElement (sPrefix, sLocalName, aAttrs, aDeclared));
+            }
+
+            aDoc.startElement (sPrefix, sLocalName, aAttrs, aDeclared);
+            nDepth++;
+            break;
+          }
+          case XMLStreamConstants.END_ELEMENT:
+          {
+            nDepth--;
+            aDoc.endElement ();
+
+            if (aSig != null)
+            {
+              if (nDepth == nSigDepth)
+              {
+                // End of signature
+                aSig.m_nEnd = aDoc.getLength ();
+                aSig = null;
+                nSigDepth = -1;
+              }
+              else
+              {
+                final String sPath = String.join ("/", aSigPath);
+                _handleSignatureElementEnd (aSig, sPath, aText.toString ());
+                aText.setLength (0);
+                if (bInSignedInfo)
+                {
+                  aSig.m_aSignedInfoEvents.add (XMLCanonicalStreamWriter::endElement);
+                  if (sPath.equals ("SignedInfo"))
+                    bInSignedInfo = false;
+                }
+                aSigPath.remove (aSigPath.size () - 1);
+              }
+            }
+            break;
+          }
+          case XMLStreamConstants.CHARACTERS:
+          case XMLStreamConstants.CDATA:
+          case XMLStreamConstants.SPACE:
+          {
+            if (nDepth > 0)
+            {
+              final String sText = aReader.getText ();
+              aDoc.text (sText);
+              if (aSig != null)
+              {
+                aText.append (sText);
+                if (bInSignedInfo)
+                  aSig.m_aSignedInfoEvents.add (w -> w.text (sText));
+              }
+            }
+            break;
+          }
+          case XMLStreamConstants.PROCESSING_INSTRUCTION:
+          {
+            if (aSig != null)
+              throw new UnsupportedFeatureException ("Processing instructions in signatures are not supported");
+            aDoc.processingInstruction (aReader.getPITarget (), aReader.getPIData ());
+            break;
+          }
+          case XMLStreamConstants.COMMENT:
+          case XMLStreamConstants.START_DOCUMENT:
+          case XMLStreamConstants.END_DOCUMENT:
+            // Comments are never part of the canonical form
+            break;
+          case XMLStreamConstants.DTD:
+            throw new UnsupportedFeatureException ("DTDs are not supported");
+          default:
+            throw new UnsupportedFeatureException ("Unsupported XML event " + aReader.getEventType ());
+        }
+      }
+    }
+    finally
+    {
+      aReader.close ();
+    }
+    return ret;
+  }
+
+  private static void _checkSupported (@NonNull final SignatureData aSig,
+                                       final boolean bSecureValidation) throws UnsupportedFeatureException
+  {
+    if (aSig.m_aSignedInfoEvents == null || aSig.m_sSignatureValue == null)
+      throw new UnsupportedFeatureException ("Incomplete signature");
+    if (!CanonicalizationMethod.INCLUSIVE.equals (aSig.m_sC14NAlgorithm) &&
+        !CanonicalizationMethod.EXCLUSIVE.equals (aSig.m_sC14NAlgorithm))
+      throw new UnsupportedFeatureException ("Unsupported canonicalization algorithm '" + aSig.m_sC14NAlgorithm + "'");
+    if (!SIGNATURE_ALGORITHMS.containsKey (aSig.m_sSignatureAlgorithm))
+      throw new UnsupportedFeatureException ("Unsupported signature algorithm '" + aSig.m_sSignatureAlgorithm + "'");
+    if (aSig.m_aReferences.isEmpty ())
+      throw new UnsupportedFeatureException ("No references");
+    if (bSecureValidation)
+    {
+      // SHA-1 based algorithms are disallowed with secure validation
+      if (aSig.m_sSignatureAlgorithm.endsWith ("sha1"))
+        throw new UnsupportedFeatureException ("Signature algorithm is disallowed with secure validation");
+      if (aSig.m_aReferences.size () > SECURE_VALIDATION_MAX_REFERENCES)
+        throw new UnsupportedFeatureException ("Too many references for secure validation");
+    }
+
+    for (final ReferenceData aRef : aSig.m_aReferences)
+    {
+      if (!"".equals (aRef.m_sURI))
+        throw new UnsupportedFeatureException ("Unsupported reference URI '" + aRef.m_sURI + "'");
+      final List <String> aTransforms = aRef.m_aTransforms;
+      if (aTransforms.isEmpty () || !Transform.ENVELOPED.equals (aTransforms.get (0)))
+        throw new UnsupportedFeatureException ("Only enveloped signatures are supported");
+      if (aTransforms.size () > 2 ||
+          (aTransforms.size () == 2 && !CanonicalizationMethod.INCLUSIVE.equals (aTransforms.get (1))))
+        throw new UnsupportedFeatureException ("Unsupported transformations " + aTransforms);
+      if (!DIGEST_ALGORITHMS.containsKey (aRef.m_sDigestAlgorithm))
+        throw new UnsupportedFeatureException ("Unsupported digest algorithm '" + aRef.m_sDigestAlgorithm + "'");
+      if (bSecureValidation && DigestMethod.SHA1.equals (aRef.m_sDigestAlgorithm))
+        throw new UnsupportedFeatureException ("Digest algorithm is disallowed with secure validation");
+      if (aRef.m_sDigestValue == null)
+        throw new UnsupportedFeatureException ("No digest value");
+    }
+  }
+
+  private static boolean _isKeyTooSmall (@NonNull final Key aKey)
+  {
+    // Same limits as the default secure validation policy of the JDK
+    if (aKey instanceof final RSAKey aRSAKey)
+      return aRSAKey.getModulus ().bitLength () < 1024;
+    if (aKey instanceof final ECKey aECKey)
+      return aECKey.getParams ().getOrder ().bitLength () < 224;
+    return false;
+  }
+
+  @NonNull
+  private static PublicKey _selectKey (@NonNull final SignatureData aSig,
+                                       @NonNull final KeySelector aKeySelector,
+                                       @NonNull final XMLCryptoContext aContext) throws XMLSignatureException
+  {
+    KeyInfo aKeyInfo = null;
+    if (aSig.m_aX509Datas != null)
+    {
+      final KeyInfoFactory aKIF = KeyInfoFactory.getInstance ("DOM");
+      final List <XMLStructure> aContent = new ArrayList <> (aSig.m_aX509Datas.size ());
+      for (final List <Object> aX509Data : aSig.m_aX509Datas)
+        aContent.add (aKIF.newX509Data (aX509Data));
+      aKeyInfo = aKIF.newKeyInfo (aContent);
+    }
+
+    final AlgorithmMethod aMethod = new SimpleSignatureMethod (aSig.m_sSignatureAlgorithm);
+    final KeySelectorResult aResult;
+    try
+    {
+      aResult = aKeySelector.select (aKeyInfo, KeySelector.Purpose.VERIFY, aMethod, aContext);
+    }
+    catch (final KeySelectorException ex)
+    {
+      throw new XMLSignatureException ("cannot find validation key", ex);
+    }
+    final Key aKey = aResult == null ? null : aResult.getKey ();
+    if (aKey == null)
+      throw new XMLSignatureException ("the keyselector did not find a validation key");
+    if (!(aKey instanceof final PublicKey aPublicKey))
+      throw new XMLSignatureException ("the keyselector did not return a public key");
+    return aPublicKey;
+  }
+
+  @NonNull
+  private static MessageDigest _getDigest (@NonNull final String sAlgorithm) throws XMLSignatureException
+  {
+    try
+    {
+      return MessageDigest.getInstance (DIGEST_ALGORITHMS.get (sAlgorithm));
+    }
+    catch (final NoSuchAlgorithmException ex)
+    {
+      throw new XMLSignatureException (ex);
+    }
+  }
+
+  @NonNull
+  private static ESuccess _verifySingleSignature (@NonNull final byte [] aDocBytes,
+                                                  @Nonnegative final int nDocLen,
+                                                  @NonNull final SignatureData aSig,
+                                                  @NonNull final KeySelector aKeySelector,
+                                                  final boolean bSecureValidation,
+                                                  @NonNull final String sSignatureDebug) throws MarshalException,
+                                                                                         XMLSignatureException
+  {
+    // Each signature uses its own context, so that signatures can be verified concurrently
+    final XMLCryptoContext aContext = new DOMCryptoContext ()
+    {};
+    aContext.setProperty ("org.jcp.xml.dsig.secureValidation", Boolean.valueOf (bSecureValidation));
+
+    // Select and check the key
+    final PublicKey aPublicKey = _selectKey (aSig, aKeySelector, aContext);
+    if (bSecureValidation && _isKeyTooSmall (aPublicKey))
+      throw new XMLSignatureException ("The key used for Signature[" +
+                                       sSignatureDebug +
+                                       "] has an unacceptable key size with secure validation");
+
+    // Canonicalize SignedInfo
+    final XMLCanonicalStreamWriter aSignedInfo = new XMLCanonicalStreamWriter (CanonicalizationMethod.EXCLUSIVE.equals (aSig.m_sC14NAlgorithm),
+                                                                               aSig.m_aSignedInfoContextNamespaces,
+                                                                               aSig.m_aSignedInfoContextXMLAttrs);
+    for (final Consumer <XMLCanonicalStreamWriter> aEvent : aSig.m_aSignedInfoEvents)
+      aEvent.accept (aSignedInfo);
+
+    // Verify the signature value
+    final boolean bSignatureValueValid;
+    try
+    {
+      final Signature aSignature = Signature.getInstance (SIGNATURE_ALGORITHMS.get (aSig.m_sSignatureAlgorithm));
+      aSignature.initVerify (aPublicKey);
+      aSignature.update (aSignedInfo.getBuffer (), 0, aSignedInfo.getLength ());
+      bSignatureValueValid = aSignature.verify (_decodeBase64 (aSig.m_sSignatureValue));
+    }
+    catch (final GeneralSecurityException ex)
+    {
+      throw new XMLSignatureException (ex);
+    }
+
+    if (!bSignatureValueValid)
+    {
+      LOGGER.warn ("Signature[" + sSignatureDebug + "] failed core validation");
+      LOGGER.warn ("  Signature[" + sSignatureDebug + "] SignatureValue validity status: NOT valid!");
+      return ESuccess.FAILURE;
+    }
+
+    // Verify all references - the enveloped transformation removes the Signature element itself
+    final int nRefCount = aSig.m_aReferences.size ();
+    for (int nRefIndex = 0; nRefIndex < nRefCount; ++nRefIndex)
+    {
+      final ReferenceData aRef = aSig.m_aReferences.get (nRefIndex);
+      final MessageDigest aMD = _getDigest (aRef.m_sDigestAlgorithm);
+      aMD.update (aDocBytes, 0, aSig.m_nStart);
+      aMD.update (aDocBytes, aSig.m_nEnd, nDocLen - aSig.m_nEnd);
+      if (!MessageDigest.isEqual (aMD.digest (), _decodeBase64 (aRef.m_sDigestValue)))
+      {
+        LOGGER.warn ("Signature[" + sSignatureDebug + "] failed core validation");
+        LOGGER.warn ("  Signature[" +
+                     sSignatureDebug +
+                     "] Reference[" +
+                     (nRefIndex + 1) +
+                     "/" +
+                     nRefCount +
+                     "] validity status: NOT valid!");
+        return ESuccess.FAILURE;
+      }
+    }
+    if (LOGGER.isDebugEnabled ())
+      LOGGER.debug ("Signature[" + sSignatureDebug + "] validation was successful");
+    return ESuccess.SUCCESS;
+  }
+
+  @NonNull
+  private ESuccess _verify (@NonNull final ParseResult aParsed,
+                            @NonNull final KeySelector aKeySelector,
+                            final boolean bSecureValidation) throws MarshalException, XMLSignatureException
+  {
+    // The canonical document is only read from here on
+    final byte [] aDocBytes = aParsed.m_aCanonicalDoc.getBuffer ();
+    final int nDocLen = aParsed.m_aCanonicalDoc.getLength ();
+    final int nSignatureCount = aParsed.m_aSignatures.size ();
+
+    final List <SMPSignatureVerificationHelper.ISingleSignatureCheck> aChecks = new ArrayList <> (nSignatureCount);
+    for (int nSignatureIndex = 0; nSignatureIndex < nSignatureCount; ++nSignatureIndex)
+    {
+      final SignatureData aSig = aParsed.m_aSignatures.get (nSignatureIndex);
+      final String sSignatureDebug = (nSignatureIndex + 1) + "/" + nSignatureCount;
+      aChecks.add ( () -> _verifySingleSignature (aDocBytes,
+                                                  nDocLen,
+                                                  aSig,
+                                                  aKeySelector,
+                                                  bSecureValidation,
+                                                  sSignatureDebug));
+    }
+    return SMPSignatureVerificationHelper.checkAll (aChecks, getExecutor (), isStopAtFirstFailure ());
+  }
+
+  @NonNull
+  public ESuccess verifySignatures (@NonNull final byte [] aBytes,
+                                    @Nonnegative final int nOfs,
+                                    @Nonnegative final int nLen,
+                                    @Nullable final Document aDocument,
+                                    @NonNull final KeySelector aKeySelector,
+                                    final boolean bSecureValidation) throws MarshalException, XMLSignatureException
+  {
+    ValueEnforcer.isArrayOfsLen (aBytes, nOfs, nLen);
+    ValueEnforcer.notNull (aKeySelector, "KeySelector");
+
+    final ParseResult aParsed;
+    try
+    {
+      aParsed = _parse (aBytes, nOfs, nLen);
+      if (aParsed.m_aSignatures.isEmpty ())
+        throw new IllegalArgumentException ("Element <Signature> not found in SMP XML response");
+
+      for (final SignatureData aSig : aParsed.m_aSignatures)
+        _checkSupported (aSig, bSecureValidation);
+    }
+    catch (final UnsupportedFeatureException ex)
+    {
+      if (LOGGER.isDebugEnabled ())
+        LOGGER.debug ("Falling back to DOM based signature verification: " + ex.getMessage ());
+      return m_aFallbackVerifier.verifySignatures (aBytes, nOfs, nLen, aDocument, aKeySelector, bSecureValidation);
+    }
+    catch (final XMLStreamException ex)
+    {
+      throw new MarshalException ("Failed to parse the SMP response", ex);
+    }
+
+    if (LOGGER.isDebugEnabled ())
+      LOGGER.debug ("Found " +
+                    aParsed.m_aSignatures.size () +
+                    " <Signature> " +
+                    (aParsed.m_aSignatures.size () == 1 ? "element" : "elements") +
+                    " to verify, using " +
+                    (bSecureValidation ? "secure" : "regular") +
+                    " streaming validation");
+
+    return _verify (aParsed, aKeySelector, bSecureValidation);
+  }
+}
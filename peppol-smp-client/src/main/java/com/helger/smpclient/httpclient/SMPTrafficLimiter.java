@@ -0,0 +1,498 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.httpclient;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.CheckForSigned;
+import com.helger.annotation.Nonempty;
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.GuardedBy;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.tostring.ToStringGenerator;
+
+/**
+ * A per SMP host bulkhead (maximum number of concurrent requests) combined with a token bucket rate
+ * limiter. Requests of priority {@link ESMPRequestPriority#INTERACTIVE} are always served before
+ * waiting requests of priority {@link ESMPRequestPriority#BATCH}, and a number of concurrency slots
+ * can be reserved for interactive requests only, so that bulk jobs cannot starve the latency
+ * sensitive path.
+ * <p>
+ * Because SMP clients are usually created per message, a limiter instance should be shared between
+ * all SMP clients - the host key is part of every call.
+ * </p>
+ *
+ * @author Philip Helger
+ * @since 12.8.2
+ */
+@ThreadSafe
+public class SMPTrafficLimiter
+{
+  /** The default maximum number of concurrent requests per SMP host */
+  public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 10;
+  /** The default number of concurrency slots reserved for interactive requests */
+  public static final int DEFAULT_RESERVED_INTERACTIVE = 2;
+  /** The default maximum time to wait for a permit */
+  public static final Duration DEFAULT_MAX_WAIT = Duration.ofSeconds (30);
+
+  private static final int PRIO_COUNT = ESMPRequestPriority.values ().length;
+
+  private final class HostState
+  {
+    private final ReentrantLock m_aLock = new ReentrantLock ();
+    private final Condition m_aCondition = m_aLock.newCondition ();
+    @GuardedBy ("m_aLock")
+    private int m_nActive;
+    @GuardedBy ("m_aLock")
+    private final int [] m_aWaiting = new int [PRIO_COUNT];
+    @GuardedBy ("m_aLock")
+    private double m_dTokens = m_nBurstSize;
+    @GuardedBy ("m_aLock")
+    private long m_nLastRefillNanos = System.nanoTime ();
+
+    private void _refill (final long nNowNanos)
+    {
+      if (m_dRequestsPerSecond > 0)
+      {
+        final long nElapsed = nNowNanos - m_nLastRefillNanos;
+        if (nElapsed > 0)
+        {
+          m_dTokens = Math.min (m_nBurstSize, m_dTokens + nElapsed * m_dRequestsPerSecond / 1_000_000_000d);
+          m_nLastRefillNanos = nNowNanos;
+        }
+      }
+    }
+
+    private boolean _hasConcurrencySlot (@NonNull final ESMPRequestPriority ePriority)
+    {
+      if (m_nMaxConcurrentRequests <= 0)
+        return true;
+      final int nLimit = ePriority == ESMPRequestPriority.INTERACTIVE ? m_nMaxConcurrentRequests
+                                                                     : m_nMaxConcurrentRequests -
+                                                                       m_nReservedInteractive;
+      return m_nActive < nLimit;
+    }
+
+    private boolean _hasHigherPriorityWaiters (@NonNull final ESMPRequestPriority ePriority)
+    {
+      for (int i = 0; i < ePriority.ordinal (); ++i)
+        if (m_aWaiting[i] > 0)
+          return true;
+      return false;
+    }
+
+    /**
+     * @return The nanoseconds until the next token is available. 0 if a token is available.
+     */
+    private long _getNanosUntilToken ()
+    {
+      if (m_dRequestsPerSecond <= 0 || m_dTokens >= 1)
+        return 0;
+      return (long) Math.ceil ((1 - m_dTokens) * 1_000_000_000d / m_dRequestsPerSecond);
+    }
+  }
+
+  private final int m_nMaxConcurrentRequests;
+  private final int m_nReservedInteractive;
+  private final double m_dRequestsPerSecond;
+  private final int m_nBurstSize;
+  private final Duration m_aMaxWait;
+  private final Map <String, HostState> m_aHosts = new ConcurrentHashMap <> ();
+
+  // Metrics per priority
+  private final AtomicInteger [] m_aQueueDepth = new AtomicInteger [PRIO_COUNT];
+  private final AtomicLong [] m_aAcquiredCount = new AtomicLong [PRIO_COUNT];
+  private final AtomicLong [] m_aRejectedCount = new AtomicLong [PRIO_COUNT];
+  private final AtomicLong [] m_aTotalWaitNanos = new AtomicLong [PRIO_COUNT];
+  private final AtomicLong [] m_aMaxWaitNanos = new AtomicLong [PRIO_COUNT];
+
+  /**
+   * Constructor with the default bulkhead settings and no rate limit.
+   */
+  public SMPTrafficLimiter ()
+  {
+    this (DEFAULT_MAX_CONCURRENT_REQUESTS, DEFAULT_RESERVED_INTERACTIVE, 0, 0, DEFAULT_MAX_WAIT);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param nMaxConcurrentRequests
+   *        The maximum number of concurrent requests per SMP host. Values &le; 0 mean unlimited.
+   * @param nReservedInteractive
+   *        The number of concurrency slots per SMP host that may only be used by interactive
+   *        requests. Must be &ge; 0 and less than the maximum number of concurrent requests, if
+   *        that is limited.
+   * @param dRequestsPerSecond
+   *        The number of requests per second per SMP host. Values &le; 0 mean unlimited.
+   * @param nBurstSize
+   *        The maximum number of requests that may be sent at once, if the rate is limited (the
+   *        size of the token bucket). Must be &gt; 0 if the rate is limited.
+   * @param aMaxWait
+   *        The maximum time a request waits for a permit. May not be <code>null</code> and may not
+   *        be negative.
+   */
+  public SMPTrafficLimiter (@CheckForSigned final int nMaxConcurrentRequests,
+                            @Nonnegative final int nReservedInteractive,
+                            final double dRequestsPerSecond,
+                            @CheckForSigned final int nBurstSize,
+                            @NonNull final Duration aMaxWait)
+  {
+    ValueEnforcer.isGE0 (nReservedInteractive, "ReservedInteractive");
+    if (nMaxConcurrentRequests > 0)
+      ValueEnforcer.isTrue ( () -> nReservedInteractive < nMaxConcurrentRequests,
+                            "ReservedInteractive must be less than MaxConcurrentRequests");
+    if (dRequestsPerSecond > 0)
+      ValueEnforcer.isGT0 (nBurstSize, "BurstSize");
+    ValueEnforcer.notNull (aMaxWait, "MaxWait");
+    ValueEnforcer.isTrue ( () -> !aMaxWait.isNegative (), "MaxWait may not be negative");
+    m_nMaxConcurrentRequests = nMaxConcurrentRequests;
+    m_nReservedInteractive = nReservedInteractive;
+    m_dRequestsPerSecond = dRequestsPerSecond;
+    m_nBurstSize = nBurstSize;
+    m_aMaxWait = aMaxWait;
+    for (int i = 0; i < PRIO_COUNT; ++i)
+    {
+      m_aQueueDepth[i] = new AtomicInteger ();
+      m_aAcquiredCount[i] = new AtomicLong ();
+      m_aRejectedCount[i] = new AtomicLong ();
+      m_aTotalWaitNanos[i] = new AtomicLong ();
+      m_aMaxWaitNanos[i] = new AtomicLong ();
+    }
+  }
+
+  /**
+   * @return The maximum number of concurrent requests per SMP host. Values &le; 0 mean unlimited.
+   */
+  @CheckForSigned
+  public final int getMaxConcurrentRequests ()
+  {
+    return m_nMaxConcurrentRequests;
+  }
+
+  /**
+   * @return The number of concurrency slots per SMP host that may only be used by interactive
+   *         requests.
+   */
+  @Nonnegative
+  public final int getReservedInteractive ()
+  {
+    return m_nReservedInteractive;
+  }
+
+  /**
+   * @return The number of requests per second per SMP host. Values &le; 0 mean unlimited.
+   */
+  public final double getRequestsPerSecond ()
+  {
+    return m_dRequestsPerSecond;
+  }
+
+  /**
+   * @return The size of the token bucket, if the rate is limited.
+   */
+  @CheckForSigned
+  public final int getBurstSize ()
+  {
+    return m_nBurstSize;
+  }
+
+  /**
+   * @return The maximum time a request waits for a permit. Never <code>null</code>.
+   */
+  @NonNull
+  public final Duration getMaxWait ()
+  {
+    return m_aMaxWait;
+  }
+
+  /**
+   * Try to get a permit for a request to the provided host, waiting at most {@link #getMaxWait()}.
+   * If this method returns <code>true</code>, the caller must call {@link #release(String)} after
+   * the request.
+   *
+   * @param sHostKey
+   *        The SMP host key. May neither be <code>null</code> nor empty.
+   * @param ePriority
+   *        The priority of the request. May not be <code>null</code>.
+   * @return <code>true</code> if the permit was obtained, <code>false</code> if the maximum wait
+   *         time was exceeded.
+   * @throws InterruptedException
+   *         If the current thread was interrupted while waiting
+   */
+  public boolean tryAcquire (@NonNull @Nonempty final String sHostKey,
+                             @NonNull final ESMPRequestPriority ePriority) throws InterruptedException
+  {
+    return tryAcquire (sHostKey, ePriority, m_aMaxWait);
+  }
+
+  /**
+   * Try to get a permit for a request to the provided host, waiting at most the provided time but
+   * never longer than {@link #getMaxWait()}. If this method returns <code>true</code>, the caller
+   * must call {@link #release(String)} after the request.
+   *
+   * @param sHostKey
+   *        The SMP host key. May neither be <code>null</code> nor empty.
+   * @param ePriority
+   *        The priority of the request. May not be <code>null</code>.
+   * @param aMaxWait
+   *        The maximum time to wait, e.g. the remaining lookup deadline. May not be
+   *        <code>null</code>.
+   * @return <code>true</code> if the permit was obtained, <code>false</code> if the maximum wait
+   *         time was exceeded.
+   * @throws InterruptedException
+   *         If the current thread was interrupted while waiting
+   */
+  public boolean tryAcquire (@NonNull @Nonempty final String sHostKey,
+                             @NonNull final ESMPRequestPriority ePriority,
+                             @NonNull final Duration aMaxWait) throws InterruptedException
+  {
+    ValueEnforcer.notEmpty (sHostKey, "HostKey");
+    ValueEnforcer.notNull (ePriority, "Priority");
+    ValueEnforcer.notNull (aMaxWait, "MaxWait");
+
+    final int nPrio = ePriority.ordinal ();
+    final HostState aState = m_aHosts.computeIfAbsent (sHostKey, k -> new HostState ());
+    final long nStartNanos = System.nanoTime ();
+    final long nDeadlineNanos = nStartNanos + Math.min (aMaxWait.toNanos (), m_aMaxWait.toNanos ());
+
+    aState.m_aLock.lock ();
+    try
+    {
+      aState.m_aWaiting[nPrio]++;
+      m_aQueueDepth[nPrio].incrementAndGet ();
+      try
+      {
+        while (true)
+        {
+          final long nNow = System.nanoTime ();
+          aState._refill (nNow);
+
+          final boolean bSlot = aState._hasConcurrencySlot (ePriority) &&
+                                !aState._hasHigherPriorityWaiters (ePriority);
+          final long nNanosUntilToken = aState._getNanosUntilToken ();
+          if (bSlot && nNanosUntilToken == 0)
+          {
+            aState.m_nActive++;
+            if (m_dRequestsPerSecond > 0)
+              aState.m_dTokens -= 1;
+            _onAcquired (nPrio, nNow - nStartNanos);
+            return true;
+          }
+
+          final long nRemaining = nDeadlineNanos - nNow;
+          if (nRemaining <= 0)
+          {
+            m_aRejectedCount[nPrio].incrementAndGet ();
+            return false;
+          }
+
+          // Wait for a release, or until the next token is available
+          final long nWait = bSlot ? Math.min (nRemaining, nNanosUntilToken) : nRemaining;
+          aState.m_aCondition.awaitNanos (nWait);
+        }
+      }
+      finally
+      {
+        aState.m_aWaiting[nPrio]--;
+        m_aQueueDepth[nPrio].decrementAndGet ();
+        // Lower priority waiters may be able to continue now
+        aState.m_aCondition.signalAll ();
+      }
+    }
+    finally
+    {
+      aState.m_aLock.unlock ();
+    }
+  }
+
+  private void _onAcquired (final int nPrio, final long nWaitNanos)
+  {
+    m_aAcquiredCount[nPrio].incrementAndGet ();
+    m_aTotalWaitNanos[nPrio].addAndGet (nWaitNanos);
+    m_aMaxWaitNanos[nPrio].accumulateAndGet (nWaitNanos, Math::max);
+  }
+
+  /**
+   * Release a permit that was obtained by {@link #tryAcquire(String, ESMPRequestPriority)}.
+   *
+   * @param sHostKey
+   *        The SMP host key. May neither be <code>null</code> nor empty.
+   */
+  public void release (@NonNull @Nonempty final String sHostKey)
+  {
+    final HostState aState = m_aHosts.get (sHostKey);
+    if (aState == null)
+      throw new IllegalStateException ("No permit was acquired for SMP host '" + sHostKey + "'");
+
+    aState.m_aLock.lock ();
+    try
+    {
+      if (aState.m_nActive <= 0)
+        throw new IllegalStateException ("No permit was acquired for SMP host '" + sHostKey + "'");
+      aState.m_nActive--;
+      aState.m_aCondition.signalAll ();
+    }
+    finally
+    {
+      aState.m_aLock.unlock ();
+    }
+  }
+
+  /**
+   * @param sHostKey
+   *        The SMP host key. May be <code>null</code>.
+   * @return The number of currently running requests to the provided host. Always &ge; 0.
+   */
+  @Nonnegative
+  public int getActiveRequests (@Nullable final String sHostKey)
+  {
+    final HostState aState = sHostKey == null ? null : m_aHosts.get (sHostKey);
+    if (aState == null)
+      return 0;
+    aState.m_aLock.lock ();
+    try
+    {
+      return aState.m_nActive;
+    }
+    finally
+    {
+      aState.m_aLock.unlock ();
+    }
+  }
+
+  /**
+   * @param sHostKey
+   *        The SMP host key. May be <code>null</code>.
+   * @param ePriority
+   *        The priority to query. May not be <code>null</code>.
+   * @return The number of requests of the provided priority currently waiting for the provided
+   *         host. Always &ge; 0.
+   */
+  @Nonnegative
+  public int getQueueDepth (@Nullable final String sHostKey, @NonNull final ESMPRequestPriority ePriority)
+  {
+    final HostState aState = sHostKey == null ? null : m_aHosts.get (sHostKey);
+    if (aState == null)
+      return 0;
+    aState.m_aLock.lock ();
+    try
+    {
+      return aState.m_aWaiting[ePriority.ordinal ()];
+    }
+    finally
+    {
+      aState.m_aLock.unlock ();
+    }
+  }
+
+  /**
+   * @param ePriority
+   *        The priority to query. May not be <code>null</code>.
+   * @return The number of requests of the provided priority currently waiting for any host. Always
+   *         &ge; 0.
+   */
+  @Nonnegative
+  public int getQueueDepth (@NonNull final ESMPRequestPriority ePriority)
+  {
+    return m_aQueueDepth[ePriority.ordinal ()].get ();
+  }
+
+  /**
+   * @param ePriority
+   *        The priority to query. May not be <code>null</code>.
+   * @return The number of permits obtained for the provided priority. Always &ge; 0.
+   */
+  @Nonnegative
+  public long getAcquiredCount (@NonNull final ESMPRequestPriority ePriority)
+  {
+    return m_aAcquiredCount[ePriority.ordinal ()].get ();
+  }
+
+  /**
+   * @param ePriority
+   *        The priority to query. May not be <code>null</code>.
+   * @return The number of requests of the provided priority that were rejected, because the
+   *         maximum wait time was exceeded. Always &ge; 0.
+   */
+  @Nonnegative
+  public long getRejectedCount (@NonNull final ESMPRequestPriority ePriority)
+  {
+    return m_aRejectedCount[ePriority.ordinal ()].get ();
+  }
+
+  /**
+   * @param ePriority
+   *        The priority to query. May not be <code>null</code>.
+   * @return The total time requests of the provided priority waited for a permit. Never
+   *         <code>null</code>.
+   */
+  @NonNull
+  public Duration getTotalWaitTime (@NonNull final ESMPRequestPriority ePriority)
+  {
+    return Duration.ofNanos (m_aTotalWaitNanos[ePriority.ordinal ()].get ());
+  }
+
+  /**
+   * @param ePriority
+   *        The priority to query. May not be <code>null</code>.
+   * @return The longest time a request of the provided priority waited for a permit. Never
+   *         <code>null</code>.
+   */
+  @NonNull
+  public Duration getMaxWaitTime (@NonNull final ESMPRequestPriority ePriority)
+  {
+    return Duration.ofNanos (m_aMaxWaitNanos[ePriority.ordinal ()].get ());
+  }
+
+  /**
+   * @param ePriority
+   *        The priority to query. May not be <code>null</code>.
+   * @return The average time a request of the provided priority waited for a permit. Never
+   *         <code>null</code>.
+   */
+  @NonNull
+  public Duration getAverageWaitTime (@NonNull final ESMPRequestPriority ePriority)
+  {
+    final long nCount = getAcquiredCount (ePriority);
+    if (nCount == 0)
+      return Duration.ZERO;
+    return Duration.ofNanos (m_aTotalWaitNanos[ePriority.ordinal ()].get () / nCount);
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("MaxConcurrentRequests", m_nMaxConcurrentRequests)
+                                       .append ("ReservedInteractive", m_nReservedInteractive)
+                                       .append ("RequestsPerSecond", m_dRequestsPerSecond)
+                                       .append ("BurstSize", m_nBurstSize)
+                                       .append ("MaxWait", m_aMaxWait)
+                                       .append ("HostCount", m_aHosts.size ())
+                                       .getToString ();
+  }
+}
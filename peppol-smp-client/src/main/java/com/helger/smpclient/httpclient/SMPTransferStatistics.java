@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.httpclient;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.base.tostring.ToStringGenerator;
+
+/**
+ * Simple counters for the number of bytes received from SMP servers. The wire bytes are the bytes
+ * as transferred over the network (potentially compressed), the decoded bytes are the bytes after
+ * applying the <code>Content-Encoding</code>. If the HTTP client already decoded the response
+ * transparently, both values are identical.
+ *
+ * @author Philip Helger
+ * @since 12.8.2
+ */
+@ThreadSafe
+public class SMPTransferStatistics
+{
+  private static final SMPTransferStatistics DEFAULT_INSTANCE = new SMPTransferStatistics ();
+
+  private final AtomicLong m_aResponseCount = new AtomicLong ();
+  private final AtomicLong m_aCompressedResponseCount = new AtomicLong ();
+  private final AtomicLong m_aWireBytes = new AtomicLong ();
+  private final AtomicLong m_aDecodedBytes = new AtomicLong ();
+
+  public SMPTransferStatistics ()
+  {}
+
+  /**
+   * Remember a single read response.
+   *
+   * @param bCompressed
+   *        <code>true</code> if the response was received with a <code>Content-Encoding</code> that
+   *        was decoded by the SMP client.
+   * @param nWireBytes
+   *        The number of bytes read from the network.
+   * @param nDecodedBytes
+   *        The number of bytes after decoding.
+   */
+  public void onResponse (final boolean bCompressed,
+                          @Nonnegative final long nWireBytes,
+                          @Nonnegative final long nDecodedBytes)
+  {
+    m_aResponseCount.incrementAndGet ();
+    if (bCompressed)
+      m_aCompressedResponseCount.incrementAndGet ();
+    m_aWireBytes.addAndGet (nWireBytes);
+    m_aDecodedBytes.addAndGet (nDecodedBytes);
+  }
+
+  /**
+   * @return The total number of read responses.
+   */
+  @Nonnegative
+  public long getResponseCount ()
+  {
+    return m_aResponseCount.get ();
+  }
+
+  /**
+   * @return The number of read responses that were decoded by the SMP client.
+   */
+  @Nonnegative
+  public long getCompressedResponseCount ()
+  {
+    return m_aCompressedResponseCount.get ();
+  }
+
+  /**
+   * @return The total number of bytes read from the network.
+   */
+  @Nonnegative
+  public long getWireBytes ()
+  {
+    return m_aWireBytes.get ();
+  }
+
+  /**
+   * @return The total number of bytes after decoding.
+   */
+  @Nonnegative
+  public long getDecodedBytes ()
+  {
+    return m_aDecodedBytes.get ();
+  }
+
+  /**
+   * Reset all counters to 0.
+   */
+  public void reset ()
+  {
+    m_aResponseCount.set (0);
+    m_aCompressedResponseCount.set (0);
+    m_aWireBytes.set (0);
+    m_aDecodedBytes.set (0);
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("ResponseCount", m_aResponseCount.get ())
+                                       .append ("CompressedResponseCount", m_aCompressedResponseCount.get ())
+                                       .append ("WireBytes", m_aWireBytes.get ())
+                                       .append ("DecodedBytes", m_aDecodedBytes.get ())
+                                       .getToString ();
+  }
+
+  /**
+   * @return The default instance that is used by all SMP clients that have no specific instance
+   *         assigned. Never <code>null</code>.
+   */
+  @NonNull
+  public static SMPTransferStatistics getDefaultInstance ()
+  {
+    return DEFAULT_INSTANCE;
+  }
+}
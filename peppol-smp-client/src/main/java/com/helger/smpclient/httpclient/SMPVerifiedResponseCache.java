@@ -0,0 +1,291 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.httpclient;
+
+import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.CheckForSigned;
+import com.helger.annotation.Nonempty;
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.GuardedBy;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.tostring.ToStringGenerator;
+import com.helger.cache.impl.ManualCache;
+import com.helger.peppol.security.OfflineCRLSource;
+import com.helger.peppol.security.RevocationCheckPrefetcher;
+import com.helger.security.revocation.CertificateRevocationCheckerDefaults;
+import com.helger.security.revocation.ERevocationCheckMode;
+import com.helger.smpclient.security.SMPCertificateCheckResultCache;
+
+/**
+ * A cache for successfully verified signed SMP responses. SMPs usually return byte identical signed
+ * documents for the same query, so after the first successful XMLDSig verification the same
+ * response bytes don't need to be verified again. The cache key is the SHA-256 hash of the
+ * response bytes, combined with the identity of the trust store and all settings that influence
+ * the verification result (signature verifier, secure validation, revocation check mode, revocation
+ * soft fail, certificate check result cache, revocation prefetcher and offline CRL source). So a
+ * single cache can safely be shared between differently configured response handlers. Only
+ * successful verifications are cached.
+ * <p>
+ * Because a cache hit skips the certificate and revocation checks, the TTL should be chosen
+ * carefully - a revoked SMP certificate is only detected after the TTL of the respective entry
+ * expired. If the content of a trust store object is modified, {@link #clear()} should be called.
+ * </p>
+ *
+ * @author Philip Helger
+ * @since 12.8.2
+ */
+@ThreadSafe
+public class SMPVerifiedResponseCache
+{
+  /** Default cache TTL: 15 minutes */
+  public static final Duration DEFAULT_CACHE_TTL = Duration.ofMinutes (15);
+  /** Default maximum number of entries: 10000 */
+  public static final int DEFAULT_MAX_SIZE = 10_000;
+  /** The statistics and log name of the internal cache */
+  public static final String CACHE_NAME = "peppol-smp-client$VerifiedResponse";
+
+  private static final HexFormat HEX = HexFormat.of ();
+  private static final AtomicLong OBJECT_INDEX = new AtomicLong (0);
+  // The identity of each trust store, verifier etc. object. Weak, so that they can be garbage
+  // collected
+  @GuardedBy ("OBJECT_IDS")
+  private static final Map <Object, String> OBJECT_IDS = new WeakHashMap <> ();
+
+  private final ManualCache <String, Boolean> m_aCache;
+  private final AtomicLong m_aHitCount = new AtomicLong ();
+  private final AtomicLong m_aMissCount = new AtomicLong ();
+
+  /**
+   * Constructor using {@link #DEFAULT_CACHE_TTL} and {@link #DEFAULT_MAX_SIZE}.
+   */
+  public SMPVerifiedResponseCache ()
+  {
+    this (DEFAULT_CACHE_TTL, DEFAULT_MAX_SIZE);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param aCacheTTL
+   *        The time to live of each cache entry. May not be <code>null</code> and must be positive.
+   * @param nMaxSize
+   *        The maximum number of entries. All values &le; 0 indicate an unlimited size.
+   */
+  public SMPVerifiedResponseCache (@NonNull final Duration aCacheTTL, @CheckForSigned final int nMaxSize)
+  {
+    ValueEnforcer.notNull (aCacheTTL, "CacheTTL");
+    ValueEnforcer.isTrue ( () -> !aCacheTTL.isZero () && !aCacheTTL.isNegative (),
+                          "CacheTTL must be a positive Duration");
+    m_aCache = ManualCache.<String, Boolean> builder ()
+                          .name (CACHE_NAME)
+                          .maxSize (nMaxSize)
+                          .expireAfterWrite (aCacheTTL)
+                          .build ();
+  }
+
+  /**
+   * @return The time to live of each cache entry. Never <code>null</code>.
+   */
+  @NonNull
+  public final Duration getCacheTTL ()
+  {
+    return m_aCache.getTimeToLive ();
+  }
+
+  /**
+   * @return The maximum number of entries. Values &le; 0 indicate an unlimited size.
+   */
+  @CheckForSigned
+  public final int getMaxSize ()
+  {
+    return m_aCache.getMaxSize ();
+  }
+
+  @NonNull
+  @Nonempty
+  private static String _getObjectID (@Nullable final Object aObject)
+  {
+    if (aObject == null)
+      return "-";
+    synchronized (OBJECT_IDS)
+    {
+      return OBJECT_IDS.computeIfAbsent (aObject, k -> Long.toString (OBJECT_INDEX.incrementAndGet ()));
+    }
+  }
+
+  /**
+   * Create the cache key for the provided response and verification settings.
+   *
+   * @param aBytes
+   *        The response bytes. May not be <code>null</code>.
+   * @param nOfs
+   *        The offset into the response bytes. Must be &ge; 0.
+   * @param nLen
+   *        The number of response bytes. Must be &ge; 0.
+   * @param aTrustStore
+   *        The trust store used for verification. May not be <code>null</code>.
+   * @param bSecureValidation
+   *        The secure validation setting used for verification.
+   * @param eRevocationCheckMode
+   *        The revocation check mode used for verification. May be <code>null</code> to indicate
+   *        the default mode.
+   * @param bAllowRevocationSoftFail
+   *        The revocation soft fail setting used for verification.
+   * @param aSignatureVerifier
+   *        The signature verifier used for verification. May not be <code>null</code>.
+   * @param aCertificateCheckResultCache
+   *        The certificate check result cache used for verification. May be <code>null</code>.
+   * @param aRevocationPrefetcher
+   *        The revocation prefetcher used for verification. May be <code>null</code>.
+   * @param aOfflineCRLSource
+   *        The offline CRL source used for verification. May be <code>null</code>.
+   * @return The cache key. Neither <code>null</code> nor empty.
+   */
+  @NonNull
+  @Nonempty
+  public static String createCacheKey (@NonNull final byte [] aBytes,
+                                       @Nonnegative final int nOfs,
+                                       @Nonnegative final int nLen,
+                                       @NonNull final KeyStore aTrustStore,
+                                       final boolean bSecureValidation,
+                                       @Nullable final ERevocationCheckMode eRevocationCheckMode,
+                                       final boolean bAllowRevocationSoftFail,
+                                       @NonNull final ISMPSignatureVerifier aSignatureVerifier,
+                                       @Nullable final SMPCertificateCheckResultCache aCertificateCheckResultCache,
+                                       @Nullable final RevocationCheckPrefetcher aRevocationPrefetcher,
+                                       @Nullable final OfflineCRLSource aOfflineCRLSource)
+  {
+    ValueEnforcer.isArrayOfsLen (aBytes, nOfs, nLen);
+    ValueEnforcer.notNull (aTrustStore, "TrustStore");
+    ValueEnforcer.notNull (aSignatureVerifier, "SignatureVerifier");
+
+    final MessageDigest aMD;
+    try
+    {
+      aMD = MessageDigest.getInstance ("SHA-256");
+    }
+    catch (final NoSuchAlgorithmException ex)
+    {
+      throw new IllegalStateException ("SHA-256 is not supported", ex);
+    }
+    aMD.update (aBytes, nOfs, nLen);
+
+    final ERevocationCheckMode eRealRevocationCheckMode = eRevocationCheckMode != null ? eRevocationCheckMode
+                                                                                       : CertificateRevocationCheckerDefaults.getRevocationCheckMode ();
+    return HEX.formatHex (aMD.digest ()) +
+           '|' +
+           _getObjectID (aTrustStore) +
+           '|' +
+           bSecureValidation +
+           '|' +
+           eRealRevocationCheckMode.name () +
+           '|' +
+           bAllowRevocationSoftFail +
+           '|' +
+           _getObjectID (aSignatureVerifier) +
+           '|' +
+           _getObjectID (aCertificateCheckResultCache) +
+           '|' +
+           _getObjectID (aRevocationPrefetcher) +
+           '|' +
+           _getObjectID (aOfflineCRLSource);
+  }
+
+  /**
+   * Check if a response with the provided cache key was already verified successfully.
+   *
+   * @param sCacheKey
+   *        The cache key as created by {@link #createCacheKey}. May not be <code>null</code>.
+   * @return <code>true</code> if it was verified successfully and the entry is not yet expired.
+   */
+  public boolean isVerified (@NonNull @Nonempty final String sCacheKey)
+  {
+    final boolean bVerified = m_aCache.getFromCache (sCacheKey) != null;
+    if (bVerified)
+      m_aHitCount.incrementAndGet ();
+    else
+      m_aMissCount.incrementAndGet ();
+    return bVerified;
+  }
+
+  /**
+   * Remember a successful verification.
+   *
+   * @param sCacheKey
+   *        The cache key as created by {@link #createCacheKey}. May not be <code>null</code>.
+   */
+  public void putVerified (@NonNull @Nonempty final String sCacheKey)
+  {
+    m_aCache.putInCache (sCacheKey, Boolean.TRUE);
+  }
+
+  /**
+   * @return The number of cache entries, including expired ones that were not yet removed.
+   */
+  @Nonnegative
+  public int size ()
+  {
+    return m_aCache.size ();
+  }
+
+  /**
+   * @return The number of cache hits.
+   */
+  @Nonnegative
+  public long getHitCount ()
+  {
+    return m_aHitCount.get ();
+  }
+
+  /**
+   * @return The number of cache misses.
+   */
+  @Nonnegative
+  public long getMissCount ()
+  {
+    return m_aMissCount.get ();
+  }
+
+  /**
+   * Remove all entries.
+   */
+  public void clear ()
+  {
+    m_aCache.clearCache ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Cache", m_aCache)
+                                       .append ("HitCount", m_aHitCount.get ())
+                                       .append ("MissCount", m_aMissCount.get ())
+                                       .getToString ();
+  }
+}
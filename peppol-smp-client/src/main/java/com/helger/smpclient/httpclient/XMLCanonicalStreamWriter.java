@@ -0,0 +1,508 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.httpclient;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.xml.XMLConstants;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.NotThreadSafe;
+import com.helger.annotation.style.ReturnsMutableObject;
+
+/**
+ * A minimal streaming implementation of Canonical XML 1.0 and Exclusive XML Canonicalization 1.0
+ * (both without comments) that is fed with parser events and writes the UTF-8 encoded canonical
+ * form into an internal buffer. It is only meant to be used by {@link SMPSignatureVerifierStAX} and
+ * relies on the caller to pass a complete document or a complete sub tree (the "apex" element and
+ * all its descendants). Comments are never passed in, so they are never part of the output.
+ *
+ * @author Philip Helger
+ * @since 12.8.2
+ */
+@NotThreadSafe
+final class XMLCanonicalStreamWriter
+{
+  /**
+   * A single attribute as passed in by the parser.
+   *
+   * @author Philip Helger
+   */
+  static final class Attr
+  {
+    private final String m_sPrefix;
+    private final String m_sLocalName;
+    private final String m_sNamespaceURI;
+    private final String m_sValue;
+
+    Attr (@NonNull final String sPrefix,
+          @NonNull final String sLocalName,
+          @NonNull final String sNamespaceURI,
+          @NonNull final String sValue)
+    {
+      m_sPrefix = sPrefix;
+      m_sLocalName = sLocalName;
+      m_sNamespaceURI = sNamespaceURI;
+      m_sValue = sValue;
+    }
+
+    @NonNull
+    String getNamespaceURI ()
+    {
+      return m_sNamespaceURI;
+    }
+
+    @NonNull
+    String getLocalName ()
+    {
+      return m_sLocalName;
+    }
+
+    boolean isXMLAttribute ()
+    {
+      return XMLConstants.XML_NS_URI.equals (m_sNamespaceURI);
+    }
+  }
+
+  // Attributes are sorted by namespace URI (no namespace first) and then by local name
+  private static final Comparator <Attr> ATTR_COMPARATOR = Comparator.comparing (Attr::getNamespaceURI)
+                                                                     .thenComparing (Attr::getLocalName);
+
+  private final boolean m_bExclusive;
+  // All namespaces in scope - prefix to URI; the default namespace uses the empty prefix
+  private final Deque <Map <String, String>> m_aInScope = new ArrayDeque <> ();
+  // All namespaces rendered in the output ancestors
+  private final Deque <Map <String, String>> m_aRendered = new ArrayDeque <> ();
+  // The xml:* attributes in scope - only needed for inclusive canonicalization of sub trees
+  private final Deque <List <Attr>> m_aXMLAttrs = new ArrayDeque <> ();
+  private final Deque <String> m_aQNames = new ArrayDeque <> ();
+  private boolean m_bRootClosed;
+  private byte [] m_aBuf = new byte [4096];
+  private int m_nLen;
+
+  /**
+   * Constructor to canonicalize a complete document.
+   *
+   * @param bExclusive
+   *        <code>true</code> for Exclusive XML Canonicalization, <code>false</code> for Canonical
+   *        XML.
+   */
+  XMLCanonicalStreamWriter (final boolean bExclusive)
+  {
+    this (bExclusive, Collections.emptyMap (), Collections.emptyList ());
+  }
+
+  /**
+   * Constructor to canonicalize a sub tree.
+   *
+   * @param bExclusive
+   *        <code>true</code> for Exclusive XML Canonicalization, <code>false</code> for Canonical
+   *        XML.
+   * @param aContextNamespaces
+   *        All namespaces in scope of the parent of the apex element. May not be <code>null</code>.
+   * @param aContextXMLAttrs
+   *        All xml:* attributes in scope of the parent of the apex element. May not be
+   *        <code>null</code>.
+   */
+  XMLCanonicalStreamWriter (final boolean bExclusive,
+                            @NonNull final Map <String, String> aContextNamespaces,
+                            @NonNull final List <Attr> aContextXMLAttrs)
+  {
+    m_bExclusive = bExclusive;
+    m_aInScope.push (aContextNamespaces);
+    m_aRendered.push (Collections.emptyMap ());
+    m_aXMLAttrs.push (aContextXMLAttrs);
+  }
+
+  /**
+   * @return All namespaces in scope of the current element. Never <code>null</code>. Must not be
+   *         modified.
+   */
+  @NonNull
+  Map <String, String> getInScopeNamespaces ()
+  {
+    return m_aInScope.peek ();
+  }
+
+  /**
+   * @return All xml:* attributes in scope of the current element. Never <code>null</code>. Must not
+   *         be modified.
+   */
+  @NonNull
+  List <Attr> getInScopeXMLAttributes ()
+  {
+    return m_aXMLAttrs.peek ();
+  }
+
+  @NonNull
+  @ReturnsMutableObject
+  byte [] getBuffer ()
+  {
+    return m_aBuf;
+  }
+
+  @Nonnegative
+  int getLength ()
+  {
+    return m_nLen;
+  }
+
+  private void _ensureCapacity (final int nAdditional)
+  {
+    if (m_nLen + nAdditional > m_aBuf.length)
+      m_aBuf = Arrays.copyOf (m_aBuf, Math.max (m_aBuf.length * 2, m_nLen + nAdditional));
+  }
+
+  private void _writeASCII (@NonNull final String s)
+  {
+    final int nLen = s.length ();
+    _ensureCapacity (nLen);
+    for (int i = 0; i < nLen; ++i)
+      m_aBuf[m_nLen++] = (byte) s.charAt (i);
+  }
+
+  private void _writeASCII (final char c)
+  {
+    _ensureCapacity (1);
+    m_aBuf[m_nLen++] = (byte) c;
+  }
+
+  private void _writeCodePoint (final int c)
+  {
+    _ensureCapacity (4);
+    if (c < 0x80)
+      m_aBuf[m_nLen++] = (byte) c;
+    else
+      if (c < 0x800)
+      {
+        m_aBuf[m_nLen++] = (byte) (0xc0 | (c >> 6));
+        m_aBuf[m_nLen++] = (byte) (0x80 | (c & 0x3f));
+      }
+      else
+        if (c < 0x10000)
+        {
+          m_aBuf[m_nLen++] = (byte) (0xe0 | (c >> 12));
+          m_aBuf[m_nLen++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+          m_aBuf[m_nLen++] = (byte) (0x80 | (c & 0x3f));
+        }
+        else
+        {
+          m_aBuf[m_nLen++] = (byte) (0xf0 | (c >> 18));
+          m_aBuf[m_nLen++] = (byte) (0x80 | ((c >> 12) & 0x3f));
+          m_aBuf[m_nLen++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+          m_aBuf[m_nLen++] = (byte) (0x80 | (c & 0x3f));
+        }
+  }
+
+  private void _writeEscaped (@NonNull final String s, final boolean bAttrValue)
+  {
+    final int nLen = s.length ();
+    int i = 0;
+    while (i < nLen)
+    {
+      final int c = s.codePointAt (i);
+      i += Character.charCount (c);
+      switch (c)
+      {
+        case '&':
+          _writeASCII ("&amp;");
+          break;
+        case '<':
+          _writeASCII ("&lt;");
+          break;
+        case '>':
+          if (bAttrValue)
+            _writeASCII ('>');
+          else
+            _writeASCII ("&gt;");
+          break;
+        case '"':
+          if (bAttrValue)
+            _writeASCII ("&quot;");
+          else
+            _writeASCII ('"');
+          break;
+        case '\t':
+          if (bAttrValue)
+            _writeASCII ("&#x9;");
+          else
+            _writeASCII ('\t');
+          break;
+        case '\n':
+          if (bAttrValue)
+            _writeASCII ("&#xA;");
+          else
+            _writeASCII ('\n');
+          break;
+        case '\r':
+          _writeASCII ("&#xD;");
+          break;
+        default:
+          _writeCodePoint (c);
+          break;
+      }
+    }
+  }
+
+  private void _writeRaw (@NonNull final String s)
+  {
+    final int nLen = s.length ();
+    int i = 0;
+    while (i < nLen)
+    {
+      final int c = s.codePointAt (i);
+      i += Character.charCount (c);
+      _writeCodePoint (c);
+    }
+  }
+
+  private static boolean _needsRendering (@NonNull final String sPrefix,
+                                          @NonNull final String sURI,
+                                          @NonNull final Map <String, String> aParentRendered)
+  {
+    final String sRendered = aParentRendered.get (sPrefix);
+    if (sURI.isEmpty ())
+    {
+      // xmlns="" is only needed, if a non-empty default namespace is in the output scope
+      return sPrefix.isEmpty () && sRendered != null && !sRendered.isEmpty ();
+    }
+    return !sURI.equals (sRendered);
+  }
+
+  /**
+   * Start an element.
+   *
+   * @param sPrefix
+   *        The element prefix. Empty string for no prefix.
+   * @param sLocalName
+   *        The element local name.
+   * @param aAttrs
+   *        All attributes of the element, excluding the namespace declarations.
+   * @param aDeclaredNamespaces
+   *        All namespaces declared on this element. The default namespace uses the empty prefix.
+   */
+  void startElement (@NonNull final String sPrefix,
+                     @NonNull final String sLocalName,
+                     @NonNull final List <Attr> aAttrs,
+                     @NonNull final Map <String, String> aDeclaredNamespaces)
+  {
+    final boolean bApex = m_aQNames.isEmpty ();
+    final Map <String, String> aParentInScope = m_aInScope.peek ();
+    final Map <String, String> aParentRendered = m_aRendered.peek ();
+
+    final Map <String, String> aInScope;
+    if (aDeclaredNamespaces.isEmpty ())
+      aInScope = aParentInScope;
+    else
+    {
+      aInScope = new HashMap <> (aParentInScope);
+      aInScope.putAll (aDeclaredNamespaces);
+    }
+
+    // Determine the namespace declarations to be rendered, sorted by prefix
+    Map <String, String> aToRender = null;
+    if (m_bExclusive)
+    {
+      // Only the visibly utilized namespaces
+      final List <String> aUtilized = new ArrayList <> (1 + aAttrs.size ());
+      aUtilized.add (sPrefix);
+      for (final Attr aAttr : aAttrs)
+        if (!aAttr.m_sPrefix.isEmpty () && !aAttr.isXMLAttribute ())
+          aUtilized.add (aAttr.m_sPrefix);
+      for (final String sUtilizedPrefix : aUtilized)
+      {
+        final String sURI = aInScope.getOrDefault (sUtilizedPrefix, "");
+        if (_needsRendering (sUtilizedPrefix, sURI, aParentRendered))
+        {
+          if (aToRender == null)
+            aToRender = new TreeMap <> ();
+          aToRender.put (sUtilizedPrefix, sURI);
+        }
+      }
+    }
+    else
+    {
+      // All namespaces in scope. Below the apex only the declared ones can differ from the rendered
+      // ones of the parent
+      for (final Map.Entry <String, String> aEntry : (bApex ? aInScope : aDeclaredNamespaces).entrySet ())
+        if (_needsRendering (aEntry.getKey (), aEntry.getValue (), aParentRendered))
+        {
+          if (aToRender == null)
+            aToRender = new TreeMap <> ();
+          aToRender.put (aEntry.getKey (), aEntry.getValue ());
+        }
+    }
+
+    final Map <String, String> aRendered;
+    if (aToRender == null)
+      aRendered = aParentRendered;
+    else
+    {
+      aRendered = new HashMap <> (aParentRendered);
+      aRendered.putAll (aToRender);
+    }
+
+    // Remember the xml:* attributes in scope
+    List <Attr> aXMLAttrs = m_aXMLAttrs.peek ();
+    List <Attr> aAllAttrs = aAttrs;
+    if (!m_bExclusive)
+    {
+      List <Attr> aOwnXMLAttrs = null;
+      for (final Attr aAttr : aAttrs)
+        if (aAttr.isXMLAttribute ())
+        {
+          if (aOwnXMLAttrs == null)
+            aOwnXMLAttrs = new ArrayList <> ();
+          aOwnXMLAttrs.add (aAttr);
+        }
+
+      if (bApex && !aXMLAttrs.isEmpty ())
+      {
+        // Inclusive canonicalization of a sub tree: inherit the xml:* attributes of the ancestors
+        aAllAttrs = new ArrayList <> (aAttrs);
+        for (final Attr aXMLAttr : aXMLAttrs)
+          if (aOwnXMLAttrs == null || aOwnXMLAttrs.stream ().noneMatch (x -> x.m_sLocalName.equals (aXMLAttr.m_sLocalName)))
+            aAllAttrs.add (aXMLAttr);
+      }
+
+      if (aOwnXMLAttrs != null)
+      {
+        final List <Attr> aMerged = new ArrayList <> (aOwnXMLAttrs);
+        for (final Attr aXMLAttr : aXMLAttrs)
+          if (aOwnXMLAttrs.stream ().noneMatch (x -> x.m_sLocalName.equals (aXMLAttr.m_sLocalName)))
+            aMerged.add (aXMLAttr);
+        aXMLAttrs = aMerged;
+      }
+    }
+
+    m_aInScope.push (aInScope);
+    m_aRendered.push (aRendered);
+    m_aXMLAttrs.push (aXMLAttrs);
+
+    final String sQName = sPrefix.isEmpty () ? sLocalName : sPrefix + ':' + sLocalName;
+    m_aQNames.push (sQName);
+
+    _writeASCII ('<');
+    _writeRaw (sQName);
+    if (aToRender != null)
+      for (final Map.Entry <String, String> aEntry : aToRender.entrySet ())
+      {
+        if (aEntry.getKey ().isEmpty ())
+          _writeASCII (" xmlns=\"");
+        else
+        {
+          _writeASCII (" xmlns:");
+          _writeRaw (aEntry.getKey ());
+          _writeASCII ("=\"");
+        }
+        _writeEscaped (aEntry.getValue (), true);
+        _writeASCII ('"');
+      }
+
+    if (!aAllAttrs.isEmpty ())
+    {
+      final List <Attr> aSortedAttrs;
+      if (aAllAttrs.size () == 1)
+        aSortedAttrs = aAllAttrs;
+      else
+      {
+        aSortedAttrs = new ArrayList <> (aAllAttrs);
+        aSortedAttrs.sort (ATTR_COMPARATOR);
+      }
+      for (final Attr aAttr : aSortedAttrs)
+      {
+        _writeASCII (' ');
+        if (!aAttr.m_sPrefix.isEmpty ())
+        {
+          _writeRaw (aAttr.m_sPrefix);
+          _writeASCII (':');
+        }
+        _writeRaw (aAttr.m_sLocalName);
+        _writeASCII ("=\"");
+        _writeEscaped (aAttr.m_sValue, true);
+        _writeASCII ('"');
+      }
+    }
+    _writeASCII ('>');
+  }
+
+  /**
+   * End the current element.
+   */
+  void endElement ()
+  {
+    m_aInScope.pop ();
+    m_aRendered.pop ();
+    m_aXMLAttrs.pop ();
+
+    final String sQName = m_aQNames.pop ();
+    _writeASCII ("</");
+    _writeRaw (sQName);
+    _writeASCII ('>');
+    if (m_aQNames.isEmpty ())
+      m_bRootClosed = true;
+  }
+
+  /**
+   * Write text content. Text outside of the document element is ignored.
+   *
+   * @param sText
+   *        The text to write. May be <code>null</code>.
+   */
+  void text (@Nullable final String sText)
+  {
+    if (sText != null && !m_aQNames.isEmpty ())
+      _writeEscaped (sText, false);
+  }
+
+  /**
+   * Write a processing instruction.
+   *
+   * @param sTarget
+   *        The PI target. May not be <code>null</code>.
+   * @param sData
+   *        The PI data. May be <code>null</code>.
+   */
+  void processingInstruction (@NonNull final String sTarget, @Nullable final String sData)
+  {
+    final boolean bOutside = m_aQNames.isEmpty ();
+    if (bOutside && m_bRootClosed)
+      _writeASCII ('\n');
+    _writeASCII ("<?");
+    _writeRaw (sTarget);
+    if (sData != null && !sData.isEmpty ())
+    {
+      _writeASCII (' ');
+      _writeRaw (sData);
+    }
+    _writeASCII ("?>");
+    if (bOutside && !m_bRootClosed)
+      _writeASCII ('\n');
+  }
+}
@@ -29,6 +29,7 @@ import com.helger.peppol.sml.ISMLInfo;
 import com.helger.peppolid.IDocumentTypeIdentifier;
 import com.helger.peppolid.IParticipantIdentifier;
 import com.helger.smpclient.exception.SMPClientException;
+import com.helger.smpclient.exception.SMPClientSMPUnavailableException;
 import com.helger.smpclient.redirect.ISMPFollowRedirectCallback;
 import com.helger.smpclient.url.ISMPURLProvider;
 import com.helger.smpclient.url.SMPDNSResolutionException;
@@ -58,6 +59,9 @@ import com.helger.xsds.peppol.smp1.SignedServiceMetadataType;
  * </p>
  * <ul>
  * <li>Exceptions (failures) are NOT cached — only successful responses are stored.</li>
+ * <li>If the cache keeps stale entries (see {@link SMPClientCache#isStaleEnabled()}) and the SMP is
+ * unavailable (see {@link SMPClientSMPUnavailableException}), an expired entry is returned instead
+ * of the exception.</li>
  * <li>The {@link ISMPFollowRedirectCallback} will NOT be invoked on cache hits for
  * {@link #getServiceMetadata(IParticipantIdentifier, IDocumentTypeIdentifier, ISMPFollowRedirectCallback)}.</li>
  * <li>The cached JAXB objects are mutable. Callers should NOT modify the returned objects, as
@@ -178,7 +182,24 @@ public class CachingSMPClientReadOnly extends SMPClientReadOnly
                     sSMPHostURI +
                     "' - fetching from SMP");
 
-    final ServiceGroupType ret = super.getServiceGroup (aServiceGroupID);
+    final ServiceGroupType ret;
+    try
+    {
+      ret = super.getServiceGroup (aServiceGroupID);
+    }
+    catch (final SMPClientSMPUnavailableException ex)
+    {
+      // SMP is down (or the circuit breaker is open) - try a stale entry
+      final ServiceGroupType aStale = aCache.getStaleServiceGroup (sSMPHostURI, aServiceGroupID);
+      if (aStale == null)
+        throw ex;
+      LOGGER.warn ("SMP '" +
+                   sSMPHostURI +
+                   "' is unavailable - serving stale ServiceGroup '" +
+                   aServiceGroupID.getURIEncoded () +
+                   "'");
+      return aStale;
+    }
 
     // Store in cache (only on success)
     aCache.putServiceGroup (sSMPHostURI, aServiceGroupID, ret);
@@ -224,9 +245,28 @@ public class CachingSMPClientReadOnly extends SMPClientReadOnly
                     sSMPHostURI +
                     "' - fetching from SMP");
 
-    final SignedServiceMetadataType ret = super.getServiceMetadata (aServiceGroupID,
-                                                                    aDocumentTypeID,
-                                                                    aFollowRedirectCallback);
+    final SignedServiceMetadataType ret;
+    try
+    {
+      ret = super.getServiceMetadata (aServiceGroupID, aDocumentTypeID, aFollowRedirectCallback);
+    }
+    catch (final SMPClientSMPUnavailableException ex)
+    {
+      // SMP is down (or the circuit breaker is open) - try a stale entry
+      final SignedServiceMetadataType aStale = aCache.getStaleServiceMetadata (sSMPHostURI,
+                                                                               aServiceGroupID,
+                                                                               aDocumentTypeID);
+      if (aStale == null)
+        throw ex;
+      LOGGER.warn ("SMP '" +
+                   sSMPHostURI +
+                   "' is unavailable - serving stale ServiceMetadata '" +
+                   aServiceGroupID.getURIEncoded () +
+                   "' / '" +
+                   aDocumentTypeID.getURIEncoded () +
+                   "'");
+      return aStale;
+    }
 
     // Store in cache (only on success)
     aCache.putServiceMetadata (sSMPHostURI, aServiceGroupID, aDocumentTypeID, ret);
@@ -76,6 +76,18 @@ public class SMPClientCache
   public static final String CACHE_NAME_SERVICE_GROUP = "peppol-smp-client$ServiceGroup";
   /** The statistics and log name of the internal Service Metadata cache */
   public static final String CACHE_NAME_SERVICE_METADATA = "peppol-smp-client$ServiceMetadata";
+  /**
+   * The statistics and log name of the internal stale Service Group cache
+   *
+   * @since 12.8.2
+   */
+  public static final String CACHE_NAME_STALE_SERVICE_GROUP = "peppol-smp-client$StaleServiceGroup";
+  /**
+   * The statistics and log name of the internal stale Service Metadata cache
+   *
+   * @since 12.8.2
+   */
+  public static final String CACHE_NAME_STALE_SERVICE_METADATA = "peppol-smp-client$StaleServiceMetadata";
 
   private static final Logger LOGGER = LoggerFactory.getLogger (SMPClientCache.class);
 
@@ -85,6 +97,9 @@ public class SMPClientCache
 
   private final ManualCache <String, ServiceGroupType> m_aServiceGroupCache;
   private final ManualCache <String, SignedServiceMetadataType> m_aServiceMetadataCache;
+  // Both null if stale serving is disabled
+  private final ManualCache <String, ServiceGroupType> m_aStaleServiceGroupCache;
+  private final ManualCache <String, SignedServiceMetadataType> m_aStaleServiceMetadataCache;
 
   /**
    * Constructor using {@link #DEFAULT_CACHE_TTL} and {@link #DEFAULT_MAX_SIZE}.
@@ -125,10 +140,38 @@ public class SMPClientCache
   public SMPClientCache (@NonNull final Duration aCacheTTL,
                          @CheckForSigned final int nMaxSize,
                          @Nullable final Duration aEvictionInterval)
+  {
+    this (aCacheTTL, nMaxSize, aEvictionInterval, null);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param aCacheTTL
+   *        The time to live of each cache entry. May not be <code>null</code> and must be positive.
+   * @param nMaxSize
+   *        The maximum number of entries of each of the internal caches. All values &le; 0 indicate
+   *        an unlimited size.
+   * @param aEvictionInterval
+   *        The interval in which expired entries are actively removed by the shared eviction
+   *        scheduler thread. May be <code>null</code>, zero or negative to disable background
+   *        eviction.
+   * @param aStaleTTL
+   *        The time after writing, until which an entry may be served as a stale entry, if the SMP
+   *        is unavailable. May be <code>null</code> to disable stale entries. If provided, it must
+   *        be longer than the cache TTL.
+   * @since 12.8.2
+   */
+  public SMPClientCache (@NonNull final Duration aCacheTTL,
+                         @CheckForSigned final int nMaxSize,
+                         @Nullable final Duration aEvictionInterval,
+                         @Nullable final Duration aStaleTTL)
   {
     ValueEnforcer.notNull (aCacheTTL, "CacheTTL");
     ValueEnforcer.isTrue (() -> !aCacheTTL.isZero () && !aCacheTTL.isNegative (),
                           "CacheTTL must be a positive Duration");
+    if (aStaleTTL != null)
+      ValueEnforcer.isTrue (() -> aStaleTTL.compareTo (aCacheTTL) > 0, "StaleTTL must be longer than the CacheTTL");
 
     m_aServiceGroupCache = ManualCache.<String, ServiceGroupType> builder ()
                                       .name (CACHE_NAME_SERVICE_GROUP)
@@ -142,6 +185,26 @@ public class SMPClientCache
                                          .expireAfterWrite (aCacheTTL)
                                          .evictionInterval (aEvictionInterval)
                                          .build ();
+    if (aStaleTTL != null)
+    {
+      m_aStaleServiceGroupCache = ManualCache.<String, ServiceGroupType> builder ()
+                                             .name (CACHE_NAME_STALE_SERVICE_GROUP)
+                                             .maxSize (nMaxSize)
+                                             .expireAfterWrite (aStaleTTL)
+                                             .evictionInterval (aEvictionInterval)
+                                             .build ();
+      m_aStaleServiceMetadataCache = ManualCache.<String, SignedServiceMetadataType> builder ()
+                                                .name (CACHE_NAME_STALE_SERVICE_METADATA)
+                                                .maxSize (nMaxSize)
+                                                .expireAfterWrite (aStaleTTL)
+                                                .evictionInterval (aEvictionInterval)
+                                                .build ();
+    }
+    else
+    {
+      m_aStaleServiceGroupCache = null;
+      m_aStaleServiceMetadataCache = null;
+    }
   }
 
   /**
@@ -165,6 +228,27 @@ public class SMPClientCache
     return m_aServiceGroupCache.getMaxSize ();
   }
 
+  /**
+   * @return <code>true</code> if stale entries are kept, so that they can be served if the SMP is
+   *         unavailable.
+   * @since 12.8.2
+   */
+  public final boolean isStaleEnabled ()
+  {
+    return m_aStaleServiceGroupCache != null;
+  }
+
+  /**
+   * @return The time after writing, until which an entry may be served as a stale entry. May be
+   *         <code>null</code> if stale entries are disabled.
+   * @since 12.8.2
+   */
+  @Nullable
+  public final Duration getStaleTTL ()
+  {
+    return m_aStaleServiceGroupCache == null ? null : m_aStaleServiceGroupCache.getTimeToLive ();
+  }
+
   /**
    * Create the cache key of a Service Group. Peppol participant identifiers are case insensitive,
    * so they are unified to lowercase.
@@ -257,7 +341,31 @@ public class SMPClientCache
   {
     ValueEnforcer.notNull (aServiceGroup, "ServiceGroup");
 
-    m_aServiceGroupCache.putInCache (createServiceGroupCacheKey (sSMPHostURI, aServiceGroupID), aServiceGroup);
+    final String sKey = createServiceGroupCacheKey (sSMPHostURI, aServiceGroupID);
+    m_aServiceGroupCache.putInCache (sKey, aServiceGroup);
+    if (m_aStaleServiceGroupCache != null)
+      m_aStaleServiceGroupCache.putInCache (sKey, aServiceGroup);
+  }
+
+  /**
+   * Get the Service Group of the provided participant, even if the regular cache entry is already
+   * expired. This is meant to be used only if the SMP is unavailable.
+   *
+   * @param sSMPHostURI
+   *        The SMP host URI the query is performed on. May neither be <code>null</code> nor empty.
+   * @param aServiceGroupID
+   *        The participant identifier to be queried. May not be <code>null</code>.
+   * @return <code>null</code> if stale entries are disabled, if the object is not in the cache or
+   *         if the stale TTL is exceeded.
+   * @since 12.8.2
+   */
+  @Nullable
+  public ServiceGroupType getStaleServiceGroup (@NonNull @Nonempty final String sSMPHostURI,
+                                                @NonNull final IParticipantIdentifier aServiceGroupID)
+  {
+    if (m_aStaleServiceGroupCache == null)
+      return null;
+    return m_aStaleServiceGroupCache.getFromCache (createServiceGroupCacheKey (sSMPHostURI, aServiceGroupID));
   }
 
   /**
@@ -300,8 +408,36 @@ public class SMPClientCache
   {
     ValueEnforcer.notNull (aServiceMetadata, "ServiceMetadata");
 
-    m_aServiceMetadataCache.putInCache (createServiceMetadataCacheKey (sSMPHostURI, aServiceGroupID, aDocumentTypeID),
-                                        aServiceMetadata);
+    final String sKey = createServiceMetadataCacheKey (sSMPHostURI, aServiceGroupID, aDocumentTypeID);
+    m_aServiceMetadataCache.putInCache (sKey, aServiceMetadata);
+    if (m_aStaleServiceMetadataCache != null)
+      m_aStaleServiceMetadataCache.putInCache (sKey, aServiceMetadata);
+  }
+
+  /**
+   * Get the Service Metadata of the provided participant and document type, even if the regular
+   * cache entry is already expired. This is meant to be used only if the SMP is unavailable.
+   *
+   * @param sSMPHostURI
+   *        The SMP host URI the query is performed on. May neither be <code>null</code> nor empty.
+   * @param aServiceGroupID
+   *        The participant identifier to be queried. May not be <code>null</code>.
+   * @param aDocumentTypeID
+   *        The document type identifier to be queried. May not be <code>null</code>.
+   * @return <code>null</code> if stale entries are disabled, if the object is not in the cache or
+   *         if the stale TTL is exceeded.
+   * @since 12.8.2
+   */
+  @Nullable
+  public SignedServiceMetadataType getStaleServiceMetadata (@NonNull @Nonempty final String sSMPHostURI,
+                                                            @NonNull final IParticipantIdentifier aServiceGroupID,
+                                                            @NonNull final IDocumentTypeIdentifier aDocumentTypeID)
+  {
+    if (m_aStaleServiceMetadataCache == null)
+      return null;
+    return m_aStaleServiceMetadataCache.getFromCache (createServiceMetadataCacheKey (sSMPHostURI,
+                                                                                     aServiceGroupID,
+                                                                                     aDocumentTypeID));
   }
 
   /**
@@ -317,7 +453,10 @@ public class SMPClientCache
   public EChange removeServiceGroup (@NonNull @Nonempty final String sSMPHostURI,
                                      @NonNull final IParticipantIdentifier aServiceGroupID)
   {
-    return m_aServiceGroupCache.removeFromCache (createServiceGroupCacheKey (sSMPHostURI, aServiceGroupID));
+    final String sKey = createServiceGroupCacheKey (sSMPHostURI, aServiceGroupID);
+    if (m_aStaleServiceGroupCache != null)
+      m_aStaleServiceGroupCache.removeFromCache (sKey);
+    return m_aServiceGroupCache.removeFromCache (sKey);
   }
 
   /**
@@ -337,9 +476,10 @@ public class SMPClientCache
                                         @NonNull final IParticipantIdentifier aServiceGroupID,
                                         @NonNull final IDocumentTypeIdentifier aDocumentTypeID)
   {
-    return m_aServiceMetadataCache.removeFromCache (createServiceMetadataCacheKey (sSMPHostURI,
-                                                                                   aServiceGroupID,
-                                                                                   aDocumentTypeID));
+    final String sKey = createServiceMetadataCacheKey (sSMPHostURI, aServiceGroupID, aDocumentTypeID);
+    if (m_aStaleServiceMetadataCache != null)
+      m_aStaleServiceMetadataCache.removeFromCache (sKey);
+    return m_aServiceMetadataCache.removeFromCache (sKey);
   }
 
   /**
@@ -359,6 +499,8 @@ public class SMPClientCache
     final String sPrefix = _createServiceMetadataCacheKeyPrefix (sSMPHostURI, aServiceGroupID);
     // Note: a participant identifier that itself contains "$$" could theoretically lead to the
     // removal of another participants entry - the only effect of that is an unnecessary SMP query
+    if (m_aStaleServiceMetadataCache != null)
+      m_aStaleServiceMetadataCache.removeFromCacheIf (x -> x.startsWith (sPrefix));
     return m_aServiceMetadataCache.removeFromCacheIf (x -> x.startsWith (sPrefix));
   }
 
@@ -374,6 +516,11 @@ public class SMPClientCache
   {
     ValueEnforcer.notEmpty (sSMPHostURI, "SMPHostURI");
 
+    if (m_aStaleServiceGroupCache != null)
+    {
+      m_aStaleServiceGroupCache.removeFromCacheIf (x -> x.startsWith (sSMPHostURI));
+      m_aStaleServiceMetadataCache.removeFromCacheIf (x -> x.startsWith (sSMPHostURI));
+    }
     return m_aServiceGroupCache.removeFromCacheIf (x -> x.startsWith (sSMPHostURI)) +
            m_aServiceMetadataCache.removeFromCacheIf (x -> x.startsWith (sSMPHostURI));
   }
@@ -385,6 +532,11 @@ public class SMPClientCache
   {
     m_aServiceGroupCache.clearCache ();
     m_aServiceMetadataCache.clearCache ();
+    if (m_aStaleServiceGroupCache != null)
+    {
+      m_aStaleServiceGroupCache.clearCache ();
+      m_aStaleServiceMetadataCache.clearCache ();
+    }
     if (LOGGER.isDebugEnabled ())
       LOGGER.debug ("Cleared all SMP client caches");
   }
@@ -398,6 +550,11 @@ public class SMPClientCache
   @Nonnegative
   public int evictExpired ()
   {
+    if (m_aStaleServiceGroupCache != null)
+    {
+      m_aStaleServiceGroupCache.evictExpired ();
+      m_aStaleServiceMetadataCache.evictExpired ();
+    }
     return m_aServiceGroupCache.evictExpired () + m_aServiceMetadataCache.evictExpired ();
   }
 
@@ -426,6 +583,8 @@ public class SMPClientCache
   {
     return new ToStringGenerator (this).append ("ServiceGroupCache", m_aServiceGroupCache)
                                        .append ("ServiceMetadataCache", m_aServiceMetadataCache)
+                                       .appendIfNotNull ("StaleServiceGroupCache", m_aStaleServiceGroupCache)
+                                       .appendIfNotNull ("StaleServiceMetadataCache", m_aStaleServiceMetadataCache)
                                        .getToString ();
   }
 
@@ -173,7 +173,8 @@ public class SMPClientReadOnly extends AbstractGenericSMPClient <SMPClientReadOn
     aMarshaller.setUseSchema (isXMLSchemaValidation ());
     customizeMarshaller (aMarshaller);
 
-    final ServiceGroupType ret = executeGenericRequest (aRequest, new SMPHttpResponseHandlerUnsigned <> (aMarshaller));
+    final ServiceGroupType ret = executeGenericRequest (aRequest,
+                                                        configureResponseHandler (new SMPHttpResponseHandlerUnsigned <> (aMarshaller)));
 
     if (LOGGER.isDebugEnabled ())
       LOGGER.debug ("Received response: " + ret);
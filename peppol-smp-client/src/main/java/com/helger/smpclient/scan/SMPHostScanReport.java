@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.scan;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.annotation.style.ReturnsMutableCopy;
+import com.helger.base.tostring.ToStringGenerator;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+import com.helger.json.IJsonObject;
+import com.helger.json.JsonArray;
+import com.helger.json.JsonObject;
+import com.helger.json.serialize.JsonWriterSettings;
+
+/**
+ * The report of a complete scan by {@link SMPHostScanner}. It contains one {@link SMPHostScanResult}
+ * per target, in the order of the targets, and can be serialized as JSON.
+ *
+ * @author Philip Helger
+ * @since 12.8.2
+ */
+@Immutable
+public final class SMPHostScanReport
+{
+  public static final String JSON_SCAN_DATE_TIME = "scanDateTime";
+  public static final String JSON_DURATION_MILLIS = "durationMillis";
+  public static final String JSON_TOTAL_COUNT = "totalCount";
+  public static final String JSON_HEALTHY_COUNT = "healthyCount";
+  public static final String JSON_RESULTS = "results";
+
+  private final OffsetDateTime m_aScanDT;
+  private final Duration m_aDuration;
+  private final ICommonsList <SMPHostScanResult> m_aResults;
+
+  SMPHostScanReport (@NonNull final OffsetDateTime aScanDT,
+                     @NonNull final Duration aDuration,
+                     @NonNull final ICommonsList <SMPHostScanResult> aResults)
+  {
+    m_aScanDT = aScanDT;
+    m_aDuration = aDuration;
+    m_aResults = new CommonsArrayList <> (aResults);
+  }
+
+  /**
+   * @return The date and time when the scan was started. Never <code>null</code>.
+   */
+  @NonNull
+  public OffsetDateTime getScanDateTime ()
+  {
+    return m_aScanDT;
+  }
+
+  /**
+   * @return The wall clock duration of the complete scan. Never <code>null</code>.
+   */
+  @NonNull
+  public Duration getDuration ()
+  {
+    return m_aDuration;
+  }
+
+  /**
+   * @return All results in the order of the targets. Never <code>null</code>.
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  public ICommonsList <SMPHostScanResult> getAllResults ()
+  {
+    return m_aResults.getClone ();
+  }
+
+  /**
+   * @return All results of SMP hosts that are not healthy. Never <code>null</code>.
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  public ICommonsList <SMPHostScanResult> getAllUnhealthyResults ()
+  {
+    return m_aResults.getAll (x -> !x.isHealthy ());
+  }
+
+  /**
+   * @return The number of scanned targets.
+   */
+  @Nonnegative
+  public int getTotalCount ()
+  {
+    return m_aResults.size ();
+  }
+
+  /**
+   * @return The number of healthy targets.
+   */
+  @Nonnegative
+  public int getHealthyCount ()
+  {
+    return m_aResults.getCount (SMPHostScanResult::isHealthy);
+  }
+
+  /**
+   * @return This report as a JSON object. Never <code>null</code>.
+   */
+  @NonNull
+  public IJsonObject getAsJson ()
+  {
+    final IJsonObject ret = new JsonObject ();
+    ret.add (JSON_SCAN_DATE_TIME, m_aScanDT.toString ());
+    ret.add (JSON_DURATION_MILLIS, m_aDuration.toMillis ());
+    ret.add (JSON_TOTAL_COUNT, getTotalCount ());
+    ret.add (JSON_HEALTHY_COUNT, getHealthyCount ());
+    ret.add (JSON_RESULTS, new JsonArray ().addAllMapped (m_aResults, SMPHostScanResult::getAsJson));
+    return ret;
+  }
+
+  /**
+   * @return This report as a JSON string. Never <code>null</code>.
+   */
+  @NonNull
+  public String getAsJsonString ()
+  {
+    return getAsJson ().getAsJsonString (JsonWriterSettings.DEFAULT_SETTINGS);
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("ScanDateTime", m_aScanDT)
+                                       .append ("Duration", m_aDuration)
+                                       .append ("TotalCount", getTotalCount ())
+                                       .append ("HealthyCount", getHealthyCount ())
+                                       .getToString ();
+  }
+}
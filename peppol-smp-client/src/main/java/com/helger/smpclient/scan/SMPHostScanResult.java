@@ -0,0 +1,344 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.scan;
+
+import java.net.URI;
+import java.time.Duration;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.CheckForSigned;
+import com.helger.annotation.concurrent.NotThreadSafe;
+import com.helger.base.tostring.ToStringGenerator;
+import com.helger.json.IJsonObject;
+import com.helger.json.JsonObject;
+import com.helger.peppolid.IParticipantIdentifier;
+
+/**
+ * The result of probing a single SMP host with {@link SMPHostScanner}. All durations are
+ * <code>null</code> if the respective stage was not reached.
+ *
+ * @author Philip Helger
+ * @since 12.8.2
+ */
+@NotThreadSafe
+public final class SMPHostScanResult
+{
+  /**
+   * The outcome of the signature verification.
+   *
+   * @author Philip Helger
+   */
+  public enum ESignatureStatus
+  {
+    /** No signature verification was performed (no response or no trust store) */
+    NOT_CHECKED,
+    /** The response contains no signature (e.g. a Peppol SMP service group) */
+    NOT_SIGNED,
+    /** All signatures are valid */
+    VALID,
+    /** At least one signature is invalid */
+    INVALID;
+  }
+
+  public static final String JSON_SMP_HOST_URI = "smpHostURI";
+  public static final String JSON_PARTICIPANT_ID = "participantID";
+  public static final String JSON_REQUEST_URI = "requestURI";
+  public static final String JSON_NAPTR_MILLIS = "naptrMillis";
+  public static final String JSON_DNS_MILLIS = "dnsMillis";
+  public static final String JSON_CONNECT_MILLIS = "connectMillis";
+  public static final String JSON_FIRST_BYTE_MILLIS = "firstByteMillis";
+  public static final String JSON_TOTAL_MILLIS = "totalMillis";
+  public static final String JSON_SIGNATURE_MILLIS = "signatureMillis";
+  public static final String JSON_SIGNATURE_STATUS = "signatureStatus";
+  public static final String JSON_HTTP_STATUS = "httpStatus";
+  public static final String JSON_RESPONSE_BYTES = "responseBytes";
+  public static final String JSON_HEALTHY = "healthy";
+  public static final String JSON_ERROR = "error";
+
+  private final URI m_aSMPHostURI;
+  private final IParticipantIdentifier m_aParticipantID;
+  private String m_sRequestURI;
+  private Duration m_aNaptrDuration;
+  private Duration m_aDNSDuration;
+  private Duration m_aConnectDuration;
+  private Duration m_aFirstByteDuration;
+  private Duration m_aTotalDuration;
+  private Duration m_aSignatureDuration;
+  private ESignatureStatus m_eSignatureStatus = ESignatureStatus.NOT_CHECKED;
+  private int m_nHttpStatus = -1;
+  private long m_nResponseBytes = -1;
+  private String m_sError;
+
+  SMPHostScanResult (@Nullable final URI aSMPHostURI, @Nullable final IParticipantIdentifier aParticipantID)
+  {
+    m_aSMPHostURI = aSMPHostURI;
+    m_aParticipantID = aParticipantID;
+  }
+
+  /**
+   * @return The probed SMP host URI. May only be <code>null</code> if the SMP of a participant
+   *         could not be resolved.
+   */
+  @Nullable
+  public URI getSMPHostURI ()
+  {
+    return m_aSMPHostURI;
+  }
+
+  /**
+   * @return The participant ID that was used to resolve the SMP host. May be <code>null</code> if
+   *         the SMP host was provided directly.
+   */
+  @Nullable
+  public IParticipantIdentifier getParticipantID ()
+  {
+    return m_aParticipantID;
+  }
+
+  /**
+   * @return The URI of the GET request. May be <code>null</code>.
+   */
+  @Nullable
+  public String getRequestURI ()
+  {
+    return m_sRequestURI;
+  }
+
+  void setRequestURI (@Nullable final String s)
+  {
+    m_sRequestURI = s;
+  }
+
+  /**
+   * @return The duration of the NAPTR/CNAME lookup of the participant. Only present if the SMP was
+   *         resolved from a participant ID.
+   */
+  @Nullable
+  public Duration getNaptrDuration ()
+  {
+    return m_aNaptrDuration;
+  }
+
+  void setNaptrDuration (@Nullable final Duration a)
+  {
+    m_aNaptrDuration = a;
+  }
+
+  /**
+   * @return The duration of the host name resolution of the SMP host.
+   */
+  @Nullable
+  public Duration getDNSDuration ()
+  {
+    return m_aDNSDuration;
+  }
+
+  void setDNSDuration (@Nullable final Duration a)
+  {
+    m_aDNSDuration = a;
+  }
+
+  /**
+   * @return The duration of a plain TCP connect to the first resolved address of the SMP host. This
+   *         is measured with a separate socket before the GET request, so it excludes the TLS
+   *         handshake and is <code>null</code> if the SMP host cannot be reached directly (e.g.
+   *         only via a proxy).
+   */
+  @Nullable
+  public Duration getConnectDuration ()
+  {
+    return m_aConnectDuration;
+  }
+
+  void setConnectDuration (@Nullable final Duration a)
+  {
+    m_aConnectDuration = a;
+  }
+
+  /**
+   * @return The duration from sending the GET request until the response headers were received.
+   *         This includes the connection setup and the TLS handshake for https hosts, unless an
+   *         earlier request of the same scan already opened a connection to the same SMP host.
+   */
+  @Nullable
+  public Duration getFirstByteDuration ()
+  {
+    return m_aFirstByteDuration;
+  }
+
+  void setFirstByteDuration (@Nullable final Duration a)
+  {
+    m_aFirstByteDuration = a;
+  }
+
+  /**
+   * @return The duration from sending the GET request until the response body was read completely.
+   */
+  @Nullable
+  public Duration getTotalDuration ()
+  {
+    return m_aTotalDuration;
+  }
+
+  void setTotalDuration (@Nullable final Duration a)
+  {
+    m_aTotalDuration = a;
+  }
+
+  /**
+   * @return The duration of the XML signature verification. Only present if the response was
+   *         signed.
+   */
+  @Nullable
+  public Duration getSignatureDuration ()
+  {
+    return m_aSignatureDuration;
+  }
+
+  void setSignatureDuration (@Nullable final Duration a)
+  {
+    m_aSignatureDuration = a;
+  }
+
+  /**
+   * @return The outcome of the signature verification. Never <code>null</code>.
+   */
+  @NonNull
+  public ESignatureStatus getSignatureStatus ()
+  {
+    return m_eSignatureStatus;
+  }
+
+  void setSignatureStatus (@NonNull final ESignatureStatus e)
+  {
+    m_eSignatureStatus = e;
+  }
+
+  /**
+   * @return The HTTP status code of the response or -1 if no response was received.
+   */
+  @CheckForSigned
+  public int getHttpStatus ()
+  {
+    return m_nHttpStatus;
+  }
+
+  void setHttpStatus (final int n)
+  {
+    m_nHttpStatus = n;
+  }
+
+  /**
+   * @return The number of bytes of the response body or -1 if no response was received.
+   */
+  @CheckForSigned
+  public long getResponseBytes ()
+  {
+    return m_nResponseBytes;
+  }
+
+  void setResponseBytes (final long n)
+  {
+    m_nResponseBytes = n;
+  }
+
+  /**
+   * @return The error message if a stage failed. May be <code>null</code>.
+   */
+  @Nullable
+  public String getError ()
+  {
+    return m_sError;
+  }
+
+  void setError (@Nullable final String s)
+  {
+    m_sError = s;
+  }
+
+  /**
+   * @return <code>true</code> if the SMP host answered without a server error (HTTP status &lt;
+   *         500) and no signature was invalid. An HTTP 404 for an unknown participant is
+   *         considered healthy, as the SMP itself is working.
+   */
+  public boolean isHealthy ()
+  {
+    return m_sError == null &&
+           m_nHttpStatus >= 0 &&
+           m_nHttpStatus < 500 &&
+           m_eSignatureStatus != ESignatureStatus.INVALID;
+  }
+
+  private static void _addMillis (@NonNull final IJsonObject aJson,
+                                  @NonNull final String sName,
+                                  @Nullable final Duration aDuration)
+  {
+    if (aDuration != null)
+      aJson.add (sName, aDuration.toNanos () / 1_000_000d);
+  }
+
+  /**
+   * @return This result as a JSON object. Never <code>null</code>.
+   */
+  @NonNull
+  public IJsonObject getAsJson ()
+  {
+    final IJsonObject ret = new JsonObject ();
+    if (m_aSMPHostURI != null)
+      ret.add (JSON_SMP_HOST_URI, m_aSMPHostURI.toString ());
+    if (m_aParticipantID != null)
+      ret.add (JSON_PARTICIPANT_ID, m_aParticipantID.getURIEncoded ());
+    if (m_sRequestURI != null)
+      ret.add (JSON_REQUEST_URI, m_sRequestURI);
+    _addMillis (ret, JSON_NAPTR_MILLIS, m_aNaptrDuration);
+    _addMillis (ret, JSON_DNS_MILLIS, m_aDNSDuration);
+    _addMillis (ret, JSON_CONNECT_MILLIS, m_aConnectDuration);
+    _addMillis (ret, JSON_FIRST_BYTE_MILLIS, m_aFirstByteDuration);
+    _addMillis (ret, JSON_TOTAL_MILLIS, m_aTotalDuration);
+    _addMillis (ret, JSON_SIGNATURE_MILLIS, m_aSignatureDuration);
+    ret.add (JSON_SIGNATURE_STATUS, m_eSignatureStatus.name ());
+    if (m_nHttpStatus >= 0)
+      ret.add (JSON_HTTP_STATUS, m_nHttpStatus);
+    if (m_nResponseBytes >= 0)
+      ret.add (JSON_RESPONSE_BYTES, m_nResponseBytes);
+    ret.add (JSON_HEALTHY, isHealthy ());
+    if (m_sError != null)
+      ret.add (JSON_ERROR, m_sError);
+    return ret;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("SMPHostURI", m_aSMPHostURI)
+                                       .append ("ParticipantID", m_aParticipantID)
+                                       .append ("RequestURI", m_sRequestURI)
+                                       .append ("NaptrDuration", m_aNaptrDuration)
+                                       .append ("DNSDuration", m_aDNSDuration)
+                                       .append ("ConnectDuration", m_aConnectDuration)
+                                       .append ("FirstByteDuration", m_aFirstByteDuration)
+                                       .append ("TotalDuration", m_aTotalDuration)
+                                       .append ("SignatureDuration", m_aSignatureDuration)
+                                       .append ("SignatureStatus", m_eSignatureStatus)
+                                       .append ("HttpStatus", m_nHttpStatus)
+                                       .append ("ResponseBytes", m_nResponseBytes)
+                                       .appendIfNotNull ("Error", m_sError)
+                                       .getToString ();
+  }
+}
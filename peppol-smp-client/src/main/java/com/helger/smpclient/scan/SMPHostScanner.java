@@ -0,0 +1,519 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.scan;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.security.KeyStore;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import javax.xml.crypto.dsig.XMLSignature;
+
+import org.apache.hc.client5.http.ClientProtocolException;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.util.Timeout;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+
+import com.helger.annotation.CheckForSigned;
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.NotThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.tostring.ToStringGenerator;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+import com.helger.datetime.helper.PDTFactory;
+import com.helger.httpclient.HttpClientManager;
+import com.helger.peppol.sml.ISMLInfo;
+import com.helger.peppolid.IParticipantIdentifier;
+import com.helger.smpclient.config.SMPClientConfiguration;
+import com.helger.smpclient.exception.SMPClientBadResponseException;
+import com.helger.smpclient.httpclient.AbstractSMPResponseHandler;
+import com.helger.smpclient.httpclient.SMPHttpClientSettings;
+import com.helger.smpclient.httpclient.SMPHttpResponseHandlerSigned;
+import com.helger.smpclient.httpclient.SMPResponseBuffer;
+import com.helger.smpclient.scan.SMPHostScanResult.ESignatureStatus;
+import com.helger.smpclient.security.TrustStoreBasedX509KeySelector;
+import com.helger.smpclient.url.ISMPURLProvider;
+import com.helger.xml.serialize.read.DOMReader;
+
+/**
+ * A utility to get an overview of the health and latency of a set of SMP hosts. Each target is
+ * probed concurrently with a single GET request (the service group of the participant, or the SMP
+ * host URI itself). The following stages are measured separately:
+ * <ul>
+ * <li>NAPTR/CNAME lookup of the participant (only if the SMP is resolved from a participant)</li>
+ * <li>Host name resolution of the SMP host</li>
+ * <li>TCP connect to the SMP host</li>
+ * <li>Time to the first response byte and total time of the GET request</li>
+ * <li>XML signature verification, if the response is signed</li>
+ * </ul>
+ * The same {@link SMPHttpClientSettings} and trust store as for the SMP clients are used. All
+ * targets of a scan share one HTTP client, so if multiple targets are served by the same SMP host,
+ * only the first request to that host contains the connection setup (including the TLS handshake)
+ * in its time to the first byte. The TCP connect duration is measured with a separate plain socket
+ * to the first resolved address of the SMP host, before the GET request is sent. It therefore
+ * indicates the network round trip to the SMP host, but it is not the connect of the HTTP request
+ * itself: it does not contain the TLS handshake and it is not available if the SMP can only be
+ * reached via a proxy. The response body is read with the same size limit as in the SMP clients.
+ *
+ * @author Philip Helger
+ * @since 12.8.2
+ */
+@NotThreadSafe
+public class SMPHostScanner
+{
+  /** The default number of targets probed in parallel */
+  public static final int DEFAULT_MAX_CONCURRENCY = 8;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger (SMPHostScanner.class);
+  private static final AtomicInteger THREAD_INDEX = new AtomicInteger (0);
+
+  private final SMPHttpClientSettings m_aHttpClientSettings;
+  private KeyStore m_aTrustStore;
+  // Shared by all probes
+  private TrustStoreBasedX509KeySelector m_aKeySelector;
+  private boolean m_bSecureValidation = SMPHttpResponseHandlerSigned.DEFAULT_SECURE_VALIDATION;
+  private int m_nMaxConcurrency = DEFAULT_MAX_CONCURRENCY;
+  private long m_nMaxResponseSize = SMPClientConfiguration.getMaxResponseSize ();
+
+  /**
+   * Gives access to the pooled and size limited reading of the SMP response handlers.
+   */
+  private static final class ProbeResponseReader extends AbstractSMPResponseHandler <SMPResponseBuffer>
+  {
+    @Override
+    @NonNull
+    public SMPResponseBuffer handleEntity (@NonNull final HttpEntity aEntity) throws IOException
+    {
+      try
+      {
+        return readEntity (aEntity);
+      }
+      catch (final SMPClientBadResponseException ex)
+      {
+        // E.g. the response is too large
+        throw new ClientProtocolException (ex);
+      }
+    }
+  }
+
+  /**
+   * Constructor using the HTTP client settings and the trust store from the SMP client
+   * configuration.
+   */
+  public SMPHostScanner ()
+  {
+    this (SMPHttpClientSettings.fromConfiguration (), SMPClientConfiguration.loadTrustStore ());
+  }
+
+  /**
+   * Constructor
+   *
+   * @param aHttpClientSettings
+   *        The HTTP client settings to use. May not be <code>null</code>.
+   * @param aTrustStore
+   *        The trust store to verify signatures. May be <code>null</code> in which case signatures
+   *        are not verified.
+   */
+  public SMPHostScanner (@NonNull final SMPHttpClientSettings aHttpClientSettings,
+                         @Nullable final KeyStore aTrustStore)
+  {
+    ValueEnforcer.notNull (aHttpClientSettings, "HttpClientSettings");
+    m_aHttpClientSettings = aHttpClientSettings;
+    m_aTrustStore = aTrustStore;
+    m_aKeySelector = aTrustStore == null ? null : new TrustStoreBasedX509KeySelector (aTrustStore);
+  }
+
+  /**
+   * @return The mutable HTTP client settings. Never <code>null</code>.
+   */
+  @NonNull
+  public final SMPHttpClientSettings httpClientSettings ()
+  {
+    return m_aHttpClientSettings;
+  }
+
+  /**
+   * @return The trust store to verify signatures. May be <code>null</code>.
+   */
+  @Nullable
+  public final KeyStore getTrustStore ()
+  {
+    return m_aTrustStore;
+  }
+
+  /**
+   * @param aTrustStore
+   *        The trust store to verify signatures. May be <code>null</code> in which case signatures
+   *        are not verified.
+   * @return this for chaining
+   */
+  @NonNull
+  public final SMPHostScanner setTrustStore (@Nullable final KeyStore aTrustStore)
+  {
+    m_aTrustStore = aTrustStore;
+    m_aKeySelector = aTrustStore == null ? null : new TrustStoreBasedX509KeySelector (aTrustStore);
+    return this;
+  }
+
+  /**
+   * @return <code>true</code> if secure validation is used for signature verification.
+   */
+  public final boolean isSecureValidation ()
+  {
+    return m_bSecureValidation;
+  }
+
+  /**
+   * @param bSecureValidation
+   *        <code>true</code> to use secure validation for signature verification.
+   * @return this for chaining
+   */
+  @NonNull
+  public final SMPHostScanner setSecureValidation (final boolean bSecureValidation)
+  {
+    m_bSecureValidation = bSecureValidation;
+    return this;
+  }
+
+  /**
+   * @return The maximum number of targets probed in parallel. Always &gt; 0.
+   */
+  @Nonnegative
+  public final int getMaxConcurrency ()
+  {
+    return m_nMaxConcurrency;
+  }
+
+  /**
+   * @param nMaxConcurrency
+   *        The maximum number of targets probed in parallel. Must be &gt; 0.
+   * @return this for chaining
+   */
+  @NonNull
+  public final SMPHostScanner setMaxConcurrency (@Nonnegative final int nMaxConcurrency)
+  {
+    ValueEnforcer.isGT0 (nMaxConcurrency, "MaxConcurrency");
+    m_nMaxConcurrency = nMaxConcurrency;
+    return this;
+  }
+
+  /**
+   * @return The maximum number of bytes of a single response body. Values &le; 0 indicate an
+   *         unlimited size. The default is taken from
+   *         {@link SMPClientConfiguration#getMaxResponseSize()}.
+   */
+  @CheckForSigned
+  public final long getMaxResponseSize ()
+  {
+    return m_nMaxResponseSize;
+  }
+
+  /**
+   * @param nMaxResponseSize
+   *        The maximum number of bytes of a single response body. Values &le; 0 indicate an
+   *        unlimited size. Larger responses are reported as an error.
+   * @return this for chaining
+   */
+  @NonNull
+  public final SMPHostScanner setMaxResponseSize (@CheckForSigned final long nMaxResponseSize)
+  {
+    m_nMaxResponseSize = nMaxResponseSize;
+    return this;
+  }
+
+  @NonNull
+  private static Duration _since (final long nStartNanos)
+  {
+    return Duration.ofNanos (System.nanoTime () - nStartNanos);
+  }
+
+  @NonNull
+  private static String _getErrorMessage (@NonNull final String sStage, @NonNull final Exception ex)
+  {
+    return sStage + ": " + ex.getClass ().getName () + (ex.getMessage () == null ? "" : " - " + ex.getMessage ());
+  }
+
+  private void _verifySignature (@NonNull final SMPHostScanResult aResult, @NonNull final SMPResponseBuffer aBuffer)
+  {
+    final TrustStoreBasedX509KeySelector aKeySelector = m_aKeySelector;
+    if (aKeySelector == null || aBuffer.isEmpty ())
+      return;
+
+    final Document aDoc = DOMReader.readXMLDOM (aBuffer.getInputStream ());
+    if (aDoc == null || aDoc.getElementsByTagNameNS (XMLSignature.XMLNS, "Signature").getLength () == 0)
+    {
+      aResult.setSignatureStatus (ESignatureStatus.NOT_SIGNED);
+      return;
+    }
+
+    final long nStart = System.nanoTime ();
+    try
+    {
+      final boolean bValid = SMPHttpResponseHandlerSigned.checkSignature (aDoc,
+                                                                           aKeySelector,
+                                                                           m_bSecureValidation)
+                                                         .isSuccess ();
+      aResult.setSignatureStatus (bValid ? ESignatureStatus.VALID : ESignatureStatus.INVALID);
+    }
+    catch (final Exception ex)
+    {
+      aResult.setSignatureStatus (ESignatureStatus.INVALID);
+      aResult.setError (_getErrorMessage ("signature", ex));
+    }
+    aResult.setSignatureDuration (_since (nStart));
+  }
+
+  /**
+   * Probe a single SMP host.
+   *
+   * @param aHttpClientMgr
+   *        The HTTP client manager shared by all probes of the scan. May not be <code>null</code>.
+   * @param aResult
+   *        The result to be filled. Contains the SMP host URI and the optional participant ID.
+   */
+  private void _probe (@NonNull final HttpClientManager aHttpClientMgr, @NonNull final SMPHostScanResult aResult)
+  {
+    final URI aSMPHostURI = aResult.getSMPHostURI ();
+    final String sHost = aSMPHostURI.getHost ();
+    final int nPort = aSMPHostURI.getPort () >= 0 ? aSMPHostURI.getPort ()
+                                                  : "https".equalsIgnoreCase (aSMPHostURI.getScheme ()) ? 443
+                                                                                                          : 80;
+
+    // Host name resolution
+    final InetAddress [] aAddresses;
+    long nStart = System.nanoTime ();
+    try
+    {
+      aAddresses = InetAddress.getAllByName (sHost);
+      aResult.setDNSDuration (_since (nStart));
+    }
+    catch (final Exception ex)
+    {
+      aResult.setError (_getErrorMessage ("dns", ex));
+      return;
+    }
+
+    // TCP connect - with a separate socket, as the HTTP client offers no connect timing
+    final Timeout aConnectTimeout = m_aHttpClientSettings.getConnectTimeout ();
+    nStart = System.nanoTime ();
+    try (final Socket aSocket = new Socket ())
+    {
+      aSocket.connect (new InetSocketAddress (aAddresses[0], nPort),
+                       aConnectTimeout == null ? 0 : aConnectTimeout.toMillisecondsIntBound ());
+      aResult.setConnectDuration (_since (nStart));
+    }
+    catch (final Exception ex)
+    {
+      // Maybe only reachable via proxy - continue with the GET request
+      LOGGER.warn ("Failed to connect directly to SMP host '" + sHost + ":" + nPort + "': " + ex.getMessage ());
+    }
+
+    // The GET request
+    final IParticipantIdentifier aParticipantID = aResult.getParticipantID ();
+    final String sBaseURI = aSMPHostURI.toString ();
+    final String sRequestURI = aParticipantID == null ? sBaseURI
+                                                      : (sBaseURI.endsWith ("/") ? sBaseURI : sBaseURI + "/") +
+                                                        aParticipantID.getURIPercentEncoded ();
+    aResult.setRequestURI (sRequestURI);
+
+    final ProbeResponseReader aReader = new ProbeResponseReader ();
+    aReader.setMaxResponseSize (m_nMaxResponseSize);
+
+    final SMPResponseBuffer aBuffer;
+    try
+    {
+      final long nRequestStart = System.nanoTime ();
+      aBuffer = aHttpClientMgr.execute (new HttpGet (sRequestURI), HttpClientContext.create (), aResponse -> {
+        aResult.setFirstByteDuration (_since (nRequestStart));
+        aResult.setHttpStatus (aResponse.getCode ());
+        final HttpEntity aEntity = aResponse.getEntity ();
+        return aEntity == null ? null : aReader.handleEntity (aEntity);
+      });
+      aResult.setTotalDuration (_since (nRequestStart));
+    }
+    catch (final Exception ex)
+    {
+      aResult.setError (_getErrorMessage ("http", ex));
+      return;
+    }
+
+    if (aBuffer == null)
+    {
+      aResult.setResponseBytes (0);
+      return;
+    }
+
+    // Return the buffer to the pool afterwards
+    try (final SMPResponseBuffer aPooledBuffer = aBuffer)
+    {
+      aResult.setResponseBytes (aPooledBuffer.getLength ());
+
+      // Signature verification
+      if (aResult.getHttpStatus () == 200)
+        _verifySignature (aResult, aPooledBuffer);
+    }
+  }
+
+  @NonNull
+  private SMPHostScanReport _scanAll (@NonNull final ICommonsList <Function <HttpClientManager, SMPHostScanResult>> aTasks)
+  {
+    final OffsetDateTime aScanDT = PDTFactory.getCurrentOffsetDateTime ();
+    final long nStart = System.nanoTime ();
+
+    final ICommonsList <SMPHostScanResult> aResults = new CommonsArrayList <> (aTasks.size ());
+    final ExecutorService aExecutor = Executors.newFixedThreadPool (m_nMaxConcurrency, r -> {
+      final Thread t = new Thread (r, "smp-client-scanner-" + THREAD_INDEX.incrementAndGet ());
+      t.setDaemon (true);
+      return t;
+    });
+    // One HTTP client for all probes, so that the connection pool is shared
+    try (final HttpClientManager aHttpClientMgr = HttpClientManager.create (m_aHttpClientSettings))
+    {
+      final ICommonsList <Future <SMPHostScanResult>> aFutures = new CommonsArrayList <> (aTasks.size ());
+      for (final Function <HttpClientManager, SMPHostScanResult> aTask : aTasks)
+        aFutures.add (aExecutor.submit ( () -> aTask.apply (aHttpClientMgr)));
+
+      for (final Future <SMPHostScanResult> aFuture : aFutures)
+        aResults.add (aFuture.get ());
+    }
+    catch (final InterruptedException ex)
+    {
+      Thread.currentThread ().interrupt ();
+      LOGGER.warn ("SMP host scan was interrupted");
+    }
+    catch (final ExecutionException ex)
+    {
+      // Should not happen, as all exceptions are caught in the probe
+      throw new IllegalStateException ("Unexpected error in SMP host scan", ex.getCause ());
+    }
+    catch (final IOException ex)
+    {
+      // Only thrown when closing the HTTP client
+      LOGGER.warn ("Failed to close the HTTP client of the SMP host scan", ex);
+    }
+    finally
+    {
+      aExecutor.shutdownNow ();
+    }
+
+    final SMPHostScanReport ret = new SMPHostScanReport (aScanDT, _since (nStart), aResults);
+    LOGGER.info ("Finished SMP host scan: " + ret);
+    return ret;
+  }
+
+  /**
+   * Scan the provided SMP hosts. Each host URI is requested as is.
+   *
+   * @param aSMPHostURIs
+   *        The SMP host URIs to scan. May not be <code>null</code>.
+   * @return The scan report. Never <code>null</code>.
+   */
+  @NonNull
+  public SMPHostScanReport scanSMPHosts (@NonNull final Iterable <URI> aSMPHostURIs)
+  {
+    ValueEnforcer.notNull (aSMPHostURIs, "SMPHostURIs");
+
+    final ICommonsList <Function <HttpClientManager, SMPHostScanResult>> aTasks = new CommonsArrayList <> ();
+    for (final URI aSMPHostURI : aSMPHostURIs)
+    {
+      ValueEnforcer.notNull (aSMPHostURI, "SMPHostURI");
+      aTasks.add (aHttpClientMgr -> {
+        final SMPHostScanResult aResult = new SMPHostScanResult (aSMPHostURI, null);
+        _probe (aHttpClientMgr, aResult);
+        return aResult;
+      });
+    }
+    return _scanAll (aTasks);
+  }
+
+  /**
+   * Resolve the SMP hosts of the provided participants and scan them by requesting the service
+   * group of each participant.
+   *
+   * @param aURLProvider
+   *        The URL provider to resolve the SMP hosts. May not be <code>null</code>.
+   * @param aSMLInfo
+   *        The SML to use. May not be <code>null</code>.
+   * @param aParticipantIDs
+   *        The participants to resolve. May not be <code>null</code>.
+   * @return The scan report. Never <code>null</code>.
+   */
+  @NonNull
+  public SMPHostScanReport scanParticipants (@NonNull final ISMPURLProvider aURLProvider,
+                                             @NonNull final ISMLInfo aSMLInfo,
+                                             @NonNull final Iterable <? extends IParticipantIdentifier> aParticipantIDs)
+  {
+    ValueEnforcer.notNull (aURLProvider, "URLProvider");
+    ValueEnforcer.notNull (aSMLInfo, "SMLInfo");
+    ValueEnforcer.notNull (aParticipantIDs, "ParticipantIDs");
+
+    final ICommonsList <Function <HttpClientManager, SMPHostScanResult>> aTasks = new CommonsArrayList <> ();
+    for (final IParticipantIdentifier aParticipantID : aParticipantIDs)
+    {
+      ValueEnforcer.notNull (aParticipantID, "ParticipantID");
+      aTasks.add (aHttpClientMgr -> {
+        final long nStart = System.nanoTime ();
+        final URI aSMPHostURI;
+        try
+        {
+          aSMPHostURI = aURLProvider.getSMPURIOfParticipant (aParticipantID, aSMLInfo);
+        }
+        catch (final Exception ex)
+        {
+          final SMPHostScanResult aResult = new SMPHostScanResult (null, aParticipantID);
+          aResult.setNaptrDuration (_since (nStart));
+          aResult.setError (_getErrorMessage ("naptr", ex));
+          return aResult;
+        }
+
+        final SMPHostScanResult aResult = new SMPHostScanResult (aSMPHostURI, aParticipantID);
+        aResult.setNaptrDuration (_since (nStart));
+        _probe (aHttpClientMgr, aResult);
+        return aResult;
+      });
+    }
+    return _scanAll (aTasks);
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("HttpClientSettings", m_aHttpClientSettings)
+                                       .append ("TrustStore", m_aTrustStore != null)
+                                       .append ("SecureValidation", m_bSecureValidation)
+                                       .append ("MaxConcurrency", m_nMaxConcurrency)
+                                       .append ("MaxResponseSize", m_nMaxResponseSize)
+                                       .getToString ();
+  }
+}
@@ -0,0 +1,298 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.security;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.CheckForSigned;
+import com.helger.annotation.Nonempty;
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.tostring.ToStringGenerator;
+import com.helger.cache.impl.ManualCache;
+import com.helger.security.certificate.ECertificateCheckResult;
+import com.helger.security.revocation.ERevocationCheckMode;
+
+/**
+ * A cache for the check results of SMP signer certificates. All SMP responses are signed by one of
+ * relatively few SMP certificates, so the certificate and revocation check result of a certificate
+ * can be reused for subsequent responses, avoiding OCSP or CRL requests on every SMP lookup.
+ * <p>
+ * The cache key is the SHA-256 fingerprint of the certificate, combined with the
+ * {@link TrustedIssuerIndex#getID() trust store index ID}, the effective revocation check mode and
+ * the validation date time, if a specific one is used. Only {@link ECertificateCheckResult#VALID}
+ * and {@link ECertificateCheckResult#REVOKED} results are cached. Especially
+ * {@link ECertificateCheckResult#REVOCATION_STATUS_UNKNOWN} is never cached, so that a revocation
+ * soft fail is only applied to the current response and the revocation check is retried for the
+ * next one. Each entry expires after the configured TTL, but never later than the
+ * <code>notAfter</code> date of the certificate.
+ * </p>
+ * <p>
+ * Because a cache hit skips the revocation check, the TTL defines the maximum delay until the
+ * revocation of an SMP certificate is detected.
+ * </p>
+ *
+ * @author Philip Helger
+ * @since 12.8.2
+ */
+@ThreadSafe
+public class SMPCertificateCheckResultCache
+{
+  /** Default cache TTL: 1 hour */
+  public static final Duration DEFAULT_CACHE_TTL = Duration.ofHours (1);
+  /** Default maximum number of entries: 5000 */
+  public static final int DEFAULT_MAX_SIZE = 5_000;
+  /** The statistics and log name of the internal cache */
+  public static final String CACHE_NAME = "peppol-smp-client$CertificateCheckResult";
+
+  private static final HexFormat HEX = HexFormat.of ();
+
+  @Immutable
+  private static final class CachedResult
+  {
+    private final ECertificateCheckResult m_eResult;
+    private final Instant m_aNotAfter;
+
+    CachedResult (@NonNull final ECertificateCheckResult eResult, @NonNull final Instant aNotAfter)
+    {
+      m_eResult = eResult;
+      m_aNotAfter = aNotAfter;
+    }
+  }
+
+  private final ManualCache <String, CachedResult> m_aCache;
+  private final AtomicLong m_aHitCount = new AtomicLong ();
+  private final AtomicLong m_aMissCount = new AtomicLong ();
+
+  /**
+   * Constructor using {@link #DEFAULT_CACHE_TTL} and {@link #DEFAULT_MAX_SIZE}.
+   */
+  public SMPCertificateCheckResultCache ()
+  {
+    this (DEFAULT_CACHE_TTL, DEFAULT_MAX_SIZE);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param aCacheTTL
+   *        The time to live of each cache entry. May not be <code>null</code> and must be positive.
+   * @param nMaxSize
+   *        The maximum number of entries. All values &le; 0 indicate an unlimited size.
+   */
+  public SMPCertificateCheckResultCache (@NonNull final Duration aCacheTTL, @CheckForSigned final int nMaxSize)
+  {
+    ValueEnforcer.notNull (aCacheTTL, "CacheTTL");
+    ValueEnforcer.isTrue ( () -> !aCacheTTL.isZero () && !aCacheTTL.isNegative (),
+                          "CacheTTL must be a positive Duration");
+    m_aCache = ManualCache.<String, CachedResult> builder ()
+                          .name (CACHE_NAME)
+                          .maxSize (nMaxSize)
+                          .expireAfterWrite (aCacheTTL)
+                          .build ();
+  }
+
+  /**
+   * @return The time to live of each cache entry. Never <code>null</code>.
+   */
+  @NonNull
+  public final Duration getCacheTTL ()
+  {
+    return m_aCache.getTimeToLive ();
+  }
+
+  /**
+   * @return The maximum number of entries. Values &le; 0 indicate an unlimited size.
+   */
+  @CheckForSigned
+  public final int getMaxSize ()
+  {
+    return m_aCache.getMaxSize ();
+  }
+
+  /**
+   * Check if the provided check result may be cached.
+   *
+   * @param eResult
+   *        The check result. May be <code>null</code>.
+   * @return <code>true</code> if it may be cached.
+   */
+  public static boolean isCacheable (@Nullable final ECertificateCheckResult eResult)
+  {
+    return eResult == ECertificateCheckResult.VALID || eResult == ECertificateCheckResult.REVOKED;
+  }
+
+  /**
+   * Create the cache key for the provided certificate and check settings.
+   *
+   * @param aCert
+   *        The certificate to be checked. May not be <code>null</code>.
+   * @param aTrustedIssuerIndex
+   *        The index of the trust store used for checking. May not be <code>null</code>.
+   * @param eRevocationCheckMode
+   *        The effective revocation check mode. May not be <code>null</code>.
+   * @param aValidationDateTime
+   *        The validation date time. May be <code>null</code> to indicate "now".
+   * @return <code>null</code> if the certificate could not be encoded.
+   */
+  @Nullable
+  public static String createCacheKey (@NonNull final X509Certificate aCert,
+                                       @NonNull final TrustedIssuerIndex aTrustedIssuerIndex,
+                                       @NonNull final ERevocationCheckMode eRevocationCheckMode,
+                                       @Nullable final LocalDateTime aValidationDateTime)
+  {
+    ValueEnforcer.notNull (aCert, "Cert");
+    ValueEnforcer.notNull (aTrustedIssuerIndex, "TrustedIssuerIndex");
+    ValueEnforcer.notNull (eRevocationCheckMode, "RevocationCheckMode");
+
+    final MessageDigest aMD;
+    try
+    {
+      aMD = MessageDigest.getInstance ("SHA-256");
+    }
+    catch (final NoSuchAlgorithmException ex)
+    {
+      throw new IllegalStateException ("SHA-256 is not supported", ex);
+    }
+
+    final byte [] aEncoded;
+    try
+    {
+      aEncoded = aCert.getEncoded ();
+    }
+    catch (final CertificateEncodingException ex)
+    {
+      return null;
+    }
+
+    return HEX.formatHex (aMD.digest (aEncoded)) +
+           '|' +
+           aTrustedIssuerIndex.getID () +
+           '|' +
+           eRevocationCheckMode.name () +
+           '|' +
+           (aValidationDateTime == null ? "now" : aValidationDateTime.toString ());
+  }
+
+  /**
+   * Get the cached check result.
+   *
+   * @param sCacheKey
+   *        The cache key as created by
+   *        {@link #createCacheKey(X509Certificate, TrustedIssuerIndex, ERevocationCheckMode, LocalDateTime)}.
+   *        May not be <code>null</code>.
+   * @return <code>null</code> if no result is cached or if it is expired.
+   */
+  @Nullable
+  public ECertificateCheckResult getCheckResult (@NonNull @Nonempty final String sCacheKey)
+  {
+    final CachedResult aCached = m_aCache.getFromCache (sCacheKey);
+    if (aCached != null)
+    {
+      if (Instant.now ().isBefore (aCached.m_aNotAfter))
+      {
+        m_aHitCount.incrementAndGet ();
+        return aCached.m_eResult;
+      }
+
+      // The certificate itself expired
+      m_aCache.removeFromCache (sCacheKey);
+    }
+    m_aMissCount.incrementAndGet ();
+    return null;
+  }
+
+  /**
+   * Remember a check result. Results that are not cacheable (see
+   * {@link #isCacheable(ECertificateCheckResult)}) are ignored.
+   *
+   * @param sCacheKey
+   *        The cache key as created by
+   *        {@link #createCacheKey(X509Certificate, TrustedIssuerIndex, ERevocationCheckMode, LocalDateTime)}.
+   *        May not be <code>null</code>.
+   * @param aCert
+   *        The checked certificate. May not be <code>null</code>.
+   * @param eResult
+   *        The check result. May not be <code>null</code>.
+   */
+  public void putCheckResult (@NonNull @Nonempty final String sCacheKey,
+                              @NonNull final X509Certificate aCert,
+                              @NonNull final ECertificateCheckResult eResult)
+  {
+    ValueEnforcer.notNull (aCert, "Cert");
+    ValueEnforcer.notNull (eResult, "Result");
+    if (isCacheable (eResult))
+      m_aCache.putInCache (sCacheKey, new CachedResult (eResult, aCert.getNotAfter ().toInstant ()));
+  }
+
+  /**
+   * @return The number of cache entries, including expired ones that were not yet removed.
+   */
+  @Nonnegative
+  public int size ()
+  {
+    return m_aCache.size ();
+  }
+
+  /**
+   * @return The number of cache hits.
+   */
+  @Nonnegative
+  public long getHitCount ()
+  {
+    return m_aHitCount.get ();
+  }
+
+  /**
+   * @return The number of cache misses.
+   */
+  @Nonnegative
+  public long getMissCount ()
+  {
+    return m_aMissCount.get ();
+  }
+
+  /**
+   * Remove all entries.
+   */
+  public void clear ()
+  {
+    m_aCache.clearCache ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Cache", m_aCache)
+                                       .append ("HitCount", m_aHitCount.get ())
+                                       .append ("MissCount", m_aMissCount.get ())
+                                       .getToString ();
+  }
+}
@@ -20,6 +20,7 @@ import java.security.KeyStore;
 import java.security.PublicKey;
 import java.security.cert.X509Certificate;
 import java.time.LocalDateTime;
+import java.util.function.Supplier;
 
 import javax.security.auth.x500.X500Principal;
 import javax.xml.crypto.AlgorithmMethod;
@@ -39,16 +40,20 @@ import org.slf4j.LoggerFactory;
 
 import com.helger.base.enforce.ValueEnforcer;
 import com.helger.collection.commons.ICommonsSet;
+import com.helger.peppol.security.OfflineCRLSource;
+import com.helger.peppol.security.RevocationCheckPrefetcher;
 import com.helger.security.certificate.CertificateHelper;
 import com.helger.security.certificate.ECertificateCheckResult;
 import com.helger.security.keystore.ConstantKeySelectorResult;
-import com.helger.security.keystore.KeyStoreHelper;
 import com.helger.security.revocation.CertificateRevocationCheckerDefaults;
 import com.helger.security.revocation.ERevocationCheckMode;
 import com.helger.security.revocation.RevocationCheckBuilder;
 
 /**
- * Finds and returns a key using the data contained in a {@link KeyInfo} object
+ * Finds and returns a key using the data contained in a {@link KeyInfo} object. After the
+ * configuration is done, an instance can be reused for multiple signature verifications, also from
+ * multiple threads. The trusted issuers are taken from the {@link TrustedIssuerIndex} of the trust
+ * store, which is shared between all key selectors using the same trust store.
  *
  * @author Philip Helger
  * @see <a href= "http://java.sun.com/developer/technicalArticles/xml/dig_signature_api/">
@@ -64,6 +69,9 @@ public final class TrustStoreBasedX509KeySelector extends KeySelector
   private ERevocationCheckMode m_eRevocationCheckMode;
   private boolean m_bAllowRevocationSoftFail = CertificateRevocationCheckerDefaults.isAllowSoftFail ();
   private boolean m_bSynchronizedRevocationCheck = CertificateRevocationCheckerDefaults.isExecuteInSynchronizedBlock ();
+  private SMPCertificateCheckResultCache m_aCheckResultCache;
+  private RevocationCheckPrefetcher m_aRevocationPrefetcher;
+  private OfflineCRLSource m_aOfflineCRLSource;
 
   /**
    * Constructor
@@ -78,6 +86,16 @@ public final class TrustStoreBasedX509KeySelector extends KeySelector
     m_aTrustStore = aTrustStore;
   }
 
+  /**
+   * @return The trust store to use. Never <code>null</code>.
+   * @since 12.8.2
+   */
+  @NonNull
+  public KeyStore getTrustStore ()
+  {
+    return m_aTrustStore;
+  }
+
   /**
    * @return The selected validation date and time to use. <code>null</code> means current date
    *         time.
@@ -187,6 +205,93 @@ public final class TrustStoreBasedX509KeySelector extends KeySelector
     return this;
   }
 
+  /**
+   * @return The cache for certificate check results. May be <code>null</code> which is the default.
+   * @since 12.8.2
+   */
+  @Nullable
+  public SMPCertificateCheckResultCache getCheckResultCache ()
+  {
+    return m_aCheckResultCache;
+  }
+
+  /**
+   * Set the cache for certificate check results. If set, the certificate and revocation check is
+   * only performed if no cached result for the same certificate and settings is present.
+   *
+   * @param aCheckResultCache
+   *        The cache to use. May be <code>null</code> to always check the certificate.
+   * @return this for chaining
+   * @since 12.8.2
+   */
+  @NonNull
+  public TrustStoreBasedX509KeySelector setCheckResultCache (@Nullable final SMPCertificateCheckResultCache aCheckResultCache)
+  {
+    m_aCheckResultCache = aCheckResultCache;
+    return this;
+  }
+
+  /**
+   * @return The shared revocation check results that are kept current in the background. May be
+   *         <code>null</code> which is the default.
+   * @since 12.8.2
+   */
+  @Nullable
+  public RevocationCheckPrefetcher getRevocationPrefetcher ()
+  {
+    return m_aRevocationPrefetcher;
+  }
+
+  /**
+   * Set the shared revocation check results that are kept current in the background. If set, the
+   * certificate and revocation check is re-performed in the background, so that SMP responses
+   * don't need to wait for CRL downloads or OCSP requests. This takes precedence over the
+   * {@link #setCheckResultCache(SMPCertificateCheckResultCache) check result cache}. It is not used
+   * if a specific validation date time is set.
+   *
+   * @param aRevocationPrefetcher
+   *        The prefetcher to use, usually {@link RevocationCheckPrefetcher#getDefaultInstance()}.
+   *        May be <code>null</code>.
+   * @return this for chaining
+   * @since 12.8.2
+   */
+  @NonNull
+  public TrustStoreBasedX509KeySelector setRevocationPrefetcher (@Nullable final RevocationCheckPrefetcher aRevocationPrefetcher)
+  {
+    m_aRevocationPrefetcher = aRevocationPrefetcher;
+    return this;
+  }
+
+  /**
+   * @return The local CRLs to be used for the revocation check instead of the online revocation
+   *         check. May be <code>null</code> which is the default.
+   * @since 12.8.2
+   */
+  @Nullable
+  public OfflineCRLSource getOfflineCRLSource ()
+  {
+    return m_aOfflineCRLSource;
+  }
+
+  /**
+   * Set the local CRLs to be used for the revocation check. If set, the revocation check mode is
+   * ignored, no online revocation check is performed and neither the
+   * {@link #setCheckResultCache(SMPCertificateCheckResultCache) check result cache} nor the
+   * {@link #setRevocationPrefetcher(RevocationCheckPrefetcher) prefetcher} are used. The revocation
+   * status is always determined for the current date.
+   *
+   * @param aOfflineCRLSource
+   *        The local CRLs to use. May be <code>null</code>.
+   * @return this for chaining
+   * @since 12.8.2
+   */
+  @NonNull
+  public TrustStoreBasedX509KeySelector setOfflineCRLSource (@Nullable final OfflineCRLSource aOfflineCRLSource)
+  {
+    m_aOfflineCRLSource = aOfflineCRLSource;
+    return this;
+  }
+
   public static boolean algorithmEquals (@NonNull final String sAlgURI, @NonNull final String sAlgName)
   {
     if (sAlgName.equalsIgnoreCase ("DSA"))
@@ -242,10 +347,22 @@ public final class TrustStoreBasedX509KeySelector extends KeySelector
                                    @NonNull final AlgorithmMethod aMethod,
                                    final XMLCryptoContext aCryptoContext) throws KeySelectorException
   {
-    final ICommonsSet <X500Principal> aTrustedIssuers = KeyStoreHelper.getAllTrustedCertificates (m_aTrustStore)
-                                                                      .getAllMapped (X509Certificate::getSubjectX500Principal);
-    final ERevocationCheckMode eRevCheckMode = m_eRevocationCheckMode != null ? m_eRevocationCheckMode
-                                                                              : CertificateRevocationCheckerDefaults.getRevocationCheckMode ();
+    // Shared between all selectors using the same trust store
+    final TrustedIssuerIndex aTrustedIssuerIndex = TrustedIssuerIndex.getForTrustStore (m_aTrustStore);
+    final ICommonsSet <X500Principal> aTrustedIssuers = aTrustedIssuerIndex.getAllSubjects ();
+    final SMPCertificateCheckResultCache aCheckResultCache = m_aCheckResultCache;
+    final KeyStore aTrustStore = m_aTrustStore;
+    final boolean bSynchronizedRevocationCheck = m_bSynchronizedRevocationCheck;
+    final OfflineCRLSource aOfflineCRLSource = m_aOfflineCRLSource;
+    final ERevocationCheckMode eRevCheckMode;
+    if (aOfflineCRLSource != null)
+    {
+      // The revocation status is taken from the local CRLs afterwards
+      eRevCheckMode = ERevocationCheckMode.NONE;
+    }
+    else
+      eRevCheckMode = m_eRevocationCheckMode != null ? m_eRevocationCheckMode
+                                                     : CertificateRevocationCheckerDefaults.getRevocationCheckMode ();
 
     // For all XMLStructure
     for (final XMLStructure aStructure : aKeyInfo.getContent ())
@@ -265,18 +382,60 @@ public final class TrustStoreBasedX509KeySelector extends KeySelector
               // Check
               // * Trusted issuers only
               // * If SMP certificate is revoked
-              final ECertificateCheckResult eCheckResult = CertificateHelper.checkCertificate (aTrustedIssuers,
-                                                                                               null,
-                                                                                               new RevocationCheckBuilder ().certificate (aCertificate)
-                                                                                                                            .checkDate (m_aValidationDateTime)
-                                                                                                                            .validCAs (m_aTrustStore)
-                                                                                                                            .checkMode (eRevCheckMode)
-                                                                                                                            .executeInSynchronizedBlock (m_bSynchronizedRevocationCheck));
-              LOGGER.info ("SMP Client SMP certificate check result: " +
-                           eCheckResult +
-                           " (using revocation check mode " +
-                           eRevCheckMode +
-                           ")");
+              final LocalDateTime aValidationDateTime = m_aValidationDateTime;
+              // May be called from a background thread later on
+              final Supplier <ECertificateCheckResult> aCheck = () -> {
+                final RevocationCheckBuilder aRCB = new RevocationCheckBuilder ().certificate (aCertificate)
+                                                                                 .checkDate (aValidationDateTime)
+                                                                                 .validCAs (aTrustStore)
+                                                                                 .checkMode (eRevCheckMode)
+                                                                                 .executeInSynchronizedBlock (bSynchronizedRevocationCheck);
+                return CertificateHelper.checkCertificate (aTrustedIssuers, null, aRCB);
+              };
+              // Background checks only make sense for the current date
+              final RevocationCheckPrefetcher aPrefetcher = aValidationDateTime == null ? m_aRevocationPrefetcher : null;
+              String sCacheKey = null;
+              if (aOfflineCRLSource == null && (aCheckResultCache != null || aPrefetcher != null))
+                sCacheKey = SMPCertificateCheckResultCache.createCacheKey (aCertificate,
+                                                                           aTrustedIssuerIndex,
+                                                                           eRevCheckMode,
+                                                                           aValidationDateTime);
+              ECertificateCheckResult eCheckResult;
+              if (aOfflineCRLSource != null)
+              {
+                eCheckResult = aCheck.get ();
+                if (eCheckResult.isValid ())
+                  eCheckResult = aOfflineCRLSource.getRevocationStatus (aCertificate);
+                LOGGER.info ("SMP Client SMP certificate check result: " + eCheckResult + " (using local CRLs)");
+              }
+              else
+                if (aPrefetcher != null && sCacheKey != null)
+                {
+                  // Checked in the background if the result was already requested
+                  eCheckResult = aPrefetcher.getCheckResult (sCacheKey, aCertificate, aCheck);
+                  if (LOGGER.isDebugEnabled ())
+                    LOGGER.debug ("SMP Client SMP certificate check result: " + eCheckResult + " (from prefetcher)");
+                }
+                else
+                {
+                  eCheckResult = sCacheKey == null ? null : aCheckResultCache.getCheckResult (sCacheKey);
+                  if (eCheckResult != null)
+                  {
+                    if (LOGGER.isDebugEnabled ())
+                      LOGGER.debug ("SMP Client SMP certificate check result: " + eCheckResult + " (from cache)");
+                  }
+                  else
+                  {
+                    eCheckResult = aCheck.get ();
+                    LOGGER.info ("SMP Client SMP certificate check result: " +
+                                 eCheckResult +
+                                 " (using revocation check mode " +
+                                 eRevCheckMode +
+                                 ")");
+                    if (sCacheKey != null)
+                      aCheckResultCache.putCheckResult (sCacheKey, aCertificate, eCheckResult);
+                  }
+                }
               if (eCheckResult.isInvalid ())
               {
                 if (eCheckResult != ECertificateCheckResult.REVOCATION_STATUS_UNKNOWN || !m_bAllowRevocationSoftFail)
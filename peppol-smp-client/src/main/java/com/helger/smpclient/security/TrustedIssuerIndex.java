@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.security.auth.x500.X500Principal;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.annotation.Nonempty;
+import com.helger.annotation.concurrent.GuardedBy;
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.annotation.style.ReturnsMutableObject;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.tostring.ToStringGenerator;
+import com.helger.collection.commons.CommonsHashSet;
+import com.helger.collection.commons.ICommonsSet;
+import com.helger.security.keystore.KeyStoreHelper;
+
+/**
+ * An immutable index of the subjects of all trusted certificates of a trust store. Creating the
+ * index requires iterating all trust store entries, so the index of each trust store is created
+ * only once and shared (see {@link #getForTrustStore(KeyStore)}). Each index remembers a
+ * fingerprint of the trust store content (all aliases and the SHA-256 hashes of the certificates),
+ * and is rebuilt automatically if the content of the trust store changed.
+ * {@link #invalidate(KeyStore)} can be used to explicitly drop an index.
+ *
+ * @author Philip Helger
+ * @since 12.8.2
+ */
+@Immutable
+public final class TrustedIssuerIndex
+{
+  private static final Logger LOGGER = LoggerFactory.getLogger (TrustedIssuerIndex.class);
+  private static final AtomicLong INDEX_ID = new AtomicLong (0);
+
+  // Weak, so that trust stores can be garbage collected
+  @GuardedBy ("INDICES")
+  private static final Map <KeyStore, TrustedIssuerIndex> INDICES = new WeakHashMap <> ();
+
+  private final String m_sID;
+  private final byte [] m_aFingerprint;
+  private final ICommonsSet <X500Principal> m_aSubjects = new CommonsHashSet <> ();
+
+  private TrustedIssuerIndex (@Nullable final byte [] aFingerprint,
+                              @NonNull final Iterable <X509Certificate> aCertificates)
+  {
+    m_sID = Long.toString (INDEX_ID.incrementAndGet ());
+    m_aFingerprint = aFingerprint;
+    for (final X509Certificate aCert : aCertificates)
+      m_aSubjects.add (aCert.getSubjectX500Principal ());
+  }
+
+  /**
+   * @return The unique ID of this index. Each rebuilt index of the same trust store has a new ID, so
+   *         the ID can be used as part of cache keys that depend on the trust store content. Neither
+   *         <code>null</code> nor empty.
+   */
+  @NonNull
+  @Nonempty
+  public String getID ()
+  {
+    return m_sID;
+  }
+
+  /**
+   * @return The subjects of all trusted certificates. Never <code>null</code>. Must not be
+   *         modified.
+   */
+  @NonNull
+  @ReturnsMutableObject ("For performance reasons - must not be modified")
+  public ICommonsSet <X500Principal> getAllSubjects ()
+  {
+    return m_aSubjects;
+  }
+
+  /**
+   * Check if the provided principal is the subject of a trusted certificate.
+   *
+   * @param aPrincipal
+   *        The principal to check. May be <code>null</code>.
+   * @return <code>true</code> if it is contained, <code>false</code> if not.
+   */
+  public boolean containsSubject (@Nullable final X500Principal aPrincipal)
+  {
+    return aPrincipal != null && m_aSubjects.contains (aPrincipal);
+  }
+
+  /**
+   * Calculate a fingerprint of the content of the provided trust store. It covers all aliases and the
+   * encoded certificates, so that replaced certificates are detected as well.
+   *
+   * @param aTrustStore
+   *        The trust store to use. May not be <code>null</code>.
+   * @return <code>null</code> if the trust store is not initialized or could not be read.
+   */
+  @Nullable
+  static byte [] getContentFingerprint (@NonNull final KeyStore aTrustStore)
+  {
+    try
+    {
+      // Sort, so that the fingerprint does not depend on the iteration order of the trust store
+      final List <String> aAliases = Collections.list (aTrustStore.aliases ());
+      Collections.sort (aAliases);
+
+      final MessageDigest aMD = MessageDigest.getInstance ("SHA-256");
+      final MessageDigest aCertMD = MessageDigest.getInstance ("SHA-256");
+      for (final String sAlias : aAliases)
+      {
+        aMD.update (sAlias.getBytes (StandardCharsets.UTF_8));
+        // Separator
+        aMD.update ((byte) 0);
+        final Certificate aCert = aTrustStore.getCertificate (sAlias);
+        if (aCert != null)
+          aMD.update (aCertMD.digest (aCert.getEncoded ()));
+        aMD.update ((byte) 0);
+      }
+      return aMD.digest ();
+    }
+    catch (final GeneralSecurityException ex)
+    {
+      // Not initialized or not readable
+      return null;
+    }
+  }
+
+  /**
+   * Get the shared index of the provided trust store. The index is created on first access and
+   * rebuilt, if the content of the trust store changed.
+   *
+   * @param aTrustStore
+   *        The trust store to get the index of. May not be <code>null</code>.
+   * @return The shared index. Never <code>null</code>.
+   */
+  @NonNull
+  public static TrustedIssuerIndex getForTrustStore (@NonNull final KeyStore aTrustStore)
+  {
+    ValueEnforcer.notNull (aTrustStore, "TrustStore");
+
+    final byte [] aFingerprint = getContentFingerprint (aTrustStore);
+    synchronized (INDICES)
+    {
+      final TrustedIssuerIndex aIndex = INDICES.get (aTrustStore);
+      if (aIndex != null && aFingerprint != null && MessageDigest.isEqual (aIndex.m_aFingerprint, aFingerprint))
+        return aIndex;
+    }
+
+    // Build outside of the lock
+    final TrustedIssuerIndex aNewIndex = new TrustedIssuerIndex (aFingerprint,
+                                                                 KeyStoreHelper.getAllTrustedCertificates (aTrustStore));
+    if (LOGGER.isDebugEnabled ())
+      LOGGER.debug ("Created " + aNewIndex);
+    synchronized (INDICES)
+    {
+      INDICES.put (aTrustStore, aNewIndex);
+    }
+    return aNewIndex;
+  }
+
+  /**
+   * Remove the shared index of the provided trust store, so that it is rebuilt on next access.
+   *
+   * @param aTrustStore
+   *        The trust store. May be <code>null</code>.
+   */
+  public static void invalidate (@Nullable final KeyStore aTrustStore)
+  {
+    if (aTrustStore != null)
+      synchronized (INDICES)
+      {
+        INDICES.remove (aTrustStore);
+      }
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("ID", m_sID)
+                                       .append ("SubjectCount", m_aSubjects.size ())
+                                       .getToString ();
+  }
+}
@@ -21,21 +21,33 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Locale;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.xbill.DNS.Record;
 import org.xbill.DNS.TextParseException;
 
 import com.helger.annotation.Nonempty;
+import com.helger.annotation.Nonnegative;
 import com.helger.annotation.concurrent.GuardedBy;
 import com.helger.annotation.concurrent.ThreadSafe;
 import com.helger.annotation.style.ReturnsMutableCopy;
 import com.helger.annotation.style.ReturnsMutableObject;
-import com.helger.base.codec.impl.Base32Codec;
 import com.helger.base.concurrent.SimpleReadWriteLock;
 import com.helger.base.enforce.ValueEnforcer;
 import com.helger.base.string.StringHelper;
@@ -49,8 +61,7 @@ import com.helger.dns.naptr.NaptrLookupResult;
 import com.helger.dns.naptr.NaptrResolver;
 import com.helger.peppol.sml.ISMLInfo;
 import com.helger.peppolid.IParticipantIdentifier;
-import com.helger.security.messagedigest.EMessageDigestAlgorithm;
-import com.helger.security.messagedigest.MessageDigestValue;
+import com.helger.smpclient.SMPLookupDeadline;
 import com.helger.smpclient.url.SMPDNSResolutionException.EErrorCode;
 
 /**
@@ -64,10 +75,49 @@ public abstract class AbstractBDXLURLProvider implements IBDXLURLProvider
 {
   public static final boolean DEFAULT_USE_DNS_CACHE = false;
   public static final boolean DEFAULT_NAPTR_DEBUG = false;
+  /**
+   * The default timeout of a single NAPTR lookup attempt
+   *
+   * @since 12.8.2
+   */
+  public static final Duration DEFAULT_NAPTR_TIMEOUT = Duration.ofSeconds (5);
+  /** The number of retries of a failed NAPTR lookup */
+  private static final int NAPTR_MAX_RETRIES = 1;
+  /**
+   * The default maximum number of concurrent lookups for bulk resolution
+   *
+   * @since 12.8.2
+   */
+  public static final int DEFAULT_BULK_MAX_CONCURRENCY = 32;
+  /**
+   * The maximum number of memoized participant DNS names
+   *
+   * @since 12.8.2
+   */
+  public static final int DNS_NAME_CACHE_MAX_SIZE = 100_000;
   public static final Charset URL_CHARSET = StandardCharsets.UTF_8;
   public static final Locale URL_LOCALE = Locale.US;
   private static final Logger LOGGER = LoggerFactory.getLogger (AbstractBDXLURLProvider.class);
 
+  // RFC 4648 Base32 alphabet - lowercase, because URLs are usually presented lowercase
+  private static final char [] BASE32_LOWERCASE = "abcdefghijklmnopqrstuvwxyz234567".toCharArray ();
+  // MessageDigest is not thread-safe, so one instance per thread is used
+  private static final ThreadLocal <MessageDigest> SHA256 = ThreadLocal.withInitial ( () -> {
+    try
+    {
+      return MessageDigest.getInstance ("SHA-256");
+    }
+    catch (final NoSuchAlgorithmException ex)
+    {
+      throw new IllegalStateException ("SHA-256 is not supported", ex);
+    }
+  });
+  // Participant DNS names are shared between all providers, because all parameters are part of the key
+  private static final Map <String, String> DNS_NAME_CACHE = new ConcurrentHashMap <> ();
+  private static final AtomicBoolean DNS_NAME_CACHE_EVICTING = new AtomicBoolean (false);
+  /** The minimum number of identifiers for which the batch API works in parallel */
+  private static final int PARALLEL_BATCH_THRESHOLD = 1_024;
+
   private final SimpleReadWriteLock m_aRWLock = new SimpleReadWriteLock ();
   @GuardedBy ("m_aRWLock")
   private boolean m_bLowercaseValueBeforeHashing = true;
@@ -77,11 +127,16 @@ public abstract class AbstractBDXLURLProvider implements IBDXLURLProvider
   private String m_sNAPTRServiceName = "not-set";
   @GuardedBy ("m_aRWLock")
   private boolean m_bUseDNSCache = DEFAULT_USE_DNS_CACHE;
-  @GuardedBy ("m_aRWLock")
-  private final ICommonsMap <String, String> m_aDNSCache = new CommonsHashMap <> ();
+  // Reading is lock-free
+  private volatile NaptrCache m_aDNSCache = new NaptrCache ();
   private final ICommonsList <InetAddress> m_aCustomDNSServers = new CommonsArrayList <> ();
+  private volatile DNSServerRace m_aDNSServerRace;
+  private volatile NaptrPrefetcher m_aNaptrPrefetcher;
+  private volatile NaptrOverrideTable m_aNaptrOverrideTable;
   @GuardedBy ("m_aRWLock")
   private boolean m_bUseNaptrDebug = DEFAULT_NAPTR_DEBUG;
+  @GuardedBy ("m_aRWLock")
+  private Duration m_aNaptrTimeout = DEFAULT_NAPTR_TIMEOUT;
 
   /**
    * Default constructor.
@@ -101,9 +156,14 @@ public abstract class AbstractBDXLURLProvider implements IBDXLURLProvider
     m_bAddIdentifierSchemeToZone = rhs.m_bAddIdentifierSchemeToZone;
     m_sNAPTRServiceName = rhs.m_sNAPTRServiceName;
     m_bUseDNSCache = rhs.m_bUseDNSCache;
-    m_aDNSCache.putAll (rhs.m_aDNSCache);
+    m_aDNSCache = new NaptrCache (rhs.m_aDNSCache);
     m_aCustomDNSServers.addAll (rhs.m_aCustomDNSServers);
+    // The statistics are shared
+    m_aDNSServerRace = rhs.m_aDNSServerRace;
+    m_aNaptrPrefetcher = rhs.m_aNaptrPrefetcher;
+    m_aNaptrOverrideTable = rhs.m_aNaptrOverrideTable;
     m_bUseNaptrDebug = rhs.m_bUseNaptrDebug;
+    m_aNaptrTimeout = rhs.m_aNaptrTimeout;
   }
 
   public final boolean isLowercaseValueBeforeHashing ()
@@ -145,7 +205,11 @@ public abstract class AbstractBDXLURLProvider implements IBDXLURLProvider
   }
 
   /**
-   * Enable or disable internal DNS caching. By default it is enabled.
+   * Enable or disable internal DNS caching. By default it is disabled. Cached values expire after
+   * the TTL of the NAPTR records (see {@link #setDNSCache(NaptrCache)}). If enabled, functional
+   * negative results ({@link EErrorCode#PARTICIPANT_NOT_REGISTERED} and
+   * {@link EErrorCode#NO_MATCHING_SMP_SERVICE}) are cached as well. Technical DNS failures are
+   * never cached.
    *
    * @param bUseDNSCache
    *        <code>true</code> to enable caching, <code>false</code> to disable it.
@@ -155,30 +219,59 @@ public abstract class AbstractBDXLURLProvider implements IBDXLURLProvider
     m_aRWLock.writeLocked ( () -> m_bUseDNSCache = bUseDNSCache);
   }
 
+  /**
+   * @return The internal DNS cache. Never <code>null</code>.
+   * @since 12.8.2
+   */
+  @NonNull
+  public final NaptrCache getDNSCache ()
+  {
+    return m_aDNSCache;
+  }
+
+  /**
+   * Set the internal DNS cache, e.g. to use different size or TTL limits or to share a cache
+   * between multiple providers using the same settings. This does not enable caching - see
+   * {@link #setUseDNSCache(boolean)}.
+   *
+   * @param aDNSCache
+   *        The cache to use. May not be <code>null</code>.
+   * @since 12.8.2
+   */
+  public final void setDNSCache (@NonNull final NaptrCache aDNSCache)
+  {
+    ValueEnforcer.notNull (aDNSCache, "DNSCache");
+    m_aDNSCache = aDNSCache;
+  }
+
   /**
    * Remove all internal DNS cache entries.
    */
   public final void clearDNSCache ()
   {
-    m_aRWLock.writeLocked (m_aDNSCache::clear);
+    m_aDNSCache.clear ();
   }
 
   @Nullable
   public final String getDNSCacheEntry (@Nullable final String sName)
   {
-    return StringHelper.isNotEmpty (sName) ? m_aRWLock.readLockedGet ( () -> m_aDNSCache.get (sName)) : null;
+    return m_aDNSCache.get (sName);
   }
 
+  /**
+   * @return A copy of all non-expired DNS cache entries. Never <code>null</code>.
+   */
   @NonNull
   @ReturnsMutableCopy
   public final ICommonsMap <String, String> getAllDNSCacheEntries ()
   {
-    return m_aRWLock.readLockedGet (m_aDNSCache::getClone);
+    return new CommonsHashMap <> (m_aDNSCache.getAllEntries ());
   }
 
   /**
    * Add entries to the cache. This might be helpful when there is a persistent cache (outside this
-   * class) and the old cache entries should be re-added.
+   * class) and the old cache entries should be re-added. The entries use the
+   * {@link NaptrCache#getDefaultTTL() default TTL} of the cache.
    *
    * @param aEntries
    *        The entries to be added. May be <code>null</code>.
@@ -186,14 +279,35 @@ public abstract class AbstractBDXLURLProvider implements IBDXLURLProvider
   public final void addDNSCacheEntries (@Nullable final Map <String, String> aEntries)
   {
     if (aEntries != null && !aEntries.isEmpty ())
-      m_aRWLock.writeLocked ( () -> m_aDNSCache.putAll (aEntries));
+    {
+      final NaptrCache aDNSCache = m_aDNSCache;
+      for (final Map.Entry <String, String> aEntry : aEntries.entrySet ())
+        aDNSCache.put (aEntry.getKey (), aEntry.getValue (), null);
+    }
   }
 
   public final void addDNSCacheEntry (@NonNull @Nonempty final String sName, @NonNull final String sNaptrValue)
   {
-    ValueEnforcer.notEmpty (sName, "Name");
-    ValueEnforcer.notNull (sNaptrValue, "Value");
-    m_aRWLock.writeLocked ( () -> m_aDNSCache.put (sName, sNaptrValue));
+    addDNSCacheEntry (sName, sNaptrValue, null);
+  }
+
+  /**
+   * Add a single entry to the cache.
+   *
+   * @param sName
+   *        The DNS name. May neither be <code>null</code> nor empty.
+   * @param sNaptrValue
+   *        The resolved NAPTR value. May not be <code>null</code>.
+   * @param aTTL
+   *        The time to live of the entry. May be <code>null</code> to use the default TTL of the
+   *        cache.
+   * @since 12.8.2
+   */
+  public final void addDNSCacheEntry (@NonNull @Nonempty final String sName,
+                                      @NonNull final String sNaptrValue,
+                                      @Nullable final Duration aTTL)
+  {
+    m_aDNSCache.put (sName, sNaptrValue, aTTL);
   }
 
   /**
@@ -207,6 +321,82 @@ public abstract class AbstractBDXLURLProvider implements IBDXLURLProvider
     return m_aCustomDNSServers;
   }
 
+  /**
+   * @return The settings for racing DNS lookups across the custom DNS servers. <code>null</code> if
+   *         racing is disabled, which is the default.
+   * @since 12.8.2
+   */
+  @Nullable
+  public final DNSServerRace getDNSServerRace ()
+  {
+    return m_aDNSServerRace;
+  }
+
+  /**
+   * Enable or disable racing DNS lookups. If enabled and at least two custom DNS servers are
+   * configured (see {@link #customDNSServers()}), each NAPTR lookup is sent to the best custom DNS
+   * servers at the same time and the first valid answer is used. The same instance may be shared
+   * between multiple providers to share the DNS server statistics.
+   *
+   * @param aDNSServerRace
+   *        The race settings to use. May be <code>null</code> to disable racing.
+   * @since 12.8.2
+   */
+  public final void setDNSServerRace (@Nullable final DNSServerRace aDNSServerRace)
+  {
+    m_aDNSServerRace = aDNSServerRace;
+  }
+
+  /**
+   * @return The refresh-ahead prefetcher for the DNS cache. <code>null</code> if no prefetching
+   *         takes place, which is the default.
+   * @since 12.8.2
+   */
+  @Nullable
+  public final NaptrPrefetcher getNaptrPrefetcher ()
+  {
+    return m_aNaptrPrefetcher;
+  }
+
+  /**
+   * Set the refresh-ahead prefetcher for the DNS cache. Frequently used DNS names are resolved
+   * again in the background shortly before they expire. This only has an effect if the DNS cache
+   * is enabled (see {@link #setUseDNSCache(boolean)}). The prefetcher is not closed by this class.
+   *
+   * @param aNaptrPrefetcher
+   *        The prefetcher to use. May be <code>null</code> to disable prefetching.
+   * @since 12.8.2
+   */
+  public final void setNaptrPrefetcher (@Nullable final NaptrPrefetcher aNaptrPrefetcher)
+  {
+    m_aNaptrPrefetcher = aNaptrPrefetcher;
+  }
+
+  /**
+   * @return The table with statically pinned NAPTR resolutions. <code>null</code> if there is none,
+   *         which is the default.
+   * @since 12.8.2
+   */
+  @Nullable
+  public final NaptrOverrideTable getNaptrOverrideTable ()
+  {
+    return m_aNaptrOverrideTable;
+  }
+
+  /**
+   * Set a table with statically pinned NAPTR resolutions. The table is checked before the DNS cache
+   * and DNS is not queried for DNS names contained in it. It is not affected by
+   * {@link #clearDNSCache()}.
+   *
+   * @param aNaptrOverrideTable
+   *        The table to use. May be <code>null</code> to disable static resolutions.
+   * @since 12.8.2
+   */
+  public final void setNaptrOverrideTable (@Nullable final NaptrOverrideTable aNaptrOverrideTable)
+  {
+    m_aNaptrOverrideTable = aNaptrOverrideTable;
+  }
+
   public final boolean isUseNaptrDebug ()
   {
     return m_aRWLock.readLockedBoolean ( () -> m_bUseNaptrDebug);
@@ -217,6 +407,33 @@ public abstract class AbstractBDXLURLProvider implements IBDXLURLProvider
     m_aRWLock.writeLocked ( () -> m_bUseNaptrDebug = b);
   }
 
+  /**
+   * @return The timeout of a single NAPTR lookup attempt. Never <code>null</code>. Defaults to
+   *         {@link #DEFAULT_NAPTR_TIMEOUT}.
+   * @since 12.8.2
+   */
+  @NonNull
+  public final Duration getNaptrTimeout ()
+  {
+    return m_aRWLock.readLockedGet ( () -> m_aNaptrTimeout);
+  }
+
+  /**
+   * Set the timeout of a single NAPTR lookup attempt. If an {@link SMPLookupDeadline} is active,
+   * the remaining budget is split between the attempts and the timeout is reduced accordingly.
+   *
+   * @param aNaptrTimeout
+   *        The timeout to use. May not be <code>null</code> and must be positive.
+   * @since 12.8.2
+   */
+  public final void setNaptrTimeout (@NonNull final Duration aNaptrTimeout)
+  {
+    ValueEnforcer.notNull (aNaptrTimeout, "NaptrTimeout");
+    ValueEnforcer.isTrue ( () -> !aNaptrTimeout.isZero () && !aNaptrTimeout.isNegative (),
+                          "NaptrTimeout must be a positive Duration");
+    m_aRWLock.writeLocked ( () -> m_aNaptrTimeout = aNaptrTimeout);
+  }
+
   /**
    * Get the Base32 encoded (without padding), SHA-256 hash-string-representation of the passed
    * value using the {@link #URL_CHARSET} encoding.
@@ -228,13 +445,48 @@ public abstract class AbstractBDXLURLProvider implements IBDXLURLProvider
   @NonNull
   public static String getHashValueStringRepresentation (@NonNull final String sValueToHash)
   {
-    final byte [] aMessageDigest = MessageDigestValue.create (sValueToHash.getBytes (URL_CHARSET),
-                                                              EMessageDigestAlgorithm.SHA_256).bytes ();
-    // Lowercase manually, because URLs are case-sensitive but usually presented
-    // lowercase
-    return new Base32Codec ().setAddPaddding (false)
-                             .getEncodedAsString (aMessageDigest, StandardCharsets.ISO_8859_1)
-                             .toLowerCase (Locale.US);
+    final MessageDigest aMD = SHA256.get ();
+    final byte [] aDigest = aMD.digest (sValueToHash.getBytes (URL_CHARSET));
+
+    // Base32 without padding - lowercase directly, because URLs are case-sensitive but usually
+    // presented lowercase
+    final char [] ret = new char [(aDigest.length * 8 + 4) / 5];
+    int nBuffer = 0;
+    int nBits = 0;
+    int nIndex = 0;
+    for (final byte b : aDigest)
+    {
+      nBuffer = (nBuffer << 8) | (b & 0xff);
+      nBits += 8;
+      while (nBits >= 5)
+      {
+        nBits -= 5;
+        ret[nIndex++] = BASE32_LOWERCASE[(nBuffer >> nBits) & 0x1f];
+      }
+    }
+    if (nBits > 0)
+      ret[nIndex++] = BASE32_LOWERCASE[(nBuffer << (5 - nBits)) & 0x1f];
+    return new String (ret, 0, nIndex);
+  }
+
+  /**
+   * Remove all memoized participant DNS names.
+   *
+   * @since 12.8.2
+   */
+  public static void clearDNSNameCache ()
+  {
+    DNS_NAME_CACHE.clear ();
+  }
+
+  /**
+   * @return The number of memoized participant DNS names.
+   * @since 12.8.2
+   */
+  @Nonnegative
+  public static int getDNSNameCacheSize ()
+  {
+    return DNS_NAME_CACHE.size ();
   }
 
   @NonNull
@@ -245,6 +497,64 @@ public abstract class AbstractBDXLURLProvider implements IBDXLURLProvider
   {
     ValueEnforcer.notNull (aParticipantIdentifier, "ParticipantIdentifier");
 
+    // All parameters are part of the key - the lengths make it unambiguous
+    final String sScheme = aParticipantIdentifier.getScheme ();
+    final String sValue = aParticipantIdentifier.getValue ();
+    final String sCacheKey = (bLowercaseValueBeforeHashing ? "1" : "0") +
+                             (bAddIdentifierSchemeToZone ? "1" : "0") +
+                             (sSMLZoneName == null ? -1 : sSMLZoneName.length ()) +
+                             ':' +
+                             sSMLZoneName +
+                             (sScheme == null ? -1 : sScheme.length ()) +
+                             ':' +
+                             sScheme +
+                             sValue;
+    final String sCached = DNS_NAME_CACHE.get (sCacheKey);
+    if (sCached != null)
+      return sCached;
+
+    final String ret = _createDNSName (aParticipantIdentifier,
+                                       bLowercaseValueBeforeHashing,
+                                       bAddIdentifierSchemeToZone,
+                                       sSMLZoneName);
+    DNS_NAME_CACHE.put (sCacheKey, ret);
+    if (DNS_NAME_CACHE.size () > DNS_NAME_CACHE_MAX_SIZE)
+      _evictDNSNames ();
+    return ret;
+  }
+
+  private static void _evictDNSNames ()
+  {
+    // Only one thread needs to evict
+    if (!DNS_NAME_CACHE_EVICTING.compareAndSet (false, true))
+      return;
+    try
+    {
+      // Remove 10% of the entries, so that the cache is never cold. The iteration order is
+      // determined by the hash of the key, so the removed entries are spread evenly and hot
+      // participants that are removed are re-added quickly.
+      int nToRemove = DNS_NAME_CACHE.size () - DNS_NAME_CACHE_MAX_SIZE * 9 / 10;
+      final Iterator <String> it = DNS_NAME_CACHE.keySet ().iterator ();
+      while (nToRemove > 0 && it.hasNext ())
+      {
+        it.next ();
+        it.remove ();
+        nToRemove--;
+      }
+    }
+    finally
+    {
+      DNS_NAME_CACHE_EVICTING.set (false);
+    }
+  }
+
+  @NonNull
+  private static String _createDNSName (@NonNull final IParticipantIdentifier aParticipantIdentifier,
+                                        final boolean bLowercaseValueBeforeHashing,
+                                        final boolean bAddIdentifierSchemeToZone,
+                                        @Nullable final String sSMLZoneName)
+  {
+
     // Old and legacy
     if (false)
       // Ensure the DNS zone name ends with a dot!
@@ -311,6 +621,206 @@ public abstract class AbstractBDXLURLProvider implements IBDXLURLProvider
                                aSMLInfo.getDNSZone ());
   }
 
+  @Nullable
+  private static Duration _getMinTTL (@NonNull final NaptrLookupResult aLookupResult)
+  {
+    long nTTLSeconds = Long.MAX_VALUE;
+    for (final Record aRecord : aLookupResult.getRecords ())
+      nTTLSeconds = Math.min (nTTLSeconds, aRecord.getTTL ());
+    return nTTLSeconds == Long.MAX_VALUE ? null : Duration.ofSeconds (nTTLSeconds);
+  }
+
+  /**
+   * Get the DNS names of many participants at once. Large lists are processed in parallel.
+   *
+   * @param aParticipantIdentifiers
+   *        The participant identifiers. May not be <code>null</code> and may not contain
+   *        <code>null</code> elements.
+   * @param sSMLZoneName
+   *        The SML DNS zone name. May be <code>null</code>.
+   * @return The DNS names in the same order as the participant identifiers. Never
+   *         <code>null</code>.
+   * @since 12.8.2
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  public ICommonsList <String> getDNSNamesOfParticipants (@NonNull final List <? extends IParticipantIdentifier> aParticipantIdentifiers,
+                                                          @Nullable final String sSMLZoneName)
+  {
+    ValueEnforcer.notNull (aParticipantIdentifiers, "ParticipantIdentifiers");
+
+    // Read the settings only once
+    final boolean bLowercaseValueBeforeHashing = isLowercaseValueBeforeHashing ();
+    final boolean bAddIdentifierSchemeToZone = isAddIdentifierSchemeToZone ();
+    final boolean bParallel = aParticipantIdentifiers.size () >= PARALLEL_BATCH_THRESHOLD;
+    final Stream <? extends IParticipantIdentifier> aStream = bParallel ? aParticipantIdentifiers.parallelStream ()
+                                                                        : aParticipantIdentifiers.stream ();
+    return new CommonsArrayList <> (aStream.map (x -> internalGetDNSName (x,
+                                                                        bLowercaseValueBeforeHashing,
+                                                                        bAddIdentifierSchemeToZone,
+                                                                        sSMLZoneName))
+                                           .toList ());
+  }
+
+  @NonNull
+  private NaptrLookup _createNaptrLookup (@NonNull final String sDomainName,
+                                          @NonNull final ICommonsList <InetAddress> aDNSServers,
+                                          @Nullable final SMPLookupDeadline aDeadline) throws TextParseException
+  {
+    final NaptrLookup.Builder aBuilder = NaptrLookup.builder ()
+                                                    .domainName (sDomainName)
+                                                    .customDNSServers (aDNSServers)
+                                                    .maxRetries (NAPTR_MAX_RETRIES)
+                                                    .debugMode (isUseNaptrDebug ());
+    Duration aTimeout = getNaptrTimeout ();
+    if (aDeadline != null)
+    {
+      // All attempts together may only use the remaining budget
+      aTimeout = aDeadline.getStageTimeout (aTimeout, NAPTR_MAX_RETRIES + 1);
+      if (aTimeout.isZero ())
+        aTimeout = Duration.ofMillis (1);
+    }
+    return aBuilder.timeout (aTimeout).build ();
+  }
+
+  /**
+   * Perform the NAPTR lookup of a single DNS name and put the result into the provided cache.
+   *
+   * @param sBuildDomainName
+   *        The DNS name to resolve. May not be <code>null</code>.
+   * @param aDNSCache
+   *        The cache to put the result into. May be <code>null</code>.
+   * @return The resolved NAPTR value. Never <code>null</code>.
+   * @throws SMPDNSResolutionException
+   *         If the DNS name could not be resolved
+   */
+  @NonNull
+  private String _resolveNaptr (@NonNull final String sBuildDomainName,
+                                @Nullable final NaptrCache aDNSCache) throws SMPDNSResolutionException
+  {
+    final String sServiceName = getNAPTRServiceName ();
+    final SMPLookupDeadline aDeadline = SMPLookupDeadline.getCurrent ();
+    if (aDeadline != null && aDeadline.isExpired ())
+      throw new SMPDNSResolutionException (EErrorCode.DEADLINE_EXCEEDED,
+                                           "The lookup deadline of " +
+                                                                         aDeadline.getBudget () +
+                                                                         " was exceeded before resolving '" +
+                                                                         sBuildDomainName +
+                                                                         "'");
+
+    final ICommonsList <InetAddress> aCustomDNSServers = customDNSServers ().getClone ();
+    final DNSServerRace aDNSServerRace = m_aDNSServerRace;
+    final NaptrLookupResult aLookupResult;
+    try
+    {
+      if (aDNSServerRace != null && aCustomDNSServers.size () > 1)
+      {
+        // One lookup per DNS server
+        final Map <InetAddress, NaptrLookup> aLookups = new HashMap <> ();
+        for (final InetAddress aServer : aCustomDNSServers)
+          aLookups.put (aServer,
+                        _createNaptrLookup (sBuildDomainName, new CommonsArrayList <> (aServer), aDeadline));
+        aLookupResult = aDNSServerRace.race (aCustomDNSServers,
+                                             x -> aLookups.get (x).lookupResult (),
+                                             x -> !x.isTechnicalFailure ());
+      }
+      else
+        aLookupResult = _createNaptrLookup (sBuildDomainName, aCustomDNSServers, aDeadline).lookupResult ();
+    }
+    catch (final TextParseException ex)
+    {
+      throw new SMPDNSResolutionException (EErrorCode.DOMAIN_NAME_SYNTAX_ERROR,
+                                           "Failed to parse '" + sBuildDomainName + "'",
+                                           ex);
+    }
+    catch (final InterruptedException ex)
+    {
+      Thread.currentThread ().interrupt ();
+      throw new SMPDNSResolutionException (EErrorCode.DNS_TECHNICAL_FAILURE,
+                                           "Interrupted while resolving '" + sBuildDomainName + "'",
+                                           ex);
+    }
+
+    // Distinguish technical failures (retryable, infrastructure) from functional not-found
+    // (participant simply not registered) — see ENaptrLookupStatus
+    if (aLookupResult.isTechnicalFailure ())
+    {
+      if (aDeadline != null && aDeadline.isExpired ())
+        throw new SMPDNSResolutionException (EErrorCode.DEADLINE_EXCEEDED,
+                                             "The lookup deadline of " +
+                                                                           aDeadline.getBudget () +
+                                                                           " was exceeded while resolving '" +
+                                                                           sBuildDomainName +
+                                                                           "' [" +
+                                                                           aLookupResult.getStatus () +
+                                                                           "]");
+      throw new SMPDNSResolutionException (EErrorCode.DNS_TECHNICAL_FAILURE,
+                                           "Technical DNS failure resolving '" +
+                                                                             sBuildDomainName +
+                                                                             "' [" +
+                                                                             aLookupResult.getStatus () +
+                                                                             "]: " +
+                                                                             aLookupResult.getErrorMessage ());
+    }
+
+    if (!aLookupResult.isSuccess ())
+    {
+      // HOST_NOT_FOUND or TYPE_NOT_FOUND — addressee is not registered in the SML
+      final String sMsg = "Participant DNS name '" +
+                          sBuildDomainName +
+                          "' is not registered [" +
+                          aLookupResult.getStatus () +
+                          "]";
+      if (aDNSCache != null)
+      {
+        // The SOA of the negative answer is not available - use the default negative TTL
+        aDNSCache.putNegative (sBuildDomainName, EErrorCode.PARTICIPANT_NOT_REGISTERED, sMsg, null);
+      }
+      throw new SMPDNSResolutionException (EErrorCode.PARTICIPANT_NOT_REGISTERED, sMsg);
+    }
+
+    final String sResolvedNAPTR = NaptrResolver.builder ()
+                                               .domainName (sBuildDomainName)
+                                               .naptrRecords (aLookupResult.getRecords ())
+                                               .serviceName (sServiceName)
+                                               .build ()
+                                               .resolveUNAPTR ();
+
+    if (sResolvedNAPTR == null)
+    {
+      // Records exist but none matched the requested U-NAPTR service name
+      final String sMsg = "Domain '" +
+                          sBuildDomainName +
+                          "' has NAPTR records but none match service '" +
+                          sServiceName +
+                          "'";
+      if (aDNSCache != null)
+      {
+        // Valid as long as the records are valid
+        aDNSCache.putNegative (sBuildDomainName,
+                               EErrorCode.NO_MATCHING_SMP_SERVICE,
+                               sMsg,
+                               _getMinTTL (aLookupResult));
+      }
+      throw new SMPDNSResolutionException (EErrorCode.NO_MATCHING_SMP_SERVICE, sMsg);
+    }
+
+    LOGGER.info ("Resolved domain name '" +
+                 sBuildDomainName +
+                 "' and service '" +
+                 sServiceName +
+                 "' to URL '" +
+                 sResolvedNAPTR +
+                 "'");
+
+    if (aDNSCache != null)
+    {
+      // Put in cache - the shortest TTL of all records applies
+      aDNSCache.put (sBuildDomainName, sResolvedNAPTR, _getMinTTL (aLookupResult));
+    }
+    return sResolvedNAPTR;
+  }
+
   @NonNull
   public URI getSMPURIOfParticipant (@NonNull final IParticipantIdentifier aParticipantIdentifier,
                                      @Nullable final String sSMLZoneName) throws SMPDNSResolutionException
@@ -327,87 +837,38 @@ public abstract class AbstractBDXLURLProvider implements IBDXLURLProvider
 
     final String sBuildDomainName = getDNSNameOfParticipant (aParticipantIdentifier, sSMLZoneName);
 
-    final boolean bUseDNSCache = isUseDNSCache ();
-    // Already in cache?
-    String sResolvedNAPTR = bUseDNSCache ? getDNSCacheEntry (sBuildDomainName) : null;
-    if (sResolvedNAPTR == null)
-    {
-      // Now do the NAPTR resolving
-      final String sServiceName = getNAPTRServiceName ();
-      final NaptrLookupResult aLookupResult;
-      try
-      {
-        aLookupResult = NaptrLookup.builder ()
-                                   .domainName (sBuildDomainName)
-                                   .customDNSServers (customDNSServers ())
-                                   .maxRetries (1)
-                                   .debugMode (m_bUseNaptrDebug)
-                                   .build ()
-                                   .lookupResult ();
-      }
-      catch (final TextParseException ex)
-      {
-        throw new SMPDNSResolutionException (EErrorCode.DOMAIN_NAME_SYNTAX_ERROR,
-                                             "Failed to parse '" + sBuildDomainName + "'",
-                                             ex);
-      }
+    // Statically pinned?
+    final NaptrOverrideTable aNaptrOverrideTable = m_aNaptrOverrideTable;
+    final String sOverrideNAPTR = aNaptrOverrideTable != null ? aNaptrOverrideTable.get (sBuildDomainName) : null;
 
-      // Distinguish technical failures (retryable, infrastructure) from functional not-found
-      // (participant simply not registered) — see ENaptrLookupStatus
-      if (aLookupResult.isTechnicalFailure ())
-      {
-        throw new SMPDNSResolutionException (EErrorCode.DNS_TECHNICAL_FAILURE,
-                                             "Technical DNS failure resolving '" +
-                                                                               sBuildDomainName +
-                                                                               "' [" +
-                                                                               aLookupResult.getStatus () +
-                                                                               "]: " +
-                                                                               aLookupResult.getErrorMessage ());
-      }
+    final NaptrCache aDNSCache = isUseDNSCache () ? m_aDNSCache : null;
+    // Already in cache?
+    final NaptrCache.CacheEntry aCacheEntry = sOverrideNAPTR == null &&
+                                              aDNSCache != null ? aDNSCache.getEntry (sBuildDomainName) : null;
+    if (aCacheEntry != null && aCacheEntry.isNegative ())
+      throw new SMPDNSResolutionException (aCacheEntry.getErrorCode (), aCacheEntry.getErrorMessage () + " (cached)");
 
-      if (!aLookupResult.isSuccess ())
+    final String sResolvedNAPTR;
+    if (sOverrideNAPTR != null)
+    {
+      if (isUseNaptrDebug ())
+        LOGGER.info ("Using pinned NAPTR value '" + sOverrideNAPTR + "' for '" + sBuildDomainName + "'");
+      sResolvedNAPTR = sOverrideNAPTR;
+    }
+    else
+      if (aCacheEntry != null)
       {
-        // HOST_NOT_FOUND or TYPE_NOT_FOUND — addressee is not registered in the SML
-        throw new SMPDNSResolutionException (EErrorCode.PARTICIPANT_NOT_REGISTERED,
-                                             "Participant DNS name '" +
-                                                                                    sBuildDomainName +
-                                                                                    "' is not registered [" +
-                                                                                    aLookupResult.getStatus () +
-                                                                                    "]");
-      }
-
-      sResolvedNAPTR = NaptrResolver.builder ()
-                                    .domainName (sBuildDomainName)
-                                    .naptrRecords (aLookupResult.getRecords ())
-                                    .serviceName (sServiceName)
-                                    .build ()
-                                    .resolveUNAPTR ();
+        sResolvedNAPTR = aCacheEntry.getValue ();
 
-      if (sResolvedNAPTR == null)
-      {
-        // Records exist but none matched the requested U-NAPTR service name
-        throw new SMPDNSResolutionException (EErrorCode.NO_MATCHING_SMP_SERVICE,
-                                             "Domain '" +
-                                                                                 sBuildDomainName +
-                                                                                 "' has NAPTR records but none match service '" +
-                                                                                 sServiceName +
-                                                                                 "'");
+        final NaptrPrefetcher aNaptrPrefetcher = m_aNaptrPrefetcher;
+        if (aNaptrPrefetcher != null)
+          aNaptrPrefetcher.onCacheHit (sBuildDomainName, aCacheEntry, aDNSCache, x -> _resolveNaptr (x, aDNSCache));
       }
-
-      LOGGER.info ("Resolved domain name '" +
-                   sBuildDomainName +
-                   "' and service '" +
-                   sServiceName +
-                   "' to URL '" +
-                   sResolvedNAPTR +
-                   "'");
-
-      if (bUseDNSCache)
+      else
       {
-        // Put in cache
-        addDNSCacheEntry (sBuildDomainName, sResolvedNAPTR);
+        // Now do the NAPTR resolving
+        sResolvedNAPTR = _resolveNaptr (sBuildDomainName, aDNSCache);
       }
-    }
 
     try
     {
@@ -421,6 +882,182 @@ public abstract class AbstractBDXLURLProvider implements IBDXLURLProvider
     }
   }
 
+  /**
+   * Resolve the SMP URIs of many participants concurrently, e.g. for auditing a large set of
+   * participants. At most <code>nMaxConcurrency</code> DNS lookups are in flight at any time and
+   * the participants are taken lazily from the source, so arbitrary large sets can be resolved. The
+   * DNS cache settings of this provider are used.
+   * <p>
+   * The results are returned in the order in which the lookups finish. Functional negative results
+   * (see {@link SMPURIResolutionResult#isNotRegistered()}) and technical failures (see
+   * {@link SMPURIResolutionResult#isTechnicalFailure()}) are reported per participant and don't stop
+   * the resolution. Own threads are used that are released when the stream is exhausted or closed.
+   * So the stream should be closed if it is not consumed completely, e.g. via try-with-resources.
+   * </p>
+   *
+   * @param aParticipantIDs
+   *        The participants to resolve. May not be <code>null</code>.
+   * @param sSMLZoneName
+   *        The SML DNS zone name. May be <code>null</code>.
+   * @param nMaxConcurrency
+   *        The maximum number of concurrent lookups. Must be &gt; 0. See
+   *        {@link #DEFAULT_BULK_MAX_CONCURRENCY}.
+   * @return A sequential, lazy stream with one result per participant. Never <code>null</code>.
+   * @since 12.8.2
+   */
+  @NonNull
+  public Stream <SMPURIResolutionResult> getAllSMPURIsOfParticipants (@NonNull final Iterable <? extends IParticipantIdentifier> aParticipantIDs,
+                                                                      @Nullable final String sSMLZoneName,
+                                                                      @Nonnegative final int nMaxConcurrency)
+  {
+    return getAllSMPURIsOfParticipants (aParticipantIDs, sSMLZoneName, nMaxConcurrency, null);
+  }
+
+  /**
+   * Resolve the SMP URIs of many participants concurrently on the provided executor. See
+   * {@link #getAllSMPURIsOfParticipants(Iterable, String, int)} for details.
+   *
+   * @param aParticipantIDs
+   *        The participants to resolve. May not be <code>null</code>.
+   * @param sSMLZoneName
+   *        The SML DNS zone name. May be <code>null</code>.
+   * @param nMaxConcurrency
+   *        The maximum number of concurrent lookups. Must be &gt; 0.
+   * @param aExecutor
+   *        The executor to run the lookups on. May be <code>null</code> to use own threads. A
+   *        provided executor is not shut down.
+   * @return A sequential, lazy stream with one result per participant. Never <code>null</code>.
+   * @since 12.8.2
+   */
+  @NonNull
+  public Stream <SMPURIResolutionResult> getAllSMPURIsOfParticipants (@NonNull final Iterable <? extends IParticipantIdentifier> aParticipantIDs,
+                                                                      @Nullable final String sSMLZoneName,
+                                                                      @Nonnegative final int nMaxConcurrency,
+                                                                      @Nullable final Executor aExecutor)
+  {
+    ValueEnforcer.notNull (aParticipantIDs, "ParticipantIDs");
+    ValueEnforcer.isGT0 (nMaxConcurrency, "MaxConcurrency");
+    return SMPURIBulkResolver.resolve (this, aParticipantIDs, sSMLZoneName, nMaxConcurrency, aExecutor);
+  }
+
+  /**
+   * Check if a participant is registered in the SML with a matching SMP service. Only the NAPTR
+   * lookup is performed - the SMP itself is not contacted. Positive and negative results are cached
+   * if the DNS cache is enabled (see {@link #setUseDNSCache(boolean)}).
+   *
+   * @param aParticipantIdentifier
+   *        The participant to check. May not be <code>null</code>.
+   * @param sSMLZoneName
+   *        The SML DNS zone name. May be <code>null</code>.
+   * @return <code>true</code> if the participant is registered, <code>false</code> if it is not
+   *         registered or has no matching SMP service.
+   * @throws SMPDNSResolutionException
+   *         In case of technical DNS failures, where the registration state is not known.
+   * @since 12.8.2
+   */
+  public boolean isRegistered (@NonNull final IParticipantIdentifier aParticipantIdentifier,
+                               @Nullable final String sSMLZoneName) throws SMPDNSResolutionException
+  {
+    try
+    {
+      getSMPURIOfParticipant (aParticipantIdentifier, sSMLZoneName);
+      return true;
+    }
+    catch (final SMPDNSResolutionException ex)
+    {
+      final SMPURIResolutionResult aResult = SMPURIResolutionResult.createFailure (aParticipantIdentifier, ex);
+      if (aResult.isTechnicalFailure ())
+        throw ex;
+      return aResult.isRegistered ();
+    }
+  }
+
+  /**
+   * Check if a participant is registered in the SML with a matching SMP service. See
+   * {@link #isRegistered(IParticipantIdentifier, String)} for details.
+   *
+   * @param aParticipantIdentifier
+   *        The participant to check. May not be <code>null</code>.
+   * @param aSMLInfo
+   *        The SML to check. May not be <code>null</code>.
+   * @return <code>true</code> if the participant is registered, <code>false</code> if it is not
+   *         registered or has no matching SMP service.
+   * @throws SMPDNSResolutionException
+   *         In case of technical DNS failures, where the registration state is not known.
+   * @since 12.8.2
+   */
+  public boolean isRegistered (@NonNull final IParticipantIdentifier aParticipantIdentifier,
+                               @NonNull final ISMLInfo aSMLInfo) throws SMPDNSResolutionException
+  {
+    ValueEnforcer.notNull (aSMLInfo, "SMLInfo");
+    return isRegistered (aParticipantIdentifier, aSMLInfo.getDNSZone ());
+  }
+
+  /**
+   * Get all registered participants out of a large set of participants, by checking them
+   * concurrently. Participants for which the check failed for technical reasons are logged and
+   * skipped. See {@link #filterRegistered(Iterable, String, int, Consumer)} for details.
+   *
+   * @param aParticipantIDs
+   *        The participants to check. May not be <code>null</code>.
+   * @param sSMLZoneName
+   *        The SML DNS zone name. May be <code>null</code>.
+   * @param nMaxConcurrency
+   *        The maximum number of concurrent lookups. Must be &gt; 0. See
+   *        {@link #DEFAULT_BULK_MAX_CONCURRENCY}.
+   * @return A sequential, lazy stream of the registered participants. Never <code>null</code>.
+   * @since 12.8.2
+   */
+  @NonNull
+  public Stream <IParticipantIdentifier> filterRegistered (@NonNull final Iterable <? extends IParticipantIdentifier> aParticipantIDs,
+                                                          @Nullable final String sSMLZoneName,
+                                                          @Nonnegative final int nMaxConcurrency)
+  {
+    return filterRegistered (aParticipantIDs, sSMLZoneName, nMaxConcurrency, null);
+  }
+
+  /**
+   * Get all registered participants out of a large set of participants, by checking them
+   * concurrently. Only the NAPTR lookups are performed, with the same concurrency, caching and
+   * threading as {@link #getAllSMPURIsOfParticipants(Iterable, String, int)}. The participants are
+   * returned in the order in which the lookups finish and the stream should be closed if it is not
+   * consumed completely.
+   *
+   * @param aParticipantIDs
+   *        The participants to check. May not be <code>null</code>.
+   * @param sSMLZoneName
+   *        The SML DNS zone name. May be <code>null</code>.
+   * @param nMaxConcurrency
+   *        The maximum number of concurrent lookups. Must be &gt; 0.
+   * @param aTechnicalFailureHandler
+   *        The handler for participants for which the check failed for technical reasons. These
+   *        participants are not part of the result. May be <code>null</code> in which case the
+   *        failures are logged.
+   * @return A sequential, lazy stream of the registered participants. Never <code>null</code>.
+   * @since 12.8.2
+   */
+  @NonNull
+  public Stream <IParticipantIdentifier> filterRegistered (@NonNull final Iterable <? extends IParticipantIdentifier> aParticipantIDs,
+                                                          @Nullable final String sSMLZoneName,
+                                                          @Nonnegative final int nMaxConcurrency,
+                                                          @Nullable final Consumer <? super SMPURIResolutionResult> aTechnicalFailureHandler)
+  {
+    return getAllSMPURIsOfParticipants (aParticipantIDs, sSMLZoneName, nMaxConcurrency).filter (x -> {
+      if (x.isTechnicalFailure ())
+      {
+        if (aTechnicalFailureHandler != null)
+          aTechnicalFailureHandler.accept (x);
+        else
+          LOGGER.warn ("Failed to check the registration of participant '" +
+                       x.getParticipantID ().getURIEncoded () +
+                       "': " +
+                       x.getError ().getMessage ());
+        return false;
+      }
+      return x.isRegistered ();
+    }).map (SMPURIResolutionResult::getParticipantID);
+  }
+
   @Override
   public String toString ()
   {
@@ -430,7 +1067,11 @@ public abstract class AbstractBDXLURLProvider implements IBDXLURLProvider
                                        .append ("UseDNSCache", m_bUseDNSCache)
                                        .append ("DNSCache", m_aDNSCache)
                                        .append ("CustomDNSServers", m_aCustomDNSServers)
+                                       .append ("DNSServerRace", m_aDNSServerRace)
+                                       .append ("NaptrPrefetcher", m_aNaptrPrefetcher)
+                                       .append ("NaptrOverrideTable", m_aNaptrOverrideTable)
                                        .append ("UseNaptrDebug", m_bUseNaptrDebug)
+                                       .append ("NaptrTimeout", m_aNaptrTimeout)
                                        .getToString ();
   }
 }
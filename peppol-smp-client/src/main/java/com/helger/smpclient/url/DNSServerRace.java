@@ -0,0 +1,590 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.url;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.GuardedBy;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.annotation.style.ReturnsMutableCopy;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.tostring.ToStringGenerator;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+
+/**
+ * Settings and per DNS server statistics for racing DNS lookups. Instead of querying the configured
+ * DNS servers one after another, the same query is sent to the {@link #getRaceWidth()} best DNS
+ * servers at the same time and the first valid answer is used. So a single slow or unreachable DNS
+ * server does not add its full timeout to the lookup time.
+ * <p>
+ * The DNS servers are ranked by their consecutive failures and a rolling (exponentially weighted)
+ * average of their response times. DNS servers without any samples are ranked first, so that they
+ * are measured. A DNS server that
+ * failed {@link #getFailureThreshold()} times in a row is considered unhealthy and is only used
+ * again after {@link #getUnhealthyDuration()} or if not enough healthy DNS servers are available.
+ * The slower lookups of a race are cancelled as soon as a valid answer arrived. For them only the
+ * time until the cancellation is recorded as a lower bound of their response time, and it is not
+ * counted as a failure.
+ * </p>
+ * <p>
+ * The default executor uses at most {@link #getRaceWidth()} &times;
+ * {@link #DEFAULT_MAX_CONCURRENT_RACES} threads. If all of them are busy (e.g. because a DNS server
+ * does not respond), further lookups are run in the calling thread, so that the number of blocked
+ * threads is bounded.
+ * </p>
+ *
+ * @author Philip Helger
+ * @since 12.8.2
+ */
+@ThreadSafe
+public class DNSServerRace
+{
+  /** The default number of DNS servers that are queried at the same time */
+  public static final int DEFAULT_RACE_WIDTH = 2;
+  /** The default weight of a new response time in the rolling average */
+  public static final double DEFAULT_LATENCY_WEIGHT = 0.2;
+  /** The default number of consecutive failures after which a DNS server is unhealthy */
+  public static final int DEFAULT_FAILURE_THRESHOLD = 3;
+  /** The default duration for which an unhealthy DNS server is not used */
+  public static final Duration DEFAULT_UNHEALTHY_DURATION = Duration.ofSeconds (30);
+  /** The default number of races that can run at the same time in the default executor */
+  public static final int DEFAULT_MAX_CONCURRENT_RACES = 16;
+
+  private static final AtomicInteger THREAD_INDEX = new AtomicInteger (0);
+
+  /**
+   * The statistics of a single DNS server.
+   *
+   * @author Philip Helger
+   */
+  @ThreadSafe
+  public static final class ServerStats
+  {
+    private final InetAddress m_aServer;
+    private final double m_dLatencyWeight;
+    private final int m_nFailureThreshold;
+    private final long m_nUnhealthyNanos;
+    @GuardedBy ("this")
+    private long m_nSuccessCount;
+    @GuardedBy ("this")
+    private long m_nFailureCount;
+    @GuardedBy ("this")
+    private long m_nWinCount;
+    @GuardedBy ("this")
+    private int m_nConsecutiveFailures;
+    @GuardedBy ("this")
+    private long m_nLastFailureNanos;
+    @GuardedBy ("this")
+    private double m_dAvgLatencyNanos = -1;
+
+    ServerStats (@NonNull final InetAddress aServer,
+                 final double dLatencyWeight,
+                 final int nFailureThreshold,
+                 final long nUnhealthyNanos)
+    {
+      m_aServer = aServer;
+      m_dLatencyWeight = dLatencyWeight;
+      m_nFailureThreshold = nFailureThreshold;
+      m_nUnhealthyNanos = nUnhealthyNanos;
+    }
+
+    private void _addLatency (final long nDurationNanos)
+    {
+      if (m_dAvgLatencyNanos < 0)
+        m_dAvgLatencyNanos = nDurationNanos;
+      else
+        m_dAvgLatencyNanos += m_dLatencyWeight * (nDurationNanos - m_dAvgLatencyNanos);
+    }
+
+    synchronized void onSuccess (final long nDurationNanos)
+    {
+      m_nSuccessCount++;
+      m_nConsecutiveFailures = 0;
+      _addLatency (nDurationNanos);
+    }
+
+    synchronized void onFailure (final long nDurationNanos)
+    {
+      m_nFailureCount++;
+      m_nConsecutiveFailures++;
+      m_nLastFailureNanos = System.nanoTime ();
+      // A failure usually takes long (e.g. a timeout) so it is also counted
+      _addLatency (nDurationNanos);
+    }
+
+    synchronized void onWin ()
+    {
+      m_nWinCount++;
+    }
+
+    synchronized void onCancelled (final long nDurationNanos)
+    {
+      // The real response time is at least as long
+      _addLatency (nDurationNanos);
+    }
+
+    /**
+     * @return The DNS server to which the statistics belong. Never <code>null</code>.
+     */
+    @NonNull
+    public InetAddress getServer ()
+    {
+      return m_aServer;
+    }
+
+    /**
+     * @return The number of lookups with a valid answer.
+     */
+    @Nonnegative
+    public synchronized long getSuccessCount ()
+    {
+      return m_nSuccessCount;
+    }
+
+    /**
+     * @return The number of lookups that failed technically.
+     */
+    @Nonnegative
+    public synchronized long getFailureCount ()
+    {
+      return m_nFailureCount;
+    }
+
+    /**
+     * @return The number of races in which this DNS server delivered the used answer.
+     */
+    @Nonnegative
+    public synchronized long getWinCount ()
+    {
+      return m_nWinCount;
+    }
+
+    /**
+     * @return The number of lookups that failed since the last valid answer.
+     */
+    @Nonnegative
+    public synchronized int getConsecutiveFailures ()
+    {
+      return m_nConsecutiveFailures;
+    }
+
+    /**
+     * @return The rolling average response time or <code>null</code> if no lookup finished so far.
+     */
+    @Nullable
+    public synchronized Duration getAverageLatency ()
+    {
+      return m_dAvgLatencyNanos < 0 ? null : Duration.ofNanos ((long) m_dAvgLatencyNanos);
+    }
+
+    /**
+     * @return <code>true</code> if this DNS server may be used, <code>false</code> if it failed too
+     *         often in a row and the unhealthy duration is not yet over.
+     */
+    public synchronized boolean isHealthy ()
+    {
+      return m_nConsecutiveFailures < m_nFailureThreshold ||
+             System.nanoTime () - m_nLastFailureNanos >= m_nUnhealthyNanos;
+    }
+
+    // Used for sorting - unknown servers first
+    synchronized double getRankingLatencyNanos ()
+    {
+      return m_dAvgLatencyNanos < 0 ? 0 : m_dAvgLatencyNanos;
+    }
+
+    @Override
+    public String toString ()
+    {
+      return new ToStringGenerator (this).append ("Server", m_aServer)
+                                       .append ("SuccessCount", getSuccessCount ())
+                                       .append ("FailureCount", getFailureCount ())
+                                       .append ("WinCount", getWinCount ())
+                                       .append ("ConsecutiveFailures", getConsecutiveFailures ())
+                                       .append ("AverageLatency", getAverageLatency ())
+                                       .getToString ();
+    }
+  }
+
+  private static final class Candidate
+  {
+    private final InetAddress m_aServer;
+    private final boolean m_bHealthy;
+    private final int m_nConsecutiveFailures;
+    private final double m_dLatencyNanos;
+
+    Candidate (@NonNull final ServerStats aStats)
+    {
+      m_aServer = aStats.getServer ();
+      synchronized (aStats)
+      {
+        m_bHealthy = aStats.isHealthy ();
+        m_nConsecutiveFailures = aStats.getConsecutiveFailures ();
+        m_dLatencyNanos = aStats.getRankingLatencyNanos ();
+      }
+    }
+  }
+
+  private static final class Outcome <T>
+  {
+    private final InetAddress m_aServer;
+    private final T m_aResult;
+    private final RuntimeException m_aException;
+    private final boolean m_bValid;
+
+    Outcome (@NonNull final InetAddress aServer,
+             @Nullable final T aResult,
+             @Nullable final RuntimeException aException,
+             final boolean bValid)
+    {
+      m_aServer = aServer;
+      m_aResult = aResult;
+      m_aException = aException;
+      m_bValid = bValid;
+    }
+  }
+
+  private final int m_nRaceWidth;
+  private final double m_dLatencyWeight;
+  private final int m_nFailureThreshold;
+  private final Duration m_aUnhealthyDuration;
+  private final ExecutorService m_aExecutor;
+  private final Map <InetAddress, ServerStats> m_aStats = new ConcurrentHashMap <> ();
+
+  /**
+   * Constructor using all the default values and a default executor with daemon threads.
+   */
+  public DNSServerRace ()
+  {
+    this (DEFAULT_RACE_WIDTH, DEFAULT_LATENCY_WEIGHT, DEFAULT_FAILURE_THRESHOLD, DEFAULT_UNHEALTHY_DURATION, null);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param nRaceWidth
+   *        The number of DNS servers that are queried at the same time. Must be &gt; 0.
+   * @param dLatencyWeight
+   *        The weight of a new response time in the rolling average. Must be &gt; 0 and &le; 1.
+   * @param nFailureThreshold
+   *        The number of consecutive failures after which a DNS server is considered unhealthy.
+   *        Must be &gt; 0.
+   * @param aUnhealthyDuration
+   *        The duration for which an unhealthy DNS server is not used. May not be
+   *        <code>null</code> and may not be negative.
+   * @param aExecutor
+   *        The executor that runs the lookups. May be <code>null</code> in which case a thread pool
+   *        with at most <code>nRaceWidth</code> &times; {@link #DEFAULT_MAX_CONCURRENT_RACES} daemon
+   *        threads is used, that runs further lookups in the calling thread.
+   */
+  public DNSServerRace (@Nonnegative final int nRaceWidth,
+                        final double dLatencyWeight,
+                        @Nonnegative final int nFailureThreshold,
+                        @NonNull final Duration aUnhealthyDuration,
+                        @Nullable final ExecutorService aExecutor)
+  {
+    ValueEnforcer.isGT0 (nRaceWidth, "RaceWidth");
+    ValueEnforcer.isTrue ( () -> dLatencyWeight > 0 && dLatencyWeight <= 1, "LatencyWeight must be in the range (0, 1]");
+    ValueEnforcer.isGT0 (nFailureThreshold, "FailureThreshold");
+    ValueEnforcer.notNull (aUnhealthyDuration, "UnhealthyDuration");
+    ValueEnforcer.isTrue ( () -> !aUnhealthyDuration.isNegative (), "UnhealthyDuration may not be negative");
+    m_nRaceWidth = nRaceWidth;
+    m_dLatencyWeight = dLatencyWeight;
+    m_nFailureThreshold = nFailureThreshold;
+    m_aUnhealthyDuration = aUnhealthyDuration;
+    m_aExecutor = aExecutor != null ? aExecutor : _createDefaultExecutor (nRaceWidth);
+  }
+
+  @NonNull
+  private static ExecutorService _createDefaultExecutor (@Nonnegative final int nRaceWidth)
+  {
+    // Idle threads are terminated, and if all threads are busy the caller runs the lookup itself
+    return new ThreadPoolExecutor (0,
+                                   nRaceWidth * DEFAULT_MAX_CONCURRENT_RACES,
+                                   60,
+                                   TimeUnit.SECONDS,
+                                   new SynchronousQueue <> (),
+                                   r -> {
+                                     final Thread t = new Thread (r,
+                                                                  "smp-client-dns-race-" +
+                                                                     THREAD_INDEX.incrementAndGet ());
+                                     t.setDaemon (true);
+                                     return t;
+                                   },
+                                   new ThreadPoolExecutor.CallerRunsPolicy ());
+  }
+
+  /**
+   * @return The number of DNS servers that are queried at the same time.
+   */
+  @Nonnegative
+  public final int getRaceWidth ()
+  {
+    return m_nRaceWidth;
+  }
+
+  /**
+   * @return The weight of a new response time in the rolling average.
+   */
+  public final double getLatencyWeight ()
+  {
+    return m_dLatencyWeight;
+  }
+
+  /**
+   * @return The number of consecutive failures after which a DNS server is considered unhealthy.
+   */
+  @Nonnegative
+  public final int getFailureThreshold ()
+  {
+    return m_nFailureThreshold;
+  }
+
+  /**
+   * @return The duration for which an unhealthy DNS server is not used. Never <code>null</code>.
+   */
+  @NonNull
+  public final Duration getUnhealthyDuration ()
+  {
+    return m_aUnhealthyDuration;
+  }
+
+  /**
+   * @return The executor that runs the lookups. Never <code>null</code>.
+   */
+  @NonNull
+  public final ExecutorService getExecutor ()
+  {
+    return m_aExecutor;
+  }
+
+  @NonNull
+  private ServerStats _getStats (@NonNull final InetAddress aServer)
+  {
+    return m_aStats.computeIfAbsent (aServer,
+                                     k -> new ServerStats (k,
+                                                           m_dLatencyWeight,
+                                                           m_nFailureThreshold,
+                                                           m_aUnhealthyDuration.toNanos ()));
+  }
+
+  /**
+   * Get the statistics of a single DNS server.
+   *
+   * @param aServer
+   *        The DNS server to query. May be <code>null</code>.
+   * @return <code>null</code> if no lookup was sent to the DNS server so far.
+   */
+  @Nullable
+  public ServerStats getServerStats (@Nullable final InetAddress aServer)
+  {
+    return aServer == null ? null : m_aStats.get (aServer);
+  }
+
+  /**
+   * @return The statistics of all DNS servers to which a lookup was sent. Never <code>null</code>.
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  public ICommonsList <ServerStats> getAllServerStats ()
+  {
+    return new CommonsArrayList <> (m_aStats.values ());
+  }
+
+  /**
+   * Forget the statistics of all DNS servers.
+   */
+  public void resetServerStats ()
+  {
+    m_aStats.clear ();
+  }
+
+  /**
+   * Get the DNS servers that should be part of the next race. Healthy DNS servers come first, then
+   * the DNS servers with less consecutive failures and then the DNS servers with the lower average
+   * response time. DNS servers with the same ranking stay in the provided order.
+   *
+   * @param aServers
+   *        All available DNS servers. May not be <code>null</code>.
+   * @return At most {@link #getRaceWidth()} DNS servers. Never <code>null</code>.
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  public ICommonsList <InetAddress> getRaceServers (@NonNull final List <InetAddress> aServers)
+  {
+    ValueEnforcer.notNull (aServers, "Servers");
+
+    // Take a snapshot, so that concurrent updates don't break the sorting
+    final ICommonsList <Candidate> aCandidates = new CommonsArrayList <> (aServers.size ());
+    for (final InetAddress aServer : aServers)
+      aCandidates.add (new Candidate (_getStats (aServer)));
+    // Stable sort
+    aCandidates.sort (Comparator.comparing ((final Candidate x) -> Boolean.valueOf (!x.m_bHealthy))
+                                .thenComparingInt (x -> x.m_nConsecutiveFailures)
+                                .thenComparingDouble (x -> x.m_dLatencyNanos));
+
+    final ICommonsList <InetAddress> ret = new CommonsArrayList <> ();
+    for (final Candidate aCandidate : aCandidates)
+    {
+      if (ret.size () >= m_nRaceWidth)
+        break;
+      ret.add (aCandidate.m_aServer);
+    }
+    return ret;
+  }
+
+  @NonNull
+  private <T> Outcome <T> _lookup (@NonNull final InetAddress aServer,
+                                   @NonNull final Function <InetAddress, T> aLookup,
+                                   @NonNull final Predicate <? super T> aValidPredicate,
+                                   @NonNull final AtomicBoolean aRaceDecided)
+  {
+    final ServerStats aStats = _getStats (aServer);
+    final long nStart = System.nanoTime ();
+    try
+    {
+      final T aResult = aLookup.apply (aServer);
+      final boolean bValid = aValidPredicate.test (aResult);
+      if (aRaceDecided.get ())
+      {
+        // Lost the race and was most likely cancelled - the result says nothing about the server
+        aStats.onCancelled (System.nanoTime () - nStart);
+      }
+      else
+        if (bValid)
+          aStats.onSuccess (System.nanoTime () - nStart);
+        else
+          aStats.onFailure (System.nanoTime () - nStart);
+      return new Outcome <> (aServer, aResult, null, bValid);
+    }
+    catch (final RuntimeException ex)
+    {
+      // Failures caused by the cancellation are not counted
+      if (aRaceDecided.get ())
+        aStats.onCancelled (System.nanoTime () - nStart);
+      else
+        aStats.onFailure (System.nanoTime () - nStart);
+      return new Outcome <> (aServer, null, ex, false);
+    }
+  }
+
+  /**
+   * Send a lookup to the best DNS servers at the same time and return the first valid result.
+   *
+   * @param <T>
+   *        The result type of the lookup
+   * @param aServers
+   *        All available DNS servers. May neither be <code>null</code> nor empty.
+   * @param aLookup
+   *        The lookup to perform on a single DNS server. May not be <code>null</code>.
+   * @param aValidPredicate
+   *        The predicate that decides if a lookup result is a valid answer. Invalid answers count as
+   *        failures of the DNS server. May not be <code>null</code>.
+   * @return The first valid result. If no DNS server delivered a valid result, the last invalid
+   *         result is returned.
+   * @throws RuntimeException
+   *         The exception of the last lookup if no lookup returned a result at all.
+   * @throws InterruptedException
+   *         If the current thread was interrupted while waiting
+   */
+  @Nullable
+  public <T> T race (@NonNull final List <InetAddress> aServers,
+                     @NonNull final Function <InetAddress, T> aLookup,
+                     @NonNull final Predicate <? super T> aValidPredicate) throws InterruptedException
+  {
+    ValueEnforcer.notEmpty (aServers, "Servers");
+    ValueEnforcer.notNull (aLookup, "Lookup");
+    ValueEnforcer.notNull (aValidPredicate, "ValidPredicate");
+
+    final ICommonsList <InetAddress> aRaceServers = getRaceServers (aServers);
+    final AtomicBoolean aRaceDecided = new AtomicBoolean (false);
+    final CompletionService <Outcome <T>> aCS = new ExecutorCompletionService <> (m_aExecutor);
+    final ICommonsList <Future <Outcome <T>>> aFutures = new CommonsArrayList <> (aRaceServers.size ());
+    Outcome <T> aLast = null;
+    try
+    {
+      for (final InetAddress aServer : aRaceServers)
+        aFutures.add (aCS.submit ( () -> _lookup (aServer, aLookup, aValidPredicate, aRaceDecided)));
+
+      for (int i = 0; i < aRaceServers.size (); ++i)
+      {
+        final Outcome <T> aOutcome;
+        try
+        {
+          aOutcome = aCS.take ().get ();
+        }
+        catch (final ExecutionException ex)
+        {
+          // Cannot happen, because _lookup catches all exceptions
+          throw new IllegalStateException ("Unexpected lookup error", ex.getCause ());
+        }
+        if (aOutcome.m_bValid)
+        {
+          _getStats (aOutcome.m_aServer).onWin ();
+          return aOutcome.m_aResult;
+        }
+        // Prefer a result over an exception
+        if (aLast == null || aOutcome.m_aException == null)
+          aLast = aOutcome;
+      }
+    }
+    finally
+    {
+      // Cancel the lookups that lost the race - no effect on finished lookups
+      aRaceDecided.set (true);
+      for (final Future <Outcome <T>> aFuture : aFutures)
+        aFuture.cancel (true);
+    }
+
+    if (aLast.m_aException != null)
+      throw aLast.m_aException;
+    return aLast.m_aResult;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("RaceWidth", m_nRaceWidth)
+                                       .append ("LatencyWeight", m_dLatencyWeight)
+                                       .append ("FailureThreshold", m_nFailureThreshold)
+                                       .append ("UnhealthyDuration", m_aUnhealthyDuration)
+                                       .append ("ServerStats", m_aStats.values ())
+                                       .getToString ();
+  }
+}
@@ -0,0 +1,568 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.url;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.CheckForSigned;
+import com.helger.annotation.Nonempty;
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.annotation.style.ReturnsMutableCopy;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.string.StringHelper;
+import com.helger.base.tostring.ToStringGenerator;
+import com.helger.smpclient.url.SMPDNSResolutionException.EErrorCode;
+
+/**
+ * A bounded cache for resolved NAPTR values, as used by {@link AbstractBDXLURLProvider}. Each entry
+ * expires after the TTL of the DNS records it was resolved from. The TTL can optionally be clamped
+ * to a minimum and a maximum value, e.g. to protect against very short TTLs or to pick up SML
+ * changes earlier than announced.
+ * <p>
+ * Functional negative results (the participant is not registered or has no matching service) can
+ * be cached as well, so that repeated lookups of unknown participants don't hit the DNS every time.
+ * Technical failures are never cached. If the TTL of a negative result is not known, the
+ * {@link #getNegativeTTL() negative TTL} is used.
+ * </p>
+ * <p>
+ * Reading from the cache is lock-free. If the maximum size is exceeded, expired entries are removed
+ * first, and afterwards the entries that expire the earliest, until the size is reduced to 90% of
+ * the maximum size.
+ * </p>
+ *
+ * @author Philip Helger
+ * @since 12.8.2
+ */
+@ThreadSafe
+public class NaptrCache
+{
+  /** Default maximum number of entries: 10000 */
+  public static final int DEFAULT_MAX_SIZE = 10_000;
+  /** Default TTL of entries for which no DNS TTL is known: 1 hour */
+  public static final Duration DEFAULT_TTL = Duration.ofHours (1);
+  /** Default TTL of negative results for which no DNS TTL is known: 1 minute */
+  public static final Duration DEFAULT_NEGATIVE_TTL = Duration.ofMinutes (1);
+
+  /**
+   * A single cache entry - either a resolved NAPTR value or a negative result.
+   *
+   * @author Philip Helger
+   * @since 12.8.2
+   */
+  @Immutable
+  public static final class CacheEntry
+  {
+    private final String m_sValue;
+    private final EErrorCode m_eErrorCode;
+    private final String m_sErrorMessage;
+    private final long m_nCreatedAtNanos;
+    private final long m_nExpiresAtNanos;
+
+    private CacheEntry (@Nullable final String sValue,
+                        @Nullable final EErrorCode eErrorCode,
+                        @Nullable final String sErrorMessage,
+                        final long nCreatedAtNanos,
+                        final long nExpiresAtNanos)
+    {
+      m_sValue = sValue;
+      m_eErrorCode = eErrorCode;
+      m_sErrorMessage = sErrorMessage;
+      m_nCreatedAtNanos = nCreatedAtNanos;
+      m_nExpiresAtNanos = nExpiresAtNanos;
+    }
+
+    boolean isExpired (final long nNowNanos)
+    {
+      return nNowNanos - m_nExpiresAtNanos >= 0;
+    }
+
+    long getTTLNanos ()
+    {
+      return m_nExpiresAtNanos - m_nCreatedAtNanos;
+    }
+
+    long getExpiresAtNanos ()
+    {
+      return m_nExpiresAtNanos;
+    }
+
+    /**
+     * @return <code>true</code> if this is a negative result, <code>false</code> if it is a
+     *         resolved value.
+     */
+    public boolean isNegative ()
+    {
+      return m_eErrorCode != null;
+    }
+
+    /**
+     * @return The resolved NAPTR value. Only <code>null</code> for negative results.
+     */
+    @Nullable
+    public String getValue ()
+    {
+      return m_sValue;
+    }
+
+    /**
+     * @return The error code of a negative result. Only <code>null</code> for resolved values.
+     */
+    @Nullable
+    public EErrorCode getErrorCode ()
+    {
+      return m_eErrorCode;
+    }
+
+    /**
+     * @return The error message of a negative result. Only <code>null</code> for resolved values.
+     */
+    @Nullable
+    public String getErrorMessage ()
+    {
+      return m_sErrorMessage;
+    }
+  }
+
+  private final int m_nMaxSize;
+  private final Duration m_aMinTTL;
+  private final Duration m_aMaxTTL;
+  private final Duration m_aDefaultTTL;
+  private final Duration m_aNegativeTTL;
+  private final Map <String, CacheEntry> m_aMap = new ConcurrentHashMap <> ();
+  private final AtomicBoolean m_aEvicting = new AtomicBoolean (false);
+  private final AtomicLong m_aHitCount = new AtomicLong ();
+  private final AtomicLong m_aMissCount = new AtomicLong ();
+
+  /**
+   * Constructor using {@link #DEFAULT_MAX_SIZE}, no TTL clamping, {@link #DEFAULT_TTL} and
+   * {@link #DEFAULT_NEGATIVE_TTL}.
+   */
+  public NaptrCache ()
+  {
+    this (DEFAULT_MAX_SIZE, null, null, DEFAULT_TTL, DEFAULT_NEGATIVE_TTL);
+  }
+
+  /**
+   * Constructor using {@link #DEFAULT_NEGATIVE_TTL}.
+   *
+   * @param nMaxSize
+   *        The maximum number of entries. All values &le; 0 indicate an unlimited size.
+   * @param aMinTTL
+   *        The minimum TTL of each entry. May be <code>null</code>.
+   * @param aMaxTTL
+   *        The maximum TTL of each entry. May be <code>null</code>.
+   * @param aDefaultTTL
+   *        The TTL of entries for which no DNS TTL is known. May not be <code>null</code>.
+   */
+  public NaptrCache (@CheckForSigned final int nMaxSize,
+                     @Nullable final Duration aMinTTL,
+                     @Nullable final Duration aMaxTTL,
+                     @NonNull final Duration aDefaultTTL)
+  {
+    this (nMaxSize, aMinTTL, aMaxTTL, aDefaultTTL, DEFAULT_NEGATIVE_TTL);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param nMaxSize
+   *        The maximum number of entries. All values &le; 0 indicate an unlimited size.
+   * @param aMinTTL
+   *        The minimum TTL of each entry. May be <code>null</code> to use the DNS TTL even if it
+   *        is very short.
+   * @param aMaxTTL
+   *        The maximum TTL of each entry. May be <code>null</code> to use the DNS TTL even if it
+   *        is very long. If both are provided, it must be &ge; the minimum TTL.
+   * @param aDefaultTTL
+   *        The TTL of entries for which no DNS TTL is known, e.g. entries added manually. May not
+   *        be <code>null</code>. The minimum and maximum TTL are applied as well.
+   * @param aNegativeTTL
+   *        The TTL of negative results for which no DNS TTL is known. May not be
+   *        <code>null</code>. Use {@link Duration#ZERO} to disable caching of negative results
+   *        without a known TTL. The minimum and maximum TTL are applied as well.
+   */
+  public NaptrCache (@CheckForSigned final int nMaxSize,
+                     @Nullable final Duration aMinTTL,
+                     @Nullable final Duration aMaxTTL,
+                     @NonNull final Duration aDefaultTTL,
+                     @NonNull final Duration aNegativeTTL)
+  {
+    ValueEnforcer.isTrue ( () -> aMinTTL == null || !aMinTTL.isNegative (), "MinTTL may not be negative");
+    ValueEnforcer.isTrue ( () -> aMaxTTL == null || !aMaxTTL.isNegative (), "MaxTTL may not be negative");
+    ValueEnforcer.isTrue ( () -> aMinTTL == null || aMaxTTL == null || aMaxTTL.compareTo (aMinTTL) >= 0,
+                          "MaxTTL must be >= MinTTL");
+    ValueEnforcer.notNull (aDefaultTTL, "DefaultTTL");
+    ValueEnforcer.notNull (aNegativeTTL, "NegativeTTL");
+    m_nMaxSize = nMaxSize;
+    m_aMinTTL = aMinTTL;
+    m_aMaxTTL = aMaxTTL;
+    m_aDefaultTTL = aDefaultTTL;
+    m_aNegativeTTL = aNegativeTTL;
+  }
+
+  /**
+   * Copy constructor. Settings and all non-expired entries are copied. Statistics are not copied.
+   *
+   * @param rhs
+   *        The cache to copy from. May not be <code>null</code>.
+   */
+  public NaptrCache (@NonNull final NaptrCache rhs)
+  {
+    this (rhs.m_nMaxSize, rhs.m_aMinTTL, rhs.m_aMaxTTL, rhs.m_aDefaultTTL, rhs.m_aNegativeTTL);
+    m_aMap.putAll (rhs.m_aMap);
+  }
+
+  /**
+   * @return The maximum number of entries. Values &le; 0 indicate an unlimited size.
+   */
+  @CheckForSigned
+  public final int getMaxSize ()
+  {
+    return m_nMaxSize;
+  }
+
+  /**
+   * @return The minimum TTL of each entry. May be <code>null</code>.
+   */
+  @Nullable
+  public final Duration getMinTTL ()
+  {
+    return m_aMinTTL;
+  }
+
+  /**
+   * @return The maximum TTL of each entry. May be <code>null</code>.
+   */
+  @Nullable
+  public final Duration getMaxTTL ()
+  {
+    return m_aMaxTTL;
+  }
+
+  /**
+   * @return The TTL of entries for which no DNS TTL is known. Never <code>null</code>.
+   */
+  @NonNull
+  public final Duration getDefaultTTL ()
+  {
+    return m_aDefaultTTL;
+  }
+
+  /**
+   * @return The TTL of negative results for which no DNS TTL is known. Never <code>null</code>.
+   */
+  @NonNull
+  public final Duration getNegativeTTL ()
+  {
+    return m_aNegativeTTL;
+  }
+
+  /**
+   * Check if a DNS resolution error may be cached as a negative result. Only functional errors are
+   * cacheable.
+   *
+   * @param eErrorCode
+   *        The error code to check. May be <code>null</code>.
+   * @return <code>true</code> for {@link EErrorCode#PARTICIPANT_NOT_REGISTERED} and
+   *         {@link EErrorCode#NO_MATCHING_SMP_SERVICE}, <code>false</code> otherwise.
+   */
+  public static boolean isNegativeCacheable (@Nullable final EErrorCode eErrorCode)
+  {
+    return eErrorCode == EErrorCode.PARTICIPANT_NOT_REGISTERED || eErrorCode == EErrorCode.NO_MATCHING_SMP_SERVICE;
+  }
+
+  /**
+   * Apply the minimum and maximum TTL to the provided TTL.
+   *
+   * @param aTTL
+   *        The TTL to clamp. May not be <code>null</code>.
+   * @return The effective TTL. Never <code>null</code>.
+   */
+  @NonNull
+  public Duration getEffectiveTTL (@NonNull final Duration aTTL)
+  {
+    ValueEnforcer.notNull (aTTL, "TTL");
+    Duration ret = aTTL;
+    if (m_aMinTTL != null && ret.compareTo (m_aMinTTL) < 0)
+      ret = m_aMinTTL;
+    if (m_aMaxTTL != null && ret.compareTo (m_aMaxTTL) > 0)
+      ret = m_aMaxTTL;
+    return ret;
+  }
+
+  /**
+   * Get the cache entry, which is either a resolved value or a negative result.
+   *
+   * @param sName
+   *        The DNS name that was resolved. May be <code>null</code>.
+   * @return <code>null</code> if nothing is cached or if it is expired.
+   */
+  @Nullable
+  public CacheEntry getEntry (@Nullable final String sName)
+  {
+    if (StringHelper.isEmpty (sName))
+      return null;
+
+    final CacheEntry aEntry = m_aMap.get (sName);
+    if (aEntry != null)
+    {
+      if (!aEntry.isExpired (System.nanoTime ()))
+      {
+        m_aHitCount.incrementAndGet ();
+        return aEntry;
+      }
+      // Only remove it, if it was not replaced in the meantime
+      m_aMap.remove (sName, aEntry);
+    }
+    m_aMissCount.incrementAndGet ();
+    return null;
+  }
+
+  /**
+   * Get the cached NAPTR value.
+   *
+   * @param sName
+   *        The DNS name that was resolved. May be <code>null</code>.
+   * @return <code>null</code> if no value is cached, if it is expired or if a negative result is
+   *         cached.
+   */
+  @Nullable
+  public String get (@Nullable final String sName)
+  {
+    final CacheEntry aEntry = getEntry (sName);
+    return aEntry == null ? null : aEntry.m_sValue;
+  }
+
+  /**
+   * Remember a resolved NAPTR value.
+   *
+   * @param sName
+   *        The DNS name that was resolved. May neither be <code>null</code> nor empty.
+   * @param sValue
+   *        The resolved value. May not be <code>null</code>.
+   * @param aTTL
+   *        The TTL of the DNS records the value was resolved from. May be <code>null</code> to use
+   *        the default TTL. If the effective TTL is zero, the value is not cached.
+   */
+  public void put (@NonNull @Nonempty final String sName, @NonNull final String sValue, @Nullable final Duration aTTL)
+  {
+    ValueEnforcer.notEmpty (sName, "Name");
+    ValueEnforcer.notNull (sValue, "Value");
+
+    _put (sName, sValue, null, null, aTTL != null ? aTTL : m_aDefaultTTL);
+  }
+
+  /**
+   * Remember a functional negative result. Errors that are not cacheable (see
+   * {@link #isNegativeCacheable(EErrorCode)}) are ignored.
+   *
+   * @param sName
+   *        The DNS name that was resolved. May neither be <code>null</code> nor empty.
+   * @param eErrorCode
+   *        The error code. May not be <code>null</code>.
+   * @param sErrorMessage
+   *        The error message. May not be <code>null</code>.
+   * @param aTTL
+   *        The negative TTL from DNS, e.g. the TTL of the non-matching records. May be
+   *        <code>null</code> to use the negative TTL of this cache.
+   */
+  public void putNegative (@NonNull @Nonempty final String sName,
+                           @NonNull final EErrorCode eErrorCode,
+                           @NonNull final String sErrorMessage,
+                           @Nullable final Duration aTTL)
+  {
+    ValueEnforcer.notEmpty (sName, "Name");
+    ValueEnforcer.notNull (eErrorCode, "ErrorCode");
+    ValueEnforcer.notNull (sErrorMessage, "ErrorMessage");
+
+    if (isNegativeCacheable (eErrorCode))
+      _put (sName, null, eErrorCode, sErrorMessage, aTTL != null ? aTTL : m_aNegativeTTL);
+  }
+
+  /**
+   * Replace a cache entry with a new resolved NAPTR value, but only if the cache still contains
+   * exactly the provided entry. This can be used to prolong an existing value, without overwriting
+   * a newer value or a removal that happened in the meantime.
+   *
+   * @param sName
+   *        The DNS name that was resolved. May neither be <code>null</code> nor empty.
+   * @param aExpectedEntry
+   *        The entry that is expected to be in the cache. May not be <code>null</code>.
+   * @param sValue
+   *        The resolved value. May not be <code>null</code>.
+   * @param aTTL
+   *        The TTL of the new value. May be <code>null</code> to use the default TTL. If the
+   *        effective TTL is zero, the expected entry is removed.
+   * @return <code>true</code> if the expected entry was replaced (or removed), <code>false</code>
+   *         if the cache contains another entry or no entry for the name.
+   */
+  public boolean replace (@NonNull @Nonempty final String sName,
+                          @NonNull final CacheEntry aExpectedEntry,
+                          @NonNull final String sValue,
+                          @Nullable final Duration aTTL)
+  {
+    ValueEnforcer.notEmpty (sName, "Name");
+    ValueEnforcer.notNull (aExpectedEntry, "ExpectedEntry");
+    ValueEnforcer.notNull (sValue, "Value");
+
+    final Duration aEffectiveTTL = getEffectiveTTL (aTTL != null ? aTTL : m_aDefaultTTL);
+    if (aEffectiveTTL.isZero () || aEffectiveTTL.isNegative ())
+      return m_aMap.remove (sName, aExpectedEntry);
+
+    final long nNow = System.nanoTime ();
+    return m_aMap.replace (sName,
+                           aExpectedEntry,
+                           new CacheEntry (sValue, null, null, nNow, nNow + aEffectiveTTL.toNanos ()));
+  }
+
+  private void _put (@NonNull final String sName,
+                     @Nullable final String sValue,
+                     @Nullable final EErrorCode eErrorCode,
+                     @Nullable final String sErrorMessage,
+                     @NonNull final Duration aTTL)
+  {
+    final Duration aEffectiveTTL = getEffectiveTTL (aTTL);
+    if (aEffectiveTTL.isZero () || aEffectiveTTL.isNegative ())
+    {
+      // As in DNS - a TTL of 0 means "don't cache"
+      m_aMap.remove (sName);
+      return;
+    }
+
+    final long nNow = System.nanoTime ();
+    m_aMap.put (sName, new CacheEntry (sValue, eErrorCode, sErrorMessage, nNow, nNow + aEffectiveTTL.toNanos ()));
+    if (m_nMaxSize > 0 && m_aMap.size () > m_nMaxSize)
+      _evict ();
+  }
+
+  private void _evict ()
+  {
+    // Only one thread needs to evict
+    if (!m_aEvicting.compareAndSet (false, true))
+      return;
+    try
+    {
+      final long nNow = System.nanoTime ();
+      m_aMap.entrySet ().removeIf (e -> e.getValue ().isExpired (nNow));
+
+      final int nTargetSize = Math.max (1, m_nMaxSize * 9 / 10);
+      final int nToRemove = m_aMap.size () - nTargetSize;
+      if (nToRemove > 0)
+      {
+        // Remove the entries that would expire first
+        final List <Map.Entry <String, CacheEntry>> aEntries = new ArrayList <> (m_aMap.entrySet ());
+        aEntries.sort (Comparator.comparingLong (e -> e.getValue ().m_nExpiresAtNanos - nNow));
+        for (int i = 0; i < nToRemove && i < aEntries.size (); ++i)
+          m_aMap.remove (aEntries.get (i).getKey (), aEntries.get (i).getValue ());
+      }
+    }
+    finally
+    {
+      m_aEvicting.set (false);
+    }
+  }
+
+  /**
+   * Remove a single entry.
+   *
+   * @param sName
+   *        The DNS name to remove. May be <code>null</code>.
+   */
+  public void remove (@Nullable final String sName)
+  {
+    if (StringHelper.isNotEmpty (sName))
+      m_aMap.remove (sName);
+  }
+
+  /**
+   * @return A copy of all non-expired resolved entries, from DNS name to NAPTR value. Negative
+   *         results are not contained. Never <code>null</code>.
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  public Map <String, String> getAllEntries ()
+  {
+    final long nNow = System.nanoTime ();
+    final Map <String, String> ret = new HashMap <> ();
+    for (final Map.Entry <String, CacheEntry> aEntry : m_aMap.entrySet ())
+      if (!aEntry.getValue ().isNegative () && !aEntry.getValue ().isExpired (nNow))
+        ret.put (aEntry.getKey (), aEntry.getValue ().m_sValue);
+    return ret;
+  }
+
+  /**
+   * @return The number of cache entries, including expired ones that were not yet removed.
+   */
+  @Nonnegative
+  public int size ()
+  {
+    return m_aMap.size ();
+  }
+
+  /**
+   * @return The number of cache hits.
+   */
+  @Nonnegative
+  public long getHitCount ()
+  {
+    return m_aHitCount.get ();
+  }
+
+  /**
+   * @return The number of cache misses.
+   */
+  @Nonnegative
+  public long getMissCount ()
+  {
+    return m_aMissCount.get ();
+  }
+
+  /**
+   * Remove all entries.
+   */
+  public void clear ()
+  {
+    m_aMap.clear ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("MaxSize", m_nMaxSize)
+                                       .appendIfNotNull ("MinTTL", m_aMinTTL)
+                                       .appendIfNotNull ("MaxTTL", m_aMaxTTL)
+                                       .append ("DefaultTTL", m_aDefaultTTL)
+                                       .append ("NegativeTTL", m_aNegativeTTL)
+                                       .append ("Size", m_aMap.size ())
+                                       .append ("HitCount", m_aHitCount.get ())
+                                       .append ("MissCount", m_aMissCount.get ())
+                                       .getToString ();
+  }
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.url;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.string.StringHelper;
+import com.helger.base.tostring.ToStringGenerator;
+
+/**
+ * A static table of pinned NAPTR resolutions, e.g. for test partners or peers in private networks,
+ * that should never be resolved via DNS. The table is read from a UTF-8 text file, with one entry
+ * per line: the DNS name and the NAPTR value (the SMP URL), separated by whitespace. Empty lines
+ * and lines starting with <code>#</code> are ignored. DNS names are case insensitive and a trailing
+ * dot is optional. Example:
+ *
+ * <pre>
+ * # Test partner
+ * b-abcdef.iso6523-actorid-upis.edelivery.tech.ec.europa.eu https://smp.example.org
+ * </pre>
+ * <p>
+ * The file is read and parsed once. It is checked for changes at most once per
+ * {@link #getCheckInterval()} and a changed file replaces the whole table at once. If a changed
+ * file contains an invalid line, it is rejected completely and the previous table is kept. To avoid
+ * reading partially written files, new versions should be written to a temporary file and moved
+ * over the old one. If the file is deleted, the table is empty.
+ * </p>
+ *
+ * @author Philip Helger
+ * @since 12.8.2
+ */
+@ThreadSafe
+public class NaptrOverrideTable
+{
+  /** The default interval in which the file is checked for changes */
+  public static final Duration DEFAULT_CHECK_INTERVAL = Duration.ofSeconds (30);
+
+  private static final Logger LOGGER = LoggerFactory.getLogger (NaptrOverrideTable.class);
+
+  /**
+   * An immutable snapshot of the file.
+   */
+  private static final class Snapshot
+  {
+    private final FileTime m_aLastModified;
+    private final long m_nSize;
+    private final Map <String, String> m_aEntries;
+
+    Snapshot (@Nullable final FileTime aLastModified, final long nSize, @NonNull final Map <String, String> aEntries)
+    {
+      m_aLastModified = aLastModified;
+      m_nSize = nSize;
+      m_aEntries = aEntries;
+    }
+  }
+
+  private final Path m_aPath;
+  private final Duration m_aCheckInterval;
+  private final ReentrantLock m_aReloadLock = new ReentrantLock ();
+  private volatile Snapshot m_aSnapshot = new Snapshot (null, -1, Collections.emptyMap ());
+  private volatile long m_nLastCheckNanos;
+
+  /**
+   * Constructor using {@link #DEFAULT_CHECK_INTERVAL}. The file is read immediately.
+   *
+   * @param aPath
+   *        The file to read. May not be <code>null</code>. The file does not need to exist yet.
+   */
+  public NaptrOverrideTable (@NonNull final Path aPath)
+  {
+    this (aPath, DEFAULT_CHECK_INTERVAL);
+  }
+
+  /**
+   * Constructor. The file is read immediately.
+   *
+   * @param aPath
+   *        The file to read. May not be <code>null</code>. The file does not need to exist yet.
+   * @param aCheckInterval
+   *        The interval in which the file is checked for changes. May not be <code>null</code> and
+   *        must not be negative.
+   */
+  public NaptrOverrideTable (@NonNull final Path aPath, @NonNull final Duration aCheckInterval)
+  {
+    ValueEnforcer.notNull (aPath, "Path");
+    ValueEnforcer.notNull (aCheckInterval, "CheckInterval");
+    ValueEnforcer.isTrue ( () -> !aCheckInterval.isNegative (), "CheckInterval may not be negative");
+    m_aPath = aPath;
+    m_aCheckInterval = aCheckInterval;
+    reload ();
+  }
+
+  /**
+   * @return The file the table is read from. Never <code>null</code>.
+   */
+  @NonNull
+  public final Path getPath ()
+  {
+    return m_aPath;
+  }
+
+  /**
+   * @return The interval in which the file is checked for changes. Never <code>null</code>.
+   */
+  @NonNull
+  public final Duration getCheckInterval ()
+  {
+    return m_aCheckInterval;
+  }
+
+  @NonNull
+  private static String _getUnifiedName (@NonNull final String sName)
+  {
+    final String ret = sName.toLowerCase (Locale.ROOT);
+    return StringHelper.endsWith (ret, '.') ? ret.substring (0, ret.length () - 1) : ret;
+  }
+
+  @NonNull
+  private static Map <String, String> _readFile (@NonNull final Path aPath) throws IOException
+  {
+    final CharBuffer aChars;
+    try
+    {
+      // Only the table is kept - the file is not kept open
+      aChars = StandardCharsets.UTF_8.newDecoder ()
+                                     .onMalformedInput (CodingErrorAction.REPORT)
+                                     .onUnmappableCharacter (CodingErrorAction.REPORT)
+                                     .decode (ByteBuffer.wrap (Files.readAllBytes (aPath)));
+    }
+    catch (final CharacterCodingException ex)
+    {
+      throw new IOException ("The file is not UTF-8 encoded", ex);
+    }
+
+    final Map <String, String> ret = new HashMap <> ();
+    int nLineNumber = 0;
+    for (final String sRawLine : aChars.toString ().split ("\\R"))
+    {
+      nLineNumber++;
+      final String sLine = sRawLine.trim ();
+      if (sLine.isEmpty () || sLine.startsWith ("#"))
+        continue;
+
+      final String [] aParts = sLine.split ("\\s+");
+      if (aParts.length != 2)
+        throw new IOException ("Line " + nLineNumber + " must contain a DNS name and a value: '" + sLine + "'");
+      try
+      {
+        new URI (aParts[1]);
+      }
+      catch (final URISyntaxException ex)
+      {
+        throw new IOException ("Line " + nLineNumber + " contains an invalid URI: '" + aParts[1] + "'", ex);
+      }
+      if (ret.put (_getUnifiedName (aParts[0]), aParts[1]) != null)
+        LOGGER.warn ("DNS name '" + aParts[0] + "' is contained more than once in '" + aPath + "' - using the last one");
+    }
+    return ret;
+  }
+
+  /**
+   * Read the file again if it was changed. This is called automatically, if the check interval
+   * elapsed.
+   */
+  public void reload ()
+  {
+    m_aReloadLock.lock ();
+    try
+    {
+      final Snapshot aOld = m_aSnapshot;
+      BasicFileAttributes aAttrs;
+      try
+      {
+        aAttrs = Files.readAttributes (m_aPath, BasicFileAttributes.class);
+      }
+      catch (final NoSuchFileException ex)
+      {
+        aAttrs = null;
+      }
+      catch (final IOException ex)
+      {
+        LOGGER.warn ("Failed to access the NAPTR override file '" + m_aPath + "' - keeping the previous table", ex);
+        return;
+      }
+
+      if (aAttrs == null)
+      {
+        if (aOld.m_aLastModified != null)
+        {
+          LOGGER.warn ("The NAPTR override file '" + m_aPath + "' was deleted");
+          m_aSnapshot = new Snapshot (null, -1, Collections.emptyMap ());
+        }
+      }
+      else
+        if (!aAttrs.lastModifiedTime ().equals (aOld.m_aLastModified) || aAttrs.size () != aOld.m_nSize)
+        {
+          try
+          {
+            final Map <String, String> aEntries = _readFile (m_aPath);
+            m_aSnapshot = new Snapshot (aAttrs.lastModifiedTime (), aAttrs.size (), aEntries);
+            LOGGER.info ("Read " + aEntries.size () + " NAPTR override(s) from file '" + m_aPath + "'");
+          }
+          catch (final IOException ex)
+          {
+            // Tried again when the file changes
+            LOGGER.warn ("Failed to read the NAPTR override file '" +
+                         m_aPath +
+                         "' - keeping the previous table: " +
+                         ex.getMessage ());
+            m_aSnapshot = new Snapshot (aAttrs.lastModifiedTime (), aAttrs.size (), aOld.m_aEntries);
+          }
+        }
+      m_nLastCheckNanos = System.nanoTime ();
+    }
+    finally
+    {
+      m_aReloadLock.unlock ();
+    }
+  }
+
+  private void _reloadIfNeeded ()
+  {
+    if (System.nanoTime () - m_nLastCheckNanos >= m_aCheckInterval.toNanos ())
+    {
+      // Only one thread reloads - all others continue with the current table
+      if (m_aReloadLock.tryLock ())
+        try
+        {
+          if (System.nanoTime () - m_nLastCheckNanos >= m_aCheckInterval.toNanos ())
+            reload ();
+        }
+        finally
+        {
+          m_aReloadLock.unlock ();
+        }
+    }
+  }
+
+  /**
+   * Get the pinned NAPTR value of a DNS name.
+   *
+   * @param sName
+   *        The DNS name to look up. May be <code>null</code>.
+   * @return <code>null</code> if no value is pinned for the DNS name.
+   */
+  @Nullable
+  public String get (@Nullable final String sName)
+  {
+    if (StringHelper.isEmpty (sName))
+      return null;
+
+    _reloadIfNeeded ();
+    return m_aSnapshot.m_aEntries.get (_getUnifiedName (sName));
+  }
+
+  /**
+   * @return The number of pinned DNS names.
+   */
+  @Nonnegative
+  public int size ()
+  {
+    return m_aSnapshot.m_aEntries.size ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Path", m_aPath)
+                                       .append ("CheckInterval", m_aCheckInterval)
+                                       .append ("Size", m_aSnapshot.m_aEntries.size ())
+                                       .getToString ();
+  }
+}
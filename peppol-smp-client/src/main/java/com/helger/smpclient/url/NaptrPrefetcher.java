@@ -0,0 +1,469 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.url;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.GuardedBy;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.tostring.ToStringGenerator;
+import com.helger.smpclient.url.NaptrCache.CacheEntry;
+
+/**
+ * A refresh-ahead prefetcher for the DNS cache of the BDXL URL providers (see
+ * {@link AbstractBDXLURLProvider#setNaptrPrefetcher(NaptrPrefetcher)}). Each access to a cached DNS
+ * name is counted. If a DNS name was requested at least {@link #getMinAccessCount()} times since it
+ * was cached and the last {@link #getRefreshAheadRatio()} of its TTL has started, the NAPTR lookup
+ * is repeated in the background, so that frequently used DNS names never expire from the cache.
+ * <p>
+ * If a background lookup fails technically, the previous value is kept for at most
+ * {@link #getGracePeriod()} after its original expiry and the lookup is retried every
+ * {@link #getRetryInterval()} as long as the DNS name is requested. If a participant is no longer
+ * registered, the negative result replaces the cached value as usual.
+ * </p>
+ * <p>
+ * The lookups run on a small executor with a bounded queue. If the queue is full, no prefetch
+ * takes place and the value expires normally. The number of tracked DNS names is limited - if the
+ * limit is reached all access counters are reset.
+ * </p>
+ *
+ * @author Philip Helger
+ * @since 12.8.2
+ */
+@ThreadSafe
+public class NaptrPrefetcher implements AutoCloseable
+{
+  /** The default part of the TTL, at the end of which a refresh is performed */
+  public static final double DEFAULT_REFRESH_AHEAD_RATIO = 0.2;
+  /** The default number of accesses after which a DNS name is considered frequently used */
+  public static final int DEFAULT_MIN_ACCESS_COUNT = 2;
+  /** The default duration for which the previous value is kept if the refresh fails */
+  public static final Duration DEFAULT_GRACE_PERIOD = Duration.ofMinutes (5);
+  /** The default duration after which a failed refresh is retried */
+  public static final Duration DEFAULT_RETRY_INTERVAL = Duration.ofSeconds (10);
+  /** The default number of threads for the background lookups */
+  public static final int DEFAULT_MAX_THREADS = 2;
+  /** The default maximum number of queued background lookups */
+  public static final int DEFAULT_MAX_QUEUE_SIZE = 1_000;
+  /** The default maximum number of tracked DNS names */
+  public static final int DEFAULT_MAX_TRACKED_NAMES = 10_000;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger (NaptrPrefetcher.class);
+  private static final AtomicInteger THREAD_INDEX = new AtomicInteger (0);
+
+  /**
+   * The callback to perform the NAPTR lookup of a single DNS name and to put the result into the
+   * cache.
+   */
+  @FunctionalInterface
+  interface IRefresher
+  {
+    void refresh (@NonNull String sName) throws SMPDNSResolutionException;
+  }
+
+  private static final class NameState
+  {
+    @GuardedBy ("this")
+    private CacheEntry m_aEntry;
+    @GuardedBy ("this")
+    private int m_nAccessCount;
+    @GuardedBy ("this")
+    private boolean m_bInFlight;
+    @GuardedBy ("this")
+    private boolean m_bInGrace;
+    @GuardedBy ("this")
+    private long m_nGraceEndNanos;
+    @GuardedBy ("this")
+    private long m_nNextAttemptNanos;
+  }
+
+  private final double m_dRefreshAheadRatio;
+  private final int m_nMinAccessCount;
+  private final Duration m_aGracePeriod;
+  private final Duration m_aRetryInterval;
+  private final int m_nMaxTrackedNames;
+  private final ExecutorService m_aExecutor;
+  private final boolean m_bOwnExecutor;
+  private final Map <String, NameState> m_aStates = new ConcurrentHashMap <> ();
+  private final AtomicLong m_aRefreshCount = new AtomicLong ();
+  private final AtomicLong m_aRefreshFailureCount = new AtomicLong ();
+  private final AtomicLong m_aRejectedCount = new AtomicLong ();
+
+  /**
+   * Constructor using all the default values and an own executor.
+   */
+  public NaptrPrefetcher ()
+  {
+    this (DEFAULT_REFRESH_AHEAD_RATIO,
+          DEFAULT_MIN_ACCESS_COUNT,
+          DEFAULT_GRACE_PERIOD,
+          DEFAULT_RETRY_INTERVAL,
+          DEFAULT_MAX_TRACKED_NAMES,
+          null);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param dRefreshAheadRatio
+   *        The part of the TTL, at the end of which a refresh is performed. Must be &gt; 0 and &lt;
+   *        1. E.g. 0.2 means that an entry with a TTL of 60 seconds is refreshed after 48 seconds.
+   * @param nMinAccessCount
+   *        The number of accesses since the DNS name was cached, after which it is considered
+   *        frequently used. Must be &gt; 0.
+   * @param aGracePeriod
+   *        The duration after the original expiry for which the previous value is kept if the
+   *        refresh fails. May not be <code>null</code>. Use {@link Duration#ZERO} to keep it only
+   *        until its original expiry.
+   * @param aRetryInterval
+   *        The duration after which a failed refresh is retried. May not be <code>null</code>.
+   * @param nMaxTrackedNames
+   *        The maximum number of tracked DNS names. Must be &gt; 0.
+   * @param aExecutor
+   *        The executor to run the lookups. May be <code>null</code> in which case an own executor
+   *        with {@link #DEFAULT_MAX_THREADS} daemon threads and a queue of
+   *        {@link #DEFAULT_MAX_QUEUE_SIZE} is used. A provided executor is not shut down by
+   *        {@link #close()}.
+   */
+  public NaptrPrefetcher (final double dRefreshAheadRatio,
+                          @Nonnegative final int nMinAccessCount,
+                          @NonNull final Duration aGracePeriod,
+                          @NonNull final Duration aRetryInterval,
+                          @Nonnegative final int nMaxTrackedNames,
+                          @Nullable final ExecutorService aExecutor)
+  {
+    ValueEnforcer.isTrue ( () -> dRefreshAheadRatio > 0 && dRefreshAheadRatio < 1,
+                          "RefreshAheadRatio must be in the range (0, 1)");
+    ValueEnforcer.isGT0 (nMinAccessCount, "MinAccessCount");
+    ValueEnforcer.notNull (aGracePeriod, "GracePeriod");
+    ValueEnforcer.isTrue ( () -> !aGracePeriod.isNegative (), "GracePeriod may not be negative");
+    ValueEnforcer.notNull (aRetryInterval, "RetryInterval");
+    ValueEnforcer.isTrue ( () -> !aRetryInterval.isNegative (), "RetryInterval may not be negative");
+    ValueEnforcer.isGT0 (nMaxTrackedNames, "MaxTrackedNames");
+    m_dRefreshAheadRatio = dRefreshAheadRatio;
+    m_nMinAccessCount = nMinAccessCount;
+    m_aGracePeriod = aGracePeriod;
+    m_aRetryInterval = aRetryInterval;
+    m_nMaxTrackedNames = nMaxTrackedNames;
+    if (aExecutor != null)
+    {
+      m_aExecutor = aExecutor;
+      m_bOwnExecutor = false;
+    }
+    else
+    {
+      final ThreadPoolExecutor aOwnExecutor = new ThreadPoolExecutor (DEFAULT_MAX_THREADS,
+                                                                      DEFAULT_MAX_THREADS,
+                                                                      1,
+                                                                      TimeUnit.MINUTES,
+                                                                      new ArrayBlockingQueue <> (DEFAULT_MAX_QUEUE_SIZE),
+                                                                      r -> {
+                                                                        final Thread t = new Thread (r,
+                                                                                                     "smp-client-naptr-prefetch-" +
+                                                                                                        THREAD_INDEX.incrementAndGet ());
+                                                                        t.setDaemon (true);
+                                                                        return t;
+                                                                      });
+      // Don't keep idle threads
+      aOwnExecutor.allowCoreThreadTimeOut (true);
+      m_aExecutor = aOwnExecutor;
+      m_bOwnExecutor = true;
+    }
+  }
+
+  /**
+   * @return The part of the TTL, at the end of which a refresh is performed.
+   */
+  public final double getRefreshAheadRatio ()
+  {
+    return m_dRefreshAheadRatio;
+  }
+
+  /**
+   * @return The number of accesses since the DNS name was cached, after which it is considered
+   *         frequently used.
+   */
+  @Nonnegative
+  public final int getMinAccessCount ()
+  {
+    return m_nMinAccessCount;
+  }
+
+  /**
+   * @return The duration after the original expiry for which the previous value is kept if the
+   *         refresh fails. Never <code>null</code>.
+   */
+  @NonNull
+  public final Duration getGracePeriod ()
+  {
+    return m_aGracePeriod;
+  }
+
+  /**
+   * @return The duration after which a failed refresh is retried. Never <code>null</code>.
+   */
+  @NonNull
+  public final Duration getRetryInterval ()
+  {
+    return m_aRetryInterval;
+  }
+
+  /**
+   * @return The maximum number of tracked DNS names.
+   */
+  @Nonnegative
+  public final int getMaxTrackedNames ()
+  {
+    return m_nMaxTrackedNames;
+  }
+
+  /**
+   * @return The number of successful background lookups.
+   */
+  @Nonnegative
+  public long getRefreshCount ()
+  {
+    return m_aRefreshCount.get ();
+  }
+
+  /**
+   * @return The number of background lookups that failed technically.
+   */
+  @Nonnegative
+  public long getRefreshFailureCount ()
+  {
+    return m_aRefreshFailureCount.get ();
+  }
+
+  /**
+   * @return The number of background lookups that were not executed because the executor was busy.
+   */
+  @Nonnegative
+  public long getRejectedCount ()
+  {
+    return m_aRejectedCount.get ();
+  }
+
+  /**
+   * @return The number of currently tracked DNS names.
+   */
+  @Nonnegative
+  public int getTrackedNameCount ()
+  {
+    return m_aStates.size ();
+  }
+
+  /**
+   * Remember an access to a cached DNS name and schedule a background lookup if necessary.
+   *
+   * @param sName
+   *        The DNS name that was requested. May not be <code>null</code>.
+   * @param aEntry
+   *        The cache entry that was returned. May not be <code>null</code>.
+   * @param aCache
+   *        The cache the entry is contained in. May not be <code>null</code>.
+   * @param aRefresher
+   *        The callback to perform the lookup. May not be <code>null</code>.
+   */
+  void onCacheHit (@NonNull final String sName,
+                   @NonNull final CacheEntry aEntry,
+                   @NonNull final NaptrCache aCache,
+                   @NonNull final IRefresher aRefresher)
+  {
+    // Negative results are not refreshed ahead
+    if (aEntry.isNegative ())
+      return;
+
+    if (m_aStates.size () >= m_nMaxTrackedNames && !m_aStates.containsKey (sName))
+    {
+      // Forget everything that is not currently refreshed
+      m_aStates.values ().removeIf (x -> {
+        synchronized (x)
+        {
+          return !x.m_bInFlight && !x.m_bInGrace;
+        }
+      });
+    }
+
+    final long nNow = System.nanoTime ();
+    final NameState aState = m_aStates.computeIfAbsent (sName, k -> new NameState ());
+    synchronized (aState)
+    {
+      if (aState.m_aEntry != aEntry)
+      {
+        // The value was (re-)cached in the meantime
+        aState.m_aEntry = aEntry;
+        aState.m_nAccessCount = 0;
+      }
+      aState.m_nAccessCount++;
+
+      if (aState.m_bInFlight)
+        return;
+      if (aState.m_bInGrace)
+      {
+        // Retry failed refreshes independent of the TTL
+        if (nNow - aState.m_nNextAttemptNanos < 0)
+          return;
+      }
+      else
+      {
+        if (aState.m_nAccessCount < m_nMinAccessCount)
+          return;
+        final long nRefreshAheadNanos = (long) (aEntry.getTTLNanos () * m_dRefreshAheadRatio);
+        if (aEntry.getExpiresAtNanos () - nNow > nRefreshAheadNanos)
+          return;
+      }
+      aState.m_bInFlight = true;
+    }
+
+    try
+    {
+      m_aExecutor.execute ( () -> _refresh (sName, aEntry, aState, aCache, aRefresher));
+    }
+    catch (final RejectedExecutionException ex)
+    {
+      m_aRejectedCount.incrementAndGet ();
+      synchronized (aState)
+      {
+        aState.m_bInFlight = false;
+      }
+    }
+  }
+
+  private void _refresh (@NonNull final String sName,
+                         @NonNull final CacheEntry aEntry,
+                         @NonNull final NameState aState,
+                         @NonNull final NaptrCache aCache,
+                         @NonNull final IRefresher aRefresher)
+  {
+    String sError = null;
+    try
+    {
+      aRefresher.refresh (sName);
+    }
+    catch (final SMPDNSResolutionException ex)
+    {
+      // Functional negative results were already cached by the refresher
+      if (!NaptrCache.isNegativeCacheable (ex.getErrorCode ()))
+        sError = ex.getMessage ();
+    }
+    catch (final RuntimeException ex)
+    {
+      sError = ex.getClass ().getName () + " - " + ex.getMessage ();
+    }
+
+    final long nNow = System.nanoTime ();
+    long nGraceEndNanos = 0;
+    synchronized (aState)
+    {
+      aState.m_bInFlight = false;
+      if (sError == null)
+      {
+        aState.m_bInGrace = false;
+      }
+      else
+      {
+        if (!aState.m_bInGrace)
+        {
+          aState.m_bInGrace = true;
+          aState.m_nGraceEndNanos = aEntry.getExpiresAtNanos () + m_aGracePeriod.toNanos ();
+        }
+        aState.m_nNextAttemptNanos = nNow + m_aRetryInterval.toNanos ();
+        nGraceEndNanos = aState.m_nGraceEndNanos;
+      }
+    }
+
+    if (sError == null)
+    {
+      m_aRefreshCount.incrementAndGet ();
+      return;
+    }
+
+    m_aRefreshFailureCount.incrementAndGet ();
+    final long nRemainingNanos = nGraceEndNanos - nNow;
+    if (nRemainingNanos > 0)
+    {
+      // Don't overwrite a newer value or a removal that happened in the meantime
+      if (aCache.replace (sName, aEntry, aEntry.getValue (), Duration.ofNanos (nRemainingNanos)))
+        LOGGER.warn ("Failed to refresh DNS name '" +
+                     sName +
+                     "' - keeping the previous value for " +
+                     Duration.ofNanos (nRemainingNanos) +
+                     ": " +
+                     sError);
+      else
+      {
+        LOGGER.warn ("Failed to refresh DNS name '" +
+                     sName +
+                     "' but the cache entry was changed in the meantime: " +
+                     sError);
+        synchronized (aState)
+        {
+          aState.m_bInGrace = false;
+        }
+      }
+    }
+    else
+    {
+      LOGGER.warn ("Failed to refresh DNS name '" + sName + "' and the grace period is over: " + sError);
+      synchronized (aState)
+      {
+        aState.m_bInGrace = false;
+      }
+    }
+  }
+
+  /**
+   * Shut down the own executor. A provided executor is not touched.
+   */
+  public void close ()
+  {
+    if (m_bOwnExecutor)
+      m_aExecutor.shutdownNow ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("RefreshAheadRatio", m_dRefreshAheadRatio)
+                                       .append ("MinAccessCount", m_nMinAccessCount)
+                                       .append ("GracePeriod", m_aGracePeriod)
+                                       .append ("RetryInterval", m_aRetryInterval)
+                                       .append ("MaxTrackedNames", m_nMaxTrackedNames)
+                                       .append ("TrackedNameCount", m_aStates.size ())
+                                       .append ("RefreshCount", m_aRefreshCount.get ())
+                                       .append ("RefreshFailureCount", m_aRefreshFailureCount.get ())
+                                       .append ("RejectedCount", m_aRejectedCount.get ())
+                                       .getToString ();
+  }
+}
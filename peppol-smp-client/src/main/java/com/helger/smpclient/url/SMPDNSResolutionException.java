@@ -79,7 +79,15 @@ public class SMPDNSResolutionException extends Exception
      *
      * @since 12.5.0
      */
-    NO_MATCHING_SMP_SERVICE ("no-smp-service");
+    NO_MATCHING_SMP_SERVICE ("no-smp-service"),
+    /**
+     * The time budget of the lookup (see {@link com.helger.smpclient.SMPLookupDeadline}) was used up
+     * before or during the DNS lookup. Whether the participant is registered could not be
+     * determined.
+     *
+     * @since 12.8.2
+     */
+    DEADLINE_EXCEEDED ("deadline-exceeded");
 
     @NonNull
     private final String m_sID;
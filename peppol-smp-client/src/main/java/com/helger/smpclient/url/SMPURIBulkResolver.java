@@ -0,0 +1,216 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.url;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.concurrent.NotThreadSafe;
+import com.helger.peppolid.IParticipantIdentifier;
+import com.helger.smpclient.url.SMPDNSResolutionException.EErrorCode;
+
+/**
+ * Internal helper to resolve the SMP URIs of many participants concurrently. At most the configured
+ * number of lookups is in flight at any time, and the next participant is only taken from the
+ * source when a lookup finished. So the memory usage does not depend on the number of participants.
+ * The results are returned in the order in which the lookups finish.
+ *
+ * @author Philip Helger
+ * @since 12.8.2
+ */
+@NotThreadSafe
+final class SMPURIBulkResolver implements Iterator <SMPURIResolutionResult>
+{
+  private static final AtomicInteger THREAD_INDEX = new AtomicInteger (0);
+
+  private final ISMPURLProvider m_aURLProvider;
+  private final Iterator <? extends IParticipantIdentifier> m_aSource;
+  private final String m_sSMLZoneName;
+  private final ExecutorService m_aOwnExecutor;
+  private final CompletionService <SMPURIResolutionResult> m_aCompletionService;
+  private final List <Future <SMPURIResolutionResult>> m_aInFlight = new ArrayList <> ();
+
+  private SMPURIBulkResolver (@NonNull final ISMPURLProvider aURLProvider,
+                              @NonNull final Iterator <? extends IParticipantIdentifier> aSource,
+                              @Nullable final String sSMLZoneName,
+                              final int nMaxConcurrency,
+                              @Nullable final Executor aExecutor)
+  {
+    m_aURLProvider = aURLProvider;
+    m_aSource = aSource;
+    m_sSMLZoneName = sSMLZoneName;
+    if (aExecutor != null)
+    {
+      m_aOwnExecutor = null;
+      m_aCompletionService = new ExecutorCompletionService <> (aExecutor);
+    }
+    else
+    {
+      m_aOwnExecutor = Executors.newFixedThreadPool (nMaxConcurrency, r -> {
+        final Thread t = new Thread (r, "smp-client-bulk-resolve-" + THREAD_INDEX.incrementAndGet ());
+        t.setDaemon (true);
+        return t;
+      });
+      m_aCompletionService = new ExecutorCompletionService <> (m_aOwnExecutor);
+    }
+
+    // Fill the window
+    int nSubmitted = 0;
+    while (nSubmitted < nMaxConcurrency && _submitNext ())
+      nSubmitted++;
+  }
+
+  @NonNull
+  private SMPURIResolutionResult _resolve (@NonNull final IParticipantIdentifier aParticipantID)
+  {
+    try
+    {
+      return SMPURIResolutionResult.createResolved (aParticipantID,
+                                                    m_aURLProvider.getSMPURIOfParticipant (aParticipantID,
+                                                                                           m_sSMLZoneName));
+    }
+    catch (final SMPDNSResolutionException ex)
+    {
+      return SMPURIResolutionResult.createFailure (aParticipantID, ex);
+    }
+    catch (final RuntimeException ex)
+    {
+      final String sMsg = "Failed to resolve '" + aParticipantID.getURIEncoded () + "': " + ex.getMessage ();
+      return SMPURIResolutionResult.createFailure (aParticipantID,
+                                                   new SMPDNSResolutionException (EErrorCode.DNS_TECHNICAL_FAILURE,
+                                                                                  sMsg,
+                                                                                  ex));
+    }
+  }
+
+  private boolean _submitNext ()
+  {
+    if (!m_aSource.hasNext ())
+      return false;
+    final IParticipantIdentifier aParticipantID = m_aSource.next ();
+    m_aInFlight.add (m_aCompletionService.submit ( () -> _resolve (aParticipantID)));
+    return true;
+  }
+
+  public boolean hasNext ()
+  {
+    if (m_aInFlight.isEmpty ())
+    {
+      // All done
+      close ();
+      return false;
+    }
+    return true;
+  }
+
+  @NonNull
+  public SMPURIResolutionResult next ()
+  {
+    if (!hasNext ())
+      throw new NoSuchElementException ();
+
+    final Future <SMPURIResolutionResult> aFuture;
+    try
+    {
+      aFuture = m_aCompletionService.take ();
+    }
+    catch (final InterruptedException ex)
+    {
+      Thread.currentThread ().interrupt ();
+      close ();
+      throw new IllegalStateException ("Interrupted while waiting for the SMP URI resolution", ex);
+    }
+    m_aInFlight.remove (aFuture);
+
+    // Keep the window filled
+    _submitNext ();
+
+    try
+    {
+      return aFuture.get ();
+    }
+    catch (final InterruptedException | ExecutionException ex)
+    {
+      // Cannot happen, because the future is done and _resolve catches all exceptions
+      throw new IllegalStateException ("Unexpected SMP URI resolution failure", ex);
+    }
+  }
+
+  /**
+   * Cancel all running lookups and release the own threads.
+   */
+  void close ()
+  {
+    for (final Future <SMPURIResolutionResult> aFuture : m_aInFlight)
+      aFuture.cancel (true);
+    m_aInFlight.clear ();
+    if (m_aOwnExecutor != null)
+      m_aOwnExecutor.shutdownNow ();
+  }
+
+  /**
+   * Resolve the SMP URIs of all provided participants concurrently.
+   *
+   * @param aURLProvider
+   *        The URL provider to use. May not be <code>null</code>.
+   * @param aParticipantIDs
+   *        The participants to resolve. May not be <code>null</code>. It is iterated lazily.
+   * @param sSMLZoneName
+   *        The SML DNS zone name. May be <code>null</code>.
+   * @param nMaxConcurrency
+   *        The maximum number of concurrent lookups. Must be &gt; 0.
+   * @param aExecutor
+   *        The executor to run the lookups. May be <code>null</code> to use own threads, which are
+   *        released when the stream is exhausted or closed.
+   * @return The lazy result stream. Never <code>null</code>. Should be closed if it is not
+   *         consumed completely.
+   */
+  @NonNull
+  static Stream <SMPURIResolutionResult> resolve (@NonNull final ISMPURLProvider aURLProvider,
+                                                  @NonNull final Iterable <? extends IParticipantIdentifier> aParticipantIDs,
+                                                  @Nullable final String sSMLZoneName,
+                                                  final int nMaxConcurrency,
+                                                  @Nullable final Executor aExecutor)
+  {
+    final SMPURIBulkResolver aResolver = new SMPURIBulkResolver (aURLProvider,
+                                                                 aParticipantIDs.iterator (),
+                                                                 sSMLZoneName,
+                                                                 nMaxConcurrency,
+                                                                 aExecutor);
+    return StreamSupport.stream (Spliterators.spliteratorUnknownSize (aResolver,
+                                                                      Spliterator.NONNULL | Spliterator.IMMUTABLE),
+                                 false)
+                        .onClose (aResolver::close);
+  }
+}
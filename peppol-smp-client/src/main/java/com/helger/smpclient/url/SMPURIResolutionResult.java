@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.url;
+
+import java.net.URI;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.tostring.ToStringGenerator;
+import com.helger.peppolid.IParticipantIdentifier;
+import com.helger.smpclient.url.SMPDNSResolutionException.EErrorCode;
+
+/**
+ * The result of resolving the SMP URI of a single participant as part of a bulk resolution (see
+ * {@link AbstractBDXLURLProvider#getAllSMPURIsOfParticipants(Iterable, String, int)}). It contains
+ * either the resolved URI or the resolution error.
+ *
+ * @author Philip Helger
+ * @since 12.8.2
+ */
+@Immutable
+public final class SMPURIResolutionResult
+{
+  private final IParticipantIdentifier m_aParticipantID;
+  private final URI m_aSMPURI;
+  private final SMPDNSResolutionException m_aError;
+
+  private SMPURIResolutionResult (@NonNull final IParticipantIdentifier aParticipantID,
+                                  @Nullable final URI aSMPURI,
+                                  @Nullable final SMPDNSResolutionException aError)
+  {
+    m_aParticipantID = aParticipantID;
+    m_aSMPURI = aSMPURI;
+    m_aError = aError;
+  }
+
+  /**
+   * @return The participant identifier that was resolved. Never <code>null</code>.
+   */
+  @NonNull
+  public IParticipantIdentifier getParticipantID ()
+  {
+    return m_aParticipantID;
+  }
+
+  /**
+   * @return The resolved SMP URI. Only <code>null</code> if the resolution failed.
+   */
+  @Nullable
+  public URI getSMPURI ()
+  {
+    return m_aSMPURI;
+  }
+
+  /**
+   * @return The resolution error. Only <code>null</code> if the resolution succeeded.
+   */
+  @Nullable
+  public SMPDNSResolutionException getError ()
+  {
+    return m_aError;
+  }
+
+  /**
+   * @return The error code of the resolution error. Only <code>null</code> if the resolution
+   *         succeeded.
+   */
+  @Nullable
+  public EErrorCode getErrorCode ()
+  {
+    return m_aError == null ? null : m_aError.getErrorCode ();
+  }
+
+  /**
+   * @return <code>true</code> if the SMP URI was resolved.
+   */
+  public boolean isResolved ()
+  {
+    return m_aSMPURI != null;
+  }
+
+  /**
+   * @return <code>true</code> if the participant is registered with a matching SMP service. This
+   *         is also the case if the SMP URI itself is invalid.
+   * @see AbstractBDXLURLProvider#isRegistered(IParticipantIdentifier, String)
+   */
+  public boolean isRegistered ()
+  {
+    return isResolved () || getErrorCode () == EErrorCode.RESOLVED_URI_SYNTAX_ERROR;
+  }
+
+  /**
+   * @return <code>true</code> if the participant is not registered or has no matching SMP service.
+   *         This is a functional result.
+   */
+  public boolean isNotRegistered ()
+  {
+    return NaptrCache.isNegativeCacheable (getErrorCode ());
+  }
+
+  /**
+   * @return <code>true</code> if the resolution failed for technical reasons, including a used up
+   *         time budget. Retrying the resolution later may succeed.
+   */
+  public boolean isTechnicalFailure ()
+  {
+    final EErrorCode eErrorCode = getErrorCode ();
+    return eErrorCode != null && (eErrorCode.isRetryable () || eErrorCode == EErrorCode.DEADLINE_EXCEEDED);
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("ParticipantID", m_aParticipantID)
+                                       .appendIfNotNull ("SMPURI", m_aSMPURI)
+                                       .appendIfNotNull ("Error", m_aError)
+                                       .getToString ();
+  }
+
+  @NonNull
+  public static SMPURIResolutionResult createResolved (@NonNull final IParticipantIdentifier aParticipantID,
+                                                       @NonNull final URI aSMPURI)
+  {
+    ValueEnforcer.notNull (aParticipantID, "ParticipantID");
+    ValueEnforcer.notNull (aSMPURI, "SMPURI");
+    return new SMPURIResolutionResult (aParticipantID, aSMPURI, null);
+  }
+
+  @NonNull
+  public static SMPURIResolutionResult createFailure (@NonNull final IParticipantIdentifier aParticipantID,
+                                                      @NonNull final SMPDNSResolutionException aError)
+  {
+    ValueEnforcer.notNull (aParticipantID, "ParticipantID");
+    ValueEnforcer.notNull (aError, "Error");
+    return new SMPURIResolutionResult (aParticipantID, null, aError);
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.junit.Test;
+
+import com.helger.smpclient.exception.SMPClientDeadlineExceededException;
+import com.helger.smpclient.peppol.SMPClientReadOnly;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Test class for class {@link SMPLookupDeadline}.
+ *
+ * @author Philip Helger
+ */
+public final class SMPLookupDeadlineTest
+{
+  @Test
+  public void testBasic () throws Exception
+  {
+    assertNull (SMPLookupDeadline.getCurrent ());
+    try (final SMPLookupDeadline aOuter = SMPLookupDeadline.start (Duration.ofMillis (50)))
+    {
+      assertSame (aOuter, SMPLookupDeadline.getCurrent ());
+      assertFalse (aOuter.isExpired ());
+      assertEquals (Duration.ofMillis (10), aOuter.getStageTimeout (Duration.ofMillis (10)));
+      assertTrue (aOuter.getStageTimeout (Duration.ofMinutes (1)).compareTo (Duration.ofMillis (50)) <= 0);
+      // All attempts together stay within the budget
+      assertEquals (Duration.ofMillis (10), aOuter.getStageTimeout (Duration.ofMillis (10), 2));
+      assertTrue (aOuter.getStageTimeout (Duration.ofMinutes (1), 2).compareTo (Duration.ofMillis (25)) <= 0);
+      assertTrue (aOuter.getStageTimeout (null, 2).compareTo (Duration.ofMillis (25)) <= 0);
+
+      // Inner deadline never extends the outer one
+      try (final SMPLookupDeadline aInner = SMPLookupDeadline.start (Duration.ofMinutes (1)))
+      {
+        assertSame (aInner, SMPLookupDeadline.getCurrent ());
+        assertTrue (aInner.getRemaining ().compareTo (Duration.ofMillis (50)) <= 0);
+      }
+      assertSame (aOuter, SMPLookupDeadline.getCurrent ());
+
+      Thread.sleep (100);
+      assertTrue (aOuter.isExpired ());
+      assertEquals (Duration.ZERO, aOuter.getRemaining ());
+    }
+    assertNull (SMPLookupDeadline.getCurrent ());
+  }
+
+  @Test
+  public void testSlowSMP () throws IOException
+  {
+    final HttpServer aServer = HttpServer.create (new InetSocketAddress ("127.0.0.1", 0), 0);
+    aServer.createContext ("/", aExchange -> {
+      try
+      {
+        Thread.sleep (2_000);
+      }
+      catch (final InterruptedException ex)
+      {
+        Thread.currentThread ().interrupt ();
+      }
+      final byte [] aResponse = "ok".getBytes (StandardCharsets.UTF_8);
+      aExchange.sendResponseHeaders (200, aResponse.length);
+      aExchange.getResponseBody ().write (aResponse);
+      aExchange.close ();
+    });
+    aServer.start ();
+
+    try
+    {
+      final URI aURI = URI.create ("http://127.0.0.1:" + aServer.getAddress ().getPort () + '/');
+      final SMPClientReadOnly aClient = new SMPClientReadOnly (aURI);
+      final long nStart = System.nanoTime ();
+      try (final SMPLookupDeadline aDeadline = SMPLookupDeadline.start (Duration.ofMillis (200)))
+      {
+        aClient.executeGenericRequest (new HttpGet (aURI), x -> EntityUtils.toString (x.getEntity ()));
+        fail ();
+      }
+      catch (final SMPClientDeadlineExceededException ex)
+      {
+        // expected
+      }
+      // Much faster than the SMP
+      assertTrue (Duration.ofNanos (System.nanoTime () - nStart).compareTo (Duration.ofMillis (1_500)) < 0);
+    }
+    finally
+    {
+      aServer.stop (0);
+    }
+  }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.bulk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.hc.client5.http.HttpResponseException;
+import org.junit.Test;
+
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+import com.helger.smpclient.exception.SMPClientBadRequestException;
+import com.helger.smpclient.exception.SMPClientSMPUnavailableException;
+import com.helger.smpclient.peppol.SMPClientReadOnly;
+
+/**
+ * Test class for class {@link SMPBulkExecutor}.
+ *
+ * @author Philip Helger
+ */
+public final class SMPBulkExecutorTest
+{
+  @Test
+  public void testRetries () throws Exception
+  {
+    final AtomicInteger aCalls = new AtomicInteger ();
+    final ICommonsList <SMPBulkOperation> aOps = new CommonsArrayList <> ();
+    // Succeeds at the second attempt
+    aOps.add (new SMPBulkOperation ("retry", true, () -> {
+      if (aCalls.incrementAndGet () == 1)
+        throw new SMPClientSMPUnavailableException (new IOException ("temporary"));
+    }));
+    // Not idempotent - no retry
+    aOps.add (new SMPBulkOperation ("no-retry", false, () -> {
+      throw new SMPClientSMPUnavailableException (new IOException ("temporary"));
+    }));
+    // Not retryable
+    aOps.add (new SMPBulkOperation ("bad-request", true, () -> {
+      throw new SMPClientBadRequestException (new HttpResponseException (400, "bad"));
+    }));
+    for (int i = 0; i < 20; ++i)
+      aOps.add (new SMPBulkOperation ("op" + i, true, () -> {}));
+
+    final SMPBulkReport aReport = new SMPBulkExecutor ().setMaxConcurrency (3)
+                                                        .setRetryBackoff (Duration.ofMillis (1))
+                                                        .execute (aOps);
+    assertEquals (23, aReport.getTotalCount ());
+    assertEquals (21, aReport.getSuccessCount ());
+    assertEquals (2, aReport.getFailureCount ());
+    assertFalse (aReport.isAllSuccessful ());
+
+    final ICommonsList <SMPBulkItemResult> aResults = aReport.getAllResults ();
+    assertEquals ("retry", aResults.get (0).getID ());
+    assertEquals (2, aResults.get (0).getAttempts ());
+    assertTrue (aResults.get (0).isSuccess ());
+    assertEquals (1, aResults.get (1).getAttempts ());
+    assertTrue (aResults.get (1).isFailure ());
+    assertEquals (1, aResults.get (2).getAttempts ());
+    assertTrue (aResults.get (2).getException () instanceof SMPClientBadRequestException);
+    for (int i = 0; i < aResults.size (); ++i)
+      assertEquals (i, aResults.get (i).getIndex ());
+  }
+
+  @Test
+  public void testResumeFromCheckpoint () throws Exception
+  {
+    final Path aFile = Files.createTempFile ("smp-bulk", ".txt");
+    try
+    {
+      final AtomicInteger aCalls = new AtomicInteger ();
+      final ICommonsList <SMPBulkOperation> aOps = new CommonsArrayList <> ();
+      for (int i = 0; i < 10; ++i)
+      {
+        final int nIndex = i;
+        aOps.add (new SMPBulkOperation ("op" + i, true, () -> {
+          aCalls.incrementAndGet ();
+          if (nIndex == 7)
+            throw new SMPClientBadRequestException (new HttpResponseException (400, "bad"));
+        }));
+      }
+
+      try (final SMPBulkFileCheckpoint aCheckpoint = new SMPBulkFileCheckpoint (aFile))
+      {
+        final SMPBulkReport aReport = new SMPBulkExecutor ().setCheckpoint (aCheckpoint).execute (aOps);
+        assertEquals (9, aReport.getSuccessCount ());
+        assertEquals (1, aReport.getFailureCount ());
+        assertEquals (10, aCalls.get ());
+      }
+
+      // Second run only executes the failed operation
+      aCalls.set (0);
+      try (final SMPBulkFileCheckpoint aCheckpoint = new SMPBulkFileCheckpoint (aFile))
+      {
+        assertEquals (9, aCheckpoint.getCompletedCount ());
+        final SMPBulkReport aReport = new SMPBulkExecutor ().setCheckpoint (aCheckpoint).execute (aOps);
+        assertEquals (9, aReport.getSkippedCount ());
+        assertEquals (1, aReport.getFailureCount ());
+        assertEquals (1, aCalls.get ());
+      }
+    }
+    finally
+    {
+      Files.deleteIfExists (aFile);
+    }
+  }
+
+  @Test
+  public void testRuntimeExceptions () throws Exception
+  {
+    final ICommonsList <SMPBulkOperation> aOps = new CommonsArrayList <> ();
+    for (int i = 0; i < 10; ++i)
+    {
+      final int nIndex = i;
+      aOps.add (new SMPBulkOperation ("op" + i, true, () -> {
+        if (nIndex == 2)
+          throw new IllegalStateException ("unexpected");
+      }));
+    }
+
+    // Failing checkpoint
+    final ISMPBulkCheckpoint aCheckpoint = new ISMPBulkCheckpoint ()
+    {
+      public boolean isCompleted (final String sID)
+      {
+        return false;
+      }
+
+      public void onCompleted (final String sID)
+      {
+        if (sID.equals ("op5"))
+          throw new UncheckedIOException (new IOException ("disk full"));
+      }
+    };
+
+    final SMPBulkReport aReport = new SMPBulkExecutor ().setCheckpoint (aCheckpoint).execute (aOps);
+    // No result is lost
+    assertEquals (10, aReport.getTotalCount ());
+    assertEquals (8, aReport.getSuccessCount ());
+    assertEquals (2, aReport.getFailureCount ());
+    assertTrue (aReport.getAllResults ().get (2).getException ().getCause () instanceof IllegalStateException);
+    assertTrue (aReport.getAllResults ().get (5).getException ().getCause () instanceof UncheckedIOException);
+  }
+
+  @Test
+  public void testClientIsNotModified () throws Exception
+  {
+    final SMPClientReadOnly aClient = new SMPClientReadOnly (URI.create ("http://smp.example.org"));
+    final ICommonsList <SMPBulkOperation> aOps = new CommonsArrayList <> ();
+    for (int i = 0; i < 5; ++i)
+      aOps.add (new SMPBulkOperation ("op" + i, true, () -> assertNull (aClient.getSharedHttpClientManager ())));
+
+    final SMPBulkReport aReport = new SMPBulkExecutor ().execute (aClient, aOps);
+    assertEquals (5, aReport.getSuccessCount ());
+    assertNull (aClient.getSharedHttpClientManager ());
+  }
+}
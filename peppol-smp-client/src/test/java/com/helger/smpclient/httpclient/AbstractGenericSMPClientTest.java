@@ -18,8 +18,11 @@ package com.helger.smpclient.httpclient;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
@@ -27,13 +30,21 @@ import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
 
 import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.core5.http.HttpEntity;
 import org.apache.hc.core5.http.io.entity.EntityUtils;
 import org.junit.Test;
 
+import com.helger.base.io.nonblocking.NonBlockingByteArrayOutputStream;
 import com.helger.httpclient.HttpClientManager;
+import com.helger.peppol.security.PeppolTrustStores.Config2025;
+import com.helger.security.revocation.ERevocationCheckMode;
+import com.helger.smpclient.exception.SMPClientBadResponseException;
 import com.helger.smpclient.peppol.SMPClientReadOnly;
+import com.helger.smpclient.peppol.marshal.SMPMarshallerSignedServiceMetadataType;
+import com.helger.smpclient.security.TrustStoreBasedX509KeySelector;
 import com.sun.net.httpserver.HttpServer;
 
 /**
@@ -43,6 +54,18 @@ import com.sun.net.httpserver.HttpServer;
  */
 public final class AbstractGenericSMPClientTest
 {
+  private static final class StringHandler extends AbstractSMPResponseHandler <String>
+  {
+    @Override
+    public String handleEntity (final HttpEntity aEntity) throws IOException, SMPClientBadResponseException
+    {
+      try (final SMPResponseBuffer aBuf = readEntity (aEntity))
+      {
+        return new String (aBuf.getBuffer (), 0, aBuf.getLength (), StandardCharsets.UTF_8);
+      }
+    }
+  }
+
   @Test
   public void testSharedHttpClientManagerReusesConnection () throws IOException
   {
@@ -80,6 +103,87 @@ public final class AbstractGenericSMPClientTest
     }
   }
 
+  @Test
+  public void testCompressedResponse () throws IOException
+  {
+    final StringBuilder aSB = new StringBuilder ("<root>");
+    for (int i = 0; i < 2000; ++i)
+      aSB.append ("<Process>urn:fdc:peppol.eu:2017:poacc:billing:01:1.0</Process>");
+    final String sPayload = aSB.append ("</root>").toString ();
+    final byte [] aCompressed;
+    try (final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ())
+    {
+      try (final GZIPOutputStream aGZOS = new GZIPOutputStream (aBAOS))
+      {
+        aGZOS.write (sPayload.getBytes (StandardCharsets.UTF_8));
+      }
+      aCompressed = aBAOS.toByteArray ();
+    }
+
+    final Set <String> aAcceptEncodings = ConcurrentHashMap.newKeySet ();
+    final HttpServer aServer = HttpServer.create (new InetSocketAddress ("127.0.0.1", 0), 0);
+    aServer.createContext ("/", aExchange -> {
+      final String sAcceptEncoding = aExchange.getRequestHeaders ().getFirst ("Accept-Encoding");
+      aAcceptEncodings.add (sAcceptEncoding == null ? "" : sAcceptEncoding);
+      aExchange.getResponseHeaders ().add ("Content-Type", "text/xml");
+      aExchange.getResponseHeaders ().add ("Content-Encoding", "gzip");
+      aExchange.sendResponseHeaders (200, aCompressed.length);
+      aExchange.getResponseBody ().write (aCompressed);
+      aExchange.close ();
+    });
+    aServer.start ();
+
+    try
+    {
+      final URI aURI = URI.create ("http://127.0.0.1:" + aServer.getAddress ().getPort () + '/');
+      final SMPTransferStatistics aStats = new SMPTransferStatistics ();
+      final SMPClientReadOnly aClient = new SMPClientReadOnly (aURI);
+      aClient.setUseResponseCompression (true);
+
+      final StringHandler aHandler = new StringHandler ();
+      aHandler.setTransferStatistics (aStats);
+      assertEquals (sPayload, aClient.executeRequest (new HttpGet (aURI), aHandler));
+
+      assertEquals (Set.of (AbstractGenericSMPClient.ACCEPT_ENCODING_COMPRESSED), aAcceptEncodings);
+      // The compressed bytes reached the handler
+      assertEquals (1, aStats.getResponseCount ());
+      assertEquals (1, aStats.getCompressedResponseCount ());
+      assertEquals (aCompressed.length, aStats.getWireBytes ());
+      assertEquals (sPayload.length (), aStats.getDecodedBytes ());
+      assertTrue (aStats.getWireBytes () < aStats.getDecodedBytes ());
+    }
+    finally
+    {
+      aServer.stop (0);
+    }
+  }
+
+  @Test
+  public void testKeySelectorIsReused ()
+  {
+    final SMPClientReadOnly aClient = new SMPClientReadOnly (URI.create ("http://localhost/"));
+    aClient.setTrustStore (Config2025.TRUSTSTORE_SMP_TEST);
+
+    final TrustStoreBasedX509KeySelector aKeySelector = _getKeySelector (aClient);
+    assertNotNull (aKeySelector);
+    assertSame (Config2025.TRUSTSTORE_SMP_TEST, aKeySelector.getTrustStore ());
+    assertSame (aKeySelector, _getKeySelector (aClient));
+
+    // Recreated after a relevant setting changed
+    aClient.setRevocationCheckMode (ERevocationCheckMode.NONE);
+    final TrustStoreBasedX509KeySelector aKeySelector2 = _getKeySelector (aClient);
+    assertNotSame (aKeySelector, aKeySelector2);
+    assertSame (ERevocationCheckMode.NONE, aKeySelector2.getRevocationCheckMode ());
+    assertSame (aKeySelector2, _getKeySelector (aClient));
+  }
+
+  private static TrustStoreBasedX509KeySelector _getKeySelector (final SMPClientReadOnly aClient)
+  {
+    return aClient.configureResponseHandler (new SMPHttpResponseHandlerSigned <> (new SMPMarshallerSignedServiceMetadataType (),
+                                                                                  aClient.getTrustStore ()))
+                  .getKeySelector ();
+  }
+
   private static String _executeRequest (final SMPClientReadOnly aClient, final URI aURI) throws IOException
   {
     return aClient.executeRequest (new HttpGet (aURI), aResponse -> EntityUtils.toString (aResponse.getEntity ()));
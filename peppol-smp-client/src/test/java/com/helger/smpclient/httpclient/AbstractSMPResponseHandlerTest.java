@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.httpclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
+import org.junit.Test;
+
+import com.helger.base.io.nonblocking.NonBlockingByteArrayOutputStream;
+import com.helger.smpclient.exception.SMPClientBadResponseException;
+
+/**
+ * Test class for class {@link AbstractSMPResponseHandler}.
+ *
+ * @author Philip Helger
+ */
+public final class AbstractSMPResponseHandlerTest
+{
+  private static final class StringHandler extends AbstractSMPResponseHandler <String>
+  {
+    @Override
+    public String handleEntity (final HttpEntity aEntity) throws IOException, SMPClientBadResponseException
+    {
+      try (final SMPResponseBuffer aBuf = readEntity (aEntity))
+      {
+        return new String (aBuf.getBuffer (), 0, aBuf.getLength (), StandardCharsets.UTF_8);
+      }
+    }
+  }
+
+  private static final String PAYLOAD;
+  static
+  {
+    final StringBuilder aSB = new StringBuilder ("<root>");
+    for (int i = 0; i < 2000; ++i)
+      aSB.append ("<Process>urn:fdc:peppol.eu:2017:poacc:billing:01:1.0</Process>");
+    PAYLOAD = aSB.append ("</root>").toString ();
+  }
+
+  @Test
+  public void testPlain () throws Exception
+  {
+    final SMPTransferStatistics aStats = new SMPTransferStatistics ();
+    final StringHandler aHandler = new StringHandler ();
+    aHandler.setTransferStatistics (aStats);
+
+    final byte [] aBytes = PAYLOAD.getBytes (StandardCharsets.UTF_8);
+    assertEquals (PAYLOAD, aHandler.handleEntity (new ByteArrayEntity (aBytes, ContentType.TEXT_XML)));
+    assertEquals (1, aStats.getResponseCount ());
+    assertEquals (0, aStats.getCompressedResponseCount ());
+    assertEquals (aBytes.length, aStats.getWireBytes ());
+    assertEquals (aBytes.length, aStats.getDecodedBytes ());
+  }
+
+  @Test
+  public void testGzip () throws Exception
+  {
+    final SMPTransferStatistics aStats = new SMPTransferStatistics ();
+    final StringHandler aHandler = new StringHandler ();
+    aHandler.setTransferStatistics (aStats);
+
+    final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+    try (final GZIPOutputStream aGZOS = new GZIPOutputStream (aBAOS))
+    {
+      aGZOS.write (PAYLOAD.getBytes (StandardCharsets.UTF_8));
+    }
+    final byte [] aCompressed = aBAOS.toByteArray ();
+
+    assertEquals (PAYLOAD, aHandler.handleEntity (new ByteArrayEntity (aCompressed, ContentType.TEXT_XML, "gzip")));
+    assertEquals (1, aStats.getCompressedResponseCount ());
+    assertEquals (aCompressed.length, aStats.getWireBytes ());
+    assertEquals (PAYLOAD.length (), aStats.getDecodedBytes ());
+    assertTrue (aStats.getWireBytes () < aStats.getDecodedBytes ());
+  }
+
+  @Test
+  public void testDeflate () throws Exception
+  {
+    final StringHandler aHandler = new StringHandler ();
+
+    final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+    try (final DeflaterOutputStream aDOS = new DeflaterOutputStream (aBAOS))
+    {
+      aDOS.write (PAYLOAD.getBytes (StandardCharsets.UTF_8));
+    }
+    assertEquals (PAYLOAD,
+                  aHandler.handleEntity (new ByteArrayEntity (aBAOS.toByteArray (), ContentType.TEXT_XML, "deflate")));
+  }
+
+  @Test
+  public void testRawDeflate () throws Exception
+  {
+    final StringHandler aHandler = new StringHandler ();
+
+    // Without the zlib wrapper, as sent by many servers
+    final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+    try (final DeflaterOutputStream aDOS = new DeflaterOutputStream (aBAOS,
+                                                                     new Deflater (Deflater.DEFAULT_COMPRESSION, true)))
+    {
+      aDOS.write (PAYLOAD.getBytes (StandardCharsets.UTF_8));
+    }
+    assertEquals (PAYLOAD,
+                  aHandler.handleEntity (new ByteArrayEntity (aBAOS.toByteArray (), ContentType.TEXT_XML, "deflate")));
+  }
+
+  @Test
+  public void testInvalidGzip () throws Exception
+  {
+    final StringHandler aHandler = new StringHandler ();
+    try
+    {
+      aHandler.handleEntity (new ByteArrayEntity (PAYLOAD.getBytes (StandardCharsets.UTF_8),
+                                                  ContentType.TEXT_XML,
+                                                  "gzip"));
+      fail ();
+    }
+    catch (final ZipException ex)
+    {
+      // expected - not in GZIP format
+    }
+  }
+
+  @Test
+  public void testLimitAppliesToDecodedBytes () throws Exception
+  {
+    final StringHandler aHandler = new StringHandler ();
+    aHandler.setMaxResponseSize (1000);
+
+    final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+    try (final GZIPOutputStream aGZOS = new GZIPOutputStream (aBAOS))
+    {
+      aGZOS.write (PAYLOAD.getBytes (StandardCharsets.UTF_8));
+    }
+    // Compressed size is below the limit, decoded size is above
+    assertTrue (aBAOS.size () < 1000);
+    try
+    {
+      aHandler.handleEntity (new ByteArrayEntity (aBAOS.toByteArray (), ContentType.TEXT_XML, "gzip"));
+      fail ();
+    }
+    catch (final SMPClientBadResponseException ex)
+    {
+      // expected
+    }
+  }
+
+  @Test
+  public void testUnsupportedEncoding () throws Exception
+  {
+    final StringHandler aHandler = new StringHandler ();
+    try
+    {
+      aHandler.handleEntity (new ByteArrayEntity (new byte [] { 1, 2, 3 }, ContentType.TEXT_XML, "br"));
+      fail ();
+    }
+    catch (final SMPClientBadResponseException ex)
+    {
+      // expected
+    }
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.httpclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.net.URI;
+import java.time.Duration;
+
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.junit.Test;
+
+import com.helger.smpclient.exception.SMPClientCircuitOpenException;
+import com.helger.smpclient.exception.SMPClientSMPUnavailableException;
+import com.helger.smpclient.peppol.SMPClientReadOnly;
+
+/**
+ * Test class for class {@link SMPCircuitBreaker}.
+ *
+ * @author Philip Helger
+ */
+public final class SMPCircuitBreakerTest
+{
+  private static final String HOST = "http://smp.example.org";
+
+  @Test
+  public void testStateTransitions () throws Exception
+  {
+    final SMPCircuitBreaker aCB = new SMPCircuitBreaker (2, Duration.ofMillis (20));
+    assertEquals (SMPCircuitBreaker.EState.CLOSED, aCB.getState (HOST));
+
+    assertTrue (aCB.tryAcquirePermission (HOST));
+    aCB.onFailure (HOST);
+    assertEquals (SMPCircuitBreaker.EState.CLOSED, aCB.getState (HOST));
+    assertTrue (aCB.tryAcquirePermission (HOST));
+    aCB.onFailure (HOST);
+    assertEquals (SMPCircuitBreaker.EState.OPEN, aCB.getState (HOST));
+    assertFalse (aCB.tryAcquirePermission (HOST));
+
+    // Other hosts are not affected
+    assertTrue (aCB.tryAcquirePermission ("http://other.example.org"));
+
+    // After the open duration exactly one probe is allowed
+    Thread.sleep (50);
+    assertTrue (aCB.tryAcquirePermission (HOST));
+    assertEquals (SMPCircuitBreaker.EState.HALF_OPEN, aCB.getState (HOST));
+    assertFalse (aCB.tryAcquirePermission (HOST));
+
+    // Failed probe re-opens immediately
+    aCB.onFailure (HOST);
+    assertEquals (SMPCircuitBreaker.EState.OPEN, aCB.getState (HOST));
+
+    // Successful probe closes
+    Thread.sleep (50);
+    assertTrue (aCB.tryAcquirePermission (HOST));
+    aCB.onSuccess (HOST);
+    assertEquals (SMPCircuitBreaker.EState.CLOSED, aCB.getState (HOST));
+    assertTrue (aCB.tryAcquirePermission (HOST));
+
+    // A success resets the failure counter
+    aCB.onFailure (HOST);
+    aCB.onSuccess (HOST);
+    aCB.onFailure (HOST);
+    assertEquals (SMPCircuitBreaker.EState.CLOSED, aCB.getState (HOST));
+  }
+
+  @Test
+  public void testClientFailsFast () throws Exception
+  {
+    // Nothing should be listening on port 1
+    final URI aURI = URI.create ("http://127.0.0.1:1/");
+    final SMPCircuitBreaker aCB = new SMPCircuitBreaker (1, Duration.ofMinutes (1));
+    final SMPClientReadOnly aClient = new SMPClientReadOnly (aURI).setCircuitBreaker (aCB);
+
+    try
+    {
+      aClient.executeGenericRequest (new HttpGet (aURI), x -> "ok");
+      fail ();
+    }
+    catch (final SMPClientCircuitOpenException ex)
+    {
+      fail ();
+    }
+    catch (final SMPClientSMPUnavailableException ex)
+    {
+      // expected
+    }
+    assertEquals (SMPCircuitBreaker.EState.OPEN, aCB.getState ("http://127.0.0.1:1"));
+
+    try
+    {
+      aClient.executeGenericRequest (new HttpGet (aURI), x -> "ok");
+      fail ();
+    }
+    catch (final SMPClientCircuitOpenException ex)
+    {
+      // expected
+      assertEquals ("http://127.0.0.1:1", ex.getHostKey ());
+    }
+  }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.httpclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.junit.Test;
+
+import com.helger.smpclient.exception.SMPClientException;
+import com.helger.smpclient.peppol.SMPClientReadOnly;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Test class for class {@link SMPRequestHedging}.
+ *
+ * @author Philip Helger
+ */
+public final class SMPRequestHedgingTest
+{
+  private static final long SLOW_MILLIS = 5_000;
+
+  private static final class TestServer implements AutoCloseable
+  {
+    private final ExecutorService m_aExecutor = Executors.newCachedThreadPool ();
+    private final AtomicInteger m_aRequestCount = new AtomicInteger ();
+    private final HttpServer m_aServer;
+
+    /**
+     * @param nSlowMillis
+     *        The duration of the slow requests. All other requests are answered immediately.
+     * @param aSlowRequests
+     *        The 1-based indices of the slow requests.
+     */
+    TestServer (final long nSlowMillis, final int... aSlowRequests) throws IOException
+    {
+      m_aServer = HttpServer.create (new InetSocketAddress ("127.0.0.1", 0), 0);
+      m_aServer.setExecutor (m_aExecutor);
+      m_aServer.createContext ("/", aExchange -> {
+        final int nIndex = m_aRequestCount.incrementAndGet ();
+        try
+        {
+          if (IntStream.of (aSlowRequests).anyMatch (x -> x == nIndex))
+            Thread.sleep (nSlowMillis);
+          final byte [] aResponse = ("response" + nIndex).getBytes (StandardCharsets.UTF_8);
+          aExchange.sendResponseHeaders (200, aResponse.length);
+          aExchange.getResponseBody ().write (aResponse);
+        }
+        catch (final InterruptedException ex)
+        {
+          Thread.currentThread ().interrupt ();
+        }
+        catch (final IOException ex)
+        {
+          // The client cancelled the request
+        }
+        finally
+        {
+          aExchange.close ();
+        }
+      });
+      m_aServer.start ();
+    }
+
+    URI getURI ()
+    {
+      return URI.create ("http://127.0.0.1:" + m_aServer.getAddress ().getPort () + '/');
+    }
+
+    String getHostKey ()
+    {
+      return "http://127.0.0.1:" + m_aServer.getAddress ().getPort ();
+    }
+
+    int getRequestCount ()
+    {
+      return m_aRequestCount.get ();
+    }
+
+    public void close ()
+    {
+      m_aServer.stop (0);
+      m_aExecutor.shutdownNow ();
+    }
+  }
+
+  private static SMPRequestHedging _createHedging (final TestServer aServer)
+  {
+    // Hedge after 50 milliseconds
+    final SMPRequestHedging aHedging = new SMPRequestHedging (0.5, Duration.ofMillis (50), Duration.ofMillis (50), 10, 1, null);
+    aHedging.recordLatency (aServer.getHostKey (), Duration.ofMillis (1).toNanos ());
+    return aHedging;
+  }
+
+  private static String _execute (final SMPClientReadOnly aClient, final TestServer aServer) throws SMPClientException
+  {
+    return aClient.executeGenericRequest (new HttpGet (aServer.getURI ()),
+                                          aResponse -> EntityUtils.toString (aResponse.getEntity (),
+                                                                             StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testHedgeDelay ()
+  {
+    final SMPRequestHedging aHedging = new SMPRequestHedging (0.5, Duration.ofMillis (10), Duration.ofMillis (100), 10, 3, null);
+    assertNull (aHedging.getHedgeDelay ("http://smp.example.org"));
+    aHedging.recordLatency ("http://smp.example.org", Duration.ofMillis (20).toNanos ());
+    aHedging.recordLatency ("http://smp.example.org", Duration.ofMillis (30).toNanos ());
+    // Not enough samples
+    assertNull (aHedging.getHedgeDelay ("http://smp.example.org"));
+    aHedging.recordLatency ("http://smp.example.org", Duration.ofMillis (40).toNanos ());
+    assertEquals (Duration.ofMillis (30), aHedging.getHedgeDelay ("http://smp.example.org"));
+
+    // Clamped
+    for (int i = 0; i < 10; ++i)
+      aHedging.recordLatency ("http://smp.example.org", Duration.ofSeconds (1).toNanos ());
+    assertEquals (Duration.ofMillis (100), aHedging.getHedgeDelay ("http://smp.example.org"));
+    for (int i = 0; i < 10; ++i)
+      aHedging.recordLatency ("http://smp.example.org", 1);
+    assertEquals (Duration.ofMillis (10), aHedging.getHedgeDelay ("http://smp.example.org"));
+  }
+
+  @Test
+  public void testHedgeWinsAndOriginalIsCancelled () throws Exception
+  {
+    try (final TestServer aServer = new TestServer (SLOW_MILLIS, 1))
+    {
+      final SMPRequestHedging aHedging = _createHedging (aServer);
+      final SMPClientReadOnly aClient = new SMPClientReadOnly (aServer.getURI ()).setRequestHedging (aHedging);
+
+      final long nStart = System.nanoTime ();
+      assertEquals ("response2", _execute (aClient, aServer));
+      // The slow original request was not waited for
+      assertTrue (System.nanoTime () - nStart < Duration.ofMillis (SLOW_MILLIS / 2).toNanos ());
+      assertEquals (2, aServer.getRequestCount ());
+      assertEquals (1, aHedging.getHedgedRequestCount ());
+      assertEquals (1, aHedging.getHedgeWinCount ());
+    }
+  }
+
+  @Test
+  public void testNoHedgeForFastRequests () throws Exception
+  {
+    try (final TestServer aServer = new TestServer (0))
+    {
+      final SMPRequestHedging aHedging = _createHedging (aServer);
+      final SMPClientReadOnly aClient = new SMPClientReadOnly (aServer.getURI ()).setRequestHedging (aHedging);
+
+      assertEquals ("response1", _execute (aClient, aServer));
+      // Give a wrongly scheduled hedged request the chance to be sent
+      Thread.sleep (200);
+      assertEquals (1, aServer.getRequestCount ());
+      assertEquals (0, aHedging.getHedgedRequestCount ());
+    }
+  }
+
+  @Test
+  public void testNoHedgeWithoutPermit () throws Exception
+  {
+    try (final TestServer aServer = new TestServer (500, 1))
+    {
+      final SMPRequestHedging aHedging = _createHedging (aServer);
+      // Only one concurrent request per host
+      final SMPTrafficLimiter aTrafficLimiter = new SMPTrafficLimiter (1, 0, 0, 0, Duration.ofSeconds (5));
+      final SMPClientReadOnly aClient = new SMPClientReadOnly (aServer.getURI ()).setRequestHedging (aHedging)
+                                                                                .setTrafficLimiter (aTrafficLimiter);
+
+      assertEquals ("response1", _execute (aClient, aServer));
+      assertEquals (1, aServer.getRequestCount ());
+      assertEquals (0, aHedging.getHedgedRequestCount ());
+      assertEquals (0, aTrafficLimiter.getActiveRequests (aServer.getHostKey ()));
+    }
+  }
+
+  @Test
+  public void testCircuitBreaker () throws Exception
+  {
+    // The original request is slow, the hedged request is fast, the probe request is slow again
+    try (final TestServer aServer = new TestServer (500, 1, 3))
+    {
+      final SMPRequestHedging aHedging = _createHedging (aServer);
+      final SMPCircuitBreaker aCircuitBreaker = new SMPCircuitBreaker (1, Duration.ofMillis (1));
+      final SMPClientReadOnly aClient = new SMPClientReadOnly (aServer.getURI ()).setRequestHedging (aHedging)
+                                                                                .setCircuitBreaker (aCircuitBreaker);
+
+      // The hedged request wins - the cancelled original request is no failure
+      assertEquals ("response2", _execute (aClient, aServer));
+      assertEquals (SMPCircuitBreaker.EState.CLOSED, aCircuitBreaker.getState (aServer.getHostKey ()));
+      assertEquals (1, aHedging.getHedgedRequestCount ());
+
+      // The probe request of a half open circuit is never hedged
+      aCircuitBreaker.onFailure (aServer.getHostKey ());
+      assertEquals (SMPCircuitBreaker.EState.OPEN, aCircuitBreaker.getState (aServer.getHostKey ()));
+      Thread.sleep (10);
+      assertEquals ("response3", _execute (aClient, aServer));
+      assertEquals (3, aServer.getRequestCount ());
+      assertEquals (1, aHedging.getHedgedRequestCount ());
+      assertEquals (SMPCircuitBreaker.EState.CLOSED, aCircuitBreaker.getState (aServer.getHostKey ()));
+    }
+  }
+}
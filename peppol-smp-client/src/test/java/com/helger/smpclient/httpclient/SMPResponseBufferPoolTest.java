@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.httpclient;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.helger.base.io.nonblocking.NonBlockingByteArrayInputStream;
+import com.helger.base.io.stream.StreamHelper;
+import com.helger.smpclient.exception.SMPClientBadResponseException;
+
+/**
+ * Test class for class {@link SMPResponseBufferPool}.
+ *
+ * @author Philip Helger
+ */
+public final class SMPResponseBufferPoolTest
+{
+  private static byte [] _createData (final int nLength)
+  {
+    final byte [] ret = new byte [nLength];
+    for (int i = 0; i < nLength; ++i)
+      ret[i] = (byte) i;
+    return ret;
+  }
+
+  @Test
+  public void testReadWithAndWithoutContentLength () throws Exception
+  {
+    final SMPResponseBufferPool aPool = new SMPResponseBufferPool ();
+    final byte [] aData = _createData (100_000);
+
+    // Known length
+    try (final SMPResponseBuffer aBuf = aPool.read (new NonBlockingByteArrayInputStream (aData), aData.length, 0))
+    {
+      assertEquals (aData.length, aBuf.getLength ());
+      assertArrayEquals (aData, Arrays.copyOf (aBuf.getBuffer (), aBuf.getLength ()));
+      assertArrayEquals (aData, StreamHelper.getAllBytes (aBuf.getInputStream ()));
+    }
+    assertEquals (1, aPool.getPooledBufferCount ());
+
+    // Unknown length - must grow
+    try (final SMPResponseBuffer aBuf = aPool.read (new NonBlockingByteArrayInputStream (aData), -1, 0))
+    {
+      assertEquals (aData.length, aBuf.getLength ());
+      assertArrayEquals (aData, Arrays.copyOf (aBuf.getBuffer (), aBuf.getLength ()));
+    }
+
+    // Empty
+    try (final SMPResponseBuffer aBuf = aPool.read (new NonBlockingByteArrayInputStream (new byte [0]), 0, 10))
+    {
+      assertTrue (aBuf.isEmpty ());
+    }
+  }
+
+  @Test
+  public void testBufferIsReused () throws Exception
+  {
+    final SMPResponseBufferPool aPool = new SMPResponseBufferPool ();
+    final byte [] aData = _createData (1000);
+
+    byte [] aFirst;
+    try (final SMPResponseBuffer aBuf = aPool.read (new NonBlockingByteArrayInputStream (aData), aData.length, 0))
+    {
+      aFirst = aBuf.getBuffer ();
+    }
+    try (final SMPResponseBuffer aBuf = aPool.read (new NonBlockingByteArrayInputStream (aData), aData.length, 0))
+    {
+      assertSame (aFirst, aBuf.getBuffer ());
+    }
+  }
+
+  @Test
+  public void testMaxSize () throws Exception
+  {
+    final SMPResponseBufferPool aPool = new SMPResponseBufferPool ();
+    final byte [] aData = _createData (5000);
+
+    // Exactly at the limit
+    try (final SMPResponseBuffer aBuf = aPool.read (new NonBlockingByteArrayInputStream (aData), -1, aData.length))
+    {
+      assertEquals (aData.length, aBuf.getLength ());
+    }
+
+    // Announced too large
+    try
+    {
+      aPool.read (new NonBlockingByteArrayInputStream (aData), aData.length, 4999);
+      fail ();
+    }
+    catch (final SMPClientBadResponseException ex)
+    {
+      // expected
+    }
+
+    // Too large without Content-Length
+    try
+    {
+      aPool.read (new NonBlockingByteArrayInputStream (aData), -1, 4999);
+      fail ();
+    }
+    catch (final SMPClientBadResponseException ex)
+    {
+      // expected
+    }
+
+    // Content-Length lies
+    try
+    {
+      aPool.read (new NonBlockingByteArrayInputStream (aData), 10, 100);
+      fail ();
+    }
+    catch (final SMPClientBadResponseException ex)
+    {
+      // expected
+    }
+  }
+
+  @Test
+  public void testLargeBuffersAreNotPooled () throws Exception
+  {
+    final SMPResponseBufferPool aPool = new SMPResponseBufferPool (1024, 2);
+    final byte [] aData = _createData (4096);
+    try (final SMPResponseBuffer aBuf = aPool.read (new NonBlockingByteArrayInputStream (aData), aData.length, 0))
+    {
+      assertEquals (aData.length, aBuf.getLength ());
+    }
+    assertEquals (0, aPool.getPooledBufferCount ());
+
+    for (int i = 0; i < 5; ++i)
+      aPool.release (new byte [10]);
+    assertEquals (2, aPool.getPooledBufferCount ());
+  }
+}
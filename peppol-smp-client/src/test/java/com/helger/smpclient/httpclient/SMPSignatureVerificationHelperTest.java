@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.httpclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.crypto.MarshalException;
+import javax.xml.crypto.dsig.XMLSignatureException;
+
+import org.junit.Test;
+
+import com.helger.base.concurrent.ThreadHelper;
+import com.helger.base.state.ESuccess;
+
+/**
+ * Test class for class {@link SMPSignatureVerificationHelper}.
+ *
+ * @author Philip Helger
+ */
+public final class SMPSignatureVerificationHelperTest
+{
+  @Test
+  public void testSequential () throws Exception
+  {
+    final AtomicInteger aCount = new AtomicInteger ();
+    final List <SMPSignatureVerificationHelper.ISingleSignatureCheck> aChecks = new ArrayList <> ();
+    aChecks.add ( () -> {
+      aCount.incrementAndGet ();
+      return ESuccess.SUCCESS;
+    });
+    aChecks.add ( () -> {
+      aCount.incrementAndGet ();
+      return ESuccess.FAILURE;
+    });
+    aChecks.add ( () -> {
+      aCount.incrementAndGet ();
+      return ESuccess.SUCCESS;
+    });
+
+    assertSame (ESuccess.FAILURE, SMPSignatureVerificationHelper.checkAll (aChecks, null, false));
+    assertEquals (3, aCount.get ());
+
+    aCount.set (0);
+    assertSame (ESuccess.FAILURE, SMPSignatureVerificationHelper.checkAll (aChecks, null, true));
+    assertEquals (2, aCount.get ());
+
+    assertSame (ESuccess.SUCCESS, SMPSignatureVerificationHelper.checkAll (new ArrayList <> (), null, true));
+  }
+
+  @Test
+  public void testParallel () throws Exception
+  {
+    final ExecutorService aES = Executors.newFixedThreadPool (4);
+    try
+    {
+      final List <SMPSignatureVerificationHelper.ISingleSignatureCheck> aChecks = new ArrayList <> ();
+      for (int i = 0; i < 8; ++i)
+        aChecks.add ( () -> ESuccess.SUCCESS);
+      assertSame (ESuccess.SUCCESS, SMPSignatureVerificationHelper.checkAll (aChecks, aES, false));
+      assertSame (ESuccess.SUCCESS, SMPSignatureVerificationHelper.checkAll (aChecks, aES, true));
+
+      // A fast failure does not wait for the slow checks
+      aChecks.clear ();
+      for (int i = 0; i < 3; ++i)
+        aChecks.add ( () -> {
+          ThreadHelper.sleepSeconds (10);
+          return ESuccess.SUCCESS;
+        });
+      aChecks.add ( () -> ESuccess.FAILURE);
+      final long nStart = System.nanoTime ();
+      assertSame (ESuccess.FAILURE, SMPSignatureVerificationHelper.checkAll (aChecks, aES, true));
+      assertTrue (System.nanoTime () - nStart < 5_000_000_000L);
+
+      // Exceptions are propagated unchanged
+      aChecks.clear ();
+      aChecks.add ( () -> ESuccess.SUCCESS);
+      aChecks.add ( () -> {
+        throw new MarshalException ("bla");
+      });
+      try
+      {
+        SMPSignatureVerificationHelper.checkAll (aChecks, aES, false);
+        fail ();
+      }
+      catch (final MarshalException ex)
+      {
+        assertEquals ("bla", ex.getMessage ());
+      }
+
+      aChecks.set (1, () -> {
+        throw new XMLSignatureException ("foo");
+      });
+      try
+      {
+        SMPSignatureVerificationHelper.checkAll (aChecks, aES, false);
+        fail ();
+      }
+      catch (final XMLSignatureException ex)
+      {
+        assertEquals ("foo", ex.getMessage ());
+      }
+    }
+    finally
+    {
+      aES.shutdownNow ();
+    }
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.httpclient;
+
+import static org.junit.Assert.assertSame;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.xml.crypto.KeySelector;
+import javax.xml.crypto.dsig.CanonicalizationMethod;
+import javax.xml.crypto.dsig.DigestMethod;
+import javax.xml.crypto.dsig.Reference;
+import javax.xml.crypto.dsig.SignatureMethod;
+import javax.xml.crypto.dsig.SignedInfo;
+import javax.xml.crypto.dsig.Transform;
+import javax.xml.crypto.dsig.XMLSignatureFactory;
+import javax.xml.crypto.dsig.dom.DOMSignContext;
+import javax.xml.crypto.dsig.spec.C14NMethodParameterSpec;
+import javax.xml.crypto.dsig.spec.TransformParameterSpec;
+
+import org.jspecify.annotations.NonNull;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import com.helger.base.state.ESuccess;
+import com.helger.xml.XMLFactory;
+
+/**
+ * Test class for class {@link SMPSignatureVerifierDOM}.
+ *
+ * @author Philip Helger
+ */
+public final class SMPSignatureVerifierDOMTest
+{
+  private static final String [] IDS = { "a", "b", "c", "d" };
+
+  /**
+   * Create a document with multiple independent signatures, each signing another element.
+   */
+  @NonNull
+  private static Document _createMultiSignedDoc (@NonNull final KeyPair aKeyPair) throws Exception
+  {
+    final Document aDoc = XMLFactory.newDocument ();
+    final Element eRoot = (Element) aDoc.appendChild (aDoc.createElementNS ("urn:test", "Root"));
+    for (final String sID : IDS)
+    {
+      final Element ePart = (Element) eRoot.appendChild (aDoc.createElementNS ("urn:test", "Part"));
+      ePart.setAttributeNS (null, "ID", sID);
+      ePart.setIdAttributeNS (null, "ID", true);
+      ePart.appendChild (aDoc.createTextNode ("Content of " + sID));
+    }
+
+    final XMLSignatureFactory aFactory = XMLSignatureFactory.getInstance ("DOM");
+    for (final String sID : IDS)
+    {
+      final Reference aRef = aFactory.newReference ("#" + sID,
+                                                    aFactory.newDigestMethod (DigestMethod.SHA256, null),
+                                                    List.of (aFactory.newTransform (Transform.ENVELOPED,
+                                                                                    (TransformParameterSpec) null)),
+                                                    null,
+                                                    null);
+      final SignedInfo aSI = aFactory.newSignedInfo (aFactory.newCanonicalizationMethod (CanonicalizationMethod.INCLUSIVE,
+                                                                                         (C14NMethodParameterSpec) null),
+                                                     aFactory.newSignatureMethod (SignatureMethod.RSA_SHA256, null),
+                                                     List.of (aRef));
+      aFactory.newXMLSignature (aSI, null).sign (new DOMSignContext (aKeyPair.getPrivate (), aDoc.getElementById (sID)));
+    }
+    return aDoc;
+  }
+
+  @Test
+  public void testMultipleSignaturesParallel () throws Exception
+  {
+    final KeyPairGenerator aKPG = KeyPairGenerator.getInstance ("RSA");
+    aKPG.initialize (2048);
+    final KeyPair aKeyPair = aKPG.generateKeyPair ();
+    final KeySelector aKeySelector = KeySelector.singletonKeySelector (aKeyPair.getPublic ());
+    final byte [] aNoBytes = new byte [0];
+
+    final ExecutorService aES = Executors.newFixedThreadPool (4);
+    try
+    {
+      final ISMPSignatureVerifier [] aVerifiers = { new SMPSignatureVerifierDOM (),
+                                                    new SMPSignatureVerifierDOM (aES, false),
+                                                    new SMPSignatureVerifierDOM (aES, true) };
+
+      final Document aDoc = _createMultiSignedDoc (aKeyPair);
+      for (final ISMPSignatureVerifier aVerifier : aVerifiers)
+        assertSame (ESuccess.SUCCESS, aVerifier.verifySignatures (aNoBytes, 0, 0, aDoc, aKeySelector, true));
+
+      // Modify the content of one signed element
+      aDoc.getElementById ("c").getFirstChild ().setNodeValue ("Modified");
+      for (final ISMPSignatureVerifier aVerifier : aVerifiers)
+        assertSame (ESuccess.FAILURE, aVerifier.verifySignatures (aNoBytes, 0, 0, aDoc, aKeySelector, true));
+    }
+    finally
+    {
+      aES.shutdownNow ();
+    }
+  }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.httpclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.time.Month;
+import java.util.List;
+
+import javax.xml.crypto.KeySelector;
+import javax.xml.crypto.MarshalException;
+import javax.xml.crypto.dsig.CanonicalizationMethod;
+import javax.xml.crypto.dsig.DigestMethod;
+import javax.xml.crypto.dsig.Reference;
+import javax.xml.crypto.dsig.SignatureMethod;
+import javax.xml.crypto.dsig.SignedInfo;
+import javax.xml.crypto.dsig.Transform;
+import javax.xml.crypto.dsig.XMLSignatureFactory;
+import javax.xml.crypto.dsig.dom.DOMSignContext;
+import javax.xml.crypto.dsig.spec.C14NMethodParameterSpec;
+import javax.xml.crypto.dsig.spec.TransformParameterSpec;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.jspecify.annotations.NonNull;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import com.helger.base.io.nonblocking.NonBlockingByteArrayOutputStream;
+import com.helger.base.io.stream.StreamHelper;
+import com.helger.base.state.ESuccess;
+import com.helger.datetime.helper.PDTFactory;
+import com.helger.io.resource.ClassPathResource;
+import com.helger.peppol.security.PeppolTrustStores.Config2018;
+import com.helger.security.revocation.ERevocationCheckMode;
+import com.helger.smpclient.security.TrustStoreBasedX509KeySelector;
+import com.helger.xml.serialize.read.DOMReader;
+
+/**
+ * Test class for class {@link SMPSignatureVerifierStAX}.
+ *
+ * @author Philip Helger
+ */
+public final class SMPSignatureVerifierStAXTest
+{
+  private static final ISMPSignatureVerifier DOM = new SMPSignatureVerifierDOM ();
+  private static final ISMPSignatureVerifier STAX = new SMPSignatureVerifierStAX ();
+
+  @Test
+  public void testSameResultsOnSignedResponses () throws Exception
+  {
+    // Explicitly use G2 truststore
+    final TrustStoreBasedX509KeySelector aKeySelector = new TrustStoreBasedX509KeySelector (Config2018.TRUSTSTORE_SMP_PRODUCTION);
+    // Certificate expired 2021-03-01
+    aKeySelector.setValidationDateTime (PDTFactory.createLocalDateTime (2021, Month.JANUARY, 1));
+    aKeySelector.setRevocationCheckMode (ERevocationCheckMode.NONE);
+
+    for (final String sFilename : new String [] { "external/signed-service-metadata1.xml",
+                                                  "external/signed-service-metadata2.xml",
+                                                  "external/signed-service-metadata3-c14n-inclusive.xml" })
+    {
+      final byte [] aBytes = StreamHelper.getAllBytes (new ClassPathResource (sFilename));
+      assertNotNull (aBytes);
+
+      // SHA-1 is used, so no secure validation
+      final ESuccess eDOM = DOM.verifySignatures (aBytes, 0, aBytes.length, null, aKeySelector, false);
+      final ESuccess eStAX = STAX.verifySignatures (aBytes, 0, aBytes.length, null, aKeySelector, false);
+      assertSame (sFilename, eDOM, eStAX);
+
+      // Secure validation forbids SHA-1
+      for (final ISMPSignatureVerifier aVerifier : new ISMPSignatureVerifier [] { DOM, STAX })
+        try
+        {
+          aVerifier.verifySignatures (aBytes, 0, aBytes.length, null, aKeySelector, true);
+          fail ();
+        }
+        catch (final MarshalException ex)
+        {
+          // expected
+        }
+    }
+  }
+
+  @NonNull
+  private static byte [] _sign (@NonNull final String sXML,
+                                @NonNull final String sC14NAlgorithm,
+                                @NonNull final KeyPair aKeyPair) throws Exception
+  {
+    final Document aDoc = DOMReader.readXMLDOM (sXML);
+    final XMLSignatureFactory aFactory = XMLSignatureFactory.getInstance ("DOM");
+    final Reference aRef = aFactory.newReference ("",
+                                                  aFactory.newDigestMethod (DigestMethod.SHA256, null),
+                                                  List.of (aFactory.newTransform (Transform.ENVELOPED,
+                                                                                  (TransformParameterSpec) null)),
+                                                  null,
+                                                  null);
+    final SignedInfo aSI = aFactory.newSignedInfo (aFactory.newCanonicalizationMethod (sC14NAlgorithm,
+                                                                                       (C14NMethodParameterSpec) null),
+                                                   aFactory.newSignatureMethod (SignatureMethod.RSA_SHA256, null),
+                                                   List.of (aRef));
+    // Put the signature in the middle of the document
+    final Element aParent = (Element) aDoc.getElementsByTagNameNS ("*", "Parent").item (0);
+    aFactory.newXMLSignature (aSI, null).sign (new DOMSignContext (aKeyPair.getPrivate (), aParent));
+    // Serialize without any formatting, to keep the signature valid
+    final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+    TransformerFactory.newInstance ().newTransformer ().transform (new DOMSource (aDoc), new StreamResult (aBAOS));
+    return aBAOS.toByteArray ();
+  }
+
+  @Test
+  public void testSameResultsOnGeneratedSignatures () throws Exception
+  {
+    final KeyPairGenerator aKPG = KeyPairGenerator.getInstance ("RSA");
+    aKPG.initialize (2048);
+    final KeyPair aKeyPair = aKPG.generateKeyPair ();
+    final KeySelector aKeySelector = KeySelector.singletonKeySelector (aKeyPair.getPublic ());
+
+    final String sXML = "<r:Root xmlns:r='urn:r' xmlns='urn:default' xmlns:unused='urn:u' z='1' a='x&amp;y&lt;&quot;&#9;&#10;z' r:b='2' xml:lang='de'>\n" +
+                        "  <Child b='1' a='2'>Text &amp; &lt; &gt; \" ' \u00e4\u20ac<![CDATA[cdata <&>]]><!-- comment --></Child>\n" +
+                        "  <Empty/>\n" +
+                        "  <x:Other xmlns:x='urn:x' xmlns:r='urn:r'><x:In xmlns=''><NoNS attr='v'/></x:In></x:Other><?pi data?>\n" +
+                        "  <Parent><Here/></Parent>\n" +
+                        "</r:Root>";
+    for (final String sC14NAlgorithm : new String [] { CanonicalizationMethod.INCLUSIVE,
+                                                       CanonicalizationMethod.EXCLUSIVE })
+    {
+      final byte [] aSigned = _sign (sXML, sC14NAlgorithm, aKeyPair);
+      assertSame (ESuccess.SUCCESS, DOM.verifySignatures (aSigned, 0, aSigned.length, null, aKeySelector, true));
+      assertSame (ESuccess.SUCCESS, STAX.verifySignatures (aSigned, 0, aSigned.length, null, aKeySelector, true));
+
+      // Modify the signed content
+      final byte [] aModified = new String (aSigned, StandardCharsets.UTF_8).replace ("<Empty", "<Empty x=\"y\"")
+                                                                            .getBytes (StandardCharsets.UTF_8);
+      assertFalse (aModified.length == aSigned.length);
+      assertSame (ESuccess.FAILURE,
+                  DOM.verifySignatures (aModified, 0, aModified.length, null, aKeySelector, true));
+      assertSame (ESuccess.FAILURE,
+                  STAX.verifySignatures (aModified, 0, aModified.length, null, aKeySelector, true));
+    }
+  }
+
+  @Test
+  public void testNoSignature () throws Exception
+  {
+    final byte [] aBytes = "<a/>".getBytes (StandardCharsets.UTF_8);
+    try
+    {
+      STAX.verifySignatures (aBytes, 0, aBytes.length, null, KeySelector.singletonKeySelector (null), true);
+      fail ();
+    }
+    catch (final IllegalArgumentException ex)
+    {
+      assertEquals ("Element <Signature> not found in SMP XML response", ex.getMessage ());
+    }
+  }
+}
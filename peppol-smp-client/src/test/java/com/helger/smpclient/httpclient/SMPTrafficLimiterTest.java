@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.httpclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+/**
+ * Test class for class {@link SMPTrafficLimiter}.
+ *
+ * @author Philip Helger
+ */
+public final class SMPTrafficLimiterTest
+{
+  private static final String HOST = "http://smp.example.org";
+
+  @Test
+  public void testBulkheadWithReservedSlots () throws Exception
+  {
+    final SMPTrafficLimiter aLimiter = new SMPTrafficLimiter (2, 1, 0, 0, Duration.ofMillis (20));
+
+    // Only one batch slot
+    assertTrue (aLimiter.tryAcquire (HOST, ESMPRequestPriority.BATCH));
+    assertFalse (aLimiter.tryAcquire (HOST, ESMPRequestPriority.BATCH));
+    assertEquals (1, aLimiter.getRejectedCount (ESMPRequestPriority.BATCH));
+
+    // But the reserved interactive slot is still free
+    assertTrue (aLimiter.tryAcquire (HOST, ESMPRequestPriority.INTERACTIVE));
+    assertFalse (aLimiter.tryAcquire (HOST, ESMPRequestPriority.INTERACTIVE));
+    assertEquals (2, aLimiter.getActiveRequests (HOST));
+
+    // Other hosts are not affected
+    assertTrue (aLimiter.tryAcquire ("http://other.example.org", ESMPRequestPriority.BATCH));
+
+    aLimiter.release (HOST);
+    aLimiter.release (HOST);
+    assertEquals (0, aLimiter.getActiveRequests (HOST));
+    assertEquals (1, aLimiter.getAcquiredCount (ESMPRequestPriority.INTERACTIVE));
+    assertEquals (2, aLimiter.getAcquiredCount (ESMPRequestPriority.BATCH));
+  }
+
+  @Test
+  public void testInteractiveBeforeBatch () throws Exception
+  {
+    final SMPTrafficLimiter aLimiter = new SMPTrafficLimiter (1, 0, 0, 0, Duration.ofSeconds (5));
+    assertTrue (aLimiter.tryAcquire (HOST, ESMPRequestPriority.INTERACTIVE));
+
+    final AtomicBoolean aInteractiveFirst = new AtomicBoolean (false);
+    final CountDownLatch aBatchDone = new CountDownLatch (1);
+    final Thread aBatch = new Thread ( () -> {
+      try
+      {
+        if (aLimiter.tryAcquire (HOST, ESMPRequestPriority.BATCH))
+          aLimiter.release (HOST);
+      }
+      catch (final InterruptedException ex)
+      {
+        Thread.currentThread ().interrupt ();
+      }
+      aBatchDone.countDown ();
+    });
+    aBatch.start ();
+    while (aLimiter.getQueueDepth (HOST, ESMPRequestPriority.BATCH) == 0)
+      Thread.sleep (5);
+
+    final Thread aInteractive = new Thread ( () -> {
+      try
+      {
+        if (aLimiter.tryAcquire (HOST, ESMPRequestPriority.INTERACTIVE))
+        {
+          // The batch request is still waiting
+          aInteractiveFirst.set (aBatchDone.getCount () == 1);
+          aLimiter.release (HOST);
+        }
+      }
+      catch (final InterruptedException ex)
+      {
+        Thread.currentThread ().interrupt ();
+      }
+    });
+    aInteractive.start ();
+    while (aLimiter.getQueueDepth (HOST, ESMPRequestPriority.INTERACTIVE) == 0)
+      Thread.sleep (5);
+    assertEquals (1, aLimiter.getQueueDepth (ESMPRequestPriority.BATCH));
+
+    // Free the slot - the interactive request must win
+    aLimiter.release (HOST);
+    aInteractive.join ();
+    assertTrue (aBatchDone.await (5, TimeUnit.SECONDS));
+    assertTrue (aInteractiveFirst.get ());
+    assertEquals (0, aLimiter.getQueueDepth (ESMPRequestPriority.BATCH));
+    assertTrue (aLimiter.getMaxWaitTime (ESMPRequestPriority.BATCH).toNanos () > 0);
+  }
+
+  @Test
+  public void testRateLimit () throws Exception
+  {
+    // 10 requests per second, burst of 2
+    final SMPTrafficLimiter aLimiter = new SMPTrafficLimiter (0, 0, 10, 2, Duration.ZERO);
+    assertTrue (aLimiter.tryAcquire (HOST, ESMPRequestPriority.INTERACTIVE));
+    assertTrue (aLimiter.tryAcquire (HOST, ESMPRequestPriority.INTERACTIVE));
+    assertFalse (aLimiter.tryAcquire (HOST, ESMPRequestPriority.INTERACTIVE));
+    aLimiter.release (HOST);
+    aLimiter.release (HOST);
+
+    // Waiting for the next token is allowed
+    final SMPTrafficLimiter aLimiter2 = new SMPTrafficLimiter (0, 0, 10, 1, Duration.ofSeconds (2));
+    assertTrue (aLimiter2.tryAcquire (HOST, ESMPRequestPriority.INTERACTIVE));
+    assertTrue (aLimiter2.tryAcquire (HOST, ESMPRequestPriority.INTERACTIVE));
+    assertTrue (aLimiter2.getMaxWaitTime (ESMPRequestPriority.INTERACTIVE).toMillis () >= 50);
+  }
+
+  @Test
+  public void testShorterMaxWait () throws Exception
+  {
+    final SMPTrafficLimiter aLimiter = new SMPTrafficLimiter (1, 0, 0, 0, Duration.ofMinutes (1));
+    assertTrue (aLimiter.tryAcquire (HOST, ESMPRequestPriority.INTERACTIVE));
+
+    // E.g. the remaining lookup deadline
+    final long nStart = System.nanoTime ();
+    assertFalse (aLimiter.tryAcquire (HOST, ESMPRequestPriority.INTERACTIVE, Duration.ofMillis (50)));
+    assertTrue (TimeUnit.NANOSECONDS.toSeconds (System.nanoTime () - nStart) < 10);
+    aLimiter.release (HOST);
+  }
+}
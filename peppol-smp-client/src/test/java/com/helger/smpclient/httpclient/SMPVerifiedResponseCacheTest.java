@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.httpclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyStore;
+import java.time.Duration;
+
+import org.junit.Test;
+
+import com.helger.security.revocation.ERevocationCheckMode;
+import com.helger.smpclient.security.SMPCertificateCheckResultCache;
+
+/**
+ * Test class for class {@link SMPVerifiedResponseCache}.
+ *
+ * @author Philip Helger
+ */
+public final class SMPVerifiedResponseCacheTest
+{
+  @Test
+  public void testCacheKey () throws Exception
+  {
+    final KeyStore aTS1 = KeyStore.getInstance (KeyStore.getDefaultType ());
+    final KeyStore aTS2 = KeyStore.getInstance (KeyStore.getDefaultType ());
+    final ISMPSignatureVerifier aVerifier1 = new SMPSignatureVerifierDOM ();
+    final ISMPSignatureVerifier aVerifier2 = new SMPSignatureVerifierStAX ();
+    final SMPCertificateCheckResultCache aCheckCache = new SMPCertificateCheckResultCache ();
+    final byte [] aBytes = "<a>signed</a>".getBytes (StandardCharsets.UTF_8);
+    final int nLen = aBytes.length;
+
+    final String sKey = SMPVerifiedResponseCache.createCacheKey (aBytes,
+                                                                 0,
+                                                                 nLen,
+                                                                 aTS1,
+                                                                 true,
+                                                                 ERevocationCheckMode.OCSP,
+                                                                 false,
+                                                                 aVerifier1,
+                                                                 null,
+                                                                 null,
+                                                                 null);
+    // Stable
+    assertEquals (sKey,
+                  SMPVerifiedResponseCache.createCacheKey (aBytes.clone (),
+                                                           0,
+                                                           nLen,
+                                                           aTS1,
+                                                           true,
+                                                           ERevocationCheckMode.OCSP,
+                                                           false,
+                                                           aVerifier1,
+                                                           null,
+                                                           null,
+                                                           null));
+    // Different bytes
+    assertNotEquals (sKey,
+                     SMPVerifiedResponseCache.createCacheKey (aBytes,
+                                                              0,
+                                                              nLen - 1,
+                                                              aTS1,
+                                                              true,
+                                                              ERevocationCheckMode.OCSP,
+                                                              false,
+                                                              aVerifier1,
+                                                              null,
+                                                              null,
+                                                              null));
+    // Different trust store
+    assertNotEquals (sKey,
+                     SMPVerifiedResponseCache.createCacheKey (aBytes,
+                                                              0,
+                                                              nLen,
+                                                              aTS2,
+                                                              true,
+                                                              ERevocationCheckMode.OCSP,
+                                                              false,
+                                                              aVerifier1,
+                                                              null,
+                                                              null,
+                                                              null));
+    // Different settings
+    assertNotEquals (sKey,
+                     SMPVerifiedResponseCache.createCacheKey (aBytes,
+                                                              0,
+                                                              nLen,
+                                                              aTS1,
+                                                              false,
+                                                              ERevocationCheckMode.OCSP,
+                                                              false,
+                                                              aVerifier1,
+                                                              null,
+                                                              null,
+                                                              null));
+    assertNotEquals (sKey,
+                     SMPVerifiedResponseCache.createCacheKey (aBytes,
+                                                              0,
+                                                              nLen,
+                                                              aTS1,
+                                                              true,
+                                                              ERevocationCheckMode.NONE,
+                                                              false,
+                                                              aVerifier1,
+                                                              null,
+                                                              null,
+                                                              null));
+    assertNotEquals (sKey,
+                     SMPVerifiedResponseCache.createCacheKey (aBytes,
+                                                              0,
+                                                              nLen,
+                                                              aTS1,
+                                                              true,
+                                                              ERevocationCheckMode.OCSP,
+                                                              true,
+                                                              aVerifier1,
+                                                              null,
+                                                              null,
+                                                              null));
+    // Different verifier
+    assertNotEquals (sKey,
+                     SMPVerifiedResponseCache.createCacheKey (aBytes,
+                                                              0,
+                                                              nLen,
+                                                              aTS1,
+                                                              true,
+                                                              ERevocationCheckMode.OCSP,
+                                                              false,
+                                                              aVerifier2,
+                                                              null,
+                                                              null,
+                                                              null));
+    // Different certificate check result cache
+    assertNotEquals (sKey,
+                     SMPVerifiedResponseCache.createCacheKey (aBytes,
+                                                              0,
+                                                              nLen,
+                                                              aTS1,
+                                                              true,
+                                                              ERevocationCheckMode.OCSP,
+                                                              false,
+                                                              aVerifier1,
+                                                              aCheckCache,
+                                                              null,
+                                                              null));
+  }
+
+  @Test
+  public void testExpiry () throws Exception
+  {
+    final SMPVerifiedResponseCache aCache = new SMPVerifiedResponseCache (Duration.ofMillis (50), 10);
+    assertFalse (aCache.isVerified ("key"));
+    aCache.putVerified ("key");
+    assertTrue (aCache.isVerified ("key"));
+    assertEquals (1, aCache.getHitCount ());
+    assertEquals (1, aCache.getMissCount ());
+
+    Thread.sleep (100);
+    assertFalse (aCache.isVerified ("key"));
+
+    aCache.putVerified ("key");
+    aCache.clear ();
+    assertFalse (aCache.isVerified ("key"));
+  }
+}
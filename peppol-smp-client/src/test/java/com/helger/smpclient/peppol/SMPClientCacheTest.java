@@ -17,10 +17,12 @@
 package com.helger.smpclient.peppol;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.time.Duration;
@@ -246,4 +248,46 @@ public final class SMPClientCacheTest
     }
     assertSame (aOld, SMPClientCache.getDefaultInstance ());
   }
+
+  @Test
+  public void testStale () throws Exception
+  {
+    final SMPClientCache aCache = new SMPClientCache (Duration.ofMillis (1), 10, null, Duration.ofMinutes (1));
+    assertTrue (aCache.isStaleEnabled ());
+    assertEquals (Duration.ofMinutes (1), aCache.getStaleTTL ());
+
+    final ServiceGroupType aSG = new ServiceGroupType ();
+    aCache.putServiceGroup (HOST1, PID1, aSG);
+    final SignedServiceMetadataType aSM = new SignedServiceMetadataType ();
+    aCache.putServiceMetadata (HOST1, PID1, DTID1, aSM);
+    Thread.sleep (50);
+
+    // Regular entries are expired, stale entries are still present
+    assertNull (aCache.getServiceGroup (HOST1, PID1));
+    assertSame (aSG, aCache.getStaleServiceGroup (HOST1, PID1));
+    assertNull (aCache.getServiceMetadata (HOST1, PID1, DTID1));
+    assertSame (aSM, aCache.getStaleServiceMetadata (HOST1, PID1, DTID1));
+
+    // Removal affects the stale entries as well
+    aCache.removeAllOfSMPHost (HOST1);
+    assertNull (aCache.getStaleServiceGroup (HOST1, PID1));
+    assertNull (aCache.getStaleServiceMetadata (HOST1, PID1, DTID1));
+
+    // Disabled by default
+    final SMPClientCache aCache2 = new SMPClientCache ();
+    assertFalse (aCache2.isStaleEnabled ());
+    aCache2.putServiceGroup (HOST1, PID1, aSG);
+    assertNull (aCache2.getStaleServiceGroup (HOST1, PID1));
+
+    try
+    {
+      // Stale TTL must be longer than the cache TTL
+      new SMPClientCache (Duration.ofMinutes (1), 10, null, Duration.ofSeconds (10));
+      fail ();
+    }
+    catch (final IllegalArgumentException ex)
+    {
+      // expected
+    }
+  }
 }
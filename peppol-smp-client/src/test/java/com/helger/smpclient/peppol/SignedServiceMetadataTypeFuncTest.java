@@ -16,6 +16,7 @@
  */
 package com.helger.smpclient.peppol;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -165,4 +166,22 @@ public final class SignedServiceMetadataTypeFuncTest
     final ESuccess eSuccess = SMPHttpResponseHandlerSigned.checkSignature (aDocument, aKeySelector, false);
     assertTrue (eSuccess.isSuccess ());
   }
+
+  @Test
+  public void testReadFromDOM () throws Exception
+  {
+    final SMPMarshallerSignedServiceMetadataType aMarshaller = new SMPMarshallerSignedServiceMetadataType ();
+    aMarshaller.setUseSchema (true);
+    aMarshaller.setValidationEventHandler (new LoggingValidationEventHandler ());
+
+    final byte [] aBytes = StreamHelper.getAllBytes (new ClassPathResource ("external/signed-service-metadata2.xml"));
+    assertNotNull (aBytes);
+
+    // Unmarshalling from the DOM used for signature verification must give the same result
+    final Document aDocument = DOMReader.readXMLDOM (aBytes);
+    assertNotNull (aDocument);
+    final SignedServiceMetadataType aSSM = aMarshaller.read (aDocument);
+    assertNotNull (aSSM);
+    assertEquals (aMarshaller.read (aBytes), aSSM);
+  }
 }
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.peppol.supplementary.tools;
+
+import java.lang.management.ManagementFactory;
+import java.security.PublicKey;
+import java.security.cert.X509Certificate;
+
+import javax.xml.crypto.AlgorithmMethod;
+import javax.xml.crypto.KeySelector;
+import javax.xml.crypto.KeySelectorException;
+import javax.xml.crypto.KeySelectorResult;
+import javax.xml.crypto.XMLCryptoContext;
+import javax.xml.crypto.XMLStructure;
+import javax.xml.crypto.dsig.keyinfo.KeyInfo;
+import javax.xml.crypto.dsig.keyinfo.X509Data;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.base.io.stream.StreamHelper;
+import com.helger.io.resource.ClassPathResource;
+import com.helger.smpclient.httpclient.ISMPSignatureVerifier;
+import com.helger.smpclient.httpclient.SMPSignatureVerifierDOM;
+import com.helger.smpclient.httpclient.SMPSignatureVerifierStAX;
+
+/**
+ * Micro benchmark comparing the CPU time and the allocated memory of
+ * {@link SMPSignatureVerifierDOM} and {@link SMPSignatureVerifierStAX}. The key selector used
+ * takes the public key of the contained certificate without any certificate checks, so that only
+ * the signature verification itself is measured.
+ *
+ * @author Philip Helger
+ */
+public final class MainBenchmarkSignatureVerifier
+{
+  private static final Logger LOGGER = LoggerFactory.getLogger (MainBenchmarkSignatureVerifier.class);
+  private static final int WARMUP_ITERATIONS = 2_000;
+  private static final int ITERATIONS = 10_000;
+
+  private static final KeySelector KEY_SELECTOR = new KeySelector ()
+  {
+    @Override
+    public KeySelectorResult select (final KeyInfo aKeyInfo,
+                                     final Purpose aPurpose,
+                                     final AlgorithmMethod aMethod,
+                                     final XMLCryptoContext aContext) throws KeySelectorException
+    {
+      for (final XMLStructure aStructure : aKeyInfo.getContent ())
+        if (aStructure instanceof final X509Data aX509Data)
+          for (final Object aElement : aX509Data.getContent ())
+            if (aElement instanceof final X509Certificate aCert)
+            {
+              final PublicKey aPublicKey = aCert.getPublicKey ();
+              return () -> aPublicKey;
+            }
+      throw new KeySelectorException ("No certificate found");
+    }
+  };
+
+  private static void _run (final String sName,
+                            final byte [] aBytes,
+                            final ISMPSignatureVerifier aVerifier) throws Exception
+  {
+    for (int i = 0; i < WARMUP_ITERATIONS; ++i)
+      aVerifier.verifySignatures (aBytes, 0, aBytes.length, null, KEY_SELECTOR, false);
+
+    final com.sun.management.ThreadMXBean aMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean ();
+    final long nThreadID = Thread.currentThread ().getId ();
+    final long nStartCPU = aMXBean.getCurrentThreadCpuTime ();
+    final long nStartAlloc = aMXBean.getThreadAllocatedBytes (nThreadID);
+    for (int i = 0; i < ITERATIONS; ++i)
+      if (aVerifier.verifySignatures (aBytes, 0, aBytes.length, null, KEY_SELECTOR, false).isFailure ())
+        throw new IllegalStateException ("Signature is invalid");
+    final double dCPU = (aMXBean.getCurrentThreadCpuTime () - nStartCPU) / 1_000d / ITERATIONS;
+    final long nAlloc = (aMXBean.getThreadAllocatedBytes (nThreadID) - nStartAlloc) / ITERATIONS;
+
+    LOGGER.info (sName +
+                 " (" +
+                 aBytes.length +
+                 " bytes) " +
+                 aVerifier.getClass ().getSimpleName () +
+                 ": " +
+                 String.format ("%.1f", dCPU) +
+                 " us CPU/op, " +
+                 nAlloc +
+                 " bytes allocated/op");
+  }
+
+  public static void main (final String [] args) throws Exception
+  {
+    // signed-service-metadata1.xml has an invalid signature
+    for (final String sFilename : new String [] { "external/signed-service-metadata2.xml",
+                                                  "external/signed-service-metadata3-c14n-inclusive.xml" })
+    {
+      final byte [] aBytes = StreamHelper.getAllBytes (new ClassPathResource (sFilename));
+      _run (sFilename, aBytes, new SMPSignatureVerifierDOM ());
+      _run (sFilename, aBytes, new SMPSignatureVerifierStAX ());
+    }
+  }
+}
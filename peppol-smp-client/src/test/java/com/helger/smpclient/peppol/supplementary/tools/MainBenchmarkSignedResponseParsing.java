@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.peppol.supplementary.tools;
+
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+
+import com.helger.base.io.nonblocking.NonBlockingByteArrayInputStream;
+import com.helger.base.io.stream.StreamHelper;
+import com.helger.io.resource.ClassPathResource;
+import com.helger.smpclient.peppol.marshal.SMPMarshallerSignedServiceMetadataType;
+import com.helger.xml.serialize.read.DOMReader;
+
+/**
+ * Micro benchmark for the parsing of signed SMP responses in
+ * {@link com.helger.smpclient.httpclient.SMPHttpResponseHandlerSigned}: parsing the response bytes
+ * twice (once for the DOM used for the signature verification and once for JAXB) versus parsing
+ * them once and unmarshalling from the DOM. The signature verification itself is identical in both
+ * cases and therefore not part of the benchmark. XML Schema validation is enabled in both cases.
+ *
+ * @author Philip Helger
+ */
+public final class MainBenchmarkSignedResponseParsing
+{
+  private static final Logger LOGGER = LoggerFactory.getLogger (MainBenchmarkSignedResponseParsing.class);
+  private static final int WARMUP_ITERATIONS = 2_000;
+  private static final int ITERATIONS = 10_000;
+
+  private static double _run (final byte [] aBytes, final Consumer <byte []> aAction)
+  {
+    for (int i = 0; i < WARMUP_ITERATIONS; ++i)
+      aAction.accept (aBytes);
+
+    final long nStart = System.nanoTime ();
+    for (int i = 0; i < ITERATIONS; ++i)
+      aAction.accept (aBytes);
+    return (System.nanoTime () - nStart) / 1_000d / ITERATIONS;
+  }
+
+  private static void _check (final Object o)
+  {
+    if (o == null)
+      throw new IllegalStateException ("Failed to read");
+  }
+
+  public static void main (final String [] args)
+  {
+    final SMPMarshallerSignedServiceMetadataType aMarshaller = new SMPMarshallerSignedServiceMetadataType ();
+    aMarshaller.setUseSchema (true);
+
+    for (final String sFilename : new String [] { "external/signed-service-metadata1.xml",
+                                                  "external/signed-service-metadata2.xml",
+                                                  "external/signed-service-metadata3-c14n-inclusive.xml" })
+    {
+      final byte [] aBytes = StreamHelper.getAllBytes (new ClassPathResource (sFilename));
+
+      // Previous path: DOM for the signature check, then parse the bytes again
+      final double dTwoParses = _run (aBytes, x -> {
+        final Document aDoc = DOMReader.readXMLDOM (new NonBlockingByteArrayInputStream (x));
+        _check (aDoc);
+        _check (aMarshaller.read (x));
+      });
+
+      // New path: DOM for the signature check, then unmarshal from the DOM
+      final double dSingleParse = _run (aBytes, x -> {
+        final Document aDoc = DOMReader.readXMLDOM (new NonBlockingByteArrayInputStream (x));
+        _check (aDoc);
+        _check (aMarshaller.read (aDoc));
+      });
+
+      LOGGER.info (sFilename +
+                   " (" +
+                   aBytes.length +
+                   " bytes): two parses " +
+                   String.format ("%.1f", dTwoParses) +
+                   " us/op, single parse " +
+                   String.format ("%.1f", dSingleParse) +
+                   " us/op");
+    }
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.scan;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+import com.helger.json.IJsonObject;
+import com.helger.smpclient.httpclient.SMPHttpClientSettings;
+import com.helger.smpclient.scan.SMPHostScanResult.ESignatureStatus;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Test class for class {@link SMPHostScanner}.
+ *
+ * @author Philip Helger
+ */
+public final class SMPHostScannerTest
+{
+  @Test
+  public void testScanSMPHosts () throws IOException
+  {
+    final HttpServer aServer = HttpServer.create (new InetSocketAddress ("127.0.0.1", 0), 0);
+    aServer.createContext ("/", aExchange -> {
+      final byte [] aResponse = "<ServiceGroup xmlns=\"urn:test\" />".getBytes (StandardCharsets.UTF_8);
+      aExchange.sendResponseHeaders (200, aResponse.length);
+      aExchange.getResponseBody ().write (aResponse);
+      aExchange.close ();
+    });
+    aServer.start ();
+
+    try
+    {
+      final URI aGoodURI = URI.create ("http://127.0.0.1:" + aServer.getAddress ().getPort () + '/');
+      // Nothing should be listening on port 1
+      final URI aBadURI = URI.create ("http://127.0.0.1:1/");
+
+      final SMPHostScanner aScanner = new SMPHostScanner (new SMPHttpClientSettings (), null).setMaxConcurrency (2);
+      final SMPHostScanReport aReport = aScanner.scanSMPHosts (new CommonsArrayList <> (aGoodURI, aBadURI));
+      assertEquals (2, aReport.getTotalCount ());
+      assertEquals (1, aReport.getHealthyCount ());
+
+      final ICommonsList <SMPHostScanResult> aResults = aReport.getAllResults ();
+      final SMPHostScanResult aGood = aResults.get (0);
+      assertEquals (aGoodURI, aGood.getSMPHostURI ());
+      assertTrue (aGood.isHealthy ());
+      assertEquals (200, aGood.getHttpStatus ());
+      assertNotNull (aGood.getDNSDuration ());
+      assertNotNull (aGood.getConnectDuration ());
+      assertNotNull (aGood.getFirstByteDuration ());
+      assertNotNull (aGood.getTotalDuration ());
+      assertEquals ("<ServiceGroup xmlns=\"urn:test\" />".length (), aGood.getResponseBytes ());
+      assertNull (aGood.getNaptrDuration ());
+      // No trust store
+      assertEquals (ESignatureStatus.NOT_CHECKED, aGood.getSignatureStatus ());
+
+      final SMPHostScanResult aBad = aResults.get (1);
+      assertFalse (aBad.isHealthy ());
+      assertNotNull (aBad.getError ());
+      assertEquals (-1, aBad.getHttpStatus ());
+
+      final IJsonObject aJson = aReport.getAsJson ();
+      assertEquals (2, aJson.getAsArray (SMPHostScanReport.JSON_RESULTS).size ());
+      assertNotNull (aReport.getAsJsonString ());
+    }
+    finally
+    {
+      aServer.stop (0);
+    }
+  }
+
+  @Test
+  public void testResponseTooLarge () throws IOException
+  {
+    final HttpServer aServer = HttpServer.create (new InetSocketAddress ("127.0.0.1", 0), 0);
+    aServer.createContext ("/", aExchange -> {
+      final byte [] aResponse = new byte [1024];
+      aExchange.sendResponseHeaders (200, aResponse.length);
+      aExchange.getResponseBody ().write (aResponse);
+      aExchange.close ();
+    });
+    aServer.start ();
+
+    try
+    {
+      final URI aURI = URI.create ("http://127.0.0.1:" + aServer.getAddress ().getPort () + '/');
+      final SMPHostScanner aScanner = new SMPHostScanner (new SMPHttpClientSettings (), null).setMaxResponseSize (100);
+      final SMPHostScanReport aReport = aScanner.scanSMPHosts (new CommonsArrayList <> (aURI, aURI));
+      assertEquals (2, aReport.getTotalCount ());
+      assertEquals (0, aReport.getHealthyCount ());
+      for (final SMPHostScanResult aResult : aReport.getAllResults ())
+      {
+        assertFalse (aResult.isHealthy ());
+        assertNotNull (aResult.getError ());
+        assertEquals (200, aResult.getHttpStatus ());
+      }
+    }
+    finally
+    {
+      aServer.stop (0);
+    }
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.security;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.security.KeyStore;
+import java.security.cert.X509Certificate;
+import java.time.LocalDateTime;
+
+import org.junit.Test;
+
+import com.helger.peppol.security.PeppolTrustStores.Config2025;
+import com.helger.security.certificate.ECertificateCheckResult;
+import com.helger.security.keystore.KeyStoreHelper;
+import com.helger.security.revocation.ERevocationCheckMode;
+
+/**
+ * Test class for class {@link SMPCertificateCheckResultCache}.
+ *
+ * @author Philip Helger
+ */
+public final class SMPCertificateCheckResultCacheTest
+{
+  @Test
+  public void testBasic ()
+  {
+    final KeyStore aTrustStore = Config2025.TRUSTSTORE_SMP_PRODUCTION;
+    final TrustedIssuerIndex aIndex = TrustedIssuerIndex.getForTrustStore (aTrustStore);
+    final X509Certificate aCert = KeyStoreHelper.getAllTrustedCertificates (aTrustStore).iterator ().next ();
+
+    final String sKey = SMPCertificateCheckResultCache.createCacheKey (aCert, aIndex, ERevocationCheckMode.OCSP, null);
+    assertNotNull (sKey);
+    assertEquals (sKey, SMPCertificateCheckResultCache.createCacheKey (aCert, aIndex, ERevocationCheckMode.OCSP, null));
+    // Settings are part of the key
+    assertNotEquals (sKey,
+                     SMPCertificateCheckResultCache.createCacheKey (aCert, aIndex, ERevocationCheckMode.NONE, null));
+    assertNotEquals (sKey,
+                     SMPCertificateCheckResultCache.createCacheKey (aCert,
+                                                                   aIndex,
+                                                                   ERevocationCheckMode.OCSP,
+                                                                   LocalDateTime.of (2025, 1, 1, 0, 0)));
+
+    final SMPCertificateCheckResultCache aCache = new SMPCertificateCheckResultCache ();
+    assertNull (aCache.getCheckResult (sKey));
+    assertEquals (1, aCache.getMissCount ());
+
+    // Unknown revocation status is not cached
+    aCache.putCheckResult (sKey, aCert, ECertificateCheckResult.REVOCATION_STATUS_UNKNOWN);
+    assertNull (aCache.getCheckResult (sKey));
+    assertEquals (0, aCache.size ());
+
+    aCache.putCheckResult (sKey, aCert, ECertificateCheckResult.VALID);
+    assertSame (ECertificateCheckResult.VALID, aCache.getCheckResult (sKey));
+    assertEquals (1, aCache.getHitCount ());
+
+    aCache.putCheckResult (sKey, aCert, ECertificateCheckResult.REVOKED);
+    assertSame (ECertificateCheckResult.REVOKED, aCache.getCheckResult (sKey));
+
+    aCache.clear ();
+    assertNull (aCache.getCheckResult (sKey));
+  }
+}
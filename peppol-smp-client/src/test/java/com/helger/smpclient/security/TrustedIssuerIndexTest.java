@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.security;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.security.KeyStore;
+import java.security.cert.X509Certificate;
+
+import javax.security.auth.x500.X500Principal;
+
+import org.junit.Test;
+
+import com.helger.peppol.security.PeppolTrustStores.Config2025;
+import com.helger.security.keystore.KeyStoreHelper;
+
+/**
+ * Test class for class {@link TrustedIssuerIndex}.
+ *
+ * @author Philip Helger
+ */
+public final class TrustedIssuerIndexTest
+{
+  @Test
+  public void testBasic () throws Exception
+  {
+    final KeyStore aTrustStore = Config2025.TRUSTSTORE_SMP_PRODUCTION;
+    final TrustedIssuerIndex aIndex = TrustedIssuerIndex.getForTrustStore (aTrustStore);
+    assertNotNull (aIndex);
+
+    // Shared
+    assertSame (aIndex, TrustedIssuerIndex.getForTrustStore (aTrustStore));
+
+    for (final X509Certificate aCert : KeyStoreHelper.getAllTrustedCertificates (aTrustStore))
+      assertTrue (aIndex.containsSubject (aCert.getSubjectX500Principal ()));
+    assertFalse (aIndex.containsSubject (new X500Principal ("CN=Not trusted")));
+    assertFalse (aIndex.containsSubject (null));
+
+    // Rebuilt after invalidation
+    TrustedIssuerIndex.invalidate (aTrustStore);
+    final TrustedIssuerIndex aIndex2 = TrustedIssuerIndex.getForTrustStore (aTrustStore);
+    assertNotSame (aIndex, aIndex2);
+    assertEquals (aIndex.getAllSubjects (), aIndex2.getAllSubjects ());
+  }
+
+  @Test
+  public void testRebuildOnChange () throws Exception
+  {
+    final KeyStore aTrustStore = KeyStore.getInstance ("JKS");
+    aTrustStore.load (null, null);
+    final TrustedIssuerIndex aIndex = TrustedIssuerIndex.getForTrustStore (aTrustStore);
+    assertTrue (aIndex.getAllSubjects ().isEmpty ());
+
+    final X509Certificate aCert = Config2025.CERTIFICATE_PRODUCTION_SMP;
+    aTrustStore.setCertificateEntry ("a", aCert);
+    final TrustedIssuerIndex aIndex2 = TrustedIssuerIndex.getForTrustStore (aTrustStore);
+    assertNotSame (aIndex, aIndex2);
+    assertTrue (aIndex2.containsSubject (aCert.getSubjectX500Principal ()));
+
+    // Same number of entries, but a different certificate
+    final X509Certificate aOtherCert = Config2025.CERTIFICATE_TEST_SMP;
+    aTrustStore.setCertificateEntry ("a", aOtherCert);
+    final TrustedIssuerIndex aIndex3 = TrustedIssuerIndex.getForTrustStore (aTrustStore);
+    assertNotSame (aIndex2, aIndex3);
+    assertTrue (aIndex3.containsSubject (aOtherCert.getSubjectX500Principal ()));
+    assertFalse (aIndex3.containsSubject (aCert.getSubjectX500Principal ()));
+
+    // Unchanged
+    assertSame (aIndex3, TrustedIssuerIndex.getForTrustStore (aTrustStore));
+  }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.url;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.helger.base.concurrent.ThreadHelper;
+
+/**
+ * Test class for class {@link DNSServerRace}.
+ *
+ * @author Philip Helger
+ */
+public final class DNSServerRaceTest
+{
+  private static final InetAddress FAST = InetAddress.getLoopbackAddress ();
+  private static final InetAddress SLOW;
+  private static final InetAddress BROKEN;
+  static
+  {
+    try
+    {
+      SLOW = InetAddress.getByAddress (new byte [] { 10, 0, 0, 2 });
+      BROKEN = InetAddress.getByAddress (new byte [] { 10, 0, 0, 3 });
+    }
+    catch (final Exception ex)
+    {
+      throw new IllegalStateException (ex);
+    }
+  }
+
+  private static String _lookup (final InetAddress aServer)
+  {
+    if (aServer.equals (BROKEN))
+      return "error";
+    if (aServer.equals (SLOW))
+      ThreadHelper.sleep (200);
+    return "ok-" + aServer.getHostAddress ();
+  }
+
+  @Test
+  public void testFirstValidAnswerWins () throws Exception
+  {
+    final DNSServerRace aRace = new DNSServerRace ();
+    final List <InetAddress> aServers = List.of (SLOW, FAST);
+
+    final long nStart = System.nanoTime ();
+    assertEquals ("ok-" + FAST.getHostAddress (), aRace.race (aServers, DNSServerRaceTest::_lookup, x -> x.startsWith ("ok")));
+    assertTrue (System.nanoTime () - nStart < Duration.ofMillis (150).toNanos ());
+    assertEquals (1, aRace.getServerStats (FAST).getWinCount ());
+    assertEquals (1, aRace.getServerStats (FAST).getSuccessCount ());
+
+    // The slow lookup was cancelled and is neither a success nor a failure
+    ThreadHelper.sleep (300);
+    final DNSServerRace.ServerStats aSlowStats = aRace.getServerStats (SLOW);
+    if (aSlowStats != null)
+    {
+      assertEquals (0, aSlowStats.getSuccessCount ());
+      assertEquals (0, aSlowStats.getFailureCount ());
+      assertEquals (0, aSlowStats.getWinCount ());
+      assertTrue (aSlowStats.isHealthy ());
+    }
+  }
+
+  @Test
+  public void testLoserIsCancelled () throws Exception
+  {
+    final DNSServerRace aRace = new DNSServerRace ();
+    final CountDownLatch aStarted = new CountDownLatch (1);
+    final CountDownLatch aInterrupted = new CountDownLatch (1);
+    final List <InetAddress> aServers = List.of (SLOW, FAST);
+
+    assertEquals ("ok-" + FAST.getHostAddress (), aRace.race (aServers, x -> {
+      if (x.equals (SLOW))
+      {
+        aStarted.countDown ();
+        try
+        {
+          Thread.sleep (5_000);
+        }
+        catch (final InterruptedException ex)
+        {
+          aInterrupted.countDown ();
+          Thread.currentThread ().interrupt ();
+          return "cancelled";
+        }
+        return "ok-" + x.getHostAddress ();
+      }
+      try
+      {
+        // Ensure the slow lookup is running
+        aStarted.await (1, TimeUnit.SECONDS);
+      }
+      catch (final InterruptedException ex)
+      {
+        Thread.currentThread ().interrupt ();
+      }
+      return "ok-" + x.getHostAddress ();
+    }, x -> x.startsWith ("ok")));
+
+    // The losing lookup was interrupted
+    assertTrue (aInterrupted.await (1, TimeUnit.SECONDS));
+    ThreadHelper.sleep (100);
+    final DNSServerRace.ServerStats aSlowStats = aRace.getServerStats (SLOW);
+    assertNotNull (aSlowStats);
+    assertEquals (0, aSlowStats.getFailureCount ());
+    assertEquals (0, aSlowStats.getConsecutiveFailures ());
+    // The time until the cancellation is recorded
+    assertNotNull (aSlowStats.getAverageLatency ());
+  }
+
+  @Test
+  public void testDefaultExecutorIsBounded ()
+  {
+    final DNSServerRace aRace = new DNSServerRace ();
+    final ThreadPoolExecutor aExecutor = (ThreadPoolExecutor) aRace.getExecutor ();
+    assertEquals (aRace.getRaceWidth () * DNSServerRace.DEFAULT_MAX_CONCURRENT_RACES, aExecutor.getMaximumPoolSize ());
+    assertTrue (aExecutor.getRejectedExecutionHandler () instanceof ThreadPoolExecutor.CallerRunsPolicy);
+  }
+
+  @Test
+  public void testRanking () throws Exception
+  {
+    final DNSServerRace aRace = new DNSServerRace (1,
+                                                   DNSServerRace.DEFAULT_LATENCY_WEIGHT,
+                                                   2,
+                                                   Duration.ofMinutes (1),
+                                                   null);
+    final List <InetAddress> aServers = List.of (BROKEN, SLOW, FAST);
+
+    // Unknown servers are ranked first and keep their order
+    assertEquals (List.of (BROKEN), aRace.getRaceServers (aServers));
+
+    // Invalid answers are failures
+    assertEquals ("error", aRace.race (aServers, DNSServerRaceTest::_lookup, x -> x.startsWith ("ok")));
+    assertEquals (1, aRace.getServerStats (BROKEN).getConsecutiveFailures ());
+    assertTrue (aRace.getServerStats (BROKEN).isHealthy ());
+
+    // Now the unknown servers are used
+    assertEquals ("ok-" + SLOW.getHostAddress (), aRace.race (aServers, DNSServerRaceTest::_lookup, x -> x.startsWith ("ok")));
+    assertEquals ("ok-" + FAST.getHostAddress (), aRace.race (aServers, DNSServerRaceTest::_lookup, x -> x.startsWith ("ok")));
+    // Fastest first
+    assertEquals (List.of (FAST), aRace.getRaceServers (aServers));
+
+    // Unhealthy servers come last
+    aRace.race (List.of (BROKEN), DNSServerRaceTest::_lookup, x -> x.startsWith ("ok"));
+    assertFalse (aRace.getServerStats (BROKEN).isHealthy ());
+    assertEquals (2, aRace.getServerStats (BROKEN).getFailureCount ());
+    assertEquals (List.of (FAST), aRace.getRaceServers (List.of (BROKEN, FAST)));
+    // But are used, if nothing else is available
+    assertEquals (List.of (BROKEN), aRace.getRaceServers (List.of (BROKEN)));
+
+    aRace.resetServerStats ();
+    assertEquals (0, aRace.getAllServerStats ().size ());
+  }
+
+  @Test
+  public void testException () throws Exception
+  {
+    final DNSServerRace aRace = new DNSServerRace ();
+    try
+    {
+      aRace.race (List.of (FAST, SLOW), x -> {
+        throw new IllegalArgumentException ("oops");
+      }, x -> true);
+      fail ();
+    }
+    catch (final IllegalArgumentException ex)
+    {
+      // expected
+    }
+    assertEquals (1, aRace.getServerStats (FAST).getFailureCount ());
+    assertEquals (1, aRace.getServerStats (SLOW).getFailureCount ());
+  }
+}
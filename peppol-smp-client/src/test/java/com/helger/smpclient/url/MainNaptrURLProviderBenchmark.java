@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.url;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.base.timing.StopWatch;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+import com.helger.peppol.sml.ESML;
+import com.helger.peppolid.IParticipantIdentifier;
+import com.helger.peppolid.factory.PeppolIdentifierFactory;
+
+/**
+ * Concurrent lookup benchmark of {@link PeppolNaptrURLProvider} against the
+ * {@link MockNaptrDNSServer}, so that the real SML DNS is not used. As custom DNS servers are
+ * contacted on port 53, this needs the privileges to bind to port 53 of the loopback address.
+ *
+ * @author Philip Helger
+ */
+public final class MainNaptrURLProviderBenchmark
+{
+  private static final Logger LOGGER = LoggerFactory.getLogger (MainNaptrURLProviderBenchmark.class);
+  private static final int PARTICIPANT_COUNT = 10_000;
+
+  public static void main (final String [] args) throws Exception
+  {
+    final PeppolNaptrURLProvider aURLProvider = new PeppolNaptrURLProvider ();
+    final String sZone = ESML.PEPPOL_TEST.getDNSZone ();
+
+    try (final MockNaptrDNSServer aServer = new MockNaptrDNSServer (InetAddress.getLoopbackAddress (), 53))
+    {
+      // Register 90% of the participants
+      final ICommonsList <IParticipantIdentifier> aPIs = new CommonsArrayList <> ();
+      for (int i = 0; i < PARTICIPANT_COUNT; ++i)
+      {
+        final IParticipantIdentifier aPI = PeppolIdentifierFactory.INSTANCE.createParticipantIdentifierWithDefaultScheme ("9915:bench" +
+                                                                                                                          i);
+        aPIs.add (aPI);
+        if (i % 10 != 0)
+          aServer.addSMPURL (aURLProvider.getDNSNameOfParticipant (aPI, sZone),
+                             PeppolNaptrURLProvider.DNS_UNAPTR_SERVICE_NAME_META_SMP,
+                             "https://smp" + (i % 50) + ".example.org",
+                             MockNaptrDNSServer.DEFAULT_TTL_SECONDS);
+      }
+      aServer.setLatency (Duration.ofMillis (2), Duration.ofMillis (8));
+      aServer.setFailure (0.01, MockNaptrDNSServer.EFailure.SERVFAIL);
+      aURLProvider.customDNSServers ().add (aServer.getAddress ().getAddress ());
+
+      for (final int nConcurrency : new int [] { 1, 8, 32, 128 })
+      {
+        final StopWatch aSW = StopWatch.createdStarted ();
+        final int [] aCounts = new int [3];
+        try (final Stream <SMPURIResolutionResult> aResults = aURLProvider.getAllSMPURIsOfParticipants (aPIs,
+                                                                                                        sZone,
+                                                                                                        nConcurrency))
+        {
+          aResults.forEach (x -> aCounts[x.isResolved () ? 0 : x.isNotRegistered () ? 1 : 2]++);
+        }
+        final long nMillis = aSW.stopAndGetMillis ();
+        LOGGER.info ("Concurrency " +
+                     nConcurrency +
+                     ": " +
+                     PARTICIPANT_COUNT +
+                     " lookups in " +
+                     nMillis +
+                     " ms (" +
+                     (PARTICIPANT_COUNT * 1000L / Math.max (1, nMillis)) +
+                     " lookups/s); resolved=" +
+                     aCounts[0] +
+                     ", not registered=" +
+                     aCounts[1] +
+                     ", failed=" +
+                     aCounts[2]);
+      }
+      LOGGER.info ("DNS server received " + aServer.getQueryCount () + " queries");
+    }
+  }
+}
@@ -0,0 +1,389 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.url;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jspecify.annotations.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xbill.DNS.DClass;
+import org.xbill.DNS.Flags;
+import org.xbill.DNS.Master;
+import org.xbill.DNS.Message;
+import org.xbill.DNS.NAPTRRecord;
+import org.xbill.DNS.Name;
+import org.xbill.DNS.OPTRecord;
+import org.xbill.DNS.Rcode;
+import org.xbill.DNS.Record;
+import org.xbill.DNS.Section;
+import org.xbill.DNS.TextParseException;
+import org.xbill.DNS.Type;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+
+/**
+ * A small in-process DNS server (UDP only) that serves NAPTR records from an in-memory zone. It is
+ * meant for offline tests and benchmarks of the BDXL URL providers, without touching the real SML
+ * DNS. A configurable latency and failure rate can be injected.
+ * <p>
+ * Usage with {@link AbstractBDXLURLProvider#customDNSServers()}: as custom DNS servers are always
+ * contacted on port 53, the server must be bound to port 53 of a local address for that (e.g.
+ * <code>new MockNaptrDNSServer (InetAddress.getLoopbackAddress (), 53)</code>), which requires the
+ * respective privileges. For plain dnsjava tests, any free port can be used (port 0).
+ * </p>
+ *
+ * @author Philip Helger
+ */
+@ThreadSafe
+public final class MockNaptrDNSServer implements AutoCloseable
+{
+  /** The TTL used for records that are added without a TTL */
+  public static final long DEFAULT_TTL_SECONDS = 60;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger (MockNaptrDNSServer.class);
+  private static final AtomicInteger THREAD_INDEX = new AtomicInteger (0);
+
+  /**
+   * The kind of injected failures.
+   */
+  public enum EFailure
+  {
+    /** Respond with SERVFAIL */
+    SERVFAIL,
+    /** Respond with REFUSED */
+    REFUSED,
+    /** Don't respond at all, so that the client runs into a timeout */
+    DROP;
+  }
+
+  private final DatagramSocket m_aSocket;
+  private final ScheduledExecutorService m_aResponder;
+  private final Thread m_aReceiver;
+  private final Map <Name, List <Record>> m_aZone = new ConcurrentHashMap <> ();
+  private volatile long m_nLatencyNanos;
+  private volatile long m_nJitterNanos;
+  private volatile double m_dFailureRate;
+  private volatile EFailure m_eFailure = EFailure.SERVFAIL;
+  private volatile boolean m_bClosed;
+  private final AtomicLong m_aQueryCount = new AtomicLong ();
+  private final AtomicLong m_aFailureCount = new AtomicLong ();
+
+  /**
+   * Start a server on a free port of the loopback address.
+   *
+   * @throws SocketException
+   *         If the socket cannot be bound
+   */
+  public MockNaptrDNSServer () throws SocketException
+  {
+    this (InetAddress.getLoopbackAddress (), 0);
+  }
+
+  /**
+   * Start a server on the provided address and port.
+   *
+   * @param aAddress
+   *        The local address to bind to. May not be <code>null</code>.
+   * @param nPort
+   *        The local UDP port to bind to. Use 0 for a free port.
+   * @throws SocketException
+   *         If the socket cannot be bound
+   */
+  public MockNaptrDNSServer (@NonNull final InetAddress aAddress, @Nonnegative final int nPort) throws SocketException
+  {
+    ValueEnforcer.notNull (aAddress, "Address");
+    m_aSocket = new DatagramSocket (new InetSocketAddress (aAddress, nPort));
+    final int nIndex = THREAD_INDEX.incrementAndGet ();
+    // Delayed responses must not block other queries
+    m_aResponder = Executors.newScheduledThreadPool (Math.max (2, Runtime.getRuntime ().availableProcessors ()), r -> {
+      final Thread t = new Thread (r, "mock-dns-respond-" + nIndex);
+      t.setDaemon (true);
+      return t;
+    });
+    m_aReceiver = new Thread (this::_receiveLoop, "mock-dns-receive-" + nIndex);
+    m_aReceiver.setDaemon (true);
+    m_aReceiver.start ();
+  }
+
+  /**
+   * @return The socket address the server is listening on. Never <code>null</code>.
+   */
+  @NonNull
+  public InetSocketAddress getAddress ()
+  {
+    return (InetSocketAddress) m_aSocket.getLocalSocketAddress ();
+  }
+
+  /**
+   * Add a record to the zone. Multiple records for the same name are served together.
+   *
+   * @param aRecord
+   *        The record to add. May not be <code>null</code>.
+   * @return this for chaining
+   */
+  @NonNull
+  public MockNaptrDNSServer addRecord (@NonNull final Record aRecord)
+  {
+    ValueEnforcer.notNull (aRecord, "Record");
+    m_aZone.computeIfAbsent (aRecord.getName (), k -> new CopyOnWriteArrayList <> ()).add (aRecord);
+    return this;
+  }
+
+  /**
+   * Add a U-NAPTR record that points to an SMP.
+   *
+   * @param sDNSName
+   *        The DNS name of the participant, e.g. as returned by
+   *        {@link AbstractBDXLURLProvider#getDNSNameOfParticipant(com.helger.peppolid.IParticipantIdentifier, String)}.
+   *        May not be <code>null</code>.
+   * @param sServiceName
+   *        The U-NAPTR service name, e.g. "Meta:SMP". May not be <code>null</code>.
+   * @param sURL
+   *        The SMP URL. May not be <code>null</code>.
+   * @param nTTLSeconds
+   *        The TTL of the record in seconds.
+   * @return this for chaining
+   * @throws TextParseException
+   *         If the DNS name is invalid
+   */
+  @NonNull
+  public MockNaptrDNSServer addSMPURL (@NonNull final String sDNSName,
+                                      @NonNull final String sServiceName,
+                                      @NonNull final String sURL,
+                                      @Nonnegative final long nTTLSeconds) throws TextParseException
+  {
+    final Name aName = Name.fromString (sDNSName, Name.root);
+    return addRecord (new NAPTRRecord (aName,
+                                       DClass.IN,
+                                       nTTLSeconds,
+                                       100,
+                                       10,
+                                       "U",
+                                       sServiceName,
+                                       "!^.*$!" + sURL + "!",
+                                       Name.root));
+  }
+
+  /**
+   * Add all records of a zone file in master file format.
+   *
+   * @param aZoneFile
+   *        The zone file to read. May not be <code>null</code>.
+   * @param sOrigin
+   *        The origin for relative names. May not be <code>null</code>.
+   * @return this for chaining
+   * @throws IOException
+   *         If the file cannot be read or parsed
+   */
+  @NonNull
+  public MockNaptrDNSServer addZoneFile (@NonNull final Path aZoneFile, @NonNull final String sOrigin) throws IOException
+  {
+    try (final InputStream aIS = Files.newInputStream (aZoneFile))
+    {
+      final Master aMaster = new Master (aIS, Name.fromString (sOrigin, Name.root), DEFAULT_TTL_SECONDS);
+      Record aRecord;
+      while ((aRecord = aMaster.nextRecord ()) != null)
+        addRecord (aRecord);
+    }
+    return this;
+  }
+
+  /**
+   * Remove all records from the zone.
+   */
+  public void clearZone ()
+  {
+    m_aZone.clear ();
+  }
+
+  /**
+   * Set the latency that is added to every response.
+   *
+   * @param aLatency
+   *        The fixed latency. May not be <code>null</code>.
+   * @param aJitter
+   *        The maximum random latency that is added to the fixed latency. May not be
+   *        <code>null</code>.
+   * @return this for chaining
+   */
+  @NonNull
+  public MockNaptrDNSServer setLatency (@NonNull final Duration aLatency, @NonNull final Duration aJitter)
+  {
+    ValueEnforcer.notNull (aLatency, "Latency");
+    ValueEnforcer.notNull (aJitter, "Jitter");
+    m_nLatencyNanos = aLatency.toNanos ();
+    m_nJitterNanos = aJitter.toNanos ();
+    return this;
+  }
+
+  /**
+   * Inject failures.
+   *
+   * @param dFailureRate
+   *        The share of queries that fail, between 0 (no failures) and 1 (all queries fail).
+   * @param eFailure
+   *        The kind of failure. May not be <code>null</code>.
+   * @return this for chaining
+   */
+  @NonNull
+  public MockNaptrDNSServer setFailure (final double dFailureRate, @NonNull final EFailure eFailure)
+  {
+    ValueEnforcer.isBetweenInclusive (dFailureRate, "FailureRate", 0, 1);
+    ValueEnforcer.notNull (eFailure, "Failure");
+    m_dFailureRate = dFailureRate;
+    m_eFailure = eFailure;
+    return this;
+  }
+
+  /**
+   * @return The number of received queries.
+   */
+  @Nonnegative
+  public long getQueryCount ()
+  {
+    return m_aQueryCount.get ();
+  }
+
+  /**
+   * @return The number of queries with an injected failure.
+   */
+  @Nonnegative
+  public long getFailureCount ()
+  {
+    return m_aFailureCount.get ();
+  }
+
+  private void _receiveLoop ()
+  {
+    while (!m_bClosed)
+    {
+      final DatagramPacket aPacket = new DatagramPacket (new byte [65_535], 65_535);
+      try
+      {
+        m_aSocket.receive (aPacket);
+      }
+      catch (final IOException ex)
+      {
+        if (!m_bClosed)
+          LOGGER.error ("Failed to receive DNS query", ex);
+        continue;
+      }
+
+      m_aQueryCount.incrementAndGet ();
+      final byte [] aQuery = Arrays.copyOf (aPacket.getData (), aPacket.getLength ());
+      final InetSocketAddress aSender = (InetSocketAddress) aPacket.getSocketAddress ();
+      final long nDelay = m_nLatencyNanos +
+                          (m_nJitterNanos > 0 ? ThreadLocalRandom.current ().nextLong (m_nJitterNanos + 1) : 0);
+      if (nDelay > 0)
+        m_aResponder.schedule ( () -> _respond (aQuery, aSender), nDelay, TimeUnit.NANOSECONDS);
+      else
+        m_aResponder.execute ( () -> _respond (aQuery, aSender));
+    }
+  }
+
+  private void _respond (@NonNull final byte [] aQueryBytes, @NonNull final InetSocketAddress aSender)
+  {
+    final Message aQuery;
+    try
+    {
+      aQuery = new Message (aQueryBytes);
+    }
+    catch (final IOException ex)
+    {
+      LOGGER.warn ("Ignoring invalid DNS query: " + ex.getMessage ());
+      return;
+    }
+
+    final Message aResponse = new Message (aQuery.getHeader ().getID ());
+    aResponse.getHeader ().setFlag (Flags.QR);
+    if (aQuery.getHeader ().getFlag (Flags.RD))
+      aResponse.getHeader ().setFlag (Flags.RD);
+
+    final Record aQuestion = aQuery.getQuestion ();
+    if (aQuestion != null)
+      aResponse.addRecord (aQuestion, Section.QUESTION);
+
+    final double dFailureRate = m_dFailureRate;
+    if (dFailureRate > 0 && ThreadLocalRandom.current ().nextDouble () < dFailureRate)
+    {
+      m_aFailureCount.incrementAndGet ();
+      final EFailure eFailure = m_eFailure;
+      if (eFailure == EFailure.DROP)
+        return;
+      aResponse.getHeader ().setRcode (eFailure == EFailure.REFUSED ? Rcode.REFUSED : Rcode.SERVFAIL);
+    }
+    else
+      if (aQuestion == null)
+        aResponse.getHeader ().setRcode (Rcode.FORMERR);
+      else
+      {
+        aResponse.getHeader ().setFlag (Flags.AA);
+        final List <Record> aRecords = m_aZone.get (aQuestion.getName ());
+        if (aRecords == null)
+          aResponse.getHeader ().setRcode (Rcode.NXDOMAIN);
+        else
+          for (final Record aRecord : aRecords)
+            if (aQuestion.getType () == Type.ANY || aRecord.getType () == aQuestion.getType ())
+              aResponse.addRecord (aRecord, Section.ANSWER);
+        // Otherwise NOERROR without answers (NODATA)
+      }
+
+    // Respect the EDNS buffer size - dnsjava truncates and sets the TC flag
+    final OPTRecord aOPT = aQuery.getOPT ();
+    final int nMaxLength = aOPT != null ? Math.max (512, aOPT.getPayloadSize ()) : 512;
+    final byte [] aResponseBytes = aResponse.toWire (nMaxLength);
+    try
+    {
+      m_aSocket.send (new DatagramPacket (aResponseBytes, aResponseBytes.length, aSender));
+    }
+    catch (final IOException ex)
+    {
+      if (!m_bClosed)
+        LOGGER.error ("Failed to send DNS response", ex);
+    }
+  }
+
+  public void close ()
+  {
+    m_bClosed = true;
+    m_aSocket.close ();
+    m_aResponder.shutdownNow ();
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.url;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import org.jspecify.annotations.NonNull;
+import org.junit.Test;
+import org.xbill.DNS.DClass;
+import org.xbill.DNS.Message;
+import org.xbill.DNS.NAPTRRecord;
+import org.xbill.DNS.Name;
+import org.xbill.DNS.Rcode;
+import org.xbill.DNS.Record;
+import org.xbill.DNS.Section;
+import org.xbill.DNS.SimpleResolver;
+import org.xbill.DNS.Type;
+
+import com.helger.peppol.sml.ESML;
+import com.helger.peppolid.factory.PeppolIdentifierFactory;
+
+/**
+ * Test class for class {@link MockNaptrDNSServer}.
+ *
+ * @author Philip Helger
+ */
+public final class MockNaptrDNSServerTest
+{
+  @NonNull
+  private static Message _query (final MockNaptrDNSServer aServer, final String sName) throws IOException
+  {
+    final SimpleResolver aResolver = new SimpleResolver (aServer.getAddress ());
+    aResolver.setTimeout (Duration.ofMillis (500));
+    return aResolver.send (Message.newQuery (Record.newRecord (Name.fromString (sName, Name.root),
+                                                               Type.NAPTR,
+                                                               DClass.IN)));
+  }
+
+  @Test
+  public void testServeNaptr () throws Exception
+  {
+    final String sDNSName = PeppolNaptrURLProvider.INSTANCE.getDNSNameOfParticipant (PeppolIdentifierFactory.INSTANCE.createParticipantIdentifierWithDefaultScheme ("9915:test"),
+                                                                                      ESML.PEPPOL_TEST);
+    try (final MockNaptrDNSServer aServer = new MockNaptrDNSServer ())
+    {
+      aServer.addSMPURL (sDNSName,
+                         PeppolNaptrURLProvider.DNS_UNAPTR_SERVICE_NAME_META_SMP,
+                         "https://smp.example.org",
+                         MockNaptrDNSServer.DEFAULT_TTL_SECONDS);
+
+      final Message aResponse = _query (aServer, sDNSName);
+      assertEquals (Rcode.NOERROR, aResponse.getRcode ());
+      final List <Record> aAnswers = aResponse.getSection (Section.ANSWER);
+      assertEquals (1, aAnswers.size ());
+      final NAPTRRecord aNaptr = (NAPTRRecord) aAnswers.get (0);
+      assertEquals ("U", aNaptr.getFlags ());
+      assertEquals (PeppolNaptrURLProvider.DNS_UNAPTR_SERVICE_NAME_META_SMP, aNaptr.getService ());
+      assertEquals ("!^.*$!https://smp.example.org!", aNaptr.getRegexp ());
+      assertEquals (MockNaptrDNSServer.DEFAULT_TTL_SECONDS, aNaptr.getTTL ());
+
+      // DNS names are case insensitive
+      assertEquals (1, _query (aServer, sDNSName.toUpperCase ()).getSection (Section.ANSWER).size ());
+
+      // Unknown name
+      assertEquals (Rcode.NXDOMAIN, _query (aServer, "unknown.example.org").getRcode ());
+      assertEquals (3, aServer.getQueryCount ());
+    }
+  }
+
+  @Test
+  public void testZoneFile () throws Exception
+  {
+    final Path aZoneFile = Files.createTempFile ("mock-dns", ".zone");
+    try (final MockNaptrDNSServer aServer = new MockNaptrDNSServer ())
+    {
+      Files.writeString (aZoneFile,
+                         "abc 120 IN NAPTR 100 10 \"U\" \"Meta:SMP\" \"!^.*$!http://smp.example.org!\" .\n",
+                         StandardCharsets.US_ASCII);
+      aServer.addZoneFile (aZoneFile, "participant.example.org.");
+
+      final List <Record> aAnswers = _query (aServer, "abc.participant.example.org").getSection (Section.ANSWER);
+      assertEquals (1, aAnswers.size ());
+      assertEquals (120, aAnswers.get (0).getTTL ());
+    }
+    finally
+    {
+      Files.deleteIfExists (aZoneFile);
+    }
+  }
+
+  @Test
+  public void testFailureInjection () throws Exception
+  {
+    try (final MockNaptrDNSServer aServer = new MockNaptrDNSServer ())
+    {
+      aServer.addSMPURL ("abc.example.org", "Meta:SMP", "https://smp.example.org", 60);
+
+      aServer.setFailure (1, MockNaptrDNSServer.EFailure.SERVFAIL);
+      assertEquals (Rcode.SERVFAIL, _query (aServer, "abc.example.org").getRcode ());
+
+      aServer.setFailure (1, MockNaptrDNSServer.EFailure.DROP);
+      try
+      {
+        _query (aServer, "abc.example.org");
+        fail ();
+      }
+      catch (final IOException ex)
+      {
+        // expected timeout
+      }
+      assertEquals (2, aServer.getFailureCount ());
+
+      // Latency
+      aServer.setFailure (0, MockNaptrDNSServer.EFailure.SERVFAIL);
+      aServer.setLatency (Duration.ofMillis (100), Duration.ZERO);
+      final long nStart = System.nanoTime ();
+      assertEquals (Rcode.NOERROR, _query (aServer, "abc.example.org").getRcode ());
+      assertTrue (System.nanoTime () - nStart >= Duration.ofMillis (100).toNanos ());
+    }
+  }
+}
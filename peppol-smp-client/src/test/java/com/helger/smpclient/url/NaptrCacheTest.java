@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.url;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+
+import org.junit.Test;
+
+import com.helger.base.concurrent.ThreadHelper;
+import com.helger.smpclient.url.SMPDNSResolutionException.EErrorCode;
+
+/**
+ * Test class for class {@link NaptrCache}.
+ *
+ * @author Philip Helger
+ */
+public final class NaptrCacheTest
+{
+  @Test
+  public void testTTL ()
+  {
+    final NaptrCache aCache = new NaptrCache ();
+    assertNull (aCache.get ("a.example.org"));
+    aCache.put ("a.example.org", "https://smp.example.org", Duration.ofMillis (50));
+    aCache.put ("b.example.org", "https://smp2.example.org", Duration.ofHours (1));
+    assertEquals ("https://smp.example.org", aCache.get ("a.example.org"));
+    assertEquals (2, aCache.getAllEntries ().size ());
+
+    ThreadHelper.sleep (100);
+    assertNull (aCache.get ("a.example.org"));
+    assertEquals ("https://smp2.example.org", aCache.get ("b.example.org"));
+    assertEquals (1, aCache.size ());
+    assertEquals (2, aCache.getHitCount ());
+    assertEquals (2, aCache.getMissCount ());
+
+    // TTL 0 means "don't cache"
+    aCache.put ("b.example.org", "https://smp2.example.org", Duration.ZERO);
+    assertNull (aCache.get ("b.example.org"));
+  }
+
+  @Test
+  public void testClamp ()
+  {
+    final NaptrCache aCache = new NaptrCache (10, Duration.ofMinutes (1), Duration.ofHours (2), Duration.ofHours (1));
+    assertEquals (Duration.ofMinutes (1), aCache.getEffectiveTTL (Duration.ZERO));
+    assertEquals (Duration.ofMinutes (5), aCache.getEffectiveTTL (Duration.ofMinutes (5)));
+    assertEquals (Duration.ofHours (2), aCache.getEffectiveTTL (Duration.ofDays (1)));
+
+    // Clamped to the minimum
+    aCache.put ("a.example.org", "https://smp.example.org", Duration.ZERO);
+    assertEquals ("https://smp.example.org", aCache.get ("a.example.org"));
+  }
+
+  @Test
+  public void testBounded ()
+  {
+    final NaptrCache aCache = new NaptrCache (100, null, null, NaptrCache.DEFAULT_TTL);
+    for (int i = 0; i < 1000; ++i)
+      aCache.put ("p" + i + ".example.org", "https://smp.example.org", Duration.ofSeconds (i + 1));
+    assertTrue (aCache.size () <= 100);
+
+    // The entries that expire first are evicted
+    assertNull (aCache.get ("p0.example.org"));
+    assertEquals ("https://smp.example.org", aCache.get ("p999.example.org"));
+  }
+
+  @Test
+  public void testCopy ()
+  {
+    final NaptrCache aCache = new NaptrCache ();
+    aCache.put ("a.example.org", "https://smp.example.org", null);
+    final NaptrCache aCopy = new NaptrCache (aCache);
+    aCache.clear ();
+    assertNull (aCache.get ("a.example.org"));
+    assertEquals ("https://smp.example.org", aCopy.get ("a.example.org"));
+  }
+
+  @Test
+  public void testNegative ()
+  {
+    final NaptrCache aCache = new NaptrCache (10, null, null, NaptrCache.DEFAULT_TTL, Duration.ofMillis (50));
+    aCache.putNegative ("a.example.org", EErrorCode.PARTICIPANT_NOT_REGISTERED, "not registered", null);
+    aCache.putNegative ("b.example.org", EErrorCode.NO_MATCHING_SMP_SERVICE, "no match", Duration.ofHours (1));
+    // Technical failures are never cached
+    aCache.putNegative ("c.example.org", EErrorCode.DNS_TECHNICAL_FAILURE, "timeout", null);
+
+    NaptrCache.CacheEntry aEntry = aCache.getEntry ("a.example.org");
+    assertNotNull (aEntry);
+    assertTrue (aEntry.isNegative ());
+    assertEquals (EErrorCode.PARTICIPANT_NOT_REGISTERED, aEntry.getErrorCode ());
+    assertNull (aEntry.getValue ());
+    assertNull (aCache.get ("a.example.org"));
+    assertNull (aCache.getEntry ("c.example.org"));
+    assertTrue (aCache.getAllEntries ().isEmpty ());
+
+    ThreadHelper.sleep (100);
+    assertNull (aCache.getEntry ("a.example.org"));
+    aEntry = aCache.getEntry ("b.example.org");
+    assertNotNull (aEntry);
+    assertEquals (EErrorCode.NO_MATCHING_SMP_SERVICE, aEntry.getErrorCode ());
+
+    // A positive result replaces the negative one
+    aCache.put ("b.example.org", "https://smp.example.org", null);
+    aEntry = aCache.getEntry ("b.example.org");
+    assertNotNull (aEntry);
+    assertFalse (aEntry.isNegative ());
+    assertEquals ("https://smp.example.org", aEntry.getValue ());
+  }
+
+  @Test
+  public void testReplace ()
+  {
+    final NaptrCache aCache = new NaptrCache ();
+    aCache.put ("a.example.org", "https://smp.example.org", Duration.ofHours (1));
+    final NaptrCache.CacheEntry aEntry = aCache.getEntry ("a.example.org");
+    assertNotNull (aEntry);
+
+    assertTrue (aCache.replace ("a.example.org", aEntry, "https://smp2.example.org", null));
+    assertEquals ("https://smp2.example.org", aCache.get ("a.example.org"));
+
+    // The expected entry is no longer in the cache
+    assertFalse (aCache.replace ("a.example.org", aEntry, "https://smp3.example.org", null));
+    assertEquals ("https://smp2.example.org", aCache.get ("a.example.org"));
+
+    // Removed entries are not added again
+    aCache.remove ("a.example.org");
+    assertFalse (aCache.replace ("a.example.org", aEntry, "https://smp3.example.org", null));
+    assertNull (aCache.get ("a.example.org"));
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.url;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test class for class {@link NaptrOverrideTable}.
+ *
+ * @author Philip Helger
+ */
+public final class NaptrOverrideTableTest
+{
+  @Rule
+  public final TemporaryFolder m_aTempFolder = new TemporaryFolder ();
+
+  private static void _write (final Path aPath, final String sContent, final long nModified) throws Exception
+  {
+    // Write to a temporary file and move it, like it is recommended
+    final Path aTmp = aPath.resolveSibling (aPath.getFileName () + ".tmp");
+    Files.write (aTmp, sContent.getBytes (StandardCharsets.UTF_8));
+    Files.setLastModifiedTime (aTmp, FileTime.fromMillis (nModified));
+    Files.move (aTmp, aPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  @Test
+  public void testBasic () throws Exception
+  {
+    final File aFile = new File (m_aTempFolder.getRoot (), "naptr-override.txt");
+    final Path aPath = aFile.toPath ();
+    _write (aPath,
+            "# Comment\n\nB-ABC.iso6523-actorid-upis.example.org. https://smp1.example.org\r\n" +
+                   "  b-def.iso6523-actorid-upis.example.org\thttps://smp2.example.org/path  \n",
+            1_000_000);
+
+    final NaptrOverrideTable aTable = new NaptrOverrideTable (aPath, Duration.ZERO);
+    assertEquals (2, aTable.size ());
+    assertEquals ("https://smp1.example.org", aTable.get ("b-abc.iso6523-actorid-upis.example.org"));
+    assertEquals ("https://smp1.example.org", aTable.get ("B-ABC.ISO6523-ACTORID-UPIS.EXAMPLE.ORG."));
+    assertEquals ("https://smp2.example.org/path", aTable.get ("b-def.iso6523-actorid-upis.example.org."));
+    assertNull (aTable.get ("b-xyz.iso6523-actorid-upis.example.org"));
+    assertNull (aTable.get (null));
+    assertNull (aTable.get (""));
+
+    // Changed file is used
+    _write (aPath, "b-xyz.iso6523-actorid-upis.example.org https://smp3.example.org\n", 2_000_000);
+    assertEquals ("https://smp3.example.org", aTable.get ("b-xyz.iso6523-actorid-upis.example.org"));
+    assertNull (aTable.get ("b-abc.iso6523-actorid-upis.example.org"));
+    assertEquals (1, aTable.size ());
+
+    // Invalid file - previous table is kept
+    _write (aPath, "b-abc.iso6523-actorid-upis.example.org https://smp1.example.org\nonly-a-name\n", 3_000_000);
+    assertEquals ("https://smp3.example.org", aTable.get ("b-xyz.iso6523-actorid-upis.example.org"));
+    assertNull (aTable.get ("b-abc.iso6523-actorid-upis.example.org"));
+
+    _write (aPath, "b-abc.iso6523-actorid-upis.example.org https://smp^1.example.org\n", 4_000_000);
+    assertEquals ("https://smp3.example.org", aTable.get ("b-xyz.iso6523-actorid-upis.example.org"));
+
+    // Deleted file
+    Files.delete (aPath);
+    assertNull (aTable.get ("b-xyz.iso6523-actorid-upis.example.org"));
+    assertEquals (0, aTable.size ());
+  }
+
+  @Test
+  public void testCheckInterval () throws Exception
+  {
+    final Path aPath = new File (m_aTempFolder.getRoot (), "naptr-override.txt").toPath ();
+    final NaptrOverrideTable aTable = new NaptrOverrideTable (aPath, Duration.ofHours (1));
+    assertEquals (0, aTable.size ());
+
+    _write (aPath, "b-abc.iso6523-actorid-upis.example.org https://smp1.example.org\n", 1_000_000);
+    // Not yet checked again
+    assertNull (aTable.get ("b-abc.iso6523-actorid-upis.example.org"));
+
+    aTable.reload ();
+    assertEquals ("https://smp1.example.org", aTable.get ("b-abc.iso6523-actorid-upis.example.org"));
+  }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.url;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.helger.base.concurrent.ThreadHelper;
+import com.helger.smpclient.url.NaptrCache.CacheEntry;
+import com.helger.smpclient.url.SMPDNSResolutionException.EErrorCode;
+
+/**
+ * Test class for class {@link NaptrPrefetcher}.
+ *
+ * @author Philip Helger
+ */
+public final class NaptrPrefetcherTest
+{
+  private static final String NAME = "a.example.org";
+
+  private static void _access (final NaptrPrefetcher aPrefetcher,
+                               final NaptrCache aCache,
+                               final NaptrPrefetcher.IRefresher aRefresher)
+  {
+    final CacheEntry aEntry = aCache.getEntry (NAME);
+    assertNotNull (aEntry);
+    aPrefetcher.onCacheHit (NAME, aEntry, aCache, aRefresher);
+  }
+
+  private static void _await (final ExecutorService aExecutor) throws InterruptedException
+  {
+    // Wait for all submitted tasks
+    aExecutor.shutdown ();
+    aExecutor.awaitTermination (5, TimeUnit.SECONDS);
+  }
+
+  @Test
+  public void testRefreshAhead () throws Exception
+  {
+    final ExecutorService aExecutor = Executors.newSingleThreadExecutor ();
+    final NaptrCache aCache = new NaptrCache ();
+    final AtomicInteger aLookups = new AtomicInteger ();
+    final NaptrPrefetcher.IRefresher aRefresher = x -> {
+      aLookups.incrementAndGet ();
+      aCache.put (x, "https://smp2.example.org", Duration.ofSeconds (10));
+    };
+    try (final NaptrPrefetcher aPrefetcher = new NaptrPrefetcher (0.5, 2, Duration.ZERO, Duration.ZERO, 100, aExecutor))
+    {
+      aCache.put (NAME, "https://smp.example.org", Duration.ofMillis (400));
+
+      // Frequently used, but too early
+      _access (aPrefetcher, aCache, aRefresher);
+      _access (aPrefetcher, aCache, aRefresher);
+      assertEquals (0, aLookups.get ());
+
+      ThreadHelper.sleep (250);
+      _access (aPrefetcher, aCache, aRefresher);
+      _await (aExecutor);
+      assertEquals (1, aLookups.get ());
+      assertEquals (1, aPrefetcher.getRefreshCount ());
+      assertEquals ("https://smp2.example.org", aCache.get (NAME));
+    }
+  }
+
+  @Test
+  public void testNotFrequentlyUsed () throws Exception
+  {
+    final ExecutorService aExecutor = Executors.newSingleThreadExecutor ();
+    final NaptrCache aCache = new NaptrCache ();
+    final AtomicInteger aLookups = new AtomicInteger ();
+    final NaptrPrefetcher.IRefresher aRefresher = x -> aLookups.incrementAndGet ();
+    try (final NaptrPrefetcher aPrefetcher = new NaptrPrefetcher (0.5, 2, Duration.ZERO, Duration.ZERO, 100, aExecutor))
+    {
+      aCache.put (NAME, "https://smp.example.org", Duration.ofMillis (400));
+      ThreadHelper.sleep (250);
+      _access (aPrefetcher, aCache, aRefresher);
+      _await (aExecutor);
+      assertEquals (0, aLookups.get ());
+      assertEquals (1, aPrefetcher.getTrackedNameCount ());
+    }
+  }
+
+  @Test
+  public void testGracePeriod () throws Exception
+  {
+    final ExecutorService aExecutor = Executors.newSingleThreadExecutor ();
+    final NaptrCache aCache = new NaptrCache ();
+    final NaptrPrefetcher.IRefresher aRefresher = x -> {
+      throw new SMPDNSResolutionException (EErrorCode.DNS_TECHNICAL_FAILURE, "DNS is down");
+    };
+    try (final NaptrPrefetcher aPrefetcher = new NaptrPrefetcher (0.5,
+                                                                  1,
+                                                                  Duration.ofMillis (500),
+                                                                  Duration.ofMinutes (1),
+                                                                  100,
+                                                                  aExecutor))
+    {
+      aCache.put (NAME, "https://smp.example.org", Duration.ofMillis (200));
+      ThreadHelper.sleep (120);
+      _access (aPrefetcher, aCache, aRefresher);
+      _await (aExecutor);
+      assertEquals (0, aPrefetcher.getRefreshCount ());
+      assertEquals (1, aPrefetcher.getRefreshFailureCount ());
+
+      // Still there after the original expiry
+      ThreadHelper.sleep (200);
+      assertEquals ("https://smp.example.org", aCache.get (NAME));
+
+      // But not after the grace period
+      ThreadHelper.sleep (600);
+      assertNull (aCache.get (NAME));
+    }
+  }
+
+  @Test
+  public void testGracePeriodKeepsNewerValue () throws Exception
+  {
+    final ExecutorService aExecutor = Executors.newSingleThreadExecutor ();
+    final NaptrCache aCache = new NaptrCache ();
+    final NaptrPrefetcher.IRefresher aRefresher = x -> {
+      // Another lookup succeeded while this refresh failed
+      aCache.put (x, "https://smp2.example.org", Duration.ofSeconds (10));
+      throw new SMPDNSResolutionException (EErrorCode.DNS_TECHNICAL_FAILURE, "DNS is down");
+    };
+    try (final NaptrPrefetcher aPrefetcher = new NaptrPrefetcher (0.5,
+                                                                  1,
+                                                                  Duration.ofMillis (500),
+                                                                  Duration.ofMinutes (1),
+                                                                  100,
+                                                                  aExecutor))
+    {
+      aCache.put (NAME, "https://smp.example.org", Duration.ofMillis (200));
+      ThreadHelper.sleep (120);
+      _access (aPrefetcher, aCache, aRefresher);
+      _await (aExecutor);
+      assertEquals (1, aPrefetcher.getRefreshFailureCount ());
+
+      // The newer value was not overwritten with the stale one
+      final CacheEntry aEntry = aCache.getEntry (NAME);
+      assertNotNull (aEntry);
+      assertEquals ("https://smp2.example.org", aEntry.getValue ());
+      assertTrue (aEntry.getExpiresAtNanos () - System.nanoTime () > Duration.ofSeconds (5).toNanos ());
+    }
+  }
+}
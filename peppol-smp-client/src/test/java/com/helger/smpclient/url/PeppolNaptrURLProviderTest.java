@@ -18,6 +18,7 @@ package com.helger.smpclient.url;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 import java.net.URI;
 
@@ -25,6 +26,8 @@ import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
 import com.helger.network.port.NetworkOnlineStatusDeterminator;
 import com.helger.peppol.sml.ESML;
 import com.helger.peppolid.IParticipantIdentifier;
@@ -83,6 +86,47 @@ public final class PeppolNaptrURLProviderTest
                                                         ESML.PEPPOL_TEST));
   }
 
+  @Test
+  public void testDNSNamesOfParticipants () throws SMPDNSResolutionException
+  {
+    final PeppolNaptrURLProvider aURLProvider = PeppolNaptrURLProvider.INSTANCE;
+    // More than the parallel threshold
+    final ICommonsList <IParticipantIdentifier> aPIs = new CommonsArrayList <> ();
+    for (int i = 0; i < 2_000; ++i)
+      aPIs.add (PeppolIdentifierFactory.INSTANCE.createParticipantIdentifierWithDefaultScheme ("9915:test" + i));
+    aPIs.add (PeppolIdentifierFactory.INSTANCE.createParticipantIdentifierWithDefaultScheme ("9915:test"));
+
+    final ICommonsList <String> aDNSNames = aURLProvider.getDNSNamesOfParticipants (aPIs, ESML.PEPPOL_TEST.getDNSZone ());
+    assertEquals (aPIs.size (), aDNSNames.size ());
+    for (int i = 0; i < aPIs.size (); ++i)
+      assertEquals (aURLProvider.getDNSNameOfParticipant (aPIs.get (i), ESML.PEPPOL_TEST), aDNSNames.get (i));
+    assertEquals ("eh5boavaktmbgzyh2a63dz4qov33fvp5nsdvqklucfraayoodw6a.iso6523-actorid-upis.participant.sml.test.tech.peppol.org",
+                  aDNSNames.getLast ());
+
+    // Memoized values are identical
+    AbstractBDXLURLProvider.clearDNSNameCache ();
+    assertEquals (aDNSNames, aURLProvider.getDNSNamesOfParticipants (aPIs, ESML.PEPPOL_TEST.getDNSZone ()));
+  }
+
+  @Test
+  public void testDNSNameCacheIsBounded () throws SMPDNSResolutionException
+  {
+    final PeppolNaptrURLProvider aURLProvider = PeppolNaptrURLProvider.INSTANCE;
+    AbstractBDXLURLProvider.clearDNSNameCache ();
+    for (int i = 0; i < AbstractBDXLURLProvider.DNS_NAME_CACHE_MAX_SIZE + 1_000; ++i)
+    {
+      final IParticipantIdentifier aPI = PeppolIdentifierFactory.INSTANCE.createParticipantIdentifierWithDefaultScheme ("9915:bounded" +
+                                                                                                                          i);
+      aURLProvider.getDNSNameOfParticipant (aPI, ESML.PEPPOL_TEST);
+    }
+
+    // Only a part of the entries is evicted
+    final int nSize = AbstractBDXLURLProvider.getDNSNameCacheSize ();
+    assertTrue (nSize <= AbstractBDXLURLProvider.DNS_NAME_CACHE_MAX_SIZE);
+    assertTrue (nSize >= AbstractBDXLURLProvider.DNS_NAME_CACHE_MAX_SIZE * 8 / 10);
+    AbstractBDXLURLProvider.clearDNSNameCache ();
+  }
+
   @Test
   public void testFindRegisteredSMPURL () throws SMPDNSResolutionException
   {
@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2015-2026 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.smpclient.url;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.junit.Test;
+
+import com.helger.base.concurrent.ThreadHelper;
+import com.helger.peppolid.IParticipantIdentifier;
+import com.helger.peppolid.factory.PeppolIdentifierFactory;
+import com.helger.smpclient.url.SMPDNSResolutionException.EErrorCode;
+
+/**
+ * Test class for the bulk resolution of
+ * {@link AbstractBDXLURLProvider#getAllSMPURIsOfParticipants(Iterable, String, int)}.
+ *
+ * @author Philip Helger
+ */
+public final class SMPURIBulkResolverTest
+{
+  /**
+   * A provider that does not use DNS.
+   */
+  private static final class MockURLProvider extends AbstractBDXLURLProvider
+  {
+    private final AtomicInteger m_aRunning = new AtomicInteger ();
+    private final AtomicInteger m_aMaxRunning = new AtomicInteger ();
+
+    @Override
+    @NonNull
+    public URI getSMPURIOfParticipant (@NonNull final IParticipantIdentifier aParticipantIdentifier,
+                                       @Nullable final String sSMLZoneName) throws SMPDNSResolutionException
+    {
+      final int nRunning = m_aRunning.incrementAndGet ();
+      m_aMaxRunning.accumulateAndGet (nRunning, Math::max);
+      try
+      {
+        ThreadHelper.sleep (5);
+        final String sValue = aParticipantIdentifier.getValue ();
+        if (sValue.startsWith ("9915:tech"))
+          throw new SMPDNSResolutionException (EErrorCode.DNS_TECHNICAL_FAILURE, "timeout");
+        if (sValue.startsWith ("9915:unknown"))
+          throw new SMPDNSResolutionException (EErrorCode.PARTICIPANT_NOT_REGISTERED, "not registered");
+        if (sValue.startsWith ("9915:nomatch"))
+          throw new SMPDNSResolutionException (EErrorCode.NO_MATCHING_SMP_SERVICE, "no matching service");
+        return URI.create ("http://smp.example.org/" + sValue);
+      }
+      finally
+      {
+        m_aRunning.decrementAndGet ();
+      }
+    }
+  }
+
+  @NonNull
+  private static IParticipantIdentifier _pid (@NonNull final String sValue)
+  {
+    return PeppolIdentifierFactory.INSTANCE.createParticipantIdentifierWithDefaultScheme (sValue);
+  }
+
+  @Test
+  public void testBulk ()
+  {
+    final List <IParticipantIdentifier> aPIDs = new ArrayList <> ();
+    for (int i = 0; i < 100; ++i)
+      aPIDs.add (_pid ("9915:test" + i));
+    for (int i = 0; i < 10; ++i)
+      aPIDs.add (_pid ("9915:unknown" + i));
+    for (int i = 0; i < 5; ++i)
+      aPIDs.add (_pid ("9915:tech" + i));
+
+    final MockURLProvider aProvider = new MockURLProvider ();
+    int nResolved = 0;
+    int nNotRegistered = 0;
+    int nTechnical = 0;
+    try (final Stream <SMPURIResolutionResult> aStream = aProvider.getAllSMPURIsOfParticipants (aPIDs, null, 8))
+    {
+      final Iterator <SMPURIResolutionResult> it = aStream.iterator ();
+      while (it.hasNext ())
+      {
+        final SMPURIResolutionResult aResult = it.next ();
+        if (aResult.isResolved ())
+        {
+          nResolved++;
+          assertEquals ("http://smp.example.org/" + aResult.getParticipantID ().getValue (),
+                        aResult.getSMPURI ().toString ());
+        }
+        else
+          if (aResult.isNotRegistered ())
+            nNotRegistered++;
+          else
+            if (aResult.isTechnicalFailure ())
+              nTechnical++;
+      }
+    }
+    assertEquals (100, nResolved);
+    assertEquals (10, nNotRegistered);
+    assertEquals (5, nTechnical);
+    assertTrue (aProvider.m_aMaxRunning.get () <= 8);
+    assertTrue (aProvider.m_aMaxRunning.get () > 1);
+  }
+
+  @Test
+  public void testIsRegistered () throws SMPDNSResolutionException
+  {
+    final MockURLProvider aProvider = new MockURLProvider ();
+    assertTrue (aProvider.isRegistered (_pid ("9915:test"), (String) null));
+    assertFalse (aProvider.isRegistered (_pid ("9915:unknown"), (String) null));
+    assertFalse (aProvider.isRegistered (_pid ("9915:nomatch"), (String) null));
+    try
+    {
+      aProvider.isRegistered (_pid ("9915:tech"), (String) null);
+      fail ();
+    }
+    catch (final SMPDNSResolutionException ex)
+    {
+      assertEquals (EErrorCode.DNS_TECHNICAL_FAILURE, ex.getErrorCode ());
+    }
+  }
+
+  @Test
+  public void testFilterRegistered ()
+  {
+    final List <IParticipantIdentifier> aPIDs = new ArrayList <> ();
+    for (int i = 0; i < 50; ++i)
+    {
+      aPIDs.add (_pid ("9915:test" + i));
+      aPIDs.add (_pid ("9915:unknown" + i));
+      aPIDs.add (_pid ("9915:nomatch" + i));
+    }
+    aPIDs.add (_pid ("9915:tech"));
+
+    final MockURLProvider aProvider = new MockURLProvider ();
+    final List <SMPURIResolutionResult> aFailures = new ArrayList <> ();
+    final Set <String> aRegistered = new HashSet <> ();
+    try (final Stream <IParticipantIdentifier> aStream = aProvider.filterRegistered (aPIDs, null, 8, aFailures::add))
+    {
+      aStream.forEach (x -> aRegistered.add (x.getValue ()));
+    }
+    assertEquals (50, aRegistered.size ());
+    for (final String sValue : aRegistered)
+      assertTrue (sValue.startsWith ("9915:test"));
+    assertEquals (1, aFailures.size ());
+    assertEquals ("9915:tech", aFailures.get (0).getParticipantID ().getValue ());
+  }
+
+  @Test
+  public void testEarlyClose ()
+  {
+    final List <IParticipantIdentifier> aPIDs = new ArrayList <> ();
+    for (int i = 0; i < 1000; ++i)
+      aPIDs.add (_pid ("9915:test" + i));
+
+    final MockURLProvider aProvider = new MockURLProvider ();
+    try (final Stream <SMPURIResolutionResult> aStream = aProvider.getAllSMPURIsOfParticipants (aPIDs, null, 4))
+    {
+      assertEquals (10, aStream.limit (10).count ());
+    }
+  }
+}